@@ -4,35 +4,48 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
 import java.io.Reader;
 import java.nio.charset.Charset;
 import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
 import java.nio.charset.UnsupportedCharsetException;
 
 import org.antlr.v4.runtime.ANTLRErrorListener;
 import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.io.Files;
-import com.google.common.io.LineProcessor;
 
 import eu.rssw.antlr.database.objects.DatabaseDescription;
 
 public final class DumpFileUtils {
+  private static final Logger LOG = LoggerFactory.getLogger(DumpFileUtils.class);
+  // Footer is just a few lines, but there's no need to be stingy
+  private static final int FOOTER_MAX_SIZE = 4096;
 
   private DumpFileUtils() {
     // Not instantiated
   }
 
   public static final ParseTree getDumpFileParseTree(File file) throws IOException {
-    // Trying to read codepage from DF footer
-    LineProcessor<Charset> charsetReader = new DFCodePageProcessor();
-    Files.readLines(file, Charset.defaultCharset(), charsetReader);
-
-    return getDumpFileParseTree(new InputStreamReader(new FileInputStream(file), charsetReader.getResult()));
+    try (Reader reader = new InputStreamReader(new FileInputStream(file), getCodePage(file))) {
+      return getDumpFileParseTree(reader);
+    }
   }
 
+  /**
+   * Two-stage parsing: dump file is first parsed in SLL mode, which is much faster and enough for nearly all dump files.
+   * Only on failure, file is parsed again in full LL mode. DFA cache is static in the generated parser, so it's shared
+   * (and warmed up) by all parser instances, including in concurrent threads.
+   */
   public static final ParseTree getDumpFileParseTree(Reader reader) throws IOException {
     ANTLRErrorListener listener = new DescriptiveErrorListener();
     DumpFileGrammarLexer lexer = new DumpFileGrammarLexer(new ANTLRInputStream(reader));
@@ -41,37 +54,59 @@ public final class DumpFileUtils {
     CommonTokenStream tokens = new CommonTokenStream(lexer);
     DumpFileGrammarParser parser = new DumpFileGrammarParser(tokens);
     parser.removeErrorListeners();
-    parser.addErrorListener(listener);
+    parser.setErrorHandler(new BailErrorStrategy());
+    parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
 
-    return parser.dump();
+    try {
+      return parser.dump();
+    } catch (ParseCancellationException uncaught) {
+      LOG.debug("SLL parsing failed on {}, switching to LL mode", tokens.getSourceName());
+      tokens.seek(0);
+      parser.reset();
+      parser.addErrorListener(listener);
+      parser.setErrorHandler(new DefaultErrorStrategy());
+      parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+      return parser.dump();
+    }
   }
 
   public static final DatabaseDescription getDatabaseDescription(File file) throws IOException {
-    DumpFileVisitor visitor = new DumpFileVisitor(Files.getNameWithoutExtension(file.getName()));
-    visitor.visit(getDumpFileParseTree(file));
+    return getDatabaseDescription(getDumpFileParseTree(file), Files.getNameWithoutExtension(file.getName()));
+  }
+
+  public static final DatabaseDescription getDatabaseDescription(ParseTree tree, String dbName) {
+    DumpFileVisitor visitor = new DumpFileVisitor(dbName);
+    visitor.visit(tree);
 
     return visitor.getDatabase();
   }
 
-  private static class DFCodePageProcessor implements LineProcessor<Charset> {
-    private Charset charset = Charset.defaultCharset();
-
-    @Override
-    public Charset getResult() {
-      return charset;
+  /**
+   * Read codepage from DF footer. Only the end of the file is read, as footer is always at the end of the dump file.
+   * 
+   * @return Default charset if no codepage found in footer, or if codepage is not supported
+   */
+  public static final Charset getCodePage(File file) throws IOException {
+    byte[] tail;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      long length = raf.length();
+      tail = new byte[(int) Math.min(length, FOOTER_MAX_SIZE)];
+      raf.seek(length - tail.length);
+      raf.readFully(tail);
     }
-
-    @Override
-    public boolean processLine(String arg0) throws IOException {
-      if (arg0.startsWith("cpstream=")) {
-        try {
-          charset = Charset.forName(arg0.substring(9));
-        } catch (IllegalCharsetNameException | UnsupportedCharsetException uncaught) {
-          // Undefined for example...
-        }
-        return false;
-      }
-      return true;
+    String footer = new String(tail, StandardCharsets.ISO_8859_1);
+    int pos = footer.lastIndexOf("cpstream=");
+    if (pos == -1)
+      return Charset.defaultCharset();
+    int endPos = pos + 9;
+    while ((endPos < footer.length()) && (footer.charAt(endPos) != '\r') && (footer.charAt(endPos) != '\n')) {
+      endPos++;
+    }
+    try {
+      return Charset.forName(footer.substring(pos + 9, endPos).trim());
+    } catch (IllegalCharsetNameException | UnsupportedCharsetException uncaught) {
+      // Undefined for example...
+      return Charset.defaultCharset();
     }
   }
 }
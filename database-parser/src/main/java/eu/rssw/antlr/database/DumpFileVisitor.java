@@ -1,8 +1,5 @@
 package eu.rssw.antlr.database;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
-
 import eu.rssw.antlr.database.DumpFileGrammarParser.AddFieldContext;
 import eu.rssw.antlr.database.DumpFileGrammarParser.AddIndexContext;
 import eu.rssw.antlr.database.DumpFileGrammarParser.AddSequenceContext;
@@ -37,13 +34,18 @@ import eu.rssw.antlr.database.objects.Table;
 import eu.rssw.antlr.database.objects.Trigger;
 import eu.rssw.antlr.database.objects.TriggerType;
 
+/**
+ * Builds DatabaseDescription object from the dump file ParseTree. Tables, fields and indexes are resolved through the
+ * case-insensitive indexes of DatabaseDescription and Table, so that visiting is linear in the size of the dump file.
+ */
 public class DumpFileVisitor extends DumpFileGrammarBaseVisitor<Void> {
   private DatabaseDescription db;
 
-  private Deque<Table> tables = new ArrayDeque<>();
-  private Deque<Field> fields = new ArrayDeque<>();
-  private Deque<Sequence> sequences = new ArrayDeque<>();
-  private Deque<Index> indexes = new ArrayDeque<>();
+  // Objects being currently visited
+  private Table currTable;
+  private Field currField;
+  private Sequence currSequence;
+  private Index currIndex;
 
   public DumpFileVisitor(String dbName) {
     this.db = new DatabaseDescription(dbName);
@@ -62,14 +64,9 @@ public class DumpFileVisitor extends DumpFileGrammarBaseVisitor<Void> {
     Field field = new Field(ctx.field.getText(), ctx.dataType.getText());
     field.setFirstLine(ctx.getStart().getLine());
     field.setLastLine(ctx.getStop().getLine());
-    fields.push(field);
+    currField = field;
 
-    // Search for Table object for this field
-    Table table = null;
-    for (Table t : tables) {
-      if (t.getName().equalsIgnoreCase(ctx.table.getText()))
-        table = t;
-    }
+    Table table = db.getTable(ctx.table.getText());
     if (table != null) {
       table.addField(field);
     } else {
@@ -81,35 +78,35 @@ public class DumpFileVisitor extends DumpFileGrammarBaseVisitor<Void> {
 
   @Override
   public Void visitFieldDescription(FieldDescriptionContext ctx) {
-    fields.peek().setDescription(ctx.val.getText());
+    currField.setDescription(ctx.val.getText());
 
     return null;
   }
 
   @Override
   public Void visitFieldExtent(FieldExtentContext ctx) {
-    fields.peek().setExtent(Integer.parseInt(ctx.val.getText()));
+    currField.setExtent(Integer.parseInt(ctx.val.getText()));
 
     return null;
   }
 
   @Override
   public Void visitFieldFormat(FieldFormatContext ctx) {
-    fields.peek().setFormat(ctx.val.getText());
+    currField.setFormat(ctx.val.getText());
 
     return super.visitFieldFormat(ctx);
   }
 
   @Override
   public Void visitFieldMaxWidth(FieldMaxWidthContext ctx) {
-    fields.peek().setMaxWidth(Integer.parseInt(ctx.val.getText()));
+    currField.setMaxWidth(Integer.parseInt(ctx.val.getText()));
 
     return null;
   }
 
   @Override
   public Void visitFieldOrder(FieldOrderContext ctx) {
-    fields.peek().setOrder(ctx.val.getText());
+    currField.setOrder(ctx.val.getText());
 
     return null;
   }
@@ -122,7 +119,7 @@ public class DumpFileVisitor extends DumpFileGrammarBaseVisitor<Void> {
     }
     if (ctx.noOverride != null)
       trigger.setNoOverride(true);
-    fields.peek().addTrigger(trigger);
+    currField.addTrigger(trigger);
 
     return null;
   }
@@ -136,7 +133,7 @@ public class DumpFileVisitor extends DumpFileGrammarBaseVisitor<Void> {
     Table table = new Table(ctx.table.getText());
     table.setFirstLine(ctx.getStart().getLine());
     table.setLastLine(ctx.getStop().getLine());
-    tables.push(table);
+    currTable = table;
     db.addTable(table);
 
     return visitChildren(ctx);
@@ -144,28 +141,28 @@ public class DumpFileVisitor extends DumpFileGrammarBaseVisitor<Void> {
 
   @Override
   public Void visitTableArea(TableAreaContext ctx) {
-    tables.peek().setArea(ctx.val.getText());
+    currTable.setArea(ctx.val.getText());
 
     return null;
   }
 
   @Override
   public Void visitTableDescription(TableDescriptionContext ctx) {
-    tables.peek().setDescription(ctx.val.getText());
+    currTable.setDescription(ctx.val.getText());
 
     return null;
   }
 
   @Override
   public Void visitTableDumpName(TableDumpNameContext ctx) {
-    tables.peek().setDumpName(ctx.val.getText());
+    currTable.setDumpName(ctx.val.getText());
     
     return null;
   }
 
   @Override
   public Void visitTableValMsg(TableValMsgContext ctx) {
-    tables.peek().setValMsg(ctx.val.getText());
+    currTable.setValMsg(ctx.val.getText());
 
     return null;
   }
@@ -178,7 +175,7 @@ public class DumpFileVisitor extends DumpFileGrammarBaseVisitor<Void> {
     }
     if (ctx.noOverride != null)
       trigger.setNoOverride(true);
-    tables.peek().addTrigger(trigger);
+    currTable.addTrigger(trigger);
 
     return null;
   }
@@ -192,14 +189,9 @@ public class DumpFileVisitor extends DumpFileGrammarBaseVisitor<Void> {
     Index index = new Index(ctx.index.getText());
     index.setFirstLine(ctx.getStart().getLine());
     index.setLastLine(ctx.getStop().getLine());
-    indexes.push(index);
+    currIndex = index;
 
-    // Search for Table object for this field
-    Table table = null;
-    for (Table t : tables) {
-      if (t.getName().equalsIgnoreCase(ctx.table.getText()))
-        table = t;
-    }
+    Table table = db.getTable(ctx.table.getText());
     if (table != null) {
       table.addIndex(index);
     } else {
@@ -211,41 +203,36 @@ public class DumpFileVisitor extends DumpFileGrammarBaseVisitor<Void> {
 
   @Override
   public Void visitIndexArea(IndexAreaContext ctx) {
-    indexes.peek().setArea(ctx.val.getText());
+    currIndex.setArea(ctx.val.getText());
     return null;
   }
 
   @Override
   public Void visitIndexUnique(IndexUniqueContext ctx) {
-    indexes.peek().setUnique(true);
+    currIndex.setUnique(true);
     return null;
   }
 
   @Override
   public Void visitIndexPrimary(IndexPrimaryContext ctx) {
-    indexes.peek().setPrimary(true);
+    currIndex.setPrimary(true);
     return null;
   }
 
   @Override
   public Void visitIndexWord(IndexWordContext ctx) {
-    indexes.peek().setWord(true);
+    currIndex.setWord(true);
     return null;
   }
 
   @Override
   public Void visitIndexField(IndexFieldContext ctx) {
     // Search for Table object for this index
-    String tableName = ((AddIndexContext) ctx.parent).table.getText();
-    Table table = null;
-    for (Table t : tables) {
-      if (t.getName().equalsIgnoreCase(tableName))
-        table = t;
-    }
+    Table table = db.getTable(((AddIndexContext) ctx.parent).table.getText());
     if (table != null) {
       IndexField idxFld = new IndexField(table.getField(ctx.field.getText()),
           "ascending".equalsIgnoreCase(ctx.order.getText()));
-      indexes.peek().addField(idxFld);
+      currIndex.addField(idxFld);
     } else {
       // Log error ?
     }
@@ -262,7 +249,7 @@ public class DumpFileVisitor extends DumpFileGrammarBaseVisitor<Void> {
     Sequence seq = new Sequence(ctx.sequence.getText());
     seq.setFirstLine(ctx.getStart().getLine());
     seq.setLastLine(ctx.getStop().getLine());
-    sequences.push(seq);
+    currSequence = seq;
     db.addSequence(seq);
 
     return visitChildren(ctx);
@@ -270,7 +257,7 @@ public class DumpFileVisitor extends DumpFileGrammarBaseVisitor<Void> {
 
   @Override
   public Void visitSeqCycleOnLimit(SeqCycleOnLimitContext ctx) {
-    sequences.peek().setCycleOnLimit("yes".equalsIgnoreCase(ctx.val.getText()));
+    currSequence.setCycleOnLimit("yes".equalsIgnoreCase(ctx.val.getText()));
 
     return null;
   }
@@ -278,7 +265,7 @@ public class DumpFileVisitor extends DumpFileGrammarBaseVisitor<Void> {
   @Override
   public Void visitSeqIncrement(SeqIncrementContext ctx) {
     if (!"?".equals(ctx.val.getText()))
-      sequences.peek().setIncrement(Long.parseLong(ctx.val.getText()));
+      currSequence.setIncrement(Long.parseLong(ctx.val.getText()));
 
     return null;
   }
@@ -286,7 +273,7 @@ public class DumpFileVisitor extends DumpFileGrammarBaseVisitor<Void> {
   @Override
   public Void visitSeqInitial(SeqInitialContext ctx) {
     if (!"?".equals(ctx.val.getText()))
-      sequences.peek().setInitialValue(Long.parseLong(ctx.val.getText()));
+      currSequence.setInitialValue(Long.parseLong(ctx.val.getText()));
 
     return null;
   }
@@ -294,7 +281,7 @@ public class DumpFileVisitor extends DumpFileGrammarBaseVisitor<Void> {
   @Override
   public Void visitSeqMinVal(SeqMinValContext ctx) {
     if (!"?".equals(ctx.val.getText()))
-      sequences.peek().setMinValue(Long.parseLong(ctx.val.getText()));
+      currSequence.setMinValue(Long.parseLong(ctx.val.getText()));
 
     return null;
   }
@@ -302,7 +289,7 @@ public class DumpFileVisitor extends DumpFileGrammarBaseVisitor<Void> {
   @Override
   public Void visitSeqMaxVal(SeqMaxValContext ctx) {
     if (!"?".equals(ctx.val.getText()))
-      sequences.peek().setMaxValue(Long.parseLong(ctx.val.getText()));
+      currSequence.setMaxValue(Long.parseLong(ctx.val.getText()));
 
     return null;
   }
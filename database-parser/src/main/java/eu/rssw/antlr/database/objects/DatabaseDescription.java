@@ -2,8 +2,12 @@ package eu.rssw.antlr.database.objects;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 
+/**
+ * Tables and sequences are indexed by lowercase name, so lookups are case-insensitive
+ */
 public class DatabaseDescription {
   private String dbName;
   private Map<String, Sequence> sequences = new HashMap<>();
@@ -22,7 +26,7 @@ public class DatabaseDescription {
   }
 
   public Sequence getSequence(String name) {
-    return sequences.get(name);
+    return sequences.get(name.toLowerCase(Locale.ENGLISH));
   }
 
   public Collection<Table> getTables() {
@@ -30,14 +34,14 @@ public class DatabaseDescription {
   }
 
   public Table getTable(String name) {
-    return tables.get(name);
+    return tables.get(name.toLowerCase(Locale.ENGLISH));
   }
 
   public void addTable(Table tbl) {
-    tables.put(tbl.getName(), tbl);
+    tables.put(tbl.getName().toLowerCase(Locale.ENGLISH), tbl);
   }
 
   public void addSequence(Sequence seq) {
-    sequences.put(seq.getName(), seq);
+    sequences.put(seq.getName().toLowerCase(Locale.ENGLISH), seq);
   }
 }
@@ -2,6 +2,9 @@ package eu.rssw.antlr.database.objects;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 
 public class Table {
   private final String name;
@@ -9,6 +12,9 @@ public class Table {
   private Collection<Field> fields = new ArrayList<>();
   private Collection<Index> indexes = new ArrayList<>();
   private Collection<Trigger> triggers = new ArrayList<>();
+  // Fields and indexes by lowercase name
+  private Map<String, Field> fieldsMap = new HashMap<>();
+  private Map<String, Index> indexesMap = new HashMap<>();
 
   private int firstLine, lastLine;
 
@@ -66,6 +72,10 @@ public class Table {
 
   public void setFields(Collection<Field> fields) {
     this.fields = fields;
+    this.fieldsMap = new HashMap<>();
+    for (Field fld : fields) {
+      fieldsMap.putIfAbsent(fld.getName().toLowerCase(Locale.ENGLISH), fld);
+    }
   }
 
   public Collection<Index> getIndexes() {
@@ -74,6 +84,10 @@ public class Table {
 
   public void setIndexes(Collection<Index> indexes) {
     this.indexes = indexes;
+    this.indexesMap = new HashMap<>();
+    for (Index idx : indexes) {
+      indexesMap.putIfAbsent(idx.getName().toLowerCase(Locale.ENGLISH), idx);
+    }
   }
 
   public Collection<Trigger> getTriggers() {
@@ -97,19 +111,11 @@ public class Table {
   }
 
   public Field getField(String name) {
-    for (Field fld : fields) {
-      if (fld.getName().equalsIgnoreCase(name))
-        return fld;
-    }
-    return null;
+    return fieldsMap.get(name.toLowerCase(Locale.ENGLISH));
   }
 
   public Index getIndex(String name) {
-    for (Index idx : indexes) {
-      if (idx.getName().equalsIgnoreCase(name))
-        return idx;
-    }
-    return null;
+    return indexesMap.get(name.toLowerCase(Locale.ENGLISH));
   }
 
   public Trigger getTrigger(TriggerType type) {
@@ -122,10 +128,12 @@ public class Table {
 
   public void addIndex(Index index) {
     indexes.add(index);
+    indexesMap.putIfAbsent(index.getName().toLowerCase(Locale.ENGLISH), index);
   }
 
   public void addField(Field field) {
     fields.add(field);
+    fieldsMap.putIfAbsent(field.getName().toLowerCase(Locale.ENGLISH), field);
   }
 
   public void addTrigger(Trigger trigger) {
@@ -2,13 +2,27 @@ package eu.rssw.antlr.database;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.fail;
 
 import java.io.File;
+import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.testng.annotations.Test;
 
+import com.google.common.io.Files;
+
 import eu.rssw.antlr.database.objects.DatabaseDescription;
+import eu.rssw.antlr.database.objects.Index;
 import eu.rssw.antlr.database.objects.Table;
 import eu.rssw.antlr.database.objects.Trigger;
 import eu.rssw.antlr.database.objects.TriggerType;
@@ -36,4 +50,104 @@ public class TestDumpFile {
     assertEquals(trg2.getCrc(), "32704");
   }
 
+  @Test
+  public void testCaseInsensitiveLookups() throws IOException {
+    DatabaseDescription db = DumpFileUtils.getDatabaseDescription(new File("src/test/resources/sp2k.df"));
+    assertNotNull(db.getTable("item"));
+    assertNotNull(db.getTable("ITEM"));
+    assertNotNull(db.getSequence("nextcustnum"));
+    assertNotNull(db.getTable("bin").getField("binnum"));
+    assertNotNull(db.getTable("bin").getIndex("itemnum"));
+  }
+
+  @Test
+  public void testLargeDumpFile() throws IOException {
+    // Synthetic dump file with 5000 tables, 10 fields and 2 indexes per table
+    StringBuilder sb = new StringBuilder();
+    for (int zz = 0; zz < 5000; zz++) {
+      sb.append("ADD TABLE \"Table").append(zz).append("\"\n  AREA \"Data\"\n  DUMP-NAME \"tbl").append(zz).append(
+          "\"\n\n");
+      for (int yy = 0; yy < 10; yy++) {
+        sb.append("ADD FIELD \"Field").append(yy).append("\" OF \"TABLE").append(zz).append(
+            "\" AS character\n  FORMAT \"x(8)\"\n  INITIAL \"\"\n  POSITION ").append(yy + 2).append(
+                "\n  MAX-WIDTH 16\n  ORDER ").append((yy + 1) * 10).append("\n\n");
+      }
+      sb.append("ADD INDEX \"Idx1\" ON \"table").append(zz).append(
+          "\"\n  AREA \"Index\"\n  UNIQUE\n  PRIMARY\n  INDEX-FIELD \"Field0\" ASCENDING\n\n");
+      sb.append("ADD INDEX \"Idx2\" ON \"Table").append(zz).append(
+          "\"\n  AREA \"Index\"\n  INDEX-FIELD \"FIELD1\" ASCENDING\n  INDEX-FIELD \"field2\" DESCENDING\n\n");
+    }
+    sb.append(".\nPSC\ncpstream=UTF-8\n.\n0000000000\n");
+
+    DatabaseDescription db = DumpFileUtils.getDatabaseDescription(
+        DumpFileUtils.getDumpFileParseTree(new StringReader(sb.toString())), "large");
+
+    assertEquals(db.getTables().size(), 5000);
+    int numFields = 0;
+    int numIndexes = 0;
+    for (Table table : db.getTables()) {
+      numFields += table.getFields().size();
+      numIndexes += table.getIndexes().size();
+    }
+    assertEquals(numFields, 50000);
+    assertEquals(numIndexes, 10000);
+    Table tbl = db.getTable("table4999");
+    assertNotNull(tbl);
+    assertEquals(tbl.getFields().size(), 10);
+    assertEquals(tbl.getIndexes().size(), 2);
+    Index idx = tbl.getIndex("idx2");
+    assertNotNull(idx);
+    assertEquals(idx.getFields().size(), 2);
+    assertEquals(idx.getFields().get(1).getField(), tbl.getField("Field2"));
+  }
+
+  @Test
+  public void testCodePage() throws IOException {
+    // Trailer at the end of a file larger than 4 KB
+    assertEquals(DumpFileUtils.getCodePage(new File("src/test/resources/sp2k.df")), Charset.forName("ISO8859-15"));
+
+    // File smaller than trailer buffer
+    File file = new File("target/cpstream.df");
+    file.getParentFile().mkdirs();
+    Files.write("ADD SEQUENCE \"NextCustNum\"\n  INITIAL 1000\n\n.\nPSC\ncpstream=UTF-8\n.\n0000000058\n", file,
+        StandardCharsets.ISO_8859_1);
+    assertEquals(DumpFileUtils.getCodePage(file), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testNoCodePage() throws IOException {
+    // No cpstream entry in trailer
+    File file = new File("target/nocpstream.df");
+    file.getParentFile().mkdirs();
+    Files.write("ADD SEQUENCE \"NextCustNum\"\n  INITIAL 1000\n\n.\nPSC\n.\n0000000058\n", file,
+        StandardCharsets.ISO_8859_1);
+    assertEquals(DumpFileUtils.getCodePage(file), Charset.defaultCharset());
+
+    // Unknown codepage
+    Files.write("ADD SEQUENCE \"NextCustNum\"\n\n.\nPSC\ncpstream=undefined\n.\n0000000058\n", file,
+        StandardCharsets.ISO_8859_1);
+    assertEquals(DumpFileUtils.getCodePage(file), Charset.defaultCharset());
+  }
+
+  @Test
+  public void testSllFallback() throws IOException {
+    // Unknown table option can't be parsed in SLL mode with bail out strategy...
+    try (Reader reader = new FileReader("src/test/resources/fallback.df")) {
+      DumpFileGrammarParser parser = new DumpFileGrammarParser(
+          new CommonTokenStream(new DumpFileGrammarLexer(new ANTLRInputStream(reader))));
+      parser.removeErrorListeners();
+      parser.setErrorHandler(new BailErrorStrategy());
+      parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+      parser.dump();
+      fail("No ParseCancellationException caught");
+    } catch (ParseCancellationException caught) {
+      // Expected
+    }
+
+    // ... so the LL pass recovers from the error and parses the remaining dump file
+    DatabaseDescription db = DumpFileUtils.getDatabaseDescription(new File("src/test/resources/fallback.df"));
+    assertEquals(db.getTables().size(), 2);
+    assertNotNull(db.getTable("Customer").getField("CustNum"));
+    assertNotNull(db.getTable("Item").getField("ItemNum"));
+  }
 }
@@ -0,0 +1,147 @@
+package eu.rssw.listing;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.BitSet;
+
+/**
+ * Line-level description of a debug listing, i.e. the preprocessed source code with include files expanded, as
+ * referenced by line numbers in profiler output. Each line is classified as code and/or comment in a single pass, without
+ * keeping the file content in memory.
+ */
+public class DebugListing {
+  private final BitSet codeLines = new BitSet();
+  private final BitSet commentLines = new BitSet();
+  private int numLines;
+
+  // Classifier state, kept between lines as comments and strings can span multiple lines
+  private int commentDepth;
+  private char stringDelimiter;
+
+  public DebugListing(File file, Charset charset) throws IOException {
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), charset))) {
+      parse(reader);
+    }
+  }
+
+  public DebugListing(BufferedReader reader) throws IOException {
+    parse(reader);
+  }
+
+  /**
+   * Number of lines in debug listing
+   */
+  public int getLines() {
+    return numLines;
+  }
+
+  /**
+   * Number of lines containing code
+   */
+  public int getCodeLines() {
+    return codeLines.cardinality();
+  }
+
+  /**
+   * Number of lines containing comments
+   */
+  public int getCommentLines() {
+    return commentLines.cardinality();
+  }
+
+  /**
+   * @param line Debug listing line number, starting at 1, as found in profiler output
+   */
+  public boolean isCode(int line) {
+    return codeLines.get(line);
+  }
+
+  /**
+   * @param line Debug listing line number, starting at 1, as found in profiler output
+   */
+  public boolean isComment(int line) {
+    return commentLines.get(line);
+  }
+
+  private void parse(BufferedReader reader) throws IOException {
+    String str;
+    while ((str = reader.readLine()) != null) {
+      numLines++;
+      classifyLine(numLines, str, lineNumberPrefixLength(str));
+    }
+  }
+
+  /**
+   * Debug listing lines are prefixed by their line number
+   */
+  private static int lineNumberPrefixLength(String str) {
+    int pos = 0;
+    while ((pos < str.length()) && (str.charAt(pos) == ' '))
+      pos++;
+    int start = pos;
+    while ((pos < str.length()) && Character.isDigit(str.charAt(pos)))
+      pos++;
+    if ((pos == start) || ((pos < str.length()) && (str.charAt(pos) != ' ')))
+      return 0;
+    return pos;
+  }
+
+  private void classifyLine(int line, String str, int start) {
+    boolean code = false;
+    boolean comment = false;
+    int len = str.length();
+    int pos = start;
+    while (pos < len) {
+      char ch = str.charAt(pos);
+      char next = pos + 1 < len ? str.charAt(pos + 1) : 0;
+      if (commentDepth > 0) {
+        if ((ch == '*') && (next == '/')) {
+          commentDepth--;
+          pos++;
+        } else if ((ch == '/') && (next == '*')) {
+          commentDepth++;
+          pos++;
+        } else if (!Character.isWhitespace(ch)) {
+          comment = true;
+        }
+      } else if (stringDelimiter != 0) {
+        code = true;
+        if (ch == '~') {
+          pos++;
+        } else if (ch == stringDelimiter) {
+          stringDelimiter = 0;
+        }
+      } else if ((ch == '/') && (next == '*')) {
+        commentDepth++;
+        pos++;
+      } else if ((ch == '/') && (next == '/')) {
+        // Single line comment
+        for (int zz = pos + 2; zz < len; zz++) {
+          if (!Character.isWhitespace(str.charAt(zz))) {
+            comment = true;
+            break;
+          }
+        }
+        break;
+      } else if ((ch == '"') || (ch == '\'')) {
+        code = true;
+        stringDelimiter = ch;
+      } else if (!Character.isWhitespace(ch)) {
+        code = true;
+      }
+      pos++;
+    }
+    // Multi-line strings
+    if ((stringDelimiter != 0) && (len > start))
+      code = true;
+
+    if (code)
+      codeLines.set(line);
+    if (comment)
+      commentLines.set(line);
+  }
+}
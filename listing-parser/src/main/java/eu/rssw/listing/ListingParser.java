@@ -1,29 +1,38 @@
 package eu.rssw.listing;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Predicate;
 import com.google.common.base.Splitter;
-import com.google.common.collect.Collections2;
+import com.google.common.io.Files;
 import com.google.common.primitives.Ints;
 
 public class ListingParser {
   private static final Logger LOG = LoggerFactory.getLogger(ListingParser.class);
+  static final String SOURCE_HEADER = "{} Line Blk";
+  // Page header is: form feed + title line, empty line, column headers, dashes
+  private static final int PAGE_HEADER_MAX_SIZE = 1024;
 
   private final List<CodeBlock> blocks = new ArrayList<>();
+  private List<CodeBlock> transactionBlocks;
+  private List<CodeBlock> blocksWithBuffer;
+  private CodeBlock mainBlock;
 
   /**
-   * Ctor
+   * Ctor. Listing file is read in memory, and source code pages are skipped without being decoded, so that only the
+   * blocks section is parsed.
    * 
    * @param file File name shouldn't containn any space character
    * @throws IOException
@@ -32,13 +41,18 @@ public class ListingParser {
     if (file.getAbsolutePath().indexOf(' ') != -1) {
       throw new IllegalArgumentException("File name shouldn't contain space character");
     }
-    try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+    byte[] bytes = Files.toByteArray(file);
+    int pos = Math.max(0, findBlocksSection(bytes));
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+        new ByteArrayInputStream(bytes, pos, bytes.length - pos), Charset.defaultCharset()))) {
       parseFile(reader);
     }
+    computeViews();
   }
 
   public ListingParser(BufferedReader reader) throws IOException {
     parseFile(reader);
+    computeViews();
   }
 
   public Collection<CodeBlock> getBlocks() {
@@ -46,34 +60,56 @@ public class ListingParser {
   }
 
   public Collection<CodeBlock> getTransactionBlocks() {
-    return Collections2.filter(blocks, new Predicate<CodeBlock>() {
-      @Override
-      public boolean apply(CodeBlock input) {
-        return input.isTransaction();
-      }
-    });
+    return transactionBlocks;
   }
 
   public Collection<CodeBlock> getBlocksWithBuffer() {
-    return Collections2.filter(blocks, new Predicate<CodeBlock>() {
-      @Override
-      public boolean apply(CodeBlock input) {
-        return input.getBuffers() != null;
-      }
-    });
+    return blocksWithBuffer;
   }
 
   public CodeBlock getMainBlock() {
-    Iterator<CodeBlock> iter = Collections2.filter(blocks, new Predicate<CodeBlock>() {
-      @Override
-      public boolean apply(CodeBlock input) {
-        return input.getLineNumber() == 0;
+    return mainBlock;
+  }
+
+  private void computeViews() {
+    List<CodeBlock> trans = new ArrayList<>();
+    List<CodeBlock> withBuffer = new ArrayList<>();
+    for (CodeBlock block : blocks) {
+      if (block.isTransaction())
+        trans.add(block);
+      if (block.getBuffers() != null)
+        withBuffer.add(block);
+      if ((mainBlock == null) && (block.getLineNumber() == 0))
+        mainBlock = block;
+    }
+    transactionBlocks = Collections.unmodifiableList(trans);
+    blocksWithBuffer = Collections.unmodifiableList(withBuffer);
+  }
+
+  /**
+   * Every page (except the first one) starts with a form feed character. Returns position of the first page which is
+   * not a source code page, or -1 if not found.
+   */
+  private static int findBlocksSection(byte[] bytes) {
+    for (int zz = 0; zz < bytes.length; zz++) {
+      if ((bytes[zz] == '\f') && !isSourcePage(bytes, zz)) {
+        return zz;
       }
-    }).iterator();
-    if (iter.hasNext())
-      return iter.next();
+    }
+    return -1;
+  }
 
-    return null;
+  private static boolean isSourcePage(byte[] bytes, int pos) {
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+        new ByteArrayInputStream(bytes, pos, Math.min(PAGE_HEADER_MAX_SIZE, bytes.length - pos)),
+        StandardCharsets.ISO_8859_1))) {
+      reader.readLine();
+      reader.readLine();
+      String str = reader.readLine();
+      return (str == null) || str.startsWith(SOURCE_HEADER);
+    } catch (IOException uncaught) {
+      return true;
+    }
   }
 
   private void parseFile(BufferedReader reader) throws IOException {
@@ -101,7 +137,7 @@ public class ListingParser {
           reader.readLine();
           String str2 = reader.readLine();
           reader.readLine();
-          if ((str2 != null) && !str2.startsWith("{} Line Blk")) {
+          if ((str2 != null) && !str2.startsWith(SOURCE_HEADER)) {
             // Entering blocks section
             sourceDone = true;
           }
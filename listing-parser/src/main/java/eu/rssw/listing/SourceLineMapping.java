@@ -0,0 +1,217 @@
+package eu.rssw.listing;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Maps line numbers of the expanded source code, i.e. debug listing line numbers as found in profiler output, to the
+ * line in the main file or in include files. Mapping is read from the source pages of the compile listing: columns
+ * '{}' and 'Line' give the include level and the line number in the file at this level, and include file names are
+ * read from the include reference of the parent line. Lines wrapped by the compiler are counted once.
+ */
+public class SourceLineMapping {
+  private static final int MAIN_FILE = 0;
+  private static final int UNKNOWN_FILE = -1;
+  private static final int MAX_LEVEL = 64;
+
+  // Include file names, as referenced in source code, index 0 is main file
+  private final List<String> fileNames = new ArrayList<>();
+  // Indexed by expanded line number
+  private int[] fileIndex = new int[64];
+  private int[] lineNumber = new int[64];
+  private int numLines;
+
+  public SourceLineMapping(File file, Charset charset) throws IOException {
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), charset))) {
+      parse(reader);
+    }
+  }
+
+  public SourceLineMapping(BufferedReader reader) throws IOException {
+    parse(reader);
+  }
+
+  /**
+   * Number of lines of expanded source code
+   */
+  public int getLines() {
+    return numLines;
+  }
+
+  /**
+   * Include files referenced in source code, in order of first reference
+   */
+  public List<String> getIncludeFiles() {
+    return Collections.unmodifiableList(fileNames.subList(1, fileNames.size()));
+  }
+
+  /**
+   * @param line Expanded line number, starting at 1, as found in profiler output
+   * @return True if this line comes from the main file
+   */
+  public boolean isMainFile(int line) {
+    return (line > 0) && (line <= numLines) && (fileIndex[line] == MAIN_FILE);
+  }
+
+  /**
+   * @param line Expanded line number, starting at 1, as found in profiler output
+   * @return Include file name as referenced in source code, or null if line comes from main file or is unknown
+   */
+  public String getIncludeFile(int line) {
+    if ((line <= 0) || (line > numLines) || (fileIndex[line] <= MAIN_FILE))
+      return null;
+    return fileNames.get(fileIndex[line]);
+  }
+
+  /**
+   * @param line Expanded line number, starting at 1, as found in profiler output
+   * @return Line number in main file or include file, or 0 if unknown
+   */
+  public int getSourceLine(int line) {
+    return (line > 0) && (line <= numLines) ? lineNumber[line] : 0;
+  }
+
+  /**
+   * @return Expanded line numbers of this line of the main file, in ascending order
+   */
+  public int[] getExpandedLines(int sourceLine) {
+    return getExpandedLines(MAIN_FILE, sourceLine);
+  }
+
+  /**
+   * @return Expanded line numbers of this line of the include file, in ascending order. More than one line is returned
+   *         when the include file is referenced more than once.
+   */
+  public int[] getExpandedLines(String includeFile, int sourceLine) {
+    int idx = fileNames.indexOf(normalize(includeFile));
+    return idx > MAIN_FILE ? getExpandedLines(idx, sourceLine) : new int[0];
+  }
+
+  private int[] getExpandedLines(int idx, int sourceLine) {
+    int[] rslt = new int[2];
+    int size = 0;
+    for (int zz = 1; zz <= numLines; zz++) {
+      if ((fileIndex[zz] == idx) && (lineNumber[zz] == sourceLine)) {
+        if (size == rslt.length)
+          rslt = Arrays.copyOf(rslt, size * 2);
+        rslt[size++] = zz;
+      }
+    }
+    return Arrays.copyOf(rslt, size);
+  }
+
+  private void parse(BufferedReader reader) throws IOException {
+    fileNames.add("");
+    int[] levelFile = new int[MAX_LEVEL];
+    String[] levelText = new String[MAX_LEVEL];
+    int prevLevel = -1;
+    int prevLine = -1;
+    boolean newPage = true;
+    String str;
+    while ((str = reader.readLine()) != null) {
+      // All new pages start with a form feed except first one
+      if (newPage || (!str.isEmpty() && (str.charAt(0) == '\f'))) {
+        newPage = false;
+        reader.readLine();
+        String header = reader.readLine();
+        reader.readLine();
+        if ((header == null) || !header.startsWith(ListingParser.SOURCE_HEADER))
+          return;
+        continue;
+      }
+      if (str.length() < 7)
+        continue;
+      int level = parseInt(str.substring(0, 2), 0);
+      int line = parseInt(str.substring(3, 7), -1);
+      if ((line < 0) || (level < 0) || (level >= MAX_LEVEL))
+        continue;
+      String text = str.length() > 12 ? str.substring(12) : "";
+
+      if ((level == prevLevel) && (line == prevLine)) {
+        // Line wrapped by the compiler
+        levelText[level] += text;
+        continue;
+      }
+      if (level > prevLevel) {
+        levelFile[level] = level == 0 ? MAIN_FILE : getFileIndex(getIncludeReference(levelText[level - 1]));
+      }
+      levelText[level] = text;
+      addLine(levelFile[level], line);
+      prevLevel = level;
+      prevLine = line;
+    }
+  }
+
+  private void addLine(int idx, int line) {
+    numLines++;
+    if (numLines == fileIndex.length) {
+      fileIndex = Arrays.copyOf(fileIndex, numLines * 2);
+      lineNumber = Arrays.copyOf(lineNumber, numLines * 2);
+    }
+    fileIndex[numLines] = idx;
+    lineNumber[numLines] = line;
+  }
+
+  private int getFileIndex(String fileName) {
+    if (fileName == null)
+      return UNKNOWN_FILE;
+    int idx = fileNames.indexOf(fileName);
+    if (idx == -1) {
+      fileNames.add(fileName);
+      idx = fileNames.size() - 1;
+    }
+    return idx;
+  }
+
+  /**
+   * Returns file name of the last include reference in this text, skipping preprocessor variables and arguments
+   */
+  static String getIncludeReference(String text) {
+    if (text == null)
+      return null;
+    for (int pos = text.lastIndexOf('{'); pos >= 0; pos = text.lastIndexOf('{', pos - 1)) {
+      int start = pos + 1;
+      while ((start < text.length()) && Character.isWhitespace(text.charAt(start)))
+        start++;
+      if ((start == text.length()) || (text.charAt(start) == '&') || (text.charAt(start) == '*')
+          || Character.isDigit(text.charAt(start)))
+        continue;
+      int end = start;
+      while ((end < text.length()) && !Character.isWhitespace(text.charAt(end)) && (text.charAt(end) != '}'))
+        end++;
+      String name = normalize(text.substring(start, end));
+      if (!name.isEmpty())
+        return name;
+    }
+    return null;
+  }
+
+  private static String normalize(String fileName) {
+    if (fileName == null)
+      return null;
+    String str = fileName.replace('\\', '/');
+    if ((str.length() >= 2) && ((str.charAt(0) == '"') || (str.charAt(0) == '\''))
+        && (str.charAt(str.length() - 1) == str.charAt(0)))
+      str = str.substring(1, str.length() - 1);
+    return str;
+  }
+
+  private static int parseInt(String str, int defaultValue) {
+    String s = str.trim();
+    if (s.isEmpty())
+      return defaultValue;
+    try {
+      return Integer.parseInt(s);
+    } catch (NumberFormatException caught) {
+      return -1;
+    }
+  }
+}
@@ -1,7 +1,13 @@
 package eu.rssw.listing;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
 import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -49,8 +55,89 @@ public class TestListing {
     Assert.assertEquals(block.getLabel(), "Procedure foo-bar");
   }
 
+  @Test
+  public static void testSkipSourcePages() throws IOException {
+    // File-based parser starts at the blocks section, reader-based parser reads everything
+    ListingParser parser1 = new ListingParser(new File("src/test/resources/listing1.txt"));
+    ListingParser parser2 = new ListingParser(
+        new BufferedReader(new FileReader(new File("src/test/resources/listing1.txt"))));
+    Assert.assertEquals(parser1.getBlocks().size(), 7);
+    Assert.assertEquals(parser2.getBlocks().size(), 7);
+    Assert.assertEquals(parser1.getBlocksWithBuffer().size(), parser2.getBlocksWithBuffer().size());
+    Assert.assertSame(parser1.getTransactionBlocks(), parser1.getTransactionBlocks());
+  }
+
+  @Test
+  public static void testListingFileReleased() throws IOException {
+    // Listing file can be overwritten and deleted once parsed, as on the next compilation
+    File file = new File("target/listing-copy.txt");
+    file.getParentFile().mkdirs();
+    Files.copy(new File("src/test/resources/listing1.txt").toPath(), file.toPath(),
+        StandardCopyOption.REPLACE_EXISTING);
+    ListingParser parser = new ListingParser(file);
+    Files.copy(new File("src/test/resources/listing2.txt").toPath(), file.toPath(),
+        StandardCopyOption.REPLACE_EXISTING);
+    Assert.assertEquals(parser.getTransactionBlocks().size(), 4);
+    Assert.assertEquals(new ListingParser(file).getTransactionBlocks().size(), 0);
+    Assert.assertTrue(file.delete());
+  }
+
+  @Test
+  public static void testDebugListing() throws IOException {
+    String str = "    1 def var x as int. /* Comment\n    2   /* Nested */ */\n    3 \n    4 message \"a\n    5 b\". // End\n";
+    DebugListing listing = new DebugListing(new BufferedReader(new StringReader(str)));
+    Assert.assertEquals(listing.getLines(), 5);
+    Assert.assertEquals(listing.getCodeLines(), 3);
+    Assert.assertEquals(listing.getCommentLines(), 3);
+    Assert.assertTrue(listing.isCode(1));
+    Assert.assertFalse(listing.isCode(2));
+    Assert.assertTrue(listing.isComment(2));
+    Assert.assertFalse(listing.isCode(3));
+    Assert.assertTrue(listing.isCode(4));
+    Assert.assertTrue(listing.isComment(5));
+  }
+
   @Test(expectedExceptions = IllegalArgumentException.class)
   public static void testListing3() throws IOException {
     new ListingParser(new File("src/test/resources/listing 3.txt"));
   }
+
+  @Test
+  public static void testSourceLineMapping() throws IOException {
+    SourceLineMapping mapping = new SourceLineMapping(new File("src/test/resources/listing1.txt"),
+        StandardCharsets.ISO_8859_1);
+    // Wrapped line 12 is counted once, and line 20 is split by the include reference
+    Assert.assertEquals(mapping.getLines(), 65);
+    Assert.assertEquals(mapping.getIncludeFiles().size(), 2);
+    Assert.assertEquals(mapping.getIncludeFiles().get(0), "sample/inc/test.i");
+    Assert.assertEquals(mapping.getIncludeFiles().get(1), "sample/inc/test3.i");
+
+    Assert.assertTrue(mapping.isMainFile(13));
+    Assert.assertEquals(mapping.getSourceLine(13), 13);
+    Assert.assertFalse(mapping.isMainFile(21));
+    Assert.assertEquals(mapping.getIncludeFile(21), "sample/inc/test.i");
+    Assert.assertEquals(mapping.getSourceLine(21), 1);
+    Assert.assertTrue(mapping.isMainFile(27));
+    Assert.assertEquals(mapping.getSourceLine(27), 20);
+    Assert.assertEquals(mapping.getSourceLine(28), 21);
+    Assert.assertEquals(mapping.getIncludeFile(50), "sample/inc/test3.i");
+    Assert.assertEquals(mapping.getSourceLine(50), 4);
+    Assert.assertEquals(mapping.getSourceLine(65), 51);
+    Assert.assertEquals(mapping.getSourceLine(66), 0);
+
+    Assert.assertEquals(mapping.getExpandedLines(20), new int[] {20, 27});
+    Assert.assertEquals(mapping.getExpandedLines(40), new int[] {54});
+    Assert.assertEquals(mapping.getExpandedLines("sample/inc/test3.i", 4), new int[] {50});
+    Assert.assertEquals(mapping.getExpandedLines("sample\\inc\\test.i", 6), new int[] {26});
+    Assert.assertEquals(mapping.getExpandedLines("sample/inc/unknown.i", 1).length, 0);
+  }
+
+  @Test
+  public static void testIncludeReference() {
+    Assert.assertEquals(SourceLineMapping.getIncludeReference("{ inc/test.i }"), "inc/test.i");
+    Assert.assertEquals(SourceLineMapping.getIncludeReference("x = 1. {inc\\test.i &arg=1}"), "inc/test.i");
+    Assert.assertEquals(SourceLineMapping.getIncludeReference("{inc/test.i {&var}}"), "inc/test.i");
+    Assert.assertNull(SourceLineMapping.getIncludeReference("message {1} {&var}."));
+    Assert.assertNull(SourceLineMapping.getIncludeReference(null));
+  }
 }
@@ -1,11 +1,14 @@
 package org.sonar.plugins.openedge.api;
 
+import java.util.Collections;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.BatchSide;
 import org.sonar.plugins.openedge.api.checks.OpenEdgeDumpFileCheck;
 import org.sonar.plugins.openedge.api.checks.OpenEdgeProparseCheck;
 import org.sonar.plugins.openedge.api.checks.OpenEdgeXrefCheck;
+import org.sonar.plugins.openedge.api.checks.OpenEdgeXrefFileCheck;
 
 @BatchSide
 public interface CheckRegistrar {
@@ -25,6 +28,7 @@ public interface CheckRegistrar {
 
     private String repositoryKey;
     private Iterable<Class<? extends OpenEdgeXrefCheck>> xrefCheckClasses;
+    private Iterable<Class<? extends OpenEdgeXrefFileCheck>> xrefFileCheckClasses = Collections.emptyList();
     private Iterable<Class<? extends OpenEdgeProparseCheck>> proparseCheckClasses;
     private Iterable<Class<? extends OpenEdgeDumpFileCheck>> dbCheckClasses;
 
@@ -39,6 +43,13 @@ public interface CheckRegistrar {
       this.dbCheckClasses = dbChecks;
     }
 
+    /**
+     * Register checks based on the streamed XREF model. Has to be called after registerClassesForRepository
+     */
+    public void registerXrefFileCheckClasses(Iterable<Class<? extends OpenEdgeXrefFileCheck>> xrefFileCheckClasses) {
+      this.xrefFileCheckClasses = xrefFileCheckClasses;
+    }
+
     public String repositoryKey() {
       return repositoryKey;
     }
@@ -51,6 +62,10 @@ public interface CheckRegistrar {
       return xrefCheckClasses;
     }
 
+    public Iterable<Class<? extends OpenEdgeXrefFileCheck>> getXrefFileCheckClasses() {
+      return xrefFileCheckClasses;
+    }
+
     public Iterable<Class<? extends OpenEdgeProparseCheck>> getProparseCheckClasses() {
       return proparseCheckClasses;
     }
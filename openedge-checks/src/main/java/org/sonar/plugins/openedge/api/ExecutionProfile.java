@@ -0,0 +1,42 @@
+package org.sonar.plugins.openedge.api;
+
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Execution count and time of source code lines, as measured by the profiler. Issues are joined to this profile when
+ * they're reported, so that issues on lines running hot in production can be fixed first. Implementations have to be
+ * thread-safe, as checks may report issues from any thread.
+ */
+public interface ExecutionProfile {
+
+  /**
+   * Registers an issue on this line, and returns execution count and time of the line
+   *
+   * @param file File being analyzed, as found in profiler output
+   * @param target File where issue is reported, either same file or include file
+   * @param lineNumber Line number in target file
+   * @return Null if line was never executed in profiler sessions, or can't be mapped to profiler data
+   */
+  LineWeight addIssue(InputFile file, InputFile target, int lineNumber);
+
+  class LineWeight {
+    private final long execCount;
+    private final double actualTime;
+
+    public LineWeight(long execCount, double actualTime) {
+      this.execCount = execCount;
+      this.actualTime = actualTime;
+    }
+
+    public long getExecCount() {
+      return execCount;
+    }
+
+    /**
+     * Time spent on this line, in seconds
+     */
+    public double getActualTime() {
+      return actualTime;
+    }
+  }
+}
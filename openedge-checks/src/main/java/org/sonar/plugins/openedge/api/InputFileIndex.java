@@ -0,0 +1,78 @@
+package org.sonar.plugins.openedge.api;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.sonar.api.batch.BatchSide;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Thread-safe index of InputFile objects, by relative and absolute path. Index is built on first access, and any
+ * other form of file name (for example from XREF, warnings or ProToken file name lists) is resolved only once through
+ * FileSystem predicates, then cached.
+ */
+@BatchSide
+public class InputFileIndex {
+  // IoC
+  private final FileSystem fileSystem;
+
+  // Relative and absolute paths, built on first access
+  private volatile Map<String, InputFile> index;
+  // File names resolved through predicates
+  private final ConcurrentMap<String, InputFile> aliases = new ConcurrentHashMap<>();
+  private final Set<String> unknownFiles = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+  public InputFileIndex(FileSystem fileSystem) {
+    this.fileSystem = fileSystem;
+  }
+
+  /**
+   * @param fileName Relative or absolute file name
+   * @return Null if file is not part of the analysis
+   */
+  public InputFile getInputFile(String fileName) {
+    if (fileName == null)
+      return null;
+    InputFile file = getIndex().get(fileName);
+    if (file != null)
+      return file;
+    file = aliases.get(fileName);
+    if ((file != null) || unknownFiles.contains(fileName))
+      return file;
+
+    file = fileSystem.inputFile(fileSystem.predicates().hasRelativePath(fileName));
+    if (file == null) {
+      file = fileSystem.inputFile(fileSystem.predicates().hasAbsolutePath(fileName));
+    }
+    if (file == null) {
+      unknownFiles.add(fileName);
+    } else {
+      aliases.putIfAbsent(fileName, file);
+    }
+
+    return file;
+  }
+
+  private Map<String, InputFile> getIndex() {
+    Map<String, InputFile> map = index;
+    if (map == null) {
+      synchronized (this) {
+        map = index;
+        if (map == null) {
+          map = new HashMap<>();
+          for (InputFile file : fileSystem.inputFiles(fileSystem.predicates().all())) {
+            map.put(file.relativePath(), file);
+            map.put(file.absolutePath(), file);
+          }
+          index = map;
+        }
+      }
+    }
+    return map;
+  }
+}
@@ -6,7 +6,10 @@ import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.measure.Metric;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.issue.NewIssue;
+import org.sonar.api.batch.sensor.measure.NewMeasure;
 import org.sonar.api.rule.RuleKey;
+import org.sonar.plugins.openedge.api.ExecutionProfile;
+import org.sonar.plugins.openedge.api.InputFileIndex;
 import org.sonar.plugins.openedge.api.InvalidLicenceException;
 import org.sonar.plugins.openedge.api.LicenceRegistrar.Licence;
 
@@ -16,6 +19,8 @@ import org.sonar.plugins.openedge.api.LicenceRegistrar.Licence;
 public abstract class OpenEdgeCheck<T> {
   private final RuleKey ruleKey;
   private final SensorContext context;
+  private InputFileIndex inputFileIndex;
+  private ExecutionProfile executionProfile;
 
   /**
    * Standard constructor of a Proparse based check
@@ -40,6 +45,35 @@ public abstract class OpenEdgeCheck<T> {
     return context;
   }
 
+  /**
+   * Shared index used to resolve file names when reporting issues. If not set, file names are resolved through
+   * FileSystem predicates.
+   */
+  public void setInputFileIndex(InputFileIndex inputFileIndex) {
+    this.inputFileIndex = inputFileIndex;
+  }
+
+  /**
+   * Profiler data joined to issues when they're reported. If not set, issues are not weighted.
+   */
+  public void setExecutionProfile(ExecutionProfile executionProfile) {
+    this.executionProfile = executionProfile;
+  }
+
+  /**
+   * @param fileName Relative or absolute file name
+   * @return Null if file is not part of the analysis
+   */
+  protected InputFile getInputFile(String fileName) {
+    if (inputFileIndex != null)
+      return inputFileIndex.getInputFile(fileName);
+    InputFile file = context.fileSystem().inputFile(context.fileSystem().predicates().hasRelativePath(fileName));
+    if (file == null) {
+      file = context.fileSystem().inputFile(context.fileSystem().predicates().hasAbsolutePath(fileName));
+    }
+    return file;
+  }
+
   /**
    * Executed only once just after rule instantiation and properties assignment. Has to be used to initialize the
    * context.
@@ -62,24 +96,62 @@ public abstract class OpenEdgeCheck<T> {
   public abstract CheckType getCheckType();
 
   /**
-   * Reports an issue on specified file and at given line number
+   * Checks are executed on the sensor thread by default. Override this method to return true if this check can be
+   * executed at the same time on different files from the analysis thread pool, i.e. if it doesn't keep mutable state
+   * between files, and if it only accesses the sensor context through {@link #reportIssue(InputFile, int, String)} and
+   * {@link #reportMeasure(InputFile, Metric, Serializable)}.
+   */
+  public boolean isThreadSafe() {
+    return false;
+  }
+
+  /**
+   * Reports an issue on specified file and at given line number. Can be called from any thread.
    */
   public void reportIssue(InputFile file, int lineNumber, String msg) {
+    weighIssue(file, file, lineNumber);
     NewIssue issue = context.newIssue();
-    issue.forRule(getRuleKey()).at(issue.newLocation().on(file).at(file.selectLine(lineNumber)).message(msg)).save();
+    issue.forRule(getRuleKey()).at(issue.newLocation().on(file).at(file.selectLine(lineNumber)).message(msg));
+    saveIssue(issue);
+  }
+
+  /**
+   * Registers the issue in the execution profile, if profiler data is available. Issue message is not changed.
+   * 
+   * @param file File being analyzed
+   * @param target File where issue is reported, either same file or include file
+   */
+  protected void weighIssue(InputFile file, InputFile target, int lineNumber) {
+    if ((executionProfile != null) && (lineNumber > 0)) {
+      executionProfile.addIssue(file, target, lineNumber);
+    }
   }
 
   /**
-   * Reports a measure on specified file
+   * Reports a measure on specified file. Can be called from any thread.
    */
   @SuppressWarnings({"rawtypes", "unchecked"})
   public void reportMeasure(InputFile file, Metric metric, Serializable value) {
-    context.newMeasure().forMetric(metric).on(file).withValue(value).save();
+    NewMeasure measure = context.newMeasure().forMetric(metric).on(file).withValue(value);
+    synchronized (context) {
+      measure.save();
+    }
+  }
+
+  /**
+   * Checks may be executed from different threads, and the sensor context is not thread-safe, so issues have to be
+   * saved through this method
+   */
+  protected void saveIssue(NewIssue issue) {
+    synchronized (context) {
+      issue.save();
+    }
   }
 
   public enum CheckType {
     PROPARSE,
     XREF,
+    XREF_FILE,
     DUMP_FILE;
   }
 }
@@ -1,7 +1,6 @@
 package org.sonar.plugins.openedge.api.checks;
 
 import org.prorefactor.core.JPNode;
-import org.prorefactor.core.nodetypes.ProparseDirectiveNode;
 import org.prorefactor.treeparser.ParseUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,8 +12,6 @@ import org.sonar.api.rule.RuleKey;
 import org.sonar.plugins.openedge.api.InvalidLicenceException;
 import org.sonar.plugins.openedge.api.LicenceRegistrar.Licence;
 
-import com.google.common.base.Splitter;
-
 public abstract class OpenEdgeProparseCheck extends OpenEdgeCheck<ParseUnit> {
   private static final Logger LOG = LoggerFactory.getLogger(OpenEdgeProparseCheck.class);
 
@@ -68,8 +65,7 @@ public abstract class OpenEdgeProparseCheck extends OpenEdgeCheck<ParseUnit> {
     if (node.getFileIndex() == 0) {
       targetFile = file;
     } else {
-      targetFile = getContext().fileSystem().inputFile(
-          getContext().fileSystem().predicates().hasRelativePath(node.getFilename()));
+      targetFile = getInputFile(node.getFilename());
     }
     if (targetFile == null) {
       return;
@@ -83,12 +79,14 @@ public abstract class OpenEdgeProparseCheck extends OpenEdgeCheck<ParseUnit> {
     if (lineNumber > 0) {
       location.at(targetFile.selectLine(lineNumber));
     }
+    weighIssue(file, targetFile, lineNumber);
     if (targetFile == file) {
       location.message(msg);
     } else {
       location.message("From " + file.relativePath() + " - " + msg);
     }
-    issue.at(location).save();
+    issue.at(location);
+    saveIssue(issue);
   }
 
   /**
@@ -102,15 +100,11 @@ public abstract class OpenEdgeProparseCheck extends OpenEdgeCheck<ParseUnit> {
     LOG.trace("Adding issue {} to {} line {}",
         new Object[] {getRuleKey() == null ? null : getRuleKey().rule(), fileName, lineNumber});
     NewIssue issue = getContext().newIssue();
-    InputFile targetFile = getContext().fileSystem().inputFile(
-        getContext().fileSystem().predicates().hasRelativePath(fileName));
-    if (targetFile == null) {
-      targetFile = getContext().fileSystem().inputFile(
-          getContext().fileSystem().predicates().hasAbsolutePath(fileName));
-      if (targetFile == null)
-        return;
-    }
+    InputFile targetFile = getInputFile(fileName);
+    if (targetFile == null)
+      return;
     NewIssueLocation location = issue.newLocation().on(targetFile);
+    weighIssue(file, targetFile, lineNumber);
     if (targetFile == file) {
       location.message(msg);
     } else {
@@ -119,30 +113,16 @@ public abstract class OpenEdgeProparseCheck extends OpenEdgeCheck<ParseUnit> {
     if (lineNumber > 0) {
       location.at(targetFile.selectLine(lineNumber));
     }
-    issue.forRule(getRuleKey()).at(location).save();
+    issue.forRule(getRuleKey()).at(location);
+    saveIssue(issue);
   }
 
+  /**
+   * prolint-nowarn directives are indexed once per ParseUnit, see {@link JPNode#getSuppressedWarnings()}
+   */
   private boolean skipIssue(JPNode node) {
-    // Looking for statehead node
-    JPNode parent = node.getStatement();
-    if (parent == null)
-      return false;
-
-    // Then looking for ProparseDirective
-    JPNode left = parent.prevSibling();
-    while ((left != null) && (left instanceof ProparseDirectiveNode)) {
-      String str = ((ProparseDirectiveNode) left).getDirectiveText().trim();
-      if (str.startsWith("prolint-nowarn(") && str.charAt(str.length() - 1) == ')') {
-        for (String rule : Splitter.on(',').omitEmptyStrings().trimResults().split(
-            str.substring(15, str.length() - 1))) {
-          if (rule.equals(getNoSonarKeyword()))
-            return true;
-        }
-      }
-      left = left.prevSibling();
-    }
-
-    return false;
+    JPNode statement = node.getStatement();
+    return (statement != null) && statement.getSuppressedWarnings().contains(getNoSonarKeyword());
   }
 
 }
@@ -69,12 +69,14 @@ public abstract class OpenEdgeXrefCheck extends OpenEdgeCheck<Document> {
       if (lineNumber > 0) {
         location.at(file2.selectLine(lineNumber));
       }
+      weighIssue(file, file2, lineNumber);
       if (file2 == file) {
         location.message(msg);
       } else {
         location.message("From " + file.relativePath() + " - " + msg);
       }
-      issue.at(location).save();
+      issue.at(location);
+      saveIssue(issue);
     }
   }
 
@@ -84,8 +86,7 @@ public abstract class OpenEdgeXrefCheck extends OpenEdgeCheck<Document> {
     if ("1".equals(fileNum)) {
       return file;
     } else {
-      return getContext().fileSystem().inputFile(
-          getContext().fileSystem().predicates().hasRelativePath(parentNode.getAttribute("File-name")));
+      return getInputFile(parentNode.getAttribute("File-name"));
     }
   }
 
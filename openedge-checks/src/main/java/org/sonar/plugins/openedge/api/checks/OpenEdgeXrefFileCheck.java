@@ -0,0 +1,74 @@
+package org.sonar.plugins.openedge.api.checks;
+
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.issue.NewIssue;
+import org.sonar.api.batch.sensor.issue.NewIssueLocation;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.plugins.openedge.api.InvalidLicenceException;
+import org.sonar.plugins.openedge.api.LicenceRegistrar.Licence;
+import org.sonar.plugins.openedge.api.xref.XrefFile;
+import org.sonar.plugins.openedge.api.xref.XrefReference;
+
+/**
+ * Extend this class to implement an XREF analyzer working on the streamed XREF model. This should be preferred to
+ * {@link OpenEdgeXrefCheck}, as no DOM has to be built.
+ */
+public abstract class OpenEdgeXrefFileCheck extends OpenEdgeCheck<XrefFile> {
+
+  /**
+   * Standard constructor of an XREF based check
+   * 
+   * @param ruleKey Rule key
+   * @param licence May be null
+   * @param serverId Never null
+   * @throws InvalidLicenceException In case of licence check failure
+   */
+  public OpenEdgeXrefFileCheck(RuleKey ruleKey, SensorContext context, Licence licence, String serverId) {
+    super(ruleKey, context, licence, serverId);
+  }
+
+  @Override
+  public void postJob() {
+    // No implementation here
+  }
+
+  @Override
+  public void initialize() {
+    // No implementation here
+  }
+
+  @Override
+  public OpenEdgeCheck.CheckType getCheckType() {
+    return CheckType.XREF_FILE;
+  }
+
+  public void reportIssue(InputFile file, XrefReference ref, String msg) {
+    InputFile file2 = getSourceFile(file, ref);
+    if (file2 == null) {
+      return;
+    }
+    NewIssue issue = getContext().newIssue().forRule(getRuleKey());
+    NewIssueLocation location = issue.newLocation().on(file2);
+    if (ref.getLineNum() > 0) {
+      location.at(file2.selectLine(ref.getLineNum()));
+    }
+    weighIssue(file, file2, ref.getLineNum());
+    if (file2 == file) {
+      location.message(msg);
+    } else {
+      location.message("From " + file.relativePath() + " - " + msg);
+    }
+    issue.at(location);
+    saveIssue(issue);
+  }
+
+  private InputFile getSourceFile(InputFile file, XrefReference ref) {
+    if (ref.getFileNum() == 1) {
+      return file;
+    } else {
+      return getInputFile(ref.getSourceFileName());
+    }
+  }
+
+}
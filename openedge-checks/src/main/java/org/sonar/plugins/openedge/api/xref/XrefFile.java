@@ -0,0 +1,48 @@
+package org.sonar.plugins.openedge.api.xref;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact model of an XML-XREF file, with references grouped by Reference-type
+ */
+public class XrefFile {
+  private final List<XrefReference> references = new ArrayList<>();
+  private final Map<String, List<XrefReference>> referencesByType = new HashMap<>();
+
+  public void addReference(XrefReference ref) {
+    references.add(ref);
+    List<XrefReference> list = referencesByType.get(ref.getReferenceType());
+    if (list == null) {
+      list = new ArrayList<>();
+      referencesByType.put(ref.getReferenceType(), list);
+    }
+    list.add(ref);
+  }
+
+  /**
+   * All references, in XREF file order
+   */
+  public List<XrefReference> getReferences() {
+    return Collections.unmodifiableList(references);
+  }
+
+  /**
+   * References of a given type, in XREF file order
+   * 
+   * @param referenceType For example SEARCH, NEW-SHR-VARIABLE, ...
+   * @return Empty list if no reference of this type
+   */
+  public List<XrefReference> getReferences(String referenceType) {
+    List<XrefReference> list = referencesByType.get(referenceType);
+    return list == null ? Collections.<XrefReference> emptyList() : Collections.unmodifiableList(list);
+  }
+
+  public Set<String> getReferenceTypes() {
+    return Collections.unmodifiableSet(referencesByType.keySet());
+  }
+}
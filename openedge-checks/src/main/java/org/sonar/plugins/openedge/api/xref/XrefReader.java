@@ -0,0 +1,139 @@
+package org.sonar.plugins.openedge.api.xref;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streaming (StAX) reader of XML-XREF files. Only one Reference element is kept in memory at a time, apart from the
+ * resulting model. Not thread-safe, one instance has to be used per thread.
+ */
+public class XrefReader {
+  private final XMLInputFactory factory;
+  // Reference types, object identifiers and file names are highly repetitive, so they're shared between references of
+  // the same file
+  private final Map<String, String> strings = new HashMap<>();
+
+  public XrefReader() {
+    factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+  }
+
+  public XrefFile read(File file) throws IOException {
+    try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+      return read(input);
+    }
+  }
+
+  public XrefFile read(InputStream input) throws IOException {
+    XrefFile xref = new XrefFile();
+    strings.clear();
+    XMLStreamReader reader = null;
+    try {
+      reader = factory.createXMLStreamReader(input);
+      String sourceFileName = null;
+      XrefReference currRef = null;
+      // Depth of current element, relative to Reference element
+      int depth = 0;
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          String name = reader.getLocalName();
+          if (currRef == null) {
+            if ("Source".equals(name)) {
+              sourceFileName = intern(reader.getAttributeValue(null, "File-name"));
+            } else if ("Reference".equals(name)) {
+              currRef = new XrefReference(intern(reader.getAttributeValue(null, "Reference-type")),
+                  intern(reader.getAttributeValue(null, "Object-identifier")), sourceFileName);
+              depth = 0;
+            }
+          } else if (depth == 0) {
+            // getElementText() moves the cursor to END_ELEMENT, so depth doesn't change
+            if (!readChildElement(reader, name, currRef)) {
+              depth++;
+            }
+          } else {
+            depth++;
+          }
+        } else if (event == XMLStreamConstants.END_ELEMENT && (currRef != null)) {
+          if (depth == 0) {
+            xref.addReference(currRef);
+            currRef = null;
+          } else {
+            depth--;
+          }
+        }
+      }
+    } catch (XMLStreamException | NumberFormatException caught) {
+      throw new IOException("Unable to read XREF file", caught);
+    } finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (XMLStreamException uncaught) {
+          // Nothing
+        }
+      }
+    }
+
+    return xref;
+  }
+
+  /**
+   * @return False if element was not read (i.e. cursor is still on START_ELEMENT)
+   */
+  private boolean readChildElement(XMLStreamReader reader, String name, XrefReference ref) throws XMLStreamException {
+    switch (name) {
+      case "File-num":
+        ref.setFileNum(Integer.parseInt(reader.getElementText().trim()));
+        return true;
+      case "Line-num":
+        ref.setLineNum(Integer.parseInt(reader.getElementText().trim()));
+        return true;
+      case "Object-context":
+        ref.setObjectContext(intern(reader.getElementText()));
+        return true;
+      case "Access-mode":
+        ref.setAccessMode(intern(reader.getElementText()));
+        return true;
+      case "Data-member-ref":
+        ref.setDataMemberRef(intern(reader.getElementText()));
+        return true;
+      case "Temp-ref":
+        ref.setTempRef(intern(reader.getElementText()));
+        return true;
+      case "Detail":
+        ref.setDetail(intern(reader.getElementText()));
+        return true;
+      case "Is-static":
+        ref.setStatic(Boolean.parseBoolean(reader.getElementText().trim()));
+        return true;
+      case "Is-abstract":
+        ref.setAbstract(Boolean.parseBoolean(reader.getElementText().trim()));
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private String intern(String str) {
+    if (str == null)
+      return null;
+    String val = strings.get(str);
+    if (val == null) {
+      strings.put(str, str);
+      val = str;
+    }
+    return val;
+  }
+}
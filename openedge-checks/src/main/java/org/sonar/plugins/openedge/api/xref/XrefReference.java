@@ -0,0 +1,117 @@
+package org.sonar.plugins.openedge.api.xref;
+
+/**
+ * One Reference element of an XML-XREF file. Only simple child elements are kept, nested elements (Class-ref,
+ * String-ref, Parameter-ref, ...) are skipped.
+ */
+public class XrefReference {
+  private final String referenceType;
+  private final String objectIdentifier;
+  private final String sourceFileName;
+  private int fileNum, lineNum;
+  private String objectContext, accessMode, dataMemberRef, tempRef, detail;
+  private boolean isStatic, isAbstract;
+
+  /**
+   * @param referenceType Reference-type attribute
+   * @param objectIdentifier Object-identifier attribute
+   * @param sourceFileName File-name attribute of parent Source element
+   */
+  public XrefReference(String referenceType, String objectIdentifier, String sourceFileName) {
+    this.referenceType = referenceType;
+    this.objectIdentifier = objectIdentifier;
+    this.sourceFileName = sourceFileName;
+  }
+
+  public String getReferenceType() {
+    return referenceType;
+  }
+
+  public String getObjectIdentifier() {
+    return objectIdentifier;
+  }
+
+  public String getSourceFileName() {
+    return sourceFileName;
+  }
+
+  /**
+   * File number is 1 for the main file, and greater than 1 for include files
+   */
+  public int getFileNum() {
+    return fileNum;
+  }
+
+  public void setFileNum(int fileNum) {
+    this.fileNum = fileNum;
+  }
+
+  public int getLineNum() {
+    return lineNum;
+  }
+
+  public void setLineNum(int lineNum) {
+    this.lineNum = lineNum;
+  }
+
+  public String getObjectContext() {
+    return objectContext;
+  }
+
+  public void setObjectContext(String objectContext) {
+    this.objectContext = objectContext;
+  }
+
+  public String getAccessMode() {
+    return accessMode;
+  }
+
+  public void setAccessMode(String accessMode) {
+    this.accessMode = accessMode;
+  }
+
+  public String getDataMemberRef() {
+    return dataMemberRef;
+  }
+
+  public void setDataMemberRef(String dataMemberRef) {
+    this.dataMemberRef = dataMemberRef;
+  }
+
+  public String getTempRef() {
+    return tempRef;
+  }
+
+  public void setTempRef(String tempRef) {
+    this.tempRef = tempRef;
+  }
+
+  public String getDetail() {
+    return detail;
+  }
+
+  public void setDetail(String detail) {
+    this.detail = detail;
+  }
+
+  public boolean isStatic() {
+    return isStatic;
+  }
+
+  public void setStatic(boolean isStatic) {
+    this.isStatic = isStatic;
+  }
+
+  public boolean isAbstract() {
+    return isAbstract;
+  }
+
+  public void setAbstract(boolean isAbstract) {
+    this.isAbstract = isAbstract;
+  }
+
+  @Override
+  public String toString() {
+    return "Reference " + referenceType + " " + objectIdentifier + " at " + sourceFileName + ":" + lineNum;
+  }
+}
@@ -0,0 +1,98 @@
+package org.sonar.plugins.openedge.api.xref;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+public class XrefReaderTest {
+  private final static File XREF_FILE = new File("src/test/resources/test1.p.xref");
+
+  @Test
+  public void testReferences() throws Exception {
+    XrefFile xref = new XrefReader().read(XREF_FILE);
+    Assert.assertEquals(xref.getReferences().size(), 9);
+    Assert.assertEquals(xref.getReferences("SEARCH").size(), 2);
+    Assert.assertEquals(xref.getReferences("NEW-SHR-BUFFER").size(), 1);
+    Assert.assertTrue(xref.getReferences("NEW-SHR-FRAME").isEmpty());
+    Assert.assertEquals(xref.getReferenceTypes().size(), 8);
+
+    XrefReference compile = xref.getReferences().get(0);
+    Assert.assertEquals(compile.getReferenceType(), "COMPILE");
+    Assert.assertEquals(compile.getObjectIdentifier(), "src\\procedures\\test1.p");
+    Assert.assertEquals(compile.getSourceFileName(), "src\\procedures\\test1.p");
+    Assert.assertEquals(compile.getFileNum(), 1);
+    Assert.assertEquals(compile.getLineNum(), 1);
+    Assert.assertFalse(compile.isStatic());
+
+    // Nested Parameter-ref and String-ref elements are skipped
+    XrefReference run = xref.getReferences("RUN").get(0);
+    Assert.assertEquals(run.getObjectIdentifier(), "foo");
+    Assert.assertEquals(run.getLineNum(), 14);
+    Assert.assertEquals(run.getDetail(), "PERSISTENT");
+    Assert.assertEquals(xref.getReferences("STRING").get(0).getLineNum(), 8);
+
+    // References in include file
+    XrefReference search = xref.getReferences("SEARCH").get(1);
+    Assert.assertEquals(search.getSourceFileName(), "inc\\test.i");
+    Assert.assertEquals(search.getFileNum(), 2);
+    Assert.assertEquals(search.getLineNum(), 4);
+    Assert.assertEquals(search.getTempRef(), "T");
+    Assert.assertEquals(search.getDetail(), "CustNum");
+    Assert.assertTrue(search.isStatic());
+    Assert.assertEquals(xref.getReferences("INCLUDE").get(0).getObjectIdentifier(), "inc/test.i");
+  }
+
+  @Test
+  public void testSameAsDom() throws Exception {
+    XrefFile xref = new XrefReader().read(XREF_FILE);
+    Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(XREF_FILE);
+    NodeList nodes = doc.getElementsByTagName("Reference");
+    List<XrefReference> refs = xref.getReferences();
+    Assert.assertEquals(refs.size(), nodes.getLength());
+    for (int zz = 0; zz < nodes.getLength(); zz++) {
+      Element elem = (Element) nodes.item(zz);
+      XrefReference ref = refs.get(zz);
+      Assert.assertEquals(ref.getReferenceType(), elem.getAttribute("Reference-type"));
+      Assert.assertEquals(ref.getObjectIdentifier(), elem.getAttribute("Object-identifier"));
+      Assert.assertEquals(ref.getSourceFileName(), ((Element) elem.getParentNode()).getAttribute("File-name"));
+      Assert.assertEquals(ref.getFileNum(), Integer.parseInt(getChildText(elem, "File-num")));
+      Assert.assertEquals(ref.getLineNum(), Integer.parseInt(getChildText(elem, "Line-num")));
+      Assert.assertEquals(ref.getDetail(), getChildText(elem, "Detail"));
+    }
+  }
+
+  @Test
+  public void testReaderReuse() throws Exception {
+    XrefReader reader = new XrefReader();
+    XrefFile xref1 = reader.read(XREF_FILE);
+    XrefFile xref2 = reader.read(XREF_FILE);
+    Assert.assertEquals(xref2.getReferences().size(), xref1.getReferences().size());
+    Assert.assertEquals(xref2.getReferences("SEARCH").size(), 2);
+  }
+
+  @Test
+  public void testInvalidFile() {
+    String str = "<Cross-reference><Source File-name=\"test.p\"><Reference Reference-type=\"RUN\">"
+        + "<Line-num>abc</Line-num></Reference></Source></Cross-reference>";
+    try {
+      new XrefReader().read(new ByteArrayInputStream(str.getBytes(StandardCharsets.UTF_8)));
+    } catch (IOException caught) {
+      return;
+    }
+    Assert.fail("No IOException caught");
+  }
+
+  private static String getChildText(Element elem, String name) {
+    return elem.getElementsByTagName(name).item(0).getTextContent();
+  }
+}
@@ -23,10 +23,13 @@ import org.sonar.api.Plugin;
 import org.sonar.api.PropertyType;
 import org.sonar.api.config.PropertyDefinition;
 import org.sonar.api.resources.Qualifiers;
+import org.sonar.plugins.openedge.api.InputFileIndex;
 import org.sonar.plugins.openedge.colorizer.OpenEdgeColorizerFormat;
 import org.sonar.plugins.openedge.colorizer.OpenEdgeDBColorizerFormat;
 import org.sonar.plugins.openedge.decorator.CommonDBMetricsDecorator;
 import org.sonar.plugins.openedge.decorator.CommonMetricsDecorator;
+import org.sonar.plugins.openedge.foundation.DebugListingRepository;
+import org.sonar.plugins.openedge.foundation.DumpFileRepository;
 import org.sonar.plugins.openedge.foundation.OpenEdge;
 import org.sonar.plugins.openedge.foundation.OpenEdgeComponents;
 import org.sonar.plugins.openedge.foundation.OpenEdgeDB;
@@ -37,10 +40,17 @@ import org.sonar.plugins.openedge.foundation.OpenEdgeProfile;
 import org.sonar.plugins.openedge.foundation.OpenEdgeRulesDefinition;
 import org.sonar.plugins.openedge.foundation.OpenEdgeRulesRegistrar;
 import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
+import org.sonar.plugins.openedge.foundation.PctManifest;
+import org.sonar.plugins.openedge.foundation.ProfilerIssueWeights;
+import org.sonar.plugins.openedge.foundation.ProfilerOutputs;
+import org.sonar.plugins.openedge.sensor.OpenEdgeCoverageSensor;
 import org.sonar.plugins.openedge.sensor.OpenEdgeDBRulesSensor;
 import org.sonar.plugins.openedge.sensor.OpenEdgeDBSensor;
 import org.sonar.plugins.openedge.sensor.OpenEdgeDebugListingSensor;
+import org.sonar.plugins.openedge.sensor.OpenEdgeIssueWeightSensor;
 import org.sonar.plugins.openedge.sensor.OpenEdgeListingSensor;
+import org.sonar.plugins.openedge.sensor.OpenEdgePctSensor;
+import org.sonar.plugins.openedge.sensor.OpenEdgeProfilerDiffSensor;
 import org.sonar.plugins.openedge.sensor.OpenEdgeProparseSensor;
 import org.sonar.plugins.openedge.sensor.OpenEdgeSensor;
 import org.sonar.plugins.openedge.sensor.OpenEdgeWarningsSensor;
@@ -60,14 +70,24 @@ public class OpenEdgePlugin implements Plugin {
   public static final String PROPATH_DLC = "sonar.oe.propath.dlc";
   public static final String DATABASES = "sonar.oe.databases";
   public static final String ALIASES = "sonar.oe.aliases";
+  public static final String SCHEMA_CACHE = "sonar.oe.schema.cache";
   public static final String CPD_DEBUG = "sonar.oe.cpd.debug";
   public static final String CPD_ANNOTATIONS = "sonar.oe.cpd.annotations";
   public static final String SUFFIXES = "sonar.oe.file.suffixes";
+  public static final String THREADS = "sonar.oe.threads";
+  public static final String PROFILER_OUTPUTS = "sonar.oe.coverage.profiler.dirs";
+  public static final String PROFILER_BASELINE = "sonar.oe.profiler.baseline.dirs";
+  public static final String PROFILER_REGRESSION_THRESHOLD = "sonar.oe.profiler.regression.threshold";
+  public static final String PROFILER_CACHE = "sonar.oe.profiler.cache";
+  public static final String PROFILER_WEIGHT_ISSUES = "sonar.oe.profiler.weightIssues";
+  public static final String PCT_SEPARATE_SENSORS = "sonar.oe.pct.separateSensors";
 
   @Override
   public void define(Context context) {
     // Main components
-    context.addExtensions(OpenEdge.class, OpenEdgeDB.class, OpenEdgeSettings.class);
+    context.addExtensions(OpenEdge.class, OpenEdgeDB.class, OpenEdgeSettings.class, DumpFileRepository.class,
+        PctManifest.class, DebugListingRepository.class, InputFileIndex.class, ProfilerOutputs.class,
+        ProfilerIssueWeights.class);
 
     // Profile and rules
     context.addExtensions(OpenEdgeRulesDefinition.class, OpenEdgeRulesRegistrar.class, OpenEdgeLicenceRegistrar.class,
@@ -78,8 +98,9 @@ public class OpenEdgePlugin implements Plugin {
 
     // Sensors
     context.addExtensions(OpenEdgeSensor.class, OpenEdgeDBSensor.class, OpenEdgeDebugListingSensor.class,
-        OpenEdgeListingSensor.class, OpenEdgeWarningsSensor.class, OpenEdgeXREFSensor.class,
-        OpenEdgeProparseSensor.class, OpenEdgeDBRulesSensor.class);
+        OpenEdgePctSensor.class, OpenEdgeWarningsSensor.class, OpenEdgeListingSensor.class, OpenEdgeXREFSensor.class,
+        OpenEdgeProparseSensor.class, OpenEdgeDBRulesSensor.class, OpenEdgeCoverageSensor.class,
+        OpenEdgeProfilerDiffSensor.class, OpenEdgeIssueWeightSensor.class);
 
     // Decorators
     context.addExtensions(CommonMetricsDecorator.class, CommonDBMetricsDecorator.class);
@@ -101,10 +122,44 @@ public class OpenEdgePlugin implements Plugin {
         "Comma-separated list of suffixes of OpenEdge files to analyze").type(PropertyType.STRING).defaultValue(
             "").category(CATEGORY_OPENEDGE).subCategory(SUBCATEGORY_GENERAL).onQualifiers(Qualifiers.MODULE,
                 Qualifiers.PROJECT).build());
+    context.addExtension(PropertyDefinition.builder(THREADS).name("Number of threads").description(
+        "Number of threads used to analyze compiler output (0 means number of available processors)").type(
+            PropertyType.INTEGER).defaultValue("0").category(CATEGORY_OPENEDGE).subCategory(
+                SUBCATEGORY_GENERAL).onQualifiers(Qualifiers.MODULE, Qualifiers.PROJECT).build());
     context.addExtension(PropertyDefinition.builder(CPD_ANNOTATIONS).name("CPD annotations").description(
         "Comma-separated list of annotations disabling CPD").type(PropertyType.STRING).defaultValue(
             "Generated").category(CATEGORY_OPENEDGE).subCategory(SUBCATEGORY_GENERAL).onQualifiers(Qualifiers.MODULE,
                 Qualifiers.PROJECT).build());
+    context.addExtension(PropertyDefinition.builder(SCHEMA_CACHE).name("Schema cache").description(
+        "Directory of binary snapshots of database schemas, reused by later analyses. Defaults to .schema in binaries directory").type(
+            PropertyType.STRING).defaultValue("").category(CATEGORY_OPENEDGE).subCategory(
+                SUBCATEGORY_GENERAL).onQualifiers(Qualifiers.MODULE, Qualifiers.PROJECT).build());
+    context.addExtension(PropertyDefinition.builder(PCT_SEPARATE_SENSORS).name("Separate PCT sensors").description(
+        "Import warnings, listing and XREF files with one sensor per kind of file, instead of a single pass over the source files").type(
+            PropertyType.BOOLEAN).defaultValue(Boolean.FALSE.toString()).category(CATEGORY_OPENEDGE).subCategory(
+                SUBCATEGORY_GENERAL).onQualifiers(Qualifiers.MODULE, Qualifiers.PROJECT).build());
+    context.addExtension(PropertyDefinition.builder(PROFILER_OUTPUTS).name("Profiler outputs").description(
+        "Comma-separated list of directories or glob patterns of profiler outputs used to compute coverage").type(
+            PropertyType.STRING).defaultValue("").category(CATEGORY_OPENEDGE).subCategory(
+                SUBCATEGORY_GENERAL).onQualifiers(Qualifiers.MODULE, Qualifiers.PROJECT).build());
+    context.addExtension(PropertyDefinition.builder(PROFILER_BASELINE).name("Baseline profiler outputs").description(
+        "Comma-separated list of directories or glob patterns of profiler outputs of the reference version, used to find performance regressions").type(
+            PropertyType.STRING).defaultValue("").category(CATEGORY_OPENEDGE).subCategory(
+                SUBCATEGORY_GENERAL).onQualifiers(Qualifiers.MODULE, Qualifiers.PROJECT).build());
+    context.addExtension(PropertyDefinition.builder(PROFILER_REGRESSION_THRESHOLD).name(
+        "Performance regression threshold").description(
+            "Minimal increase of execution time (in percent) of a line or procedure to be reported as a performance regression").type(
+                PropertyType.INTEGER).defaultValue("20").category(CATEGORY_OPENEDGE).subCategory(
+                    SUBCATEGORY_GENERAL).onQualifiers(Qualifiers.MODULE, Qualifiers.PROJECT).build());
+    context.addExtension(PropertyDefinition.builder(PROFILER_CACHE).name("Profiler outputs cache").description(
+        "Directory of binary snapshots of parsed profiler outputs, reused by later analyses. No cache if empty").type(
+            PropertyType.STRING).defaultValue("").category(CATEGORY_OPENEDGE).subCategory(
+                SUBCATEGORY_GENERAL).onQualifiers(Qualifiers.MODULE, Qualifiers.PROJECT).build());
+    context.addExtension(PropertyDefinition.builder(PROFILER_WEIGHT_ISSUES).name(
+        "Weight issues with profiler data").description(
+            "Save execution time of lines with issues, as found in profiler outputs, as file metrics").type(
+                PropertyType.BOOLEAN).defaultValue(Boolean.FALSE.toString()).category(CATEGORY_OPENEDGE).subCategory(
+                    SUBCATEGORY_GENERAL).onQualifiers(Qualifiers.MODULE, Qualifiers.PROJECT).build());
   }
 
 }
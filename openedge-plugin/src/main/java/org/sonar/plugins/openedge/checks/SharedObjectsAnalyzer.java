@@ -19,66 +19,97 @@
  */
 package org.sonar.plugins.openedge.checks;
 
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
-
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
 import org.sonar.plugins.openedge.api.LicenceRegistrar.Licence;
-import org.sonar.plugins.openedge.api.checks.OpenEdgeXrefCheck;
+import org.sonar.plugins.openedge.api.checks.OpenEdgeXrefFileCheck;
+import org.sonar.plugins.openedge.api.xref.XrefFile;
+import org.sonar.plugins.openedge.api.xref.XrefReference;
 import org.sonar.plugins.openedge.foundation.OpenEdgeMetrics;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
+/**
+ * Count new shared objects (temp-tables, datasets, variables, buffers and frames) defined in each file. All counters
+ * are computed in a single pass over the XREF references, either from the streamed XREF model or from a DOM.
+ */
 @Rule(priority = Priority.MAJOR, name = "Shared objects analyzer")
-public class SharedObjectsAnalyzer extends OpenEdgeXrefCheck {
-  private static XPathExpression shrTTExpr, shrDSExpr, shrVarExpr;
+public class SharedObjectsAnalyzer extends OpenEdgeXrefFileCheck {
+  private static final String REFERENCE_TAG = "Reference";
+  private static final String REFERENCE_TYPE_ATTR = "Reference-type";
 
   public SharedObjectsAnalyzer(RuleKey ruleKey, SensorContext context, Licence licence, String serverId) {
     super(ruleKey, context, licence, serverId);
   }
 
-  static {
-    XPath xPath = XPathFactory.newInstance().newXPath();
-    try {
-      shrTTExpr = xPath.compile("//Reference[@Reference-type='NEW-SHR-TEMPTABLE']");
-      shrDSExpr = xPath.compile("//Reference[@Reference-type='NEW-SHR-DATASET']");
-      shrVarExpr = xPath.compile("//Reference[@Reference-type='NEW-SHR-VARIABLE']");
-    } catch (XPathExpressionException caught) {
-      throw new RuntimeException(caught);
-    }
+  @Override
+  public boolean isThreadSafe() {
+    // No state kept between files, and measures are only saved through reportMeasure
+    return true;
   }
 
   @Override
-  public void execute(InputFile file, Document doc) {
-    int numShrTT = 0, numShrDS = 0, numShrVar = 0;
-    try {
-      NodeList nodeList = (NodeList) shrTTExpr.evaluate(doc, XPathConstants.NODESET);
-      numShrTT = nodeList.getLength();
-    } catch (XPathExpressionException uncaught) {
-
+  public void execute(InputFile file, XrefFile xref) {
+    SharedObjects counters = new SharedObjects();
+    for (XrefReference ref : xref.getReferences()) {
+      counters.add(ref.getReferenceType());
     }
-    try {
-      NodeList nodeList = (NodeList) shrDSExpr.evaluate(doc, XPathConstants.NODESET);
-      numShrDS = nodeList.getLength();
-    } catch (XPathExpressionException uncaught) {
+    report(file, counters);
+  }
 
+  /**
+   * Same as {@link #execute(InputFile, XrefFile)}, when only the DOM of the XREF file is available
+   */
+  public void execute(InputFile file, Document doc) {
+    SharedObjects counters = new SharedObjects();
+    NodeList nodeList = doc.getElementsByTagName(REFERENCE_TAG);
+    for (int zz = 0; zz < nodeList.getLength(); zz++) {
+      counters.add(((Element) nodeList.item(zz)).getAttribute(REFERENCE_TYPE_ATTR));
     }
-    try {
-      NodeList nodeList = (NodeList) shrVarExpr.evaluate(doc, XPathConstants.NODESET);
-      numShrVar = nodeList.getLength();
-    } catch (XPathExpressionException uncaught) {
+    report(file, counters);
+  }
 
-    }
+  private void report(InputFile file, SharedObjects counters) {
+    reportMeasure(file, OpenEdgeMetrics.SHR_TT, counters.numShrTT);
+    reportMeasure(file, OpenEdgeMetrics.SHR_DS, counters.numShrDS);
+    reportMeasure(file, OpenEdgeMetrics.SHR_VAR, counters.numShrVar);
+    reportMeasure(file, OpenEdgeMetrics.SHR_BUFFER, counters.numShrBuffer);
+    reportMeasure(file, OpenEdgeMetrics.SHR_FRAME, counters.numShrFrame);
+  }
+
+  private static class SharedObjects {
+    private int numShrTT;
+    private int numShrDS;
+    private int numShrVar;
+    private int numShrBuffer;
+    private int numShrFrame;
 
-    reportMeasure(file, OpenEdgeMetrics.SHR_TT, numShrTT);
-    reportMeasure(file, OpenEdgeMetrics.SHR_DS, numShrDS);
-    reportMeasure(file, OpenEdgeMetrics.SHR_VAR, numShrVar);
+    void add(String referenceType) {
+      if (referenceType == null)
+        return;
+      switch (referenceType) {
+        case "NEW-SHR-TEMPTABLE":
+          numShrTT++;
+          break;
+        case "NEW-SHR-DATASET":
+          numShrDS++;
+          break;
+        case "NEW-SHR-VARIABLE":
+          numShrVar++;
+          break;
+        case "NEW-SHR-BUFFER":
+          numShrBuffer++;
+          break;
+        case "NEW-SHR-FRAME":
+          numShrFrame++;
+          break;
+        default:
+          break;
+      }
+    }
   }
 }
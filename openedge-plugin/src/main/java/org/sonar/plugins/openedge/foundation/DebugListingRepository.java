@@ -0,0 +1,131 @@
+/*
+ * OpenEdge DB plugin for SonarQube
+ * Copyright (C) 2013-2014 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.foundation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.BatchSide;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.plugins.openedge.api.eu.rssw.listing.DebugListing;
+import org.sonar.plugins.openedge.api.eu.rssw.listing.SourceLineMapping;
+
+/**
+ * Keeps line maps of each source file, so that debug listing and compile listing are read only once per analysis,
+ * whatever the number of consumers (debug listing metrics, profiler data). Profiler line numbers are debug listing line
+ * numbers, and are mapped to lines of the main file and of include files with {@link SourceLineMapping}.
+ */
+@BatchSide
+public class DebugListingRepository {
+  private static final Logger LOG = LoggerFactory.getLogger(DebugListingRepository.class);
+
+  // IoC
+  private final FileSystem fileSystem;
+  private final PctManifest manifest;
+
+  private final ConcurrentMap<InputFile, LineMaps> lineMaps = new ConcurrentHashMap<>();
+
+  public DebugListingRepository(FileSystem fileSystem, PctManifest manifest) {
+    this.fileSystem = fileSystem;
+    this.manifest = manifest;
+  }
+
+  /**
+   * @return Debug listing of this source file, or null if not available
+   */
+  public DebugListing getDebugListing(InputFile file) {
+    return getLineMaps(file).getDebugListing();
+  }
+
+  /**
+   * @return Mapping of debug listing lines to source lines, or null if compile listing is not available or doesn't
+   *         match the debug listing
+   */
+  public SourceLineMapping getSourceLineMapping(InputFile file) {
+    return getLineMaps(file).getSourceLineMapping();
+  }
+
+  private LineMaps getLineMaps(InputFile file) {
+    LineMaps maps = lineMaps.get(file);
+    if (maps == null) {
+      LineMaps newMaps = new LineMaps(file);
+      maps = lineMaps.putIfAbsent(file, newMaps);
+      if (maps == null) {
+        maps = newMaps;
+      }
+    }
+    return maps;
+  }
+
+  private class LineMaps {
+    private final InputFile file;
+    private boolean debugListingRead;
+    private DebugListing debugListing;
+    private boolean mappingRead;
+    private SourceLineMapping mapping;
+
+    public LineMaps(InputFile file) {
+      this.file = file;
+    }
+
+    public synchronized DebugListing getDebugListing() {
+      if (!debugListingRead) {
+        debugListingRead = true;
+        File debugListingFile = manifest.getDebugListingFile(file);
+        if (debugListingFile == null) {
+          LOG.debug("Debug listing file for {} not found", file.relativePath());
+          return null;
+        }
+        try {
+          debugListing = new DebugListing(debugListingFile, fileSystem.encoding());
+        } catch (IOException caught) {
+          LOG.error("Can not analyze debug listing file " + debugListingFile.getAbsolutePath(), caught);
+        }
+      }
+      return debugListing;
+    }
+
+    public synchronized SourceLineMapping getSourceLineMapping() {
+      if (!mappingRead) {
+        mappingRead = true;
+        File listingFile = manifest.getListingFile(file);
+        if (listingFile == null)
+          return null;
+        try {
+          SourceLineMapping newMapping = new SourceLineMapping(listingFile, fileSystem.encoding());
+          DebugListing listing = getDebugListing();
+          if ((listing != null) && (listing.getLines() != newMapping.getLines())) {
+            LOG.debug("Listing of {} doesn't match debug listing", file.relativePath());
+          } else {
+            mapping = newMapping;
+          }
+        } catch (IOException caught) {
+          LOG.error("Unable to read listing file " + listingFile.getAbsolutePath(), caught);
+        }
+      }
+      return mapping;
+    }
+  }
+}
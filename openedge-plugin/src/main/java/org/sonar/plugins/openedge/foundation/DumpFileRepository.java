@@ -0,0 +1,171 @@
+/*
+ * OpenEdge DB plugin for SonarQube
+ * Copyright (C) 2013-2014 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.foundation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.BatchSide;
+import org.sonar.plugins.openedge.api.com.google.common.io.Files;
+import org.sonar.plugins.openedge.api.eu.rssw.antlr.database.DumpFileUtils;
+import org.sonar.plugins.openedge.api.eu.rssw.antlr.database.objects.DatabaseDescription;
+import org.sonar.plugins.openedge.api.org.antlr.v4.runtime.tree.ParseTree;
+
+/**
+ * Keeps DatabaseDescription of each dump file, so that a dump file is parsed only once per analysis, whatever the
+ * number of consumers (schema for proparse, metrics, DF rules). When no DF rule is active, ParseTree is only kept until
+ * the DatabaseDescription is built. Otherwise, it is kept until {@link #releaseParseTree(File)} is called by DF rules.
+ */
+@BatchSide
+public class DumpFileRepository {
+  private static final Logger LOG = LoggerFactory.getLogger(DumpFileRepository.class);
+
+  private final ConcurrentMap<String, DumpFile> dumpFiles = new ConcurrentHashMap<>();
+  private final boolean keepParseTrees;
+  private final AtomicInteger numParses = new AtomicInteger();
+
+  public DumpFileRepository() {
+    this(null);
+  }
+
+  public DumpFileRepository(OpenEdgeComponents components) {
+    this.keepParseTrees = (components != null) && components.hasDumpFileChecks();
+  }
+
+  /**
+   * Parse dump files concurrently, so that subsequent calls to {@link #getParseTree(File)} or
+   * {@link #getDatabaseDescription(File)} are served from cache. Parsing errors are only logged here, and will be
+   * thrown again by those methods.
+   *
+   * @param numThreads Size of thread pool, see {@link OpenEdgeSettings#getNumThreads()}
+   * @param keepParseTree If false, only DatabaseDescription is kept in cache. Dump files whose description is already
+   *          available are then not parsed again.
+   */
+  public void parse(Collection<File> files, int numThreads, final boolean keepParseTree) {
+    if (files.isEmpty())
+      return;
+    ExecutorService service = Executors.newFixedThreadPool(numThreads);
+    try {
+      List<Future<Object>> futures = new ArrayList<>();
+      for (final File file : files) {
+        futures.add(service.submit(new Callable<Object>() {
+          @Override
+          public Object call() throws IOException {
+            return keepParseTree ? getParseTree(file) : getDatabaseDescription(file);
+          }
+        }));
+      }
+      for (Future<Object> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException caught) {
+          LOG.error("Unable to parse dump file", caught.getCause());
+        }
+      }
+    } catch (InterruptedException caught) {
+      Thread.currentThread().interrupt();
+    } finally {
+      service.shutdownNow();
+    }
+  }
+
+  public ParseTree getParseTree(File file) throws IOException {
+    return getDumpFile(file).getParseTree();
+  }
+
+  public DatabaseDescription getDatabaseDescription(File file) throws IOException {
+    return getDumpFile(file).getDatabaseDescription();
+  }
+
+  /**
+   * Releases ParseTree of this dump file, once all consumers are done with it
+   */
+  public void releaseParseTree(File file) throws IOException {
+    getDumpFile(file).releaseParseTree();
+  }
+
+  /**
+   * Number of dump files parsed since creation of this repository
+   */
+  int getNumParses() {
+    return numParses.get();
+  }
+
+  private DumpFile getDumpFile(File file) throws IOException {
+    String key = file.getCanonicalPath();
+    DumpFile df = dumpFiles.get(key);
+    if (df == null) {
+      DumpFile newDf = new DumpFile(file);
+      df = dumpFiles.putIfAbsent(key, newDf);
+      if (df == null) {
+        df = newDf;
+      }
+    }
+    return df;
+  }
+
+  private class DumpFile {
+    private final File file;
+    private ParseTree tree;
+    private DatabaseDescription desc;
+
+    public DumpFile(File file) {
+      this.file = file;
+    }
+
+    public synchronized ParseTree getParseTree() throws IOException {
+      if (tree == null) {
+        long time = System.currentTimeMillis();
+        tree = DumpFileUtils.getDumpFileParseTree(file);
+        numParses.incrementAndGet();
+        LOG.debug("Dump file {} parsed in {} ms", file.getName(), System.currentTimeMillis() - time);
+      }
+      return tree;
+    }
+
+    public synchronized DatabaseDescription getDatabaseDescription() throws IOException {
+      if (desc == null) {
+        desc = DumpFileUtils.getDatabaseDescription(getParseTree(), Files.getNameWithoutExtension(file.getName()));
+        // Tree is much larger than description, and won't be used anymore by schema or metrics
+        if (!keepParseTrees) {
+          tree = null;
+        }
+      }
+      return desc;
+    }
+
+    public synchronized void releaseParseTree() {
+      tree = null;
+    }
+  }
+}
@@ -42,12 +42,15 @@ import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.MessageException;
 import org.sonar.check.RuleProperty;
 import org.sonar.plugins.openedge.api.CheckRegistrar;
+import org.sonar.plugins.openedge.api.ExecutionProfile;
+import org.sonar.plugins.openedge.api.InputFileIndex;
 import org.sonar.plugins.openedge.api.LicenceRegistrar;
 import org.sonar.plugins.openedge.api.LicenceRegistrar.Licence;
 import org.sonar.plugins.openedge.api.checks.OpenEdgeCheck;
 import org.sonar.plugins.openedge.api.checks.OpenEdgeDumpFileCheck;
 import org.sonar.plugins.openedge.api.checks.OpenEdgeProparseCheck;
 import org.sonar.plugins.openedge.api.checks.OpenEdgeXrefCheck;
+import org.sonar.plugins.openedge.api.checks.OpenEdgeXrefFileCheck;
 import org.sonar.plugins.openedge.api.com.google.common.base.Strings;
 
 @BatchSide
@@ -57,24 +60,32 @@ public class OpenEdgeComponents {
   // IoC
   private final Server server;
   private final ActiveRules activeRules;
+  private final InputFileIndex inputFileIndex;
+  private final ExecutionProfile executionProfile;
 
   private final List<Class<? extends OpenEdgeCheck>> checkClasses = new ArrayList<>();
 
   private final Map<ActiveRule, OpenEdgeProparseCheck> ppChecksMap = new HashMap<>();
   private final Map<ActiveRule, OpenEdgeXrefCheck> xrefChecksMap = new HashMap<>();
+  private final Map<ActiveRule, OpenEdgeXrefFileCheck> xrefFileChecksMap = new HashMap<>();
   private final Map<ActiveRule, OpenEdgeDumpFileCheck> dfChecksMap = new HashMap<>();
 
   private boolean initialized = false;
   private final List<OpenEdgeProparseCheck> ppChecks = new ArrayList<>();
   private final List<OpenEdgeXrefCheck> xrefChecks = new ArrayList<>();
+  private final List<OpenEdgeXrefFileCheck> xrefFileChecks = new ArrayList<>();
   private final List<OpenEdgeDumpFileCheck> dfChecks = new ArrayList<>();
 
   private final Map<String, Licence> licences = new HashMap<>();
 
-  public OpenEdgeComponents(ActiveRules activeRules, Server server, CheckRegistrar[] checkRegistrars,
-      LicenceRegistrar[] licRegistrars) {
+  public OpenEdgeComponents(ActiveRules activeRules, Server server, InputFileIndex inputFileIndex,
+      CheckRegistrar[] checkRegistrars, LicenceRegistrar[] licRegistrars, ExecutionProfile[] executionProfiles) {
     this.activeRules = activeRules;
     this.server = server;
+    this.inputFileIndex = inputFileIndex;
+    // Only one implementation expected
+    this.executionProfile = (executionProfiles == null) || (executionProfiles.length == 0) ? null
+        : executionProfiles[0];
 
     if (checkRegistrars != null) {
       registerChecks(checkRegistrars);
@@ -92,6 +103,10 @@ public class OpenEdgeComponents {
         LOG.debug("{} XREF check registered", analyzer.getName());
         checkClasses.add(analyzer);
       }
+      for (Class<? extends OpenEdgeXrefFileCheck> analyzer : registrarContext.getXrefFileCheckClasses()) {
+        LOG.debug("{} XREF file check registered", analyzer.getName());
+        checkClasses.add(analyzer);
+      }
       for (Class<? extends OpenEdgeProparseCheck> analyzer : registrarContext.getProparseCheckClasses()) {
         LOG.debug("{} Proparse check registered", analyzer.getName());
         checkClasses.add(analyzer);
@@ -147,6 +162,8 @@ public class OpenEdgeComponents {
           Strings.nullToEmpty(server.getPermanentServerId()));
       if (lint != null) {
         configureFields(rule, lint);
+        lint.setInputFileIndex(inputFileIndex);
+        lint.setExecutionProfile(executionProfile);
         lint.initialize();
         switch (lint.getCheckType()) {
           case DUMP_FILE:
@@ -161,12 +178,35 @@ public class OpenEdgeComponents {
             xrefChecks.add((OpenEdgeXrefCheck) lint);
             xrefChecksMap.put(rule, (OpenEdgeXrefCheck) lint);
             break;
+          case XREF_FILE:
+            xrefFileChecks.add((OpenEdgeXrefFileCheck) lint);
+            xrefFileChecksMap.put(rule, (OpenEdgeXrefFileCheck) lint);
+            break;
         }
       }
     }
     initialized = true;
   }
 
+  /**
+   * Returns true if at least one active rule is implemented by a DF check. Checks don't have to be initialized, so this
+   * method can be called before any sensor is executed.
+   */
+  public boolean hasDumpFileChecks() {
+    if (initialized)
+      return !dfChecks.isEmpty();
+
+    for (ActiveRule rule : activeRules.findByLanguage(OpenEdge.KEY)) {
+      String clsName = rule.templateRuleKey() == null ? rule.ruleKey().rule() : rule.templateRuleKey();
+      for (Class<? extends OpenEdgeCheck> clz : checkClasses) {
+        if (clz.getCanonicalName().equalsIgnoreCase(clsName) && OpenEdgeDumpFileCheck.class.isAssignableFrom(clz)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
   public Collection<OpenEdgeProparseCheck> getProparseChecks() {
     return Collections.unmodifiableList(ppChecks);
   }
@@ -191,6 +231,14 @@ public class OpenEdgeComponents {
     return Collections.unmodifiableMap(xrefChecksMap);
   }
 
+  public Collection<OpenEdgeXrefFileCheck> getXrefFileChecks() {
+    return Collections.unmodifiableList(xrefFileChecks);
+  }
+
+  public Map<ActiveRule, OpenEdgeXrefFileCheck> getXrefFileRules() {
+    return Collections.unmodifiableMap(xrefFileChecksMap);
+  }
+
   private Licence getLicence(String repoName) {
     return licences.get(repoName);
   }
@@ -101,6 +101,16 @@ public class OpenEdgeMetrics implements Metrics {
       Metric.ValueType.INT).setDescription("Number of new shared variables").setDirection(
           Metric.DIRECTION_NONE).setQualitative(false).setDomain(DOMAIN_OPENEDGE).create();
 
+  public static final String SHR_BUFFER_KEY = "OE_SHR_BUFFER";
+  public static final Metric<Integer> SHR_BUFFER = new Metric.Builder(SHR_BUFFER_KEY, "New shared buffers",
+      Metric.ValueType.INT).setDescription("Number of new shared buffers").setDirection(
+          Metric.DIRECTION_NONE).setQualitative(false).setDomain(DOMAIN_OPENEDGE).create();
+
+  public static final String SHR_FRAME_KEY = "OE_SHR_FRAME";
+  public static final Metric<Integer> SHR_FRAME = new Metric.Builder(SHR_FRAME_KEY, "New shared frames",
+      Metric.ValueType.INT).setDescription("Number of new shared frames").setDirection(
+          Metric.DIRECTION_NONE).setQualitative(false).setDomain(DOMAIN_OPENEDGE).create();
+
   public static final String NUM_TABLES_KEY = "OEDB_NUM_TABLES";
   public static final Metric<Integer> NUM_TABLES = new Metric.Builder(NUM_TABLES_KEY, "DB tables",
       Metric.ValueType.INT).setDescription("Number of tables").setDirection(Metric.DIRECTION_NONE).setQualitative(
@@ -146,9 +156,69 @@ public class OpenEdgeMetrics implements Metrics {
       Metric.ValueType.INT).setDescription("Complexity (w/ include files content)").setDirection(Metric.DIRECTION_WORST).setQualitative(
           false).setDomain(CoreMetrics.DOMAIN_COMPLEXITY).create();
 
+  public static final String PROFILER_TIME_KEY = "OE_PROFILER_TIME";
+  public static final Metric<Double> PROFILER_TIME = new Metric.Builder(PROFILER_TIME_KEY, "Profiled execution time",
+      Metric.ValueType.FLOAT).setDescription("Time spent in this file in profiler outputs, in seconds").setDirection(
+          Metric.DIRECTION_WORST).setQualitative(false).setDomain(DOMAIN_OPENEDGE).create();
+
+  public static final String PROFILER_CALLS_KEY = "OE_PROFILER_CALLS";
+  public static final Metric<Integer> PROFILER_CALLS = new Metric.Builder(PROFILER_CALLS_KEY, "Profiled calls",
+      Metric.ValueType.INT).setDescription("Number of calls to this file in profiler outputs").setDirection(
+          Metric.DIRECTION_NONE).setQualitative(false).setDomain(DOMAIN_OPENEDGE).create();
+
+  public static final String PROFILER_HOT_LINES_KEY = "OE_PROFILER_HOT_LINES";
+  public static final Metric PROFILER_HOT_LINES = new Metric.Builder(PROFILER_HOT_LINES_KEY, "Profiled hot spots",
+      Metric.ValueType.DATA).setDescription("Line numbers and time in seconds of slowest lines").setDirection(
+          Metric.DIRECTION_NONE).setQualitative(false).setDomain(DOMAIN_OPENEDGE).create();
+
+  public static final String PROFILER_LATENCY_P50_KEY = "OE_PROFILER_LATENCY_P50";
+  public static final Metric<Double> PROFILER_LATENCY_P50 = new Metric.Builder(PROFILER_LATENCY_P50_KEY,
+      "Median line execution time", Metric.ValueType.FLOAT).setDescription(
+          "Median execution time of lines of this file in profiler tracing data, in seconds").setDirection(
+              Metric.DIRECTION_WORST).setQualitative(false).setDomain(DOMAIN_OPENEDGE).create();
+
+  public static final String PROFILER_LATENCY_P95_KEY = "OE_PROFILER_LATENCY_P95";
+  public static final Metric<Double> PROFILER_LATENCY_P95 = new Metric.Builder(PROFILER_LATENCY_P95_KEY,
+      "95th percentile line execution time", Metric.ValueType.FLOAT).setDescription(
+          "95th percentile of execution time of lines of this file in profiler tracing data, in seconds").setDirection(
+              Metric.DIRECTION_WORST).setQualitative(false).setDomain(DOMAIN_OPENEDGE).create();
+
+  public static final String PROFILER_LATENCY_P99_KEY = "OE_PROFILER_LATENCY_P99";
+  public static final Metric<Double> PROFILER_LATENCY_P99 = new Metric.Builder(PROFILER_LATENCY_P99_KEY,
+      "99th percentile line execution time", Metric.ValueType.FLOAT).setDescription(
+          "99th percentile of execution time of lines of this file in profiler tracing data, in seconds").setDirection(
+              Metric.DIRECTION_WORST).setQualitative(false).setDomain(DOMAIN_OPENEDGE).create();
+
+  public static final String PROFILER_LATENCY_MAX_KEY = "OE_PROFILER_LATENCY_MAX";
+  public static final Metric<Double> PROFILER_LATENCY_MAX = new Metric.Builder(PROFILER_LATENCY_MAX_KEY,
+      "Maximum line execution time", Metric.ValueType.FLOAT).setDescription(
+          "Maximum execution time of lines of this file in profiler tracing data, in seconds").setDirection(
+              Metric.DIRECTION_WORST).setQualitative(false).setDomain(DOMAIN_OPENEDGE).create();
+
+  public static final String PROFILER_SLOW_LINES_KEY = "OE_PROFILER_SLOW_LINES";
+  public static final Metric PROFILER_SLOW_LINES = new Metric.Builder(PROFILER_SLOW_LINES_KEY, "Profiled tail latency",
+      Metric.ValueType.DATA).setDescription(
+          "Line numbers and 99th percentile of execution time in seconds of slowest lines in tracing data").setDirection(
+              Metric.DIRECTION_NONE).setQualitative(false).setDomain(DOMAIN_OPENEDGE).create();
+
+  public static final String PROFILER_ISSUES_TIME_KEY = "OE_PROFILER_ISSUES_TIME";
+  public static final Metric<Double> PROFILER_ISSUES_TIME = new Metric.Builder(PROFILER_ISSUES_TIME_KEY,
+      "Profiled time on issues", Metric.ValueType.FLOAT).setDescription(
+          "Time spent on lines with issues in profiler outputs, in seconds").setDirection(
+              Metric.DIRECTION_WORST).setQualitative(false).setDomain(DOMAIN_OPENEDGE).create();
+
+  public static final String PROFILER_ISSUE_LINES_KEY = "OE_PROFILER_ISSUE_LINES";
+  public static final Metric PROFILER_ISSUE_LINES = new Metric.Builder(PROFILER_ISSUE_LINES_KEY,
+      "Profiled lines with issues", Metric.ValueType.DATA).setDescription(
+          "Line numbers, execution count and time in seconds of slowest lines with issues").setDirection(
+              Metric.DIRECTION_NONE).setQualitative(false).setDomain(DOMAIN_OPENEDGE).create();
+
   private static final List<Metric> METRICS = ImmutableList.<Metric> builder().add(PACKAGES, CLASSES, PROCEDURES,
-      INCLUDES, WINDOWS, TRANSACTIONS, NUM_TRANSACTIONS, SHR_DS, SHR_TT, SHR_VAR, NUM_TABLES, NUM_SEQUENCES, NUM_INDEXES,
-      NUM_FIELDS, NUM_TRIGGERS, INTERNAL_PROCEDURES, INTERNAL_FUNCTIONS, METHODS, COMPLEXITY).build();
+      INCLUDES, WINDOWS, DEBUG_LISTING_LOC, DEBUG_LISTING_NCLOC, DEBUG_LISTING_COMMENT_LINES,
+      DEBUG_LISTING_COMMENT_LINES_PERCENTAGE, TRANSACTIONS, NUM_TRANSACTIONS, SHR_DS, SHR_TT, SHR_VAR, SHR_BUFFER, SHR_FRAME,
+      NUM_TABLES, NUM_SEQUENCES, NUM_INDEXES, NUM_FIELDS, NUM_TRIGGERS, INTERNAL_PROCEDURES, INTERNAL_FUNCTIONS, METHODS, COMPLEXITY,
+      PROFILER_TIME, PROFILER_CALLS, PROFILER_HOT_LINES, PROFILER_LATENCY_P50, PROFILER_LATENCY_P95, PROFILER_LATENCY_P99,
+      PROFILER_LATENCY_MAX, PROFILER_SLOW_LINES, PROFILER_ISSUES_TIME, PROFILER_ISSUE_LINES).build();
 
   @Override
   public List<Metric> getMetrics() {
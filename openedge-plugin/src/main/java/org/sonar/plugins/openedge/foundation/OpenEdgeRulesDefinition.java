@@ -36,6 +36,7 @@ public class OpenEdgeRulesDefinition implements RulesDefinition {
   public static final String COMPILER_WARNING_214_RULEKEY = "compiler.warning.214";
   public static final String PROPARSE_ERROR_RULEKEY = "proparse.error";
   public static final String LARGE_TRANSACTION_SCOPE = "large.trans";
+  public static final String PERFORMANCE_REGRESSION_RULEKEY = "profiler.regression";
 
   @Override
   public void define(Context context) {
@@ -44,6 +45,7 @@ public class OpenEdgeRulesDefinition implements RulesDefinition {
     AnnotationBasedRulesDefinition annotationLoader = new AnnotationBasedRulesDefinition(repository, OpenEdge.KEY);
     annotationLoader.addRuleClasses(false, Arrays.<Class> asList(OpenEdgeRulesRegistrar.ppCheckClasses()));
     annotationLoader.addRuleClasses(false, Arrays.<Class> asList(OpenEdgeRulesRegistrar.xrefCheckClasses()));
+    annotationLoader.addRuleClasses(false, Arrays.<Class> asList(OpenEdgeRulesRegistrar.xrefFileCheckClasses()));
 
     // Manually created rules for compiler warnings
     NewRule warning = repository.createRule(COMPILER_WARNING_RULEKEY).setName("Compiler warnings").setSeverity(
@@ -90,6 +92,14 @@ public class OpenEdgeRulesDefinition implements RulesDefinition {
     largeTrans.setHtmlDescription(getClass().getResource(String.format("/org/sonar/l10n/%s/rules/%s/%s.html",
         OpenEdge.KEY, OpenEdgeRulesDefinition.REPOSITORY_KEY, largeTrans.key())));
 
+    // Manually created rule for performance regressions found in profiler outputs
+    NewRule regression = repository.createRule(PERFORMANCE_REGRESSION_RULEKEY).setName(
+        "Performance regression").setSeverity(Priority.MAJOR.name());
+    regression.setDebtRemediationFunction(regression.debtRemediationFunctions().constantPerIssue("1h"));
+    regression.setType(RuleType.CODE_SMELL);
+    regression.setHtmlDescription(getClass().getResource(String.format("/org/sonar/l10n/%s/rules/%s/%s.html",
+        OpenEdge.KEY, OpenEdgeRulesDefinition.REPOSITORY_KEY, regression.key())));
+
     repository.done();
   }
 
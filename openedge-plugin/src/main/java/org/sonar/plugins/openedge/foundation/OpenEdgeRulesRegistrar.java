@@ -27,6 +27,7 @@ import org.sonar.plugins.openedge.api.CheckRegistrar;
 import org.sonar.plugins.openedge.api.checks.OpenEdgeDumpFileCheck;
 import org.sonar.plugins.openedge.api.checks.OpenEdgeProparseCheck;
 import org.sonar.plugins.openedge.api.checks.OpenEdgeXrefCheck;
+import org.sonar.plugins.openedge.api.checks.OpenEdgeXrefFileCheck;
 import org.sonar.plugins.openedge.checks.SharedObjectsAnalyzer;
 
 public class OpenEdgeRulesRegistrar implements CheckRegistrar {
@@ -42,6 +43,7 @@ public class OpenEdgeRulesRegistrar implements CheckRegistrar {
     // Call to registerClassesForRepository to associate the classes with the correct repository key
     registrarContext.registerClassesForRepository(OpenEdgeRulesDefinition.REPOSITORY_KEY,
         Arrays.asList(xrefCheckClasses()), Arrays.asList(ppCheckClasses()), Arrays.asList(dbCheckClasses()));
+    registrarContext.registerXrefFileCheckClasses(Arrays.asList(xrefFileCheckClasses()));
   }
 
   /**
@@ -49,6 +51,14 @@ public class OpenEdgeRulesRegistrar implements CheckRegistrar {
    */
   @SuppressWarnings("unchecked")
   public static Class<? extends OpenEdgeXrefCheck>[] xrefCheckClasses() {
+    return new Class[] {};
+  }
+
+  /**
+   * Lists all the XREF checks based on the streamed XREF model provided by the plugin
+   */
+  @SuppressWarnings("unchecked")
+  public static Class<? extends OpenEdgeXrefFileCheck>[] xrefFileCheckClasses() {
     return new Class[] {SharedObjectsAnalyzer.class};
   }
 
@@ -19,12 +19,15 @@
  */
 package org.sonar.plugins.openedge.foundation;
 
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import org.apache.commons.io.FilenameUtils;
@@ -34,21 +37,23 @@ import org.sonar.api.batch.BatchSide;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.config.Settings;
 import org.sonar.plugins.openedge.OpenEdgePlugin;
-import org.sonar.plugins.openedge.api.com.google.common.base.Charsets;
 import org.sonar.plugins.openedge.api.com.google.common.base.Joiner;
 import org.sonar.plugins.openedge.api.com.google.common.base.Splitter;
 import org.sonar.plugins.openedge.api.com.google.common.base.Strings;
+import org.sonar.plugins.openedge.api.com.google.common.hash.Hashing;
 import org.sonar.plugins.openedge.api.com.google.common.io.Files;
-import org.sonar.plugins.openedge.api.eu.rssw.antlr.database.DumpFileUtils;
 import org.sonar.plugins.openedge.api.eu.rssw.antlr.database.objects.DatabaseDescription;
-import org.sonar.plugins.openedge.api.eu.rssw.antlr.database.objects.Field;
-import org.sonar.plugins.openedge.api.eu.rssw.antlr.database.objects.Table;
+import org.sonar.plugins.openedge.api.org.prorefactor.core.schema.Database;
+import org.sonar.plugins.openedge.api.org.prorefactor.core.schema.Field;
 import org.sonar.plugins.openedge.api.org.prorefactor.core.schema.Schema;
+import org.sonar.plugins.openedge.api.org.prorefactor.core.schema.SchemaSnapshot;
+import org.sonar.plugins.openedge.api.org.prorefactor.core.schema.Table;
 import org.sonar.plugins.openedge.api.org.prorefactor.refactor.RefactorSession;
 import org.sonar.plugins.openedge.api.org.prorefactor.refactor.settings.IProgressSettings;
 import org.sonar.plugins.openedge.api.org.prorefactor.refactor.settings.IProparseSettings;
 import org.sonar.plugins.openedge.api.org.prorefactor.refactor.settings.ProgressSettings;
 import org.sonar.plugins.openedge.api.org.prorefactor.refactor.settings.ProparseSettings;
+import org.sonar.plugins.openedge.api.org.prorefactor.treeparser.DataType;
 
 @BatchSide
 public class OpenEdgeSettings {
@@ -56,6 +61,7 @@ public class OpenEdgeSettings {
 
   private final List<String> sourceDirs = new ArrayList<>();
   private final File pctDir, dbgDir;
+  private final File profilerCacheDir;
   private final Settings settings;
   private final List<File> propath = new ArrayList<>();
   private final Set<String> cpdAnnotations = new HashSet<>();
@@ -64,7 +70,7 @@ public class OpenEdgeSettings {
   /* XXX private final Map<String, ClassInformation> genClasses = new HashMap<String, ClassInformation>();
   private final Map<String, ClassInformation> ppClasses = new HashMap<String, ClassInformation>();*/
 
-  public OpenEdgeSettings(Settings settings, FileSystem fileSystem) {
+  public OpenEdgeSettings(Settings settings, FileSystem fileSystem, DumpFileRepository dumpFiles) {
     this.settings = settings;
 
     // Looking for source directories
@@ -123,68 +129,82 @@ public class OpenEdgeSettings {
     }
     LOG.info("{} classes read from PROPATH entries", ppClasses.keySet().size(), binariesSetting);*/
 
-    // File definition for temporary .schema file
-    File dbFile;
-    try {
-      dbFile = File.createTempFile("proparse", ".schema");
-    } catch (IOException caught) {
-      LOG.error("Unable to create proparse.schema file", caught);
-      throw new RuntimeException(caught);
-    }
+    // Schema snapshots directory
+    String schemaCacheSetting = settings.getString(OpenEdgePlugin.SCHEMA_CACHE);
+    File schemaCacheDir = Strings.isNullOrEmpty(schemaCacheSetting) ? new File(binaries, ".schema")
+        : fileSystem.resolvePath(schemaCacheSetting);
+
+    // Profiler snapshots directory, no cache by default
+    String profilerCacheSetting = settings.getString(OpenEdgePlugin.PROFILER_CACHE);
+    profilerCacheDir = Strings.isNullOrEmpty(profilerCacheSetting) ? null
+        : fileSystem.resolvePath(profilerCacheSetting);
 
     // Database definitions
+    Schema sch = new Schema();
     String dbs = settings.getString(OpenEdgePlugin.DATABASES);
     LOG.info("Using schema : {}", dbs);
     if (dbs != null) {
-      try (BufferedWriter writer = Files.newWriter(dbFile, Charsets.UTF_8)) {
-        for (String str : Splitter.on(',').trimResults().split(dbs)) {
-          String dbName = "";
-          int colonPos = str.lastIndexOf(':');
-          if (colonPos == -1) {
-            dbName = FilenameUtils.getBaseName(str);
-          } else {
-            dbName = str.substring(colonPos + 1);
-            str = str.substring(0, colonPos);
+      Map<String, File> dbFiles = new LinkedHashMap<>();
+      for (String str : Splitter.on(',').trimResults().split(dbs)) {
+        String dbName = "";
+        int colonPos = str.lastIndexOf(':');
+        if (colonPos == -1) {
+          dbName = FilenameUtils.getBaseName(str);
+        } else {
+          dbName = str.substring(colonPos + 1);
+          str = str.substring(0, colonPos);
+        }
+        dbFiles.put(dbName, fileSystem.resolvePath(str));
+      }
+      // Dump files without snapshot are parsed concurrently. Dump files are hashed only once.
+      Map<File, File> snapshots = new HashMap<>();
+      List<File> toBeParsed = new ArrayList<>();
+      for (File dumpFile : dbFiles.values()) {
+        try {
+          File snapshot = getSnapshotFile(dumpFile, schemaCacheDir);
+          snapshots.put(dumpFile, snapshot);
+          if (!snapshot.exists()) {
+            toBeParsed.add(dumpFile);
           }
-          LOG.debug("Parsing {} with alias {}", fileSystem.resolvePath(str), dbName);
-          DatabaseDescription desc = DumpFileUtils.getDatabaseDescription(fileSystem.resolvePath(str));
-          // XXX dbDesc.put(dbName, mapToDatabaseKeyword(desc, dbName).getTables());
-          writer.write(":: " + dbName);
-          writer.newLine();
-          for (Table tbl : desc.getTables()) {
-            writer.write(": " + tbl.getName() + " ");
-            writer.newLine();
-            for (Field fld : tbl.getFields()) {
-              writer.write(fld.getName() + " " + fld.getDataType().toUpperCase() + " "
-                  + (fld.getExtent() == null ? "0" : fld.getExtent()));
-              writer.newLine();
-            }
+        } catch (IOException caught) {
+          LOG.error("Unable to read dump file " + dumpFile, caught);
+        }
+      }
+      dumpFiles.parse(toBeParsed, getNumThreads(), false);
+      for (Entry<String, File> entry : dbFiles.entrySet()) {
+        File snapshot = snapshots.get(entry.getValue());
+        if (snapshot == null)
+          continue;
+        LOG.debug("Parsing {} with alias {}", entry.getValue(), entry.getKey());
+        try {
+          sch.addDatabase(readDatabase(dumpFiles, entry.getValue(), entry.getKey(), snapshot));
+          // ParseTree may be kept for DF rules, which are only executed on dump files part of the project
+          if (fileSystem.inputFile(fileSystem.predicates().and(fileSystem.predicates().hasLanguage(OpenEdgeDB.KEY),
+              fileSystem.predicates().is(entry.getValue()))) == null) {
+            dumpFiles.releaseParseTree(entry.getValue());
           }
+        } catch (IOException caught) {
+          LOG.error("Unable to read database schema " + entry.getValue(), caught);
         }
-      } catch (IOException caught) {
-        LOG.error("Unable to write proparse.schema file", caught);
       }
     }
-
-    Schema sch = null;
     try {
-      sch = new Schema(dbFile.getAbsolutePath(), true);
-      if (!sch.getDbSet().isEmpty()) {
-        sch.createAlias("dictdb", sch.getDbSet().first().getName());
-      }
-      if (settings.getString(OpenEdgePlugin.ALIASES) != null) {
-        for (String str : Splitter.on(';').trimResults().split(settings.getString(OpenEdgePlugin.ALIASES))) {
-          List<String> lst = Splitter.on(',').trimResults().splitToList(str);
-          for (String alias : lst.subList(1, lst.size())) {
-            LOG.debug("Adding {} aliases to database {}", new Object[] {alias, lst.get(0)});
-            sch.createAlias(alias, lst.get(1));
-          }
+      sch.injectMetaSchema();
+    } catch (IOException caught) {
+      LOG.error("Unable to read meta-schema", caught);
+    }
+    if (!sch.getDbSet().isEmpty()) {
+      sch.createAlias("dictdb", sch.getDbSet().first().getName());
+    }
+    if (settings.getString(OpenEdgePlugin.ALIASES) != null) {
+      for (String str : Splitter.on(';').trimResults().split(settings.getString(OpenEdgePlugin.ALIASES))) {
+        List<String> lst = Splitter.on(',').trimResults().splitToList(str);
+        for (String alias : lst.subList(1, lst.size())) {
+          LOG.debug("Adding {} aliases to database {}", new Object[] {alias, lst.get(0)});
+          sch.createAlias(alias, lst.get(1));
         }
       }
-    } catch (IOException caught) {
-      LOG.error("Unable to read proparse.schema file", caught);
     }
-    dbFile.delete();
 
     // CPD annotations
     for (String str : Strings.nullToEmpty(settings.getString(OpenEdgePlugin.CPD_ANNOTATIONS)).split(",")) {
@@ -197,6 +217,56 @@ public class OpenEdgeSettings {
     proparseSession = new RefactorSession(settings1, settings2, sch, fileSystem.encoding());
   }
 
+  /**
+   * Returns database schema from snapshot if dump file was already read, otherwise parse dump file and create snapshot
+   */
+  private static Database readDatabase(DumpFileRepository dumpFiles, File dumpFile, String dbName, File snapshot)
+      throws IOException {
+    if (snapshot.exists()) {
+      try {
+        Database db = SchemaSnapshot.read(snapshot, dbName);
+        LOG.debug("Schema of {} read from snapshot {}", dumpFile.getName(), snapshot.getName());
+        return db;
+      } catch (IOException caught) {
+        LOG.info("Discarding schema snapshot {} : {}", snapshot.getName(), caught.getMessage());
+      }
+    }
+
+    Database db = createDatabase(dumpFiles.getDatabaseDescription(dumpFile), dbName);
+    try {
+      File cacheDir = snapshot.getParentFile();
+      if (cacheDir.isDirectory() || cacheDir.mkdirs()) {
+        SchemaSnapshot.write(db, snapshot);
+      }
+    } catch (IOException caught) {
+      LOG.warn("Unable to write schema snapshot " + snapshot.getAbsolutePath(), caught);
+    }
+    return db;
+  }
+
+  private static File getSnapshotFile(File dumpFile, File cacheDir) throws IOException {
+    return new File(cacheDir, Files.hash(dumpFile, Hashing.sha1()).toString() + ".schema");
+  }
+
+  private static Database createDatabase(DatabaseDescription desc, String dbName) {
+    Database db = new Database(dbName);
+    for (org.sonar.plugins.openedge.api.eu.rssw.antlr.database.objects.Table tbl : desc.getTables()) {
+      Table table = new Table(tbl.getName(), db);
+      for (org.sonar.plugins.openedge.api.eu.rssw.antlr.database.objects.Field fld : tbl.getFields()) {
+        DataType dataType = DataType.getDataType(fld.getDataType().toUpperCase());
+        if (dataType == null) {
+          LOG.warn("Unknown datatype {} for field {}.{}",
+              new Object[] {fld.getDataType(), tbl.getName(), fld.getName()});
+          continue;
+        }
+        Field field = new Field(fld.getName(), table);
+        field.setDataType(dataType);
+        field.setExtent(fld.getExtent() == null ? 0 : fld.getExtent());
+      }
+    }
+    return db;
+  }
+
   public List<String> getSourceDirs() {
     return sourceDirs;
   }
@@ -209,6 +279,60 @@ public class OpenEdgeSettings {
     return dbgDir;
   }
 
+  /**
+   * Number of threads used by sensors running in parallel. Defaults to the number of available processors.
+   */
+  public int getNumThreads() {
+    int numThreads = settings.getInt(OpenEdgePlugin.THREADS);
+    return numThreads > 0 ? numThreads : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Directories or glob patterns of profiler outputs, relative to base directory. Empty list if not set.
+   */
+  public List<String> getProfilerOutputs() {
+    return Splitter.on(',').trimResults().omitEmptyStrings().splitToList(
+        Strings.nullToEmpty(settings.getString(OpenEdgePlugin.PROFILER_OUTPUTS)));
+  }
+
+  /**
+   * Profiler outputs of the reference version, compared to {@link #getProfilerOutputs()} to find performance
+   * regressions
+   */
+  public List<String> getProfilerBaseline() {
+    return Splitter.on(',').trimResults().omitEmptyStrings().splitToList(
+        Strings.nullToEmpty(settings.getString(OpenEdgePlugin.PROFILER_BASELINE)));
+  }
+
+  /**
+   * Directory of profiler outputs snapshots, or null if not set
+   */
+  public File getProfilerCacheDir() {
+    return profilerCacheDir;
+  }
+
+  /**
+   * Minimal relative increase of execution time reported as a regression (0.2 means 20% slower). Defaults to 20%.
+   */
+  public double getRegressionThreshold() {
+    int threshold = settings.getInt(OpenEdgePlugin.PROFILER_REGRESSION_THRESHOLD);
+    return (threshold > 0 ? threshold : 20) / 100d;
+  }
+
+  /**
+   * True if issues have to be weighted with execution count and time found in profiler outputs
+   */
+  public boolean weightIssues() {
+    return settings.getBoolean(OpenEdgePlugin.PROFILER_WEIGHT_ISSUES);
+  }
+
+  /**
+   * True if warnings, listing and XREF files are imported by their own sensor, instead of a single pass of the PCT sensor
+   */
+  public boolean useSeparatePctSensors() {
+    return settings.getBoolean(OpenEdgePlugin.PCT_SEPARATE_SENSORS);
+  }
+
   public boolean skipCPD(String annotation) {
     return cpdAnnotations.contains(annotation);
   }
@@ -290,9 +414,8 @@ public class OpenEdgeSettings {
 
   private void readRCodeFromPL(File lib, Map<String, ClassInformation> infos) {
     File tmpFile = null;
-    try {
+    try (PLReader reader = new PLReader(lib)) {
       tmpFile = File.createTempFile("rcode", ".r");
-      PLReader reader = new PLReader(lib);
       for (FileEntry e : reader.getFileList()) {
         // Extracts rcode from PL into temporary file
         OutputStream os = new FileOutputStream(tmpFile);
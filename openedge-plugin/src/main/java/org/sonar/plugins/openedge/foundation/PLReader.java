@@ -17,37 +17,45 @@
 
 package org.sonar.plugins.openedge.foundation;
 
-import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * Class for reading and extracting contents of a Progress Library file.
+ * Class for reading and extracting contents of a Progress Library file. The library is memory-mapped once, entries
+ * are indexed by file name, and entry content is returned as a view of the mapped file, without any copy. The mapping
+ * is released by {@link #close()}, so that the library can be rewritten or deleted.
  * 
  * @author <a href="mailto:g.querret+PCT@gmail.com">Gilles QUERRET</a>
  */
-public class PLReader {
+public class PLReader implements Closeable {
     private static final int MAGIC = 0xd707;
     private static final int MAGIC_V11 = 0xd70b;
-//    private static final int MAGIC_SIZE = 2;
     private static final int ENCODING_OFFSET = 0x02;
     private static final int ENCODING_SIZE = 20;
     private static final int FILE_LIST_OFFSET = 0x1e;
     private static final int FILE_LIST_OFFSET_V11 = 0x22;
-    // private static final int RECORD_MIN_SIZE = 29;
-    // private static final int RECORD_MAX_SIZE = RECORD_MIN_SIZE + 255;
 
     private File pl;
+    private MappedByteBuffer buffer = null;
     private List<FileEntry> files = null;
+    private Map<String, FileEntry> index = null;
+    private boolean closed = false;
 
     public PLReader(File file) {
         String name = file.getPath();
@@ -70,81 +78,91 @@ public class PLReader {
         return files;
     }
 
+    /**
+     * @return Null if entry doesn't exist
+     */
     public FileEntry getEntry(String name) {
-        for (FileEntry entry : getFileList()) {
-            if (entry.getFileName().equals(name))
-                return entry;
-        }
+        if (this.index == null)
+            readFileList();
+        return index.get(name);
+    }
 
-        return null;
+    /**
+     * Returns a read-only view of the entry content, backed by the mapped file. The view can't be used anymore once
+     * the reader is closed.
+     */
+    public ByteBuffer getContent(FileEntry fe) {
+        if (this.buffer == null)
+            readFileList();
+        ByteBuffer bb = buffer.duplicate();
+        bb.position(fe.getOffset());
+        bb.limit(fe.getOffset() + fe.getSize());
+        return bb.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Stream of the entry content, backed by the mapped file. The stream can't be used anymore once the reader is
+     * closed.
+     */
+    public InputStream getInputStream(FileEntry fe) throws IOException {
+        return new ByteBufferInputStream(getContent(fe));
+    }
+
+    /**
+     * Releases the mapping of the procedure library. Entries list is still available, but not the entries content.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (buffer != null) {
+            unmap(buffer);
+            buffer = null;
+        }
     }
 
     private void readFileList() {
-        RandomAccessFile raf = null;
-        try {
-            raf = new RandomAccessFile(pl, "r");
-            FileChannel fc = raf.getChannel();
-            int version = 0;
-            ByteBuffer magic = ByteBuffer.allocate(2);
-            fc.read(magic);
-            if ((magic.getShort(0) & 0xffff) == MAGIC)
-                version = 1;
-            else if ((magic.getShort(0) & 0xffff) == MAGIC_V11)
-                version = 2;
-            else
-                // if (!checkMagic(fc))
-                throw new RuntimeException("Not a valid PL file");
-
-            Charset charset = getCharset(fc);
-            int offset = getTOCOffset(fc, version);
-            files = new ArrayList<FileEntry>();
-            FileEntry fe = null;
-            while ((fe = readEntry(fc, offset, charset, version)) != null) {
-                if (fe.isValid())
-                    files.add(fe);
-                offset += fe.getTocSize();
-            }
+        if (closed)
+            throw new IllegalStateException("Procedure library " + pl.getName() + " is closed");
+        try (RandomAccessFile raf = new RandomAccessFile(pl, "r"); FileChannel fc = raf.getChannel()) {
+            buffer = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
         } catch (IOException caught) {
             throw new RuntimeException(caught);
-        } finally {
-            if (raf != null) {
-                try {
-                    raf.close();
-                } catch (IOException uncaught) {
-
-                }
-            }
         }
-    }
 
-    public InputStream getInputStream(FileEntry fe) throws IOException {
-        ByteBuffer bb = null;
-        RandomAccessFile raf = null;
-        try {
-            raf = new RandomAccessFile(pl, "r");
-            FileChannel fc = raf.getChannel();
-            bb = ByteBuffer.allocate(fe.getSize());
-            fc.read(bb, fe.getOffset());
-        } finally {
-            try {
-                raf.close();
-            } catch (IOException uncaught) {
+        if (buffer.limit() < 2)
+            throw new RuntimeException("Not a valid PL file");
+        int version = 0;
+        int magic = buffer.getShort(0) & 0xffff;
+        if (magic == MAGIC)
+            version = 1;
+        else if (magic == MAGIC_V11)
+            version = 2;
+        else
+            throw new RuntimeException("Not a valid PL file");
 
+        Charset charset = getCharset();
+        int offset = getTOCOffset(version);
+        List<FileEntry> list = new ArrayList<FileEntry>();
+        Map<String, FileEntry> map = new HashMap<String, FileEntry>();
+        FileEntry fe = null;
+        while ((fe = readEntry(offset, charset, version)) != null) {
+            if (fe.isValid()) {
+                list.add(fe);
+                map.put(fe.getFileName(), fe);
             }
+            offset += fe.getTocSize();
         }
-
-        return new ByteArrayInputStream(bb.array());
+        files = Collections.unmodifiableList(list);
+        index = map;
     }
 
-    private Charset getCharset(FileChannel fc) throws IOException {
-        ByteBuffer bEncoding = ByteBuffer.allocate(ENCODING_SIZE);
-        if (fc.read(bEncoding, ENCODING_OFFSET) != ENCODING_SIZE)
+    private Charset getCharset() {
+        if (buffer.limit() < ENCODING_OFFSET + ENCODING_SIZE)
             throw new RuntimeException("Invalid PL file");
-        bEncoding.position(0);
-        StringBuffer sbEncoding = new StringBuffer();
+        StringBuilder sbEncoding = new StringBuilder();
         int zz = 0;
-        while ((zz < 20) && (bEncoding.get(zz) != 0)) {
-            sbEncoding.append((char) bEncoding.get(zz++));
+        while ((zz < ENCODING_SIZE) && (buffer.get(ENCODING_OFFSET + zz) != 0)) {
+            sbEncoding.append((char) buffer.get(ENCODING_OFFSET + zz++));
         }
         try {
             return Charset.forName(sbEncoding.toString());
@@ -153,51 +171,104 @@ public class PLReader {
         }
     }
 
-    private int getTOCOffset(FileChannel fc, int version) throws IOException {
-        ByteBuffer bTOC = ByteBuffer.allocate(4);
-        if (fc.read(bTOC, (version == 1 ? FILE_LIST_OFFSET : FILE_LIST_OFFSET_V11)) != 4)
+    private int getTOCOffset(int version) {
+        int pos = (version == 1 ? FILE_LIST_OFFSET : FILE_LIST_OFFSET_V11);
+        if (buffer.limit() < pos + 4)
             throw new RuntimeException("Invalid PL file");
-        return bTOC.getInt(0);
+        return buffer.getInt(pos);
     }
 
-    private FileEntry readEntry(FileChannel fc, int offset, Charset charset, int version)
-            throws IOException {
-        ByteBuffer b1 = ByteBuffer.allocate(1);
-        fc.read(b1, offset);
-
-        if (b1.get(0) == (byte) 0xFE) {
-            boolean stop = false;
-            int zz = 0;
-            while (!stop) {
-                b1.position(0);
-                int kk = fc.read(b1, offset + ++zz);
-                stop = (kk == -1) || (b1.get(0) == (byte) 0xFF);
+    private FileEntry readEntry(int offset, Charset charset, int version) {
+        int limit = buffer.limit();
+        if ((offset < 0) || (offset >= limit))
+            return null;
+
+        if (buffer.get(offset) == (byte) 0xFE) {
+            // Padding, up to next entry
+            int zz = 1;
+            while ((offset + zz < limit) && (buffer.get(offset + zz) != (byte) 0xFF)) {
+                zz++;
             }
 
             return new FileEntry(zz);
-        } else if (b1.get(0) == (byte) 0xFF) {
-            b1.position(0);
-            fc.read(b1, offset + 1);
-            int fNameSize = (int) b1.get(0) & 0xFF;
+        } else if (buffer.get(offset) == (byte) 0xFF) {
+            if (offset + 1 >= limit)
+                return null;
+            int fNameSize = (int) buffer.get(offset + 1) & 0xFF;
             if (fNameSize == 0)
                 return new FileEntry(29);
-            ByteBuffer b2 = ByteBuffer.allocate(fNameSize);
-            fc.read(b2, offset + 2);
-            b2.position(0);
+            int recordSize = (version == 1 ? 28 : 48);
+            if (offset + 2 + fNameSize + recordSize > limit)
+                return null;
+            ByteBuffer b2 = buffer.duplicate();
+            b2.position(offset + 2);
+            b2.limit(offset + 2 + fNameSize);
             String fName = charset.decode(b2).toString();
-            ByteBuffer b3 = ByteBuffer.allocate((version == 1 ? 28 : 48)); // Ou 47
-            fc.read(b3, offset + 2 + fNameSize);
-            int fileOffset = b3.getInt((version == 1 ? 2 : 6)); // 7
-            int fileSize = b3.getInt((version == 1 ? 7 : 11)); // 12
-            long added = b3.getInt((version == 1 ? 11 : 15)) * 1000L; // 16
-            long modified = b3.getInt((version == 1 ? 15 : 19)) * 1000L; // 20
-
-            int tocSize = (b3.get((version == 1 ? 27 : 47)) == 0 ? (version == 1 ? 30 : 50)
+            int base = offset + 2 + fNameSize;
+            int fileOffset = buffer.getInt(base + (version == 1 ? 2 : 6));
+            int fileSize = buffer.getInt(base + (version == 1 ? 7 : 11));
+            long added = buffer.getInt(base + (version == 1 ? 11 : 15)) * 1000L;
+            long modified = buffer.getInt(base + (version == 1 ? 15 : 19)) * 1000L;
+
+            int tocSize = (buffer.get(base + (version == 1 ? 27 : 47)) == 0 ? (version == 1 ? 30 : 50)
                     + fNameSize : (version == 1 ? 29 : 49) + fNameSize);
             return new FileEntry(fName, modified, added, fileOffset, fileSize, tocSize);
         } else {
             return null;
         }
+    }
+
+    /**
+     * Mapping is otherwise only released when the buffer is garbage collected, and the file stays locked on Windows
+     */
+    private static void unmap(MappedByteBuffer mbb) {
+        try {
+            try {
+                // Java 9 and later
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), mbb);
+            } catch (NoSuchMethodException java8) {
+                Method cleanerMethod = mbb.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(mbb);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        } catch (ReflectiveOperationException | RuntimeException uncaught) {
+            // Mapping will be released by garbage collector
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer bb;
+
+        ByteBufferInputStream(ByteBuffer bb) {
+            this.bb = bb;
+        }
+
+        @Override
+        public int read() {
+            return bb.hasRemaining() ? bb.get() & 0xFF : -1;
+        }
 
+        @Override
+        public int read(byte[] bytes, int off, int len) {
+            if (len == 0)
+                return 0;
+            if (!bb.hasRemaining())
+                return -1;
+            int num = Math.min(len, bb.remaining());
+            bb.get(bytes, off, num);
+            return num;
+        }
+
+        @Override
+        public int available() {
+            return bb.remaining();
+        }
     }
 }
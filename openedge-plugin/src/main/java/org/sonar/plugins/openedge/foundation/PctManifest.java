@@ -0,0 +1,176 @@
+/*
+ * OpenEdge DB plugin for SonarQube
+ * Copyright (C) 2013-2014 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.foundation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.BatchSide;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Index of compiler artifacts (XREF, warnings, listing and debug listing files) generated by PCT for each source file.
+ * The .pct and .dbg directories are scanned only once, on first access, so that sensors don't have to compute the
+ * path relative to the source directories and probe the file system for each artifact of each file.
+ */
+@BatchSide
+public class PctManifest {
+  private static final Logger LOG = LoggerFactory.getLogger(PctManifest.class);
+
+  private static final String XREF_EXTENSION = ".xref";
+  private static final String WARNINGS_EXTENSION = ".warnings";
+
+  // IoC
+  private final OpenEdgeSettings settings;
+  private final FileSystem fileSystem;
+
+  // Keyed by InputFile relative path, lazily initialized
+  private Map<String, Artifacts> artifacts;
+
+  public PctManifest(OpenEdgeSettings settings, FileSystem fileSystem) {
+    this.settings = settings;
+    this.fileSystem = fileSystem;
+  }
+
+  /**
+   * @return XREF file of this source file, or null if not found
+   */
+  public File getXrefFile(InputFile file) {
+    Artifacts entry = getArtifacts(file);
+    return entry == null ? null : entry.xrefFile;
+  }
+
+  /**
+   * @return Warnings file of this source file, or null if not found
+   */
+  public File getWarningsFile(InputFile file) {
+    Artifacts entry = getArtifacts(file);
+    return entry == null ? null : entry.warningsFile;
+  }
+
+  /**
+   * @return Listing file of this source file, or null if not found
+   */
+  public File getListingFile(InputFile file) {
+    Artifacts entry = getArtifacts(file);
+    return entry == null ? null : entry.listingFile;
+  }
+
+  /**
+   * @return Debug listing file of this source file, or null if not found
+   */
+  public File getDebugListingFile(InputFile file) {
+    Artifacts entry = getArtifacts(file);
+    return entry == null ? null : entry.debugListingFile;
+  }
+
+  private Artifacts getArtifacts(InputFile file) {
+    return getIndex().get(file.relativePath());
+  }
+
+  private synchronized Map<String, Artifacts> getIndex() {
+    if (artifacts == null) {
+      artifacts = buildIndex();
+    }
+    return artifacts;
+  }
+
+  private Map<String, Artifacts> buildIndex() {
+    long startTime = System.currentTimeMillis();
+    Set<String> pctFiles = listFiles(settings.getPctDir(), Integer.MAX_VALUE);
+    // Since PCT 189, debug listing are in root dir, with _ instead of directory separator
+    Set<String> dbgFiles = listFiles(settings.getDbgDir(), 1);
+
+    Map<String, Artifacts> map = new HashMap<>();
+    for (InputFile file : fileSystem.inputFiles(fileSystem.predicates().hasLanguage(OpenEdge.KEY))) {
+      String relPath = OpenEdgeProjectHelper.getPathRelativeToSourceDirs(file.file(), settings.getSourceDirs());
+      if ((relPath == null) || relPath.isEmpty())
+        continue;
+      Artifacts entry = new Artifacts();
+      entry.xrefFile = getFile(pctFiles, settings.getPctDir(), relPath + XREF_EXTENSION);
+      entry.warningsFile = getFile(pctFiles, settings.getPctDir(), relPath + WARNINGS_EXTENSION);
+      entry.listingFile = getFile(pctFiles, settings.getPctDir(), relPath);
+      entry.debugListingFile = getFile(dbgFiles, settings.getDbgDir(), relPath.replace('/', '_'));
+      map.put(file.relativePath(), entry);
+    }
+    LOG.info("{} files in .pct directory and {} files in .dbg directory indexed in {} ms",
+        new Object[] {pctFiles.size(), dbgFiles.size(), System.currentTimeMillis() - startTime});
+
+    return map;
+  }
+
+  private static File getFile(Set<String> files, File dir, String relPath) {
+    return files.contains(relPath) ? new File(dir, relPath) : null;
+  }
+
+  /**
+   * @return Paths of all regular files, relative to dir, with '/' as separator
+   */
+  private static Set<String> listFiles(File dir, int maxDepth) {
+    final Set<String> files = new HashSet<>();
+    if (!dir.isDirectory())
+      return files;
+
+    final Path root = dir.toPath();
+    try {
+      Files.walkFileTree(root, EnumSet.noneOf(FileVisitOption.class), maxDepth,
+          new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+              if (attrs.isRegularFile()) {
+                files.add(root.relativize(file).toString().replace(File.separatorChar, '/'));
+              }
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+              LOG.debug("Unable to read {}", file);
+              return FileVisitResult.CONTINUE;
+            }
+          });
+    } catch (IOException caught) {
+      LOG.error("Unable to scan directory " + dir.getAbsolutePath(), caught);
+    }
+
+    return files;
+  }
+
+  private static class Artifacts {
+    private File xrefFile;
+    private File warningsFile;
+    private File listingFile;
+    private File debugListingFile;
+  }
+}
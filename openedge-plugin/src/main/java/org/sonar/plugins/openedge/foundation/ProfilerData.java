@@ -0,0 +1,71 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (C) 2013-2016 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.foundation;
+
+import eu.rssw.antlr.profiler.CoverageSession;
+import eu.rssw.antlr.profiler.LatencySession;
+import eu.rssw.antlr.profiler.ProfilerDiff;
+import eu.rssw.antlr.profiler.TimingSession;
+
+/**
+ * Profiler outputs of the analysis, parsed once by {@link ProfilerOutputs#getData()} and shared by all consumers.
+ * Sessions are merged, so content has to be considered read-only, except the {@link ProfilerDiff} object.
+ */
+public class ProfilerData {
+  private final int numFiles;
+  private final CoverageSession coverage = new CoverageSession();
+  private final TimingSession timing = new TimingSession();
+  private final LatencySession latency = new LatencySession();
+  private final ProfilerDiff diff;
+
+  ProfilerData(int numFiles, boolean withDiff) {
+    this.numFiles = numFiles;
+    this.diff = withDiff ? new ProfilerDiff() : null;
+  }
+
+  /**
+   * Number of profiler outputs found, including those which couldn't be parsed
+   */
+  public int getNumFiles() {
+    return numFiles;
+  }
+
+  public CoverageSession getCoverage() {
+    return coverage;
+  }
+
+  public TimingSession getTiming() {
+    return timing;
+  }
+
+  public LatencySession getLatency() {
+    return latency;
+  }
+
+  /**
+   * Comparison object where each profiler session was added as a candidate. Baseline sessions have to be added by the
+   * caller.
+   * 
+   * @return Null if no baseline is configured
+   */
+  public ProfilerDiff getDiff() {
+    return diff;
+  }
+}
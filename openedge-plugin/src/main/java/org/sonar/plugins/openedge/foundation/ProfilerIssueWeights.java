@@ -0,0 +1,195 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (C) 2013-2016 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.foundation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.BatchSide;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.plugins.openedge.api.ExecutionProfile;
+import org.sonar.plugins.openedge.api.eu.rssw.listing.SourceLineMapping;
+
+import eu.rssw.antlr.profiler.FileTiming;
+
+/**
+ * Joins issues reported by Proparse and XREF checks to the execution count and time of their line in profiler
+ * outputs. Profiler outputs are shared with other sensors through {@link ProfilerOutputs}, and only loaded when the
+ * first issue is reported. Profiler line numbers are debug listing line numbers, so they're mapped to lines of the
+ * main file and of include files with the compile listing (see {@link DebugListingRepository}); when the listing is not
+ * available (or doesn't match the debug listing), only lines of the main file are weighted, with the same line number.
+ */
+@BatchSide
+public class ProfilerIssueWeights implements ExecutionProfile {
+  private static final Logger LOG = LoggerFactory.getLogger(ProfilerIssueWeights.class);
+
+  // IoC
+  private final OpenEdgeSettings settings;
+  private final ProfilerOutputs profilerOutputs;
+  private final DebugListingRepository debugListings;
+
+  // Timing of profiled files, loaded on first access
+  private volatile Map<InputFile, FileTiming> timings;
+  // Weight of each issue location, by target file, line number and file being analyzed
+  private final Map<InputFile, Map<Integer, Map<InputFile, LineWeight>>> issues = new HashMap<>();
+
+  public ProfilerIssueWeights(OpenEdgeSettings settings, ProfilerOutputs profilerOutputs,
+      DebugListingRepository debugListings) {
+    this.settings = settings;
+    this.profilerOutputs = profilerOutputs;
+    this.debugListings = debugListings;
+  }
+
+  public boolean isEnabled() {
+    return settings.weightIssues() && !settings.getProfilerOutputs().isEmpty();
+  }
+
+  @Override
+  public LineWeight addIssue(InputFile file, InputFile target, int lineNumber) {
+    if (!isEnabled())
+      return null;
+    FileTiming timing = getTimings().get(file);
+    if (timing == null)
+      return null;
+
+    long execCount = 0;
+    double actualTime = 0;
+    for (int line : getProfilerLines(file, target, lineNumber)) {
+      execCount += timing.getExecCount(line);
+      actualTime += timing.getActualTime(line);
+    }
+    if (execCount == 0)
+      return null;
+
+    LineWeight weight = new LineWeight(execCount, actualTime);
+    synchronized (issues) {
+      Map<Integer, Map<InputFile, LineWeight>> lines = issues.get(target);
+      if (lines == null) {
+        lines = new HashMap<>();
+        issues.put(target, lines);
+      }
+      Map<InputFile, LineWeight> weights = lines.get(lineNumber);
+      if (weights == null) {
+        weights = new HashMap<>();
+        lines.put(lineNumber, weights);
+      }
+      // Multiple issues on the same line are only counted once
+      weights.put(file, weight);
+    }
+
+    return weight;
+  }
+
+  /**
+   * Files with at least one weighted issue
+   */
+  public Collection<InputFile> getFiles() {
+    synchronized (issues) {
+      return new ArrayList<>(issues.keySet());
+    }
+  }
+
+  /**
+   * Weight of each line with issues of this file. When the file is an include file, weights from all files including
+   * it are added.
+   */
+  public SortedMap<Integer, LineWeight> getIssueLines(InputFile target) {
+    SortedMap<Integer, LineWeight> rslt = new TreeMap<>();
+    synchronized (issues) {
+      Map<Integer, Map<InputFile, LineWeight>> lines = issues.get(target);
+      if (lines == null)
+        return rslt;
+      for (Map.Entry<Integer, Map<InputFile, LineWeight>> entry : lines.entrySet()) {
+        long execCount = 0;
+        double actualTime = 0;
+        for (LineWeight weight : entry.getValue().values()) {
+          execCount += weight.getExecCount();
+          actualTime += weight.getActualTime();
+        }
+        rslt.put(entry.getKey(), new LineWeight(execCount, actualTime));
+      }
+    }
+    return rslt;
+  }
+
+  /**
+   * @return Debug listing line numbers of this line of target file, when file is being analyzed
+   */
+  private int[] getProfilerLines(InputFile file, InputFile target, int lineNumber) {
+    SourceLineMapping mapping = debugListings.getSourceLineMapping(file);
+    if (mapping == null) {
+      return target.equals(file) ? new int[] {lineNumber} : new int[0];
+    }
+    if (target.equals(file))
+      return mapping.getExpandedLines(lineNumber);
+
+    int[] rslt = new int[0];
+    for (String includeFile : mapping.getIncludeFiles()) {
+      if (target.equals(profilerOutputs.getInputFile(includeFile))) {
+        int[] lines = mapping.getExpandedLines(includeFile, lineNumber);
+        int size = rslt.length;
+        rslt = Arrays.copyOf(rslt, size + lines.length);
+        System.arraycopy(lines, 0, rslt, size, lines.length);
+      }
+    }
+    return rslt;
+  }
+
+  private Map<InputFile, FileTiming> getTimings() {
+    Map<InputFile, FileTiming> map = timings;
+    if (map == null) {
+      synchronized (this) {
+        map = timings;
+        if (map == null) {
+          map = loadTimings();
+          timings = map;
+        }
+      }
+    }
+    return map;
+  }
+
+  private Map<InputFile, FileTiming> loadTimings() {
+    Map<InputFile, FileTiming> map = new HashMap<>();
+    for (FileTiming file : profilerOutputs.getData().getTiming().getFiles()) {
+      InputFile inputFile = profilerOutputs.getInputFile(file.getFileName());
+      if (inputFile == null)
+        continue;
+      // Shared timing data is not modified
+      FileTiming merged = map.get(inputFile);
+      if (merged == null) {
+        merged = new FileTiming(inputFile.relativePath());
+        map.put(inputFile, merged);
+      }
+      merged.mergeWith(file);
+    }
+    LOG.info("Profiler data of {} files loaded to weight issues", map.size());
+
+    return map;
+  }
+
+}
@@ -0,0 +1,243 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (C) 2013-2016 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.foundation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.BatchSide;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.plugins.openedge.api.InputFileIndex;
+
+import eu.rssw.antlr.profiler.ProfilerDiff;
+import eu.rssw.antlr.profiler.ProfilerSession;
+import eu.rssw.antlr.profiler.ProfilerUtils;
+
+/**
+ * Locates profiler outputs on disk, and maps profiled modules back to source files. Profiler outputs of the analysis
+ * are parsed only once, and shared by all sensors reading them.
+ */
+@BatchSide
+public class ProfilerOutputs {
+  private static final Logger LOG = LoggerFactory.getLogger(ProfilerOutputs.class);
+  private static final long PROGRESS_INTERVAL = 10000L;
+
+  // IoC
+  private final OpenEdgeSettings settings;
+  private final FileSystem fileSystem;
+  private final InputFileIndex inputFileIndex;
+
+  // Parsed on first access
+  private volatile ProfilerData data;
+
+  public ProfilerOutputs(OpenEdgeSettings settings, FileSystem fileSystem, InputFileIndex inputFileIndex) {
+    this.settings = settings;
+    this.fileSystem = fileSystem;
+    this.inputFileIndex = inputFileIndex;
+  }
+
+  /**
+   * Each entry is either a profiler output, a directory (all .prof and .out files in this directory and
+   * sub-directories), or a glob pattern. Relative paths are resolved from base directory.
+   */
+  public List<File> getFiles(List<String> entries) {
+    List<File> files = new ArrayList<>();
+    for (String entry : entries) {
+      try {
+        addProfilerOutputs(entry, files);
+      } catch (IOException caught) {
+        LOG.error("Unable to list profiler outputs from " + entry, caught);
+      }
+    }
+    return files;
+  }
+
+  /**
+   * Profiler outputs of the analysis ({@link OpenEdgeSettings#getProfilerOutputs()}), parsed in parallel on first
+   * call. Can be called from multiple threads.
+   */
+  public ProfilerData getData() {
+    ProfilerData rslt = data;
+    if (rslt == null) {
+      synchronized (this) {
+        rslt = data;
+        if (rslt == null) {
+          rslt = parseProfilerOutputs();
+          data = rslt;
+        }
+      }
+    }
+    return rslt;
+  }
+
+  private ProfilerData parseProfilerOutputs() {
+    List<File> files = getFiles(settings.getProfilerOutputs());
+    LOG.info("{} profiler outputs found", files.size());
+    final ProfilerData rslt = new ProfilerData(files.size(), !settings.getProfilerBaseline().isEmpty());
+    if (files.isEmpty())
+      return rslt;
+
+    final int numFiles = files.size();
+    final AtomicInteger numParsed = new AtomicInteger();
+    final AtomicLong numBytes = new AtomicLong();
+    final long startTime = System.currentTimeMillis();
+    final AtomicLong lastLog = new AtomicLong(startTime);
+
+    ExecutorService service = Executors.newFixedThreadPool(settings.getNumThreads());
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (final File file : files) {
+        futures.add(service.submit(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              ProfilerSession session = ProfilerUtils.getProfilerSession(file, settings.getProfilerCacheDir());
+              ProfilerDiff diff = rslt.getDiff();
+              if (diff != null) {
+                diff.addCandidate(session);
+              }
+              synchronized (rslt) {
+                rslt.getCoverage().mergeWith(session.getCoverage());
+                rslt.getTiming().mergeWith(session.getTiming());
+                rslt.getLatency().mergeWith(session.getLatency());
+              }
+            } catch (IOException | RuntimeException caught) {
+              LOG.error("Unable to parse profiler output " + file.getAbsolutePath(), caught);
+            }
+            int parsed = numParsed.incrementAndGet();
+            long bytes = numBytes.addAndGet(file.length());
+            long now = System.currentTimeMillis();
+            long last = lastLog.get();
+            if ((now - last >= PROGRESS_INTERVAL) && lastLog.compareAndSet(last, now)) {
+              LOG.info("{}/{} profiler outputs parsed - {} KB/s", parsed, numFiles,
+                  bytes / Math.max(1, now - startTime));
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException caught) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException caught) {
+      LOG.error("Error during profiler outputs parsing", caught.getCause());
+    } finally {
+      service.shutdownNow();
+    }
+
+    long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+    LOG.info("{} profiler outputs parsed in {} ms - {} KB/s", numParsed.get(), elapsed, numBytes.get() / elapsed);
+    return rslt;
+  }
+
+  /**
+   * Profiler module names are either file names (relative to propath, or absolute), or fully qualified class names
+   * 
+   * @return Null if not found in sources
+   */
+  public InputFile getInputFile(String name) {
+    InputFile file = inputFileIndex.getInputFile(name);
+    if (file != null)
+      return file;
+
+    String clsName = name.replace('.', '/') + ".cls";
+    List<File> roots = new ArrayList<>(settings.getPropath());
+    for (String dir : settings.getSourceDirs()) {
+      roots.add(new File(dir));
+    }
+    for (File root : roots) {
+      file = inputFileIndex.getInputFile(new File(root, name).getAbsolutePath());
+      if (file == null)
+        file = inputFileIndex.getInputFile(new File(root, clsName).getAbsolutePath());
+      if (file != null)
+        return file;
+    }
+
+    return null;
+  }
+
+  private void addProfilerOutputs(String entry, final List<File> files) throws IOException {
+    String pattern = entry.replace('\\', '/');
+    int wildcard = StringUtils.indexOfAny(pattern, "*?[{");
+    if (wildcard == -1) {
+      File file = fileSystem.resolvePath(pattern);
+      if (file.isFile()) {
+        files.add(file);
+      } else if (file.isDirectory()) {
+        addFiles(file.toPath(), FileSystems.getDefault().getPathMatcher("glob:**.{prof,out}"), files);
+      } else {
+        LOG.warn("Profiler outputs not found: {}", file.getAbsolutePath());
+      }
+      return;
+    }
+
+    // Only walk the part of the tree before the first wildcard
+    int separator = pattern.lastIndexOf('/', wildcard);
+    File root;
+    if (separator == -1)
+      root = fileSystem.baseDir();
+    else if (separator == 0)
+      root = new File("/");
+    else
+      root = fileSystem.resolvePath(pattern.substring(0, separator));
+    if (root.isDirectory()) {
+      addFiles(root.toPath(), FileSystems.getDefault().getPathMatcher("glob:" + pattern.substring(separator + 1)),
+          files);
+    }
+  }
+
+  private static void addFiles(final Path root, final PathMatcher matcher, final List<File> files)
+      throws IOException {
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        if (attrs.isRegularFile() && matcher.matches(root.relativize(file)))
+          files.add(file.toFile());
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException exc) {
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+}
@@ -0,0 +1,253 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (C) 2013-2016 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.sensor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.measure.Metric;
+import org.sonar.api.batch.sensor.Sensor;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.api.batch.sensor.coverage.CoverageType;
+import org.sonar.api.batch.sensor.coverage.NewCoverage;
+import org.sonar.plugins.openedge.api.eu.rssw.listing.SourceLineMapping;
+import org.sonar.plugins.openedge.foundation.DebugListingRepository;
+import org.sonar.plugins.openedge.foundation.OpenEdge;
+import org.sonar.plugins.openedge.foundation.OpenEdgeMetrics;
+import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
+import org.sonar.plugins.openedge.foundation.ProfilerData;
+import org.sonar.plugins.openedge.foundation.ProfilerOutputs;
+
+import eu.rssw.antlr.profiler.CoverageSession;
+import eu.rssw.antlr.profiler.FileCoverage;
+import eu.rssw.antlr.profiler.FileLatency;
+import eu.rssw.antlr.profiler.FileTiming;
+import eu.rssw.antlr.profiler.LatencyHistogram;
+import eu.rssw.antlr.profiler.LatencySession;
+import eu.rssw.antlr.profiler.TimingSession;
+
+/**
+ * Imports line coverage, execution time and latency percentiles (when tracing is enabled) from profiler outputs.
+ * Profiler outputs are parsed by {@link ProfilerOutputs}, and data is merged by source file before being saved, so
+ * that each source file is saved only once. Profiler line numbers are debug listing line numbers, so they're mapped to
+ * lines of the main file with the compile listing (see {@link DebugListingRepository}); lines of include files are
+ * skipped, and so are files without compile listing. Total time and latency distribution are the ones of the whole
+ * compilation unit.
+ */
+public class OpenEdgeCoverageSensor implements Sensor {
+  private static final Logger LOG = LoggerFactory.getLogger(OpenEdgeCoverageSensor.class);
+  private static final int NUM_HOT_LINES = 10;
+
+  // IoC
+  private final OpenEdgeSettings settings;
+  private final ProfilerOutputs profilerOutputs;
+  private final DebugListingRepository debugListings;
+
+  public OpenEdgeCoverageSensor(OpenEdgeSettings settings, ProfilerOutputs profilerOutputs,
+      DebugListingRepository debugListings) {
+    this.settings = settings;
+    this.profilerOutputs = profilerOutputs;
+    this.debugListings = debugListings;
+  }
+
+  @Override
+  public void describe(SensorDescriptor descriptor) {
+    descriptor.onlyOnLanguage(OpenEdge.KEY).name(getClass().getSimpleName());
+  }
+
+  @Override
+  public void execute(SensorContext context) {
+    if (settings.getProfilerOutputs().isEmpty())
+      return;
+
+    ProfilerData data = profilerOutputs.getData();
+    if (data.getNumFiles() == 0)
+      return;
+    saveCoverage(context, data.getCoverage());
+    saveTiming(context, data.getTiming());
+    saveLatency(context, data.getLatency());
+  }
+
+  private void saveCoverage(SensorContext context, CoverageSession coverage) {
+    int numUnknown = 0;
+    int numNoListing = 0;
+    // Different profiler module names (relative to propath, absolute or class name) can map to the same source file
+    Map<InputFile, FileCoverage> files = new HashMap<>();
+    for (FileCoverage file : coverage.getFiles()) {
+      InputFile inputFile = profilerOutputs.getInputFile(file.getFileName());
+      if ((inputFile == null) || (inputFile.type() != InputFile.Type.MAIN)) {
+        LOG.debug("Profiled file {} not found in sources", file.getFileName());
+        numUnknown++;
+        continue;
+      }
+      FileCoverage merged = files.get(inputFile);
+      if (merged == null) {
+        merged = new FileCoverage(inputFile.relativePath());
+        files.put(inputFile, merged);
+      }
+      merged.mergeWith(file);
+    }
+
+    for (Map.Entry<InputFile, FileCoverage> entry : files.entrySet()) {
+      InputFile inputFile = entry.getKey();
+      SourceLineMapping mapping = debugListings.getSourceLineMapping(inputFile);
+      if (mapping == null) {
+        LOG.debug("Listing of {} not found, profiler lines can't be mapped to source lines", inputFile.relativePath());
+        numNoListing++;
+        continue;
+      }
+      List<Integer> linesToCover = new ArrayList<>();
+      List<Integer> coveredLines = new ArrayList<>();
+      for (Integer line : entry.getValue().getLinesToCover()) {
+        int sourceLine = getMainFileLine(mapping, line);
+        if (sourceLine > 0) {
+          linesToCover.add(sourceLine);
+          if (entry.getValue().isCovered(line)) {
+            coveredLines.add(sourceLine);
+          }
+        }
+      }
+      FileCoverage file = new FileCoverage(inputFile.relativePath());
+      file.addLinesToCover(linesToCover);
+      file.addCoveredLines(coveredLines);
+
+      NewCoverage newCoverage = context.newCoverage().onFile(inputFile).ofType(CoverageType.UNIT);
+      for (Integer line : file.getLinesToCover()) {
+        if (line <= inputFile.lines()) {
+          newCoverage.lineHits(line, file.isCovered(line) ? 1 : 0);
+        }
+      }
+      newCoverage.save();
+    }
+    LOG.info("Coverage saved on {} files, {} profiled files not found in sources, {} files without listing",
+        new Object[] {files.size() - numNoListing, numUnknown, numNoListing});
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private void saveTiming(SensorContext context, TimingSession timing) {
+    Map<InputFile, FileTiming> files = new HashMap<>();
+    for (FileTiming file : timing.getFiles()) {
+      InputFile inputFile = profilerOutputs.getInputFile(file.getFileName());
+      if ((inputFile == null) || (inputFile.type() != InputFile.Type.MAIN))
+        continue;
+      FileTiming merged = files.get(inputFile);
+      if (merged == null) {
+        merged = new FileTiming(inputFile.relativePath());
+        files.put(inputFile, merged);
+      }
+      merged.mergeWith(file);
+    }
+
+    for (Map.Entry<InputFile, FileTiming> entry : files.entrySet()) {
+      InputFile inputFile = entry.getKey();
+      FileTiming file = entry.getValue();
+      SourceLineMapping mapping = debugListings.getSourceLineMapping(inputFile);
+      if ((mapping == null) || (file.getTotalExecCount() == 0))
+        continue;
+      FileTiming sourceLines = new FileTiming(inputFile.relativePath());
+      for (int zz = 1; zz <= file.getMaxLine(); zz++) {
+        sourceLines.addLine(getMainFileLine(mapping, zz), file.getExecCount(zz), file.getActualTime(zz),
+            file.getCumulativeTime(zz));
+      }
+      StringBuilder sb = new StringBuilder();
+      for (int line : sourceLines.getHottestLines(NUM_HOT_LINES)) {
+        if (sb.length() > 0) {
+          sb.append(';');
+        }
+        sb.append(line).append('=').append(String.format(Locale.US, "%.6f", sourceLines.getActualTime(line)));
+      }
+      context.newMeasure().on(inputFile).forMetric((Metric) OpenEdgeMetrics.PROFILER_TIME).withValue(
+          file.getTotalTime()).save();
+      context.newMeasure().on(inputFile).forMetric((Metric) OpenEdgeMetrics.PROFILER_CALLS).withValue(
+          (int) Math.min(Integer.MAX_VALUE, file.getNumCalls())).save();
+      context.newMeasure().on(inputFile).forMetric((Metric) OpenEdgeMetrics.PROFILER_HOT_LINES).withValue(
+          sb.toString()).save();
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private void saveLatency(SensorContext context, LatencySession latency) {
+    Map<InputFile, FileLatency> files = new HashMap<>();
+    for (FileLatency file : latency.getFiles()) {
+      InputFile inputFile = profilerOutputs.getInputFile(file.getFileName());
+      if ((inputFile == null) || (inputFile.type() != InputFile.Type.MAIN))
+        continue;
+      FileLatency merged = files.get(inputFile);
+      if (merged == null) {
+        merged = new FileLatency(inputFile.relativePath());
+        files.put(inputFile, merged);
+      }
+      merged.mergeWith(file);
+    }
+
+    for (Map.Entry<InputFile, FileLatency> entry : files.entrySet()) {
+      InputFile inputFile = entry.getKey();
+      FileLatency file = entry.getValue();
+      LatencyHistogram histogram = file.getLatency();
+      SourceLineMapping mapping = debugListings.getSourceLineMapping(inputFile);
+      if ((mapping == null) || histogram.isEmpty())
+        continue;
+      FileLatency sourceLines = new FileLatency(inputFile.relativePath());
+      for (int zz = 1; zz <= file.getMaxLine(); zz++) {
+        if (file.getLineLatency(zz) != null) {
+          sourceLines.addLine(getMainFileLine(mapping, zz), file.getLineLatency(zz));
+        }
+      }
+      StringBuilder sb = new StringBuilder();
+      for (int line : sourceLines.getSlowestLines(NUM_HOT_LINES, 99)) {
+        if (sb.length() > 0) {
+          sb.append(';');
+        }
+        sb.append(line).append('=').append(
+            String.format(Locale.US, "%.6f", sourceLines.getLineLatency(line).getPercentile(99)));
+      }
+      context.newMeasure().on(inputFile).forMetric((Metric) OpenEdgeMetrics.PROFILER_LATENCY_P50).withValue(
+          histogram.getPercentile(50)).save();
+      context.newMeasure().on(inputFile).forMetric((Metric) OpenEdgeMetrics.PROFILER_LATENCY_P95).withValue(
+          histogram.getPercentile(95)).save();
+      context.newMeasure().on(inputFile).forMetric((Metric) OpenEdgeMetrics.PROFILER_LATENCY_P99).withValue(
+          histogram.getPercentile(99)).save();
+      context.newMeasure().on(inputFile).forMetric((Metric) OpenEdgeMetrics.PROFILER_LATENCY_MAX).withValue(
+          histogram.getMax()).save();
+      context.newMeasure().on(inputFile).forMetric((Metric) OpenEdgeMetrics.PROFILER_SLOW_LINES).withValue(
+          sb.toString()).save();
+    }
+  }
+
+  /**
+   * @return Line of the main file, or 0 if this profiler line comes from an include file or is unknown
+   */
+  private static int getMainFileLine(SourceLineMapping mapping, int line) {
+    return mapping.isMainFile(line) ? mapping.getSourceLine(line) : 0;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName();
+  }
+
+}
@@ -19,8 +19,11 @@
  */
 package org.sonar.plugins.openedge.sensor;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -33,20 +36,26 @@ import org.sonar.api.batch.sensor.Sensor;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.SensorDescriptor;
 import org.sonar.plugins.openedge.api.checks.OpenEdgeDumpFileCheck;
-import org.sonar.plugins.openedge.api.eu.rssw.antlr.database.DumpFileUtils;
 import org.sonar.plugins.openedge.api.org.antlr.v4.runtime.tree.ParseTree;
+import org.sonar.plugins.openedge.foundation.DumpFileRepository;
 import org.sonar.plugins.openedge.foundation.OpenEdgeComponents;
 import org.sonar.plugins.openedge.foundation.OpenEdgeDB;
+import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
 
 public class OpenEdgeDBRulesSensor implements Sensor {
   private static final Logger LOG = LoggerFactory.getLogger(OpenEdgeDBRulesSensor.class);
 
   private final FileSystem fileSystem;
   private final OpenEdgeComponents components;
+  private final DumpFileRepository dumpFiles;
+  private final OpenEdgeSettings settings;
 
-  public OpenEdgeDBRulesSensor(FileSystem fileSystem, OpenEdgeComponents components) {
+  public OpenEdgeDBRulesSensor(FileSystem fileSystem, OpenEdgeComponents components, DumpFileRepository dumpFiles,
+      OpenEdgeSettings settings) {
     this.fileSystem = fileSystem;
     this.components = components;
+    this.dumpFiles = dumpFiles;
+    this.settings = settings;
   }
 
   @Override
@@ -57,19 +66,27 @@ public class OpenEdgeDBRulesSensor implements Sensor {
   @Override
   public void execute(SensorContext context) {
     Map<String, Long> ruleTime = new HashMap<>();
-    long parseTime = 0L;
     components.initializeChecks(context);
 
     for (Map.Entry<ActiveRule, OpenEdgeDumpFileCheck> entry : components.getDumpFileRules().entrySet()) {
       ruleTime.put(entry.getKey().ruleKey().toString(), 0L);
     }
+    // No need to generate ParseTree if no DF rule is active
+    if (ruleTime.isEmpty())
+      return;
+
+    List<File> dfFiles = new ArrayList<>();
+    for (InputFile file : fileSystem.inputFiles(fileSystem.predicates().hasLanguage(OpenEdgeDB.KEY))) {
+      dfFiles.add(file.file());
+    }
+    long parseTime = System.currentTimeMillis();
+    dumpFiles.parse(dfFiles, settings.getNumThreads(), true);
+    parseTime = System.currentTimeMillis() - parseTime;
 
     for (InputFile file : fileSystem.inputFiles(fileSystem.predicates().hasLanguage(OpenEdgeDB.KEY))) {
       try {
         LOG.debug("Generating ParseTree for dump file {}", file.relativePath());
-        long time = System.currentTimeMillis();
-        ParseTree tree = DumpFileUtils.getDumpFileParseTree(file.file());
-        parseTime += (System.currentTimeMillis() - time);
+        ParseTree tree = dumpFiles.getParseTree(file.file());
 
         for (Map.Entry<ActiveRule, OpenEdgeDumpFileCheck> entry : components.getDumpFileRules().entrySet()) {
           LOG.debug("ActiveRule - Internal key {} - Repository {} - Rule {}",
@@ -81,6 +98,7 @@ public class OpenEdgeDBRulesSensor implements Sensor {
           ruleTime.put(entry.getKey().ruleKey().toString(),
               ruleTime.get(entry.getKey().ruleKey().toString()) + System.currentTimeMillis() - startTime);
         }
+        dumpFiles.releaseParseTree(file.file());
 
       } catch (IOException caught) {
         LOG.error("Unable to analyze {}", file.relativePath(), caught);
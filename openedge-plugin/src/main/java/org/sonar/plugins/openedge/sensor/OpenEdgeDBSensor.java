@@ -19,7 +19,10 @@
  */
 package org.sonar.plugins.openedge.sensor;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,20 +32,25 @@ import org.sonar.api.batch.measure.Metric;
 import org.sonar.api.batch.sensor.Sensor;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.SensorDescriptor;
-import org.sonar.plugins.openedge.api.eu.rssw.antlr.database.DumpFileUtils;
 import org.sonar.plugins.openedge.api.eu.rssw.antlr.database.objects.DatabaseDescription;
 import org.sonar.plugins.openedge.api.eu.rssw.antlr.database.objects.Field;
 import org.sonar.plugins.openedge.api.eu.rssw.antlr.database.objects.Table;
+import org.sonar.plugins.openedge.foundation.DumpFileRepository;
 import org.sonar.plugins.openedge.foundation.OpenEdgeDB;
 import org.sonar.plugins.openedge.foundation.OpenEdgeMetrics;
+import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
 
 public class OpenEdgeDBSensor implements Sensor {
   private static final Logger LOG = LoggerFactory.getLogger(OpenEdgeDBSensor.class);
 
   private final FileSystem fileSystem;
+  private final DumpFileRepository dumpFiles;
+  private final OpenEdgeSettings settings;
 
-  public OpenEdgeDBSensor(FileSystem fileSystem) {
+  public OpenEdgeDBSensor(FileSystem fileSystem, DumpFileRepository dumpFiles, OpenEdgeSettings settings) {
     this.fileSystem = fileSystem;
+    this.dumpFiles = dumpFiles;
+    this.settings = settings;
   }
 
   @Override
@@ -57,11 +65,17 @@ public class OpenEdgeDBSensor implements Sensor {
 
   @SuppressWarnings({"unchecked", "rawtypes"})
   private void computeBaseMetrics(SensorContext sensorContext) {
+    List<File> dfFiles = new ArrayList<>();
+    for (InputFile file : fileSystem.inputFiles(fileSystem.predicates().hasLanguage(OpenEdgeDB.KEY))) {
+      dfFiles.add(file.file());
+    }
+    dumpFiles.parse(dfFiles, settings.getNumThreads(), false);
+
     for (InputFile file : fileSystem.inputFiles(fileSystem.predicates().hasLanguage(OpenEdgeDB.KEY))) {
       try {
         LOG.info("Analyzing {}", file.relativePath());
 
-        DatabaseDescription desc = DumpFileUtils.getDatabaseDescription(file.file());
+        DatabaseDescription desc = dumpFiles.getDatabaseDescription(file.file());
         sensorContext.newMeasure().on(file).forMetric((Metric) OpenEdgeMetrics.NUM_TABLES).withValue(desc.getTables().size()).save();
         sensorContext.newMeasure().on(file).forMetric((Metric) OpenEdgeMetrics.NUM_SEQUENCES).withValue(desc.getSequences().size()).save();
 
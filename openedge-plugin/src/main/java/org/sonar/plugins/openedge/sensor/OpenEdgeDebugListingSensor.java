@@ -19,31 +19,45 @@
  */
 package org.sonar.plugins.openedge.sensor;
 
-import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.measure.Metric;
 import org.sonar.api.batch.sensor.Sensor;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.SensorDescriptor;
-import org.sonar.plugins.openedge.api.com.google.common.io.Files;
+import org.sonar.plugins.openedge.api.eu.rssw.listing.DebugListing;
+import org.sonar.plugins.openedge.foundation.DebugListingRepository;
 import org.sonar.plugins.openedge.foundation.OpenEdge;
-import org.sonar.plugins.openedge.foundation.OpenEdgeProjectHelper;
+import org.sonar.plugins.openedge.foundation.OpenEdgeMetrics;
 import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
 
+/**
+ * Debug listing files are read line by line on a bounded thread pool. Only their line maps are kept in memory, in
+ * {@link DebugListingRepository}, so that profiler data can be mapped back to source lines without reading them again.
+ */
 public class OpenEdgeDebugListingSensor implements Sensor {
   private static final Logger LOG = LoggerFactory.getLogger(OpenEdgeDebugListingSensor.class);
 
   // IoC
   private final FileSystem fileSystem;
   private final OpenEdgeSettings settings;
+  private final DebugListingRepository debugListings;
 
-  public OpenEdgeDebugListingSensor(OpenEdgeSettings settings, FileSystem fileSystem) {
+  public OpenEdgeDebugListingSensor(OpenEdgeSettings settings, FileSystem fileSystem,
+      DebugListingRepository debugListings) {
     this.fileSystem = fileSystem;
     this.settings = settings;
+    this.debugListings = debugListings;
   }
 
   @Override
@@ -51,51 +65,66 @@ public class OpenEdgeDebugListingSensor implements Sensor {
     descriptor.onlyOnLanguage(OpenEdge.KEY).name(getClass().getSimpleName());
   }
 
-  private File getDebugListingFile(File file) {
-    String relPath = OpenEdgeProjectHelper.getPathRelativeToSourceDirs(file, settings.getSourceDirs());
-    if (relPath == null)
-      return null;
+  @Override
+  public void execute(final SensorContext context) {
+    final AtomicInteger dbgImportNum = new AtomicInteger();
 
-    // Since PCT 189, debug listing are in root dir, with _ instead of directory separator
-    return new File(settings.getDbgDir(), relPath.replace('/', '_'));
+    ExecutorService service = Executors.newFixedThreadPool(settings.getNumThreads());
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (final InputFile file : fileSystem.inputFiles(fileSystem.predicates().hasLanguage(OpenEdge.KEY))) {
+        futures.add(service.submit(new Runnable() {
+          @Override
+          public void run() {
+            if (importDebugListing(context, file)) {
+              dbgImportNum.incrementAndGet();
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException caught) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException caught) {
+      LOG.error("Error during debug listing import", caught.getCause());
+    } finally {
+      service.shutdownNow();
+    }
+    LOG.info("{} debug listing files imported", dbgImportNum.get());
   }
 
-  @Override
-  public void execute(SensorContext context) {
-    int dbgImportNum = 0;
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private boolean importDebugListing(SensorContext context, InputFile file) {
+    LOG.debug("Looking for debug listing of {}", file.relativePath());
 
-    for (InputFile file : fileSystem.inputFiles(fileSystem.predicates().hasLanguage(OpenEdge.KEY))) {
-      LOG.debug("Looking for debug listing of {}", file.relativePath());
+    DebugListing listing = debugListings.getDebugListing(file);
+    if (listing == null) {
+      return false;
+    }
 
-      File debugListingFile = getDebugListingFile(file.file());
-      if ((debugListingFile != null) && (debugListingFile.exists())) {
-        LOG.debug("Import debug listing for {}", file.relativePath());
-        try {
-          // Computing LOC, NLOC, COMMENTS, COMMENTS_PERCENTAGE
-          List<String> lines = Files.readLines(debugListingFile, fileSystem.encoding());
-//          Source source = new Source(lines.toArray(new String[lines.size()]), new OpenEdgeRecognizer());
-//          int loc = source.getMeasure(Metric.LINES);
-//          int nloc = source.getMeasure(Metric.LINES_OF_CODE);
-//          int comments = source.getMeasure(Metric.COMMENT_LINES);
-//          double commentsPercentage = ((nloc + comments <= 0) ? 0.0 : (double) (comments) * 100
-//              / (double) (nloc + comments));
-//
-//          // Saving measures
-//          context.saveMeasure(file, OpenEdgeMetrics.DEBUG_LISTING_LOC, (double) loc);
-//          context.saveMeasure(file, OpenEdgeMetrics.DEBUG_LISTING_NCLOC, (double) nloc);
-//          context.saveMeasure(file, OpenEdgeMetrics.DEBUG_LISTING_COMMENT_LINES, (double) comments);
-//          context.saveMeasure(file, OpenEdgeMetrics.DEBUG_LISTING_COMMENT_LINES_PERCENTAGE, commentsPercentage);
+    LOG.debug("Import debug listing for {}", file.relativePath());
+    // Computing LOC, NLOC, COMMENTS, COMMENTS_PERCENTAGE
+    int loc = listing.getLines();
+    int ncloc = listing.getCodeLines();
+    int comments = listing.getCommentLines();
+    double commentsPercentage = (ncloc + comments <= 0) ? 0.0 : (double) comments * 100 / (ncloc + comments);
 
-          dbgImportNum++;
-        } catch (Exception caught) {
-          LOG.error("Can not analyze debug listing file {} ", debugListingFile.getAbsolutePath(), caught);
-        }
-      } else {
-        LOG.debug("Debug listing file for {} not found - Was looking for {}", file.relativePath(),
-            debugListingFile.getAbsolutePath());
-      }
+    synchronized (context) {
+      context.newMeasure().on(file).forMetric((Metric) OpenEdgeMetrics.DEBUG_LISTING_LOC).withValue(loc).save();
+      context.newMeasure().on(file).forMetric((Metric) OpenEdgeMetrics.DEBUG_LISTING_NCLOC).withValue(ncloc).save();
+      context.newMeasure().on(file).forMetric((Metric) OpenEdgeMetrics.DEBUG_LISTING_COMMENT_LINES).withValue(
+          comments).save();
+      context.newMeasure().on(file).forMetric(
+          (Metric) OpenEdgeMetrics.DEBUG_LISTING_COMMENT_LINES_PERCENTAGE).withValue(commentsPercentage).save();
     }
-    LOG.info("{} debug listing files imported", dbgImportNum);
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName();
   }
 
 }
@@ -0,0 +1,114 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (C) 2013-2016 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.sensor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.DependsUpon;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.measure.Metric;
+import org.sonar.api.batch.sensor.Sensor;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.plugins.openedge.api.ExecutionProfile.LineWeight;
+import org.sonar.plugins.openedge.foundation.OpenEdge;
+import org.sonar.plugins.openedge.foundation.OpenEdgeMetrics;
+import org.sonar.plugins.openedge.foundation.ProfilerIssueWeights;
+
+/**
+ * Saves time spent on lines with issues, as found in profiler outputs when issues are reported by Proparse and XREF
+ * checks. Executed after all sensors executing checks, which are annotated with {@link #CHECKS_EXECUTED}.
+ */
+@DependsUpon(OpenEdgeIssueWeightSensor.CHECKS_EXECUTED)
+public class OpenEdgeIssueWeightSensor implements Sensor {
+  static final String CHECKS_EXECUTED = "OpenEdgeChecksExecuted";
+  private static final Logger LOG = LoggerFactory.getLogger(OpenEdgeIssueWeightSensor.class);
+  private static final int NUM_HOT_LINES = 10;
+
+  // IoC
+  private final ProfilerIssueWeights issueWeights;
+
+  public OpenEdgeIssueWeightSensor(ProfilerIssueWeights issueWeights) {
+    this.issueWeights = issueWeights;
+  }
+
+  @Override
+  public void describe(SensorDescriptor descriptor) {
+    descriptor.onlyOnLanguage(OpenEdge.KEY).name(getClass().getSimpleName());
+  }
+
+  @Override
+  public void execute(SensorContext context) {
+    if (!issueWeights.isEnabled())
+      return;
+
+    int numFiles = 0;
+    for (InputFile file : issueWeights.getFiles()) {
+      if (file.type() != InputFile.Type.MAIN)
+        continue;
+      saveWeights(context, file, issueWeights.getIssueLines(file));
+      numFiles++;
+    }
+    LOG.info("Issues weighted with profiler data on {} files", numFiles);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static void saveWeights(SensorContext context, InputFile file, SortedMap<Integer, LineWeight> lines) {
+    double totalTime = 0;
+    for (LineWeight weight : lines.values()) {
+      totalTime += weight.getActualTime();
+    }
+    List<Map.Entry<Integer, LineWeight>> hotLines = new ArrayList<>(lines.entrySet());
+    // Stable sort, so lines with same time stay in ascending order
+    Collections.sort(hotLines, new Comparator<Map.Entry<Integer, LineWeight>>() {
+      @Override
+      public int compare(Map.Entry<Integer, LineWeight> o1, Map.Entry<Integer, LineWeight> o2) {
+        return Double.compare(o2.getValue().getActualTime(), o1.getValue().getActualTime());
+      }
+    });
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<Integer, LineWeight> entry : hotLines.subList(0, Math.min(NUM_HOT_LINES, hotLines.size()))) {
+      if (sb.length() > 0) {
+        sb.append(';');
+      }
+      sb.append(entry.getKey()).append('=').append(entry.getValue().getExecCount()).append(':').append(
+          String.format(Locale.US, "%.6f", entry.getValue().getActualTime()));
+    }
+
+    context.newMeasure().on(file).forMetric((Metric) OpenEdgeMetrics.PROFILER_ISSUES_TIME).withValue(
+        totalTime).save();
+    context.newMeasure().on(file).forMetric((Metric) OpenEdgeMetrics.PROFILER_ISSUE_LINES).withValue(
+        sb.toString()).save();
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName();
+  }
+
+}
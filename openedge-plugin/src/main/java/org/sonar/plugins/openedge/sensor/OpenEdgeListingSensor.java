@@ -36,20 +36,22 @@ import org.sonar.plugins.openedge.api.eu.rssw.listing.CodeBlock;
 import org.sonar.plugins.openedge.api.eu.rssw.listing.ListingParser;
 import org.sonar.plugins.openedge.foundation.OpenEdge;
 import org.sonar.plugins.openedge.foundation.OpenEdgeMetrics;
-import org.sonar.plugins.openedge.foundation.OpenEdgeProjectHelper;
 import org.sonar.plugins.openedge.foundation.OpenEdgeRulesDefinition;
 import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
+import org.sonar.plugins.openedge.foundation.PctManifest;
 
 public class OpenEdgeListingSensor implements Sensor {
   private static final Logger LOG = LoggerFactory.getLogger(OpenEdgeListingSensor.class);
 
   // IoC
   private final FileSystem fileSystem;
+  private final PctManifest manifest;
   private final OpenEdgeSettings settings;
 
-  public OpenEdgeListingSensor(OpenEdgeSettings settings, FileSystem fileSystem) {
-    this.fileSystem = fileSystem;
+  public OpenEdgeListingSensor(OpenEdgeSettings settings, FileSystem fileSystem, PctManifest manifest) {
     this.settings = settings;
+    this.fileSystem = fileSystem;
+    this.manifest = manifest;
   }
 
   @Override
@@ -57,54 +59,62 @@ public class OpenEdgeListingSensor implements Sensor {
     descriptor.onlyOnLanguage(OpenEdge.KEY).name(getClass().getSimpleName());
   }
 
-  private File getListingFile(File file) {
-    String relPath = OpenEdgeProjectHelper.getPathRelativeToSourceDirs(file, settings.getSourceDirs());
-    if (relPath == null)
-      return null;
-    return new File(settings.getPctDir(), relPath);
-  }
-
-  @SuppressWarnings({"unchecked", "rawtypes"})
   @Override
   public void execute(SensorContext context) {
+    // Single pass import by OpenEdgePctSensor by default
+    if (!settings.useSeparatePctSensors())
+      return;
     int dbgImportNum = 0;
 
     for (InputFile file : fileSystem.inputFiles(fileSystem.predicates().hasLanguage(OpenEdge.KEY))) {
-      LOG.debug("Looking for listing of {}", file.relativePath());
+      if (importListing(context, file)) {
+        dbgImportNum++;
+      }
+    }
+    LOG.info("{} listing files imported", dbgImportNum);
+  }
 
-      File listingFile = getListingFile(file.file());
-      if ((file.relativePath().indexOf(' ') == -1) && (listingFile != null) && (listingFile.exists())) {
-        LOG.debug("Import listing for {}", file.relativePath());
+  /**
+   * Import listing file of one source file. Can be called from multiple threads.
+   * 
+   * @return True if a listing file was imported
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  boolean importListing(SensorContext context, InputFile file) {
+    LOG.debug("Looking for listing of {}", file.relativePath());
 
-        try {
-          ListingParser parser = new ListingParser(listingFile);
-          StringBuilder sb = new StringBuilder();
-          for (CodeBlock block : parser.getTransactionBlocks()) {
-            if (sb.length() > 0) {
-              sb.append(';');
-            }
-            sb.append(block.getLineNumber());
-          }
+    File listingFile = manifest.getListingFile(file);
+    if ((file.relativePath().indexOf(' ') != -1) || (listingFile == null)) {
+      LOG.debug("Listing file for {} not found", file.relativePath());
+      return false;
+    }
 
-          context.newMeasure().on(file).forMetric((Metric) OpenEdgeMetrics.TRANSACTIONS).withValue(sb.toString()).save();
-          context.newMeasure().on(file).forMetric((Metric) OpenEdgeMetrics.NUM_TRANSACTIONS).withValue(parser.getTransactionBlocks().size()).save();
-          if ((parser.getMainBlock() != null) && parser.getMainBlock().isTransaction()) {
-            NewIssue issue = context.newIssue();
-            issue.forRule(
-                RuleKey.of(OpenEdgeRulesDefinition.REPOSITORY_KEY, OpenEdgeRulesDefinition.LARGE_TRANSACTION_SCOPE)).at(
-                    issue.newLocation().on(file).message("Transaction spans entire procedure")).save();
-          }
+    LOG.debug("Import listing for {}", file.relativePath());
+    try {
+      ListingParser parser = new ListingParser(listingFile);
+      StringBuilder sb = new StringBuilder();
+      for (CodeBlock block : parser.getTransactionBlocks()) {
+        if (sb.length() > 0) {
+          sb.append(';');
+        }
+        sb.append(block.getLineNumber());
+      }
 
-          dbgImportNum++;
-        } catch (IOException caught) {
-          LOG.error("Unable to parse listing file for " + file.relativePath(), caught);
+      synchronized (context) {
+        context.newMeasure().on(file).forMetric((Metric) OpenEdgeMetrics.TRANSACTIONS).withValue(sb.toString()).save();
+        context.newMeasure().on(file).forMetric((Metric) OpenEdgeMetrics.NUM_TRANSACTIONS).withValue(parser.getTransactionBlocks().size()).save();
+        if ((parser.getMainBlock() != null) && parser.getMainBlock().isTransaction()) {
+          NewIssue issue = context.newIssue();
+          issue.forRule(
+              RuleKey.of(OpenEdgeRulesDefinition.REPOSITORY_KEY, OpenEdgeRulesDefinition.LARGE_TRANSACTION_SCOPE)).at(
+                  issue.newLocation().on(file).message("Transaction spans entire procedure")).save();
         }
-      } else {
-        LOG.debug("Listing file for {} not found - Was looking for {}", file.relativePath(),
-            listingFile.getAbsolutePath());
       }
+      return true;
+    } catch (IOException caught) {
+      LOG.error("Unable to parse listing file for " + file.relativePath(), caught);
+      return false;
     }
-    LOG.info("{} listing files imported", dbgImportNum);
   }
 
   @Override
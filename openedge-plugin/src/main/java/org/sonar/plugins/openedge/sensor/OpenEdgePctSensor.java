@@ -0,0 +1,129 @@
+/*
+ * OpenEdge DB plugin for SonarQube
+ * Copyright (C) 2013-2014 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.sensor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.DependedUpon;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.Sensor;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.plugins.openedge.foundation.OpenEdge;
+import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
+import org.sonar.plugins.openedge.foundation.PctManifest;
+
+/**
+ * Imports all compiler artifacts generated by PCT (warnings, listing and XREF files) in a single pass over the source
+ * files. Each source file is a unit of work on a bounded thread pool, and artifacts are located with the
+ * {@link PctManifest}, so the .pct directory is scanned only once. Import logic itself is delegated to
+ * {@link OpenEdgeWarningsSensor}, {@link OpenEdgeListingSensor} and {@link OpenEdgeXREFSensor}, which only run on their
+ * own when {@link OpenEdgeSettings#useSeparatePctSensors()} is set.
+ */
+@DependedUpon(OpenEdgeIssueWeightSensor.CHECKS_EXECUTED)
+public class OpenEdgePctSensor implements Sensor {
+  private static final Logger LOG = LoggerFactory.getLogger(OpenEdgePctSensor.class);
+
+  // IoC
+  private final FileSystem fileSystem;
+  private final OpenEdgeSettings settings;
+  private final OpenEdgeWarningsSensor warningsSensor;
+  private final OpenEdgeListingSensor listingSensor;
+  private final OpenEdgeXREFSensor xrefSensor;
+
+  public OpenEdgePctSensor(OpenEdgeSettings settings, FileSystem fileSystem, OpenEdgeWarningsSensor warningsSensor,
+      OpenEdgeListingSensor listingSensor, OpenEdgeXREFSensor xrefSensor) {
+    this.fileSystem = fileSystem;
+    this.settings = settings;
+    this.warningsSensor = warningsSensor;
+    this.listingSensor = listingSensor;
+    this.xrefSensor = xrefSensor;
+  }
+
+  @Override
+  public void describe(SensorDescriptor descriptor) {
+    descriptor.onlyOnLanguage(OpenEdge.KEY).name(getClass().getSimpleName());
+  }
+
+  @Override
+  public void execute(final SensorContext context) {
+    if (settings.useSeparatePctSensors()) {
+      LOG.info("Compiler artifacts imported by separate sensors");
+      return;
+    }
+    final boolean warnings = warningsSensor.initialize(context);
+    final boolean xref = xrefSensor.initialize(context);
+    final AtomicInteger warningsImportNum = new AtomicInteger();
+    final AtomicInteger listingImportNum = new AtomicInteger();
+
+    ExecutorService service = Executors.newFixedThreadPool(settings.getNumThreads());
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (final InputFile file : fileSystem.inputFiles(fileSystem.predicates().hasLanguage(OpenEdge.KEY))) {
+        futures.add(service.submit(new Runnable() {
+          @Override
+          public void run() {
+            if (warnings && warningsSensor.importWarnings(context, file)) {
+              warningsImportNum.incrementAndGet();
+            }
+            if (listingSensor.importListing(context, file)) {
+              listingImportNum.incrementAndGet();
+            }
+            if (xref) {
+              xrefSensor.analyzeFile(file);
+            }
+          }
+        }));
+      }
+      // XREF checks which are not thread-safe are executed on this thread
+      xrefSensor.waitForCompletion(futures);
+      if (warnings) {
+        warningsSensor.reportIncludeWarnings(context);
+      }
+    } catch (InterruptedException caught) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException caught) {
+      LOG.error("Error during compiler artifacts import", caught.getCause());
+    } finally {
+      service.shutdownNow();
+    }
+
+    LOG.info("{} warning files imported", warningsImportNum.get());
+    LOG.info("{} listing files imported", listingImportNum.get());
+    if (xref) {
+      xrefSensor.logStatistics();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName();
+  }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (C) 2013-2016 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.sensor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.Sensor;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.api.batch.sensor.issue.NewIssue;
+import org.sonar.api.batch.sensor.issue.NewIssueLocation;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.plugins.openedge.foundation.OpenEdge;
+import org.sonar.plugins.openedge.foundation.OpenEdgeRulesDefinition;
+import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
+import org.sonar.plugins.openedge.foundation.ProfilerData;
+import org.sonar.plugins.openedge.foundation.ProfilerOutputs;
+
+import eu.rssw.antlr.profiler.ProfilerDiff;
+import eu.rssw.antlr.profiler.ProfilerDiff.Regression;
+import eu.rssw.antlr.profiler.ProfilerUtils;
+
+/**
+ * Compares profiler outputs of the current version with profiler outputs of a reference version, and raises an issue
+ * on each line and procedure which got slower
+ */
+public class OpenEdgeProfilerDiffSensor implements Sensor {
+  private static final Logger LOG = LoggerFactory.getLogger(OpenEdgeProfilerDiffSensor.class);
+  private static final RuleKey RULE_KEY = RuleKey.of(OpenEdgeRulesDefinition.REPOSITORY_KEY,
+      OpenEdgeRulesDefinition.PERFORMANCE_REGRESSION_RULEKEY);
+  // Regressions below 1 millisecond per session are not reported
+  private static final double MIN_EXTRA_TIME = 0.001;
+
+  // IoC
+  private final OpenEdgeSettings settings;
+  private final ProfilerOutputs profilerOutputs;
+
+  public OpenEdgeProfilerDiffSensor(OpenEdgeSettings settings, ProfilerOutputs profilerOutputs) {
+    this.settings = settings;
+    this.profilerOutputs = profilerOutputs;
+  }
+
+  @Override
+  public void describe(SensorDescriptor descriptor) {
+    descriptor.onlyOnLanguage(OpenEdge.KEY).name(getClass().getSimpleName());
+  }
+
+  @Override
+  public void execute(SensorContext context) {
+    if (settings.getProfilerBaseline().isEmpty() || settings.getProfilerOutputs().isEmpty())
+      return;
+    if (context.activeRules().find(RULE_KEY) == null) {
+      LOG.info("'Performance regression' rule is not activated in your profile - Profiler outputs comparison skipped");
+      return;
+    }
+
+    List<File> baseline = profilerOutputs.getFiles(settings.getProfilerBaseline());
+    LOG.info("{} baseline profiler outputs found", baseline.size());
+    if (baseline.isEmpty())
+      return;
+    // Candidate sessions are added when profiler outputs are parsed
+    ProfilerData data = profilerOutputs.getData();
+    if (data.getNumFiles() == 0)
+      return;
+
+    ProfilerDiff diff = data.getDiff();
+    parseBaseline(diff, baseline);
+    List<Regression> regressions = diff.getRegressions(settings.getRegressionThreshold(), MIN_EXTRA_TIME);
+    int numIssues = 0;
+    for (Regression regression : regressions) {
+      if (saveIssue(context, regression))
+        numIssues++;
+    }
+    LOG.info("{} performance regressions found, {} reported on source files", regressions.size(), numIssues);
+  }
+
+  private void parseBaseline(final ProfilerDiff diff, List<File> baseline) {
+    ExecutorService service = Executors.newFixedThreadPool(settings.getNumThreads());
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (File file : baseline) {
+        futures.add(service.submit(new ParseTask(diff, file, settings.getProfilerCacheDir())));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException caught) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException caught) {
+      LOG.error("Error during profiler outputs parsing", caught.getCause());
+    } finally {
+      service.shutdownNow();
+    }
+  }
+
+  private boolean saveIssue(SensorContext context, Regression regression) {
+    InputFile file = profilerOutputs.getInputFile(regression.getFileName());
+    if ((file == null) || (file.type() != InputFile.Type.MAIN))
+      return false;
+
+    NewIssue issue = context.newIssue().forRule(RULE_KEY);
+    NewIssueLocation location = issue.newLocation().on(file);
+    String msg;
+    if (regression.getLineNumber() > 0) {
+      if (regression.getLineNumber() > file.lines())
+        return false;
+      location.at(file.selectLine(regression.getLineNumber()));
+      msg = String.format(Locale.US, "Line is %.1f times slower than in baseline (%.3f ms instead of %.3f ms per execution)",
+          regression.getRatio(), regression.getCandidateTime() * 1000, regression.getBaselineTime() * 1000);
+    } else {
+      msg = String.format(Locale.US, "%s is %.1f times slower than in baseline (%.3f ms instead of %.3f ms per call)",
+          regression.getProcName().isEmpty() ? "Main block" : "'" + regression.getProcName() + "'",
+          regression.getRatio(), regression.getCandidateTime() * 1000, regression.getBaselineTime() * 1000);
+    }
+    issue.at(location.message(msg)).save();
+
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName();
+  }
+
+  private static class ParseTask implements Runnable {
+    private final ProfilerDiff diff;
+    private final File file;
+    private final File cacheDir;
+
+    ParseTask(ProfilerDiff diff, File file, File cacheDir) {
+      this.diff = diff;
+      this.file = file;
+      this.cacheDir = cacheDir;
+    }
+
+    @Override
+    public void run() {
+      try {
+        diff.addBaseline(ProfilerUtils.getProfilerSession(file, cacheDir));
+      } catch (IOException | RuntimeException caught) {
+        LOG.error("Unable to parse profiler output " + file.getAbsolutePath(), caught);
+      }
+    }
+  }
+
+}
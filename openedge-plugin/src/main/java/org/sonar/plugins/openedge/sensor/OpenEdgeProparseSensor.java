@@ -33,6 +33,7 @@ import java.util.Map.Entry;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.DependedUpon;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.measure.Metric;
@@ -61,6 +62,7 @@ import org.sonar.plugins.openedge.foundation.OpenEdgeMetrics;
 import org.sonar.plugins.openedge.foundation.OpenEdgeRulesDefinition;
 import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
 
+@DependedUpon(OpenEdgeIssueWeightSensor.CHECKS_EXECUTED)
 public class OpenEdgeProparseSensor implements Sensor {
   private static final Logger LOG = LoggerFactory.getLogger(OpenEdgeProparseSensor.class);
 
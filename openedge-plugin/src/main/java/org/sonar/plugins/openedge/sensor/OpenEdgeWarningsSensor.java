@@ -19,11 +19,18 @@
  */
 package org.sonar.plugins.openedge.sensor;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,24 +42,42 @@ import org.sonar.api.batch.sensor.SensorDescriptor;
 import org.sonar.api.batch.sensor.issue.NewIssue;
 import org.sonar.api.batch.sensor.issue.NewIssueLocation;
 import org.sonar.api.rule.RuleKey;
-import org.sonar.plugins.openedge.api.com.google.common.io.Files;
-import org.sonar.plugins.openedge.api.com.google.common.io.LineProcessor;
+import org.sonar.plugins.openedge.api.InputFileIndex;
 import org.sonar.plugins.openedge.api.com.google.common.primitives.Ints;
 import org.sonar.plugins.openedge.foundation.OpenEdge;
-import org.sonar.plugins.openedge.foundation.OpenEdgeProjectHelper;
 import org.sonar.plugins.openedge.foundation.OpenEdgeRulesDefinition;
 import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
+import org.sonar.plugins.openedge.foundation.PctManifest;
 
+/**
+ * Warnings files are read line by line, and issues are created as soon as a line is parsed. Rule key is resolved only
+ * once per message number. The same warning in an include file is usually reported by many compilation units, and is
+ * only reported once, from the compilation unit with the smallest relative path, once all warnings files have been
+ * read. That way, issue message doesn't depend on the order in which files are processed by the thread pool.
+ */
 public class OpenEdgeWarningsSensor implements Sensor {
   private static final Logger LOG = LoggerFactory.getLogger(OpenEdgeWarningsSensor.class);
+  private static final RuleKey DEFAULT_WARNING_RULEKEY = RuleKey.of(OpenEdgeRulesDefinition.REPOSITORY_KEY,
+      OpenEdgeRulesDefinition.COMPILER_WARNING_RULEKEY);
 
   // IoC
   private final FileSystem fileSystem;
+  private final PctManifest manifest;
+  private final InputFileIndex inputFileIndex;
   private final OpenEdgeSettings settings;
 
-  public OpenEdgeWarningsSensor(OpenEdgeSettings settings, FileSystem fileSystem) {
-    this.fileSystem = fileSystem;
+  // Reset on each analysis, updated from worker threads
+  private final ConcurrentMap<Integer, RuleKey> ruleKeys = new ConcurrentHashMap<>();
+  private final Set<String> reportedWarnings = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  // Warnings in include files, reported by reportIncludeWarnings()
+  private final Map<String, IncludeWarning> includeWarnings = new HashMap<>();
+
+  public OpenEdgeWarningsSensor(OpenEdgeSettings settings, FileSystem fileSystem, PctManifest manifest,
+      InputFileIndex inputFileIndex) {
     this.settings = settings;
+    this.fileSystem = fileSystem;
+    this.manifest = manifest;
+    this.inputFileIndex = inputFileIndex;
   }
 
   @Override
@@ -60,108 +85,196 @@ public class OpenEdgeWarningsSensor implements Sensor {
     descriptor.onlyOnLanguage(OpenEdge.KEY).name(getClass().getSimpleName());
   }
 
-
-  private File getWarningsFile(File file) {
-    String relPath = OpenEdgeProjectHelper.getPathRelativeToSourceDirs(file, settings.getSourceDirs());
-    if (relPath == null)
-      return null;
-
-    return new File(settings.getPctDir(), relPath + ".warnings");
-  }
-
   @Override
   public void execute(SensorContext context) {
+    // Single pass import by OpenEdgePctSensor by default
+    if (!settings.useSeparatePctSensors())
+      return;
+    if (!initialize(context))
+      return;
+
     int warningsImportNum = 0;
-    final RuleKey defaultWarningRuleKey = RuleKey.of(OpenEdgeRulesDefinition.REPOSITORY_KEY,
-        OpenEdgeRulesDefinition.COMPILER_WARNING_RULEKEY);
-    if (context.activeRules().find(defaultWarningRuleKey) == null) {
+    for (InputFile file : fileSystem.inputFiles(fileSystem.predicates().hasLanguage(OpenEdge.KEY))) {
+      if (importWarnings(context, file)) {
+        warningsImportNum++;
+      }
+    }
+    reportIncludeWarnings(context);
+    LOG.info("{} warning files imported", warningsImportNum);
+  }
+
+  /**
+   * Reset caches
+   * 
+   * @return False if compiler warning rule is not active, in which case
+   *         {@link #importWarnings(SensorContext, InputFile)} shouldn't be called
+   */
+  boolean initialize(SensorContext context) {
+    ruleKeys.clear();
+    reportedWarnings.clear();
+    synchronized (includeWarnings) {
+      includeWarnings.clear();
+    }
+    if (context.activeRules().find(DEFAULT_WARNING_RULEKEY) == null) {
       LOG.info("'Compiler warning' rule is not activated in your profile - Warning files analysis skipped");
-      return;
+      return false;
     }
+    return true;
+  }
 
-    for (InputFile file : fileSystem.inputFiles(fileSystem.predicates().hasLanguage(OpenEdge.KEY))) {
-      LOG.debug("Looking for warnings of {}", file.relativePath());
-
-      File listingFile = getWarningsFile(file.file());
-      if ((listingFile != null) && (listingFile.exists())) {
-        LOG.debug("Import warnings for {}", file.relativePath());
-
-        try {
-          WarningsProcessor processor = new WarningsProcessor();
-          Files.readLines(listingFile, StandardCharsets.UTF_8, processor);
-          for (Warning w : processor.getResult()) {
-            InputFile target = fileSystem.inputFile(fileSystem.predicates().hasRelativePath(w.file));
-            RuleKey ruleKey = RuleKey.of(OpenEdgeRulesDefinition.REPOSITORY_KEY, OpenEdgeRulesDefinition.COMPILER_WARNING_RULEKEY + "." + w.msgNum);
-            if (target != null) {
-              LOG.debug("Warning File {} - Line {} - Message {}", new Object[] {target.relativePath(), w.line, w.msg});
-              NewIssue issue = context.newIssue().forRule(context.activeRules().find(ruleKey) == null ? defaultWarningRuleKey : ruleKey);
-              NewIssueLocation location = issue.newLocation().on(target);
-              if (w.line > 0) {
-                location.at(target.selectLine(w.line));
-              }
-              if (target == file) {
-                location.message(w.msg);
-              } else {
-                location.message("From " + file.relativePath() + " - " + w.msg);
-              }
-              issue.at(location).save();
-            } else {
-              LOG.info("Found warning on non-existing file {}", w.file);
-            }
-          }
-
-          warningsImportNum++;
-        } catch (IOException caught) {
+  /**
+   * Import warnings file of one source file. Can be called from multiple threads.
+   * 
+   * @return True if a warnings file was imported
+   */
+  boolean importWarnings(SensorContext context, InputFile file) {
+    LOG.debug("Looking for warnings of {}", file.relativePath());
+    File warningsFile = manifest.getWarningsFile(file);
+    if (warningsFile == null)
+      return false;
 
+    LOG.debug("Import warnings for {}", file.relativePath());
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(new FileInputStream(warningsFile), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        Warning w = Warning.parse(line);
+        if (w != null) {
+          reportWarning(context, file, w);
         }
       }
+      return true;
+    } catch (IOException caught) {
+      LOG.error("Unable to read warnings file " + warningsFile.getAbsolutePath(), caught);
+      return false;
+    }
+  }
+
+  private void reportWarning(SensorContext context, InputFile file, Warning w) {
+    InputFile target = inputFileIndex.getInputFile(w.file);
+    if (target == null) {
+      LOG.info("Found warning on non-existing file {}", w.file);
+      return;
+    }
+    String key = target.relativePath() + ':' + w.line + ':' + w.msg;
+    if (target != file) {
+      // Only keep compilation unit with smallest relative path
+      synchronized (includeWarnings) {
+        IncludeWarning current = includeWarnings.get(key);
+        if ((current == null) || (file.relativePath().compareTo(current.file.relativePath()) < 0)) {
+          includeWarnings.put(key, new IncludeWarning(file, target, w));
+        }
+      }
+      return;
+    }
+    if (!reportedWarnings.add(key)) {
+      LOG.debug("Warning already reported: File {} - Line {} - Message {}",
+          new Object[] {target.relativePath(), w.line, w.msg});
+      return;
+    }
+    saveWarning(context, target, w, w.msg);
+  }
+
+  /**
+   * Report warnings found in include files. Has to be called once all warnings files have been imported.
+   */
+  void reportIncludeWarnings(SensorContext context) {
+    synchronized (includeWarnings) {
+      for (Map.Entry<String, IncludeWarning> entry : includeWarnings.entrySet()) {
+        IncludeWarning iw = entry.getValue();
+        // Include file can also be compiled on its own
+        if (reportedWarnings.add(entry.getKey())) {
+          saveWarning(context, iw.target, iw.warning, "From " + iw.file.relativePath() + " - " + iw.warning.msg);
+        }
+      }
+      includeWarnings.clear();
+    }
+  }
+
+  private void saveWarning(SensorContext context, InputFile target, Warning w, String msg) {
+    LOG.debug("Warning File {} - Line {} - Message {}", new Object[] {target.relativePath(), w.line, w.msg});
+    synchronized (context) {
+      NewIssue issue = context.newIssue().forRule(getRuleKey(context, w.msgNum));
+      NewIssueLocation location = issue.newLocation().on(target);
+      if (w.line > 0) {
+        location.at(target.selectLine(w.line));
+      }
+      location.message(msg);
+      issue.at(location).save();
+    }
+  }
+
+  /**
+   * Specific rule for this message number if active, generic compiler warning rule otherwise
+   */
+  private RuleKey getRuleKey(SensorContext context, int msgNum) {
+    RuleKey ruleKey = ruleKeys.get(msgNum);
+    if (ruleKey == null) {
+      ruleKey = RuleKey.of(OpenEdgeRulesDefinition.REPOSITORY_KEY,
+          OpenEdgeRulesDefinition.COMPILER_WARNING_RULEKEY + "." + msgNum);
+      if (context.activeRules().find(ruleKey) == null) {
+        ruleKey = DEFAULT_WARNING_RULEKEY;
+      }
+      ruleKeys.putIfAbsent(msgNum, ruleKey);
+    }
+    return ruleKey;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName();
+  }
+
+  private static class IncludeWarning {
+    private final InputFile file;
+    private final InputFile target;
+    private final Warning warning;
+
+    private IncludeWarning(InputFile file, InputFile target, Warning warning) {
+      this.file = file;
+      this.target = target;
+      this.warning = warning;
     }
-    LOG.info("{} warning files imported", warningsImportNum);
   }
 
-  private class WarningsProcessor implements LineProcessor<List<Warning>> {
-    private List<Warning> results = new ArrayList<>();
+  private static class Warning {
+    private final String file;
+    private final int line;
+    private final String msg;
+    private final int msgNum;
 
-    @Override
-    public boolean processLine(String line) throws IOException {
+    private Warning(String file, int line, String msg, int msgNum) {
+      this.file = file;
+      this.line = line;
+      this.msg = msg;
+      this.msgNum = msgNum;
+    }
+
+    /**
+     * Line format is: [line number] [file name] message (message number)
+     * 
+     * @return Null if line can't be parsed
+     */
+    static Warning parse(String line) {
       // Closing bracket after line number
       int pos1 = line.indexOf(']', 1);
       if (pos1 == -1)
-        return true;
+        return null;
       // Closing bracket after file name
       int pos2 = line.indexOf(']', pos1 + 2);
+      if ((pos2 == -1) || (pos1 + 3 > pos2))
+        return null;
       // Line number
       Integer lineNumber = Ints.tryParse(line.substring(1, pos1));
       // Trying to get Progress message number
       int lastOpeningParen = line.lastIndexOf('(');
       int lastClosingParen = line.lastIndexOf(')');
       Integer msgNum = -1;
-      if ((lastOpeningParen > -1) && (lastClosingParen > -1)) {
+      if ((lastOpeningParen > -1) && (lastClosingParen > lastOpeningParen)) {
         msgNum = Ints.tryParse(line.substring(lastOpeningParen + 1, lastClosingParen));
       }
-      String fileName = line.substring(pos1 + 3, pos2);
-      results.add(new Warning(fileName, lineNumber == null ? 0 : lineNumber, line.substring(pos2 + 2), msgNum == null ? -1 : msgNum));
-
-      return true;
-    }
-
-    @Override
-    public List<Warning> getResult() {
-      return results;
-    }
-  }
-
-  private class Warning {
-    private String file;
-    private int line;
-    private String msg;
-    private int msgNum;
-
-    public Warning(String file, int line, String msg, int msgNum) {
-      this.file = file;
-      this.line = line;
-      this.msg = msg;
-      this.msgNum = msgNum;
+      return new Warning(line.substring(pos1 + 3, pos2), lineNumber == null ? 0 : lineNumber,
+          pos2 + 2 <= line.length() ? line.substring(pos2 + 2) : "", msgNum == null ? -1 : msgNum);
     }
   }
 
@@ -21,9 +21,22 @@ package org.sonar.plugins.openedge.sensor;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -31,20 +44,33 @@ import javax.xml.parsers.ParserConfigurationException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.DependedUpon;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.rule.ActiveRule;
 import org.sonar.api.batch.sensor.Sensor;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.plugins.openedge.api.checks.OpenEdgeCheck;
 import org.sonar.plugins.openedge.api.checks.OpenEdgeXrefCheck;
+import org.sonar.plugins.openedge.api.checks.OpenEdgeXrefFileCheck;
+import org.sonar.plugins.openedge.api.xref.XrefFile;
+import org.sonar.plugins.openedge.api.xref.XrefReader;
 import org.sonar.plugins.openedge.foundation.OpenEdge;
 import org.sonar.plugins.openedge.foundation.OpenEdgeComponents;
-import org.sonar.plugins.openedge.foundation.OpenEdgeProjectHelper;
 import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
+import org.sonar.plugins.openedge.foundation.PctManifest;
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
+/**
+ * XREF files are parsed and analyzed on a bounded thread pool. Parsers are not thread-safe, so there's one parser per
+ * thread. Checks are not expected to be thread-safe either, and may access the sensor context or the file system
+ * directly, so they're executed on the sensor thread, unless they opt in to concurrent execution with
+ * {@link OpenEdgeCheck#isThreadSafe()}. Worker threads hand over parsed XREF files to the sensor thread through a
+ * bounded queue, so that only a few parsed files are kept in memory at the same time.
+ */
+@DependedUpon(OpenEdgeIssueWeightSensor.CHECKS_EXECUTED)
 public class OpenEdgeXREFSensor implements Sensor {
   private static final Logger LOG = LoggerFactory.getLogger(OpenEdgeXREFSensor.class);
 
@@ -52,22 +78,46 @@ public class OpenEdgeXREFSensor implements Sensor {
   private final FileSystem fileSystem;
   private final OpenEdgeSettings settings;
   private final OpenEdgeComponents components;
+  private final PctManifest manifest;
 
   // Internal use
-  private final DocumentBuilderFactory dbFactory;
-  private final DocumentBuilder dBuilder;
+  private final DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+  private final ThreadLocal<DocumentBuilder> dBuilder = new ThreadLocal<DocumentBuilder>() {
+    @Override
+    protected DocumentBuilder initialValue() {
+      // DocumentBuilderFactory is not thread-safe
+      synchronized (dbFactory) {
+        try {
+          return dbFactory.newDocumentBuilder();
+        } catch (ParserConfigurationException caught) {
+          throw new RuntimeException(caught);
+        }
+      }
+    }
+  };
+  private final ThreadLocal<XrefReader> xrefReader = new ThreadLocal<XrefReader>() {
+    @Override
+    protected XrefReader initialValue() {
+      return new XrefReader();
+    }
+  };
+
+  // Statistics, updated from worker threads
+  private final AtomicInteger xrefNum = new AtomicInteger();
+  private final AtomicLong domParseTime = new AtomicLong();
+  private final AtomicLong parseTime = new AtomicLong();
+  private final ConcurrentMap<String, AtomicLong> ruleTime = new ConcurrentHashMap<>();
 
-  public OpenEdgeXREFSensor(OpenEdgeSettings settings, FileSystem fileSystem, OpenEdgeComponents components) {
+  // Checks executed on the sensor thread, queued by worker threads
+  private Thread sensorThread;
+  private BlockingQueue<Runnable> sensorThreadTasks;
+
+  public OpenEdgeXREFSensor(OpenEdgeSettings settings, FileSystem fileSystem, OpenEdgeComponents components,
+      PctManifest manifest) {
     this.fileSystem = fileSystem;
     this.settings = settings;
     this.components = components;
-
-    this.dbFactory = DocumentBuilderFactory.newInstance();
-    try {
-      this.dBuilder = dbFactory.newDocumentBuilder();
-    } catch (ParserConfigurationException caught) {
-      throw new RuntimeException(caught);
-    }
+    this.manifest = manifest;
   }
 
   @Override
@@ -75,61 +125,179 @@ public class OpenEdgeXREFSensor implements Sensor {
     descriptor.onlyOnLanguage(OpenEdge.KEY).name(getClass().getSimpleName());
   }
 
-  private File getXrefFile(File file) {
-    String relPath = OpenEdgeProjectHelper.getPathRelativeToSourceDirs(file, settings.getSourceDirs());
-    if (relPath == null)
-      return null;
-    return new File(settings.getPctDir(), relPath + ".xref");
-  }
-
   @Override
   public void execute(SensorContext context) {
-    int xrefNum = 0;
-    Map<String, Long> ruleTime = new HashMap<>();
-    long parseTime = 0L;
+    // Single pass import by OpenEdgePctSensor by default
+    if (!settings.useSeparatePctSensors())
+      return;
+    if (!initialize(context))
+      return;
+
+    ExecutorService service = Executors.newFixedThreadPool(settings.getNumThreads());
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (final InputFile file : fileSystem.inputFiles(fileSystem.predicates().hasLanguage(OpenEdge.KEY))) {
+        futures.add(service.submit(new Runnable() {
+          @Override
+          public void run() {
+            analyzeFile(file);
+          }
+        }));
+      }
+      waitForCompletion(futures);
+    } catch (InterruptedException caught) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException caught) {
+      LOG.error("Error during XREF analysis", caught.getCause());
+    } finally {
+      service.shutdownNow();
+    }
+
+    logStatistics();
+  }
+
+  /**
+   * Reset statistics and initialize checks
+   * 
+   * @return False if there's no active XREF rule, in which case {@link #analyzeFile(InputFile)} shouldn't be called
+   */
+  boolean initialize(SensorContext context) {
+    xrefNum.set(0);
+    domParseTime.set(0);
+    parseTime.set(0);
+    ruleTime.clear();
+    sensorThread = Thread.currentThread();
+    sensorThreadTasks = new ArrayBlockingQueue<>(settings.getNumThreads());
     components.initializeChecks(context);
     for (Map.Entry<ActiveRule, OpenEdgeXrefCheck> entry : components.getXrefRules().entrySet()) {
-      ruleTime.put(entry.getKey().ruleKey().toString(), 0L);
+      ruleTime.put(entry.getKey().ruleKey().toString(), new AtomicLong());
+    }
+    for (Map.Entry<ActiveRule, OpenEdgeXrefFileCheck> entry : components.getXrefFileRules().entrySet()) {
+      ruleTime.put(entry.getKey().ruleKey().toString(), new AtomicLong());
+    }
+    // DOM is only built for legacy checks
+    if (components.getXrefRules().isEmpty() && components.getXrefFileRules().isEmpty()) {
+      LOG.info("No active XREF rule, skipping XREF analysis");
+      return false;
     }
+    return true;
+  }
 
-    for (InputFile file : fileSystem.inputFiles(fileSystem.predicates().hasLanguage(OpenEdge.KEY))) {
-      LOG.debug("Looking for XREF of {}", file.relativePath());
+  /**
+   * Waits for completion of all tasks submitted to the thread pool, while executing checks queued for the sensor
+   * thread. Has to be called from the sensor thread.
+   */
+  void waitForCompletion(List<Future<?>> futures) throws InterruptedException, ExecutionException {
+    for (Future<?> future : futures) {
+      while (!future.isDone()) {
+        Runnable task = sensorThreadTasks.poll(10, TimeUnit.MILLISECONDS);
+        if (task != null) {
+          task.run();
+        }
+      }
+      future.get();
+    }
+    // Tasks queued just before completion of the last files
+    Runnable task;
+    while ((task = sensorThreadTasks.poll()) != null) {
+      task.run();
+    }
+  }
+
+  void logStatistics() {
+    LOG.info("{} XREF files imported", xrefNum.get());
+    LOG.info("XREF StAX Parse | time={} ms", parseTime.get());
+    LOG.info("XREF DOM Parse | time={} ms", domParseTime.get());
+    for (Entry<String, AtomicLong> entry : ruleTime.entrySet()) {
+      LOG.info("Rule {} | time={} ms", new Object[] {entry.getKey(), entry.getValue().get()});
+    }
+  }
+
+  /**
+   * Execute all XREF checks on one source file. Can be called from multiple threads.
+   */
+  void analyzeFile(InputFile file) {
+    LOG.debug("Looking for XREF of {}", file.relativePath());
 
-      File xrefFile = getXrefFile(file.file());
-      if ((xrefFile != null) && xrefFile.exists()) {
-        LOG.debug("Parsing XML XREF file {}", xrefFile.getAbsolutePath());
+    File xrefFile = manifest.getXrefFile(file);
+    if (xrefFile == null) {
+      return;
+    }
+    LOG.debug("Parsing XML XREF file {}", xrefFile.getAbsolutePath());
+    try {
+      if (!components.getXrefFileRules().isEmpty()) {
+        long startTime = System.currentTimeMillis();
+        XrefFile xref = xrefReader.get().read(xrefFile);
+        parseTime.addAndGet(System.currentTimeMillis() - startTime);
+
+        executeChecks(components.getXrefFileRules(), file, xref);
+      }
+      if (!components.getXrefRules().isEmpty()) {
+        long startTime = System.currentTimeMillis();
+        Document doc = dBuilder.get().parse(xrefFile);
+        domParseTime.addAndGet(System.currentTimeMillis() - startTime);
+
+        executeChecks(components.getXrefRules(), file, doc);
+      }
+
+      xrefNum.incrementAndGet();
+    } catch (SAXException | IOException caught) {
+      LOG.error("Unable to parse file " + xrefFile.getAbsolutePath(), caught);
+    } catch (RuntimeException caught) {
+      logRuntimeException(caught);
+    }
+  }
+
+  /**
+   * Thread-safe checks are executed on the current thread, other checks are queued for the sensor thread
+   */
+  private <T, C extends OpenEdgeCheck<T>> void executeChecks(Map<ActiveRule, C> checks, final InputFile file,
+      final T obj) {
+    final Map<ActiveRule, C> sensorThreadChecks = new LinkedHashMap<>();
+    for (Map.Entry<ActiveRule, C> entry : checks.entrySet()) {
+      if (entry.getValue().isThreadSafe()) {
+        executeCheck(entry.getKey(), entry.getValue(), file, obj);
+      } else {
+        sensorThreadChecks.put(entry.getKey(), entry.getValue());
+      }
+    }
+    if (sensorThreadChecks.isEmpty())
+      return;
+    Runnable task = new Runnable() {
+      @Override
+      public void run() {
         try {
-          long startTime = System.currentTimeMillis();
-          Document doc = dBuilder.parse(xrefFile);
-          parseTime += (System.currentTimeMillis() - startTime);
-
-          for (Map.Entry<ActiveRule, OpenEdgeXrefCheck> entry : components.getXrefRules().entrySet()) {
-            LOG.debug("ActiveRule - Internal key {} - Repository {} - Rule {}",
-                new Object[] {
-                    entry.getKey().internalKey(), entry.getKey().ruleKey().repository(),
-                    entry.getKey().ruleKey().rule()});
-            startTime = System.currentTimeMillis();
-            entry.getValue().execute(file, doc);
-            ruleTime.put(entry.getKey().ruleKey().toString(),
-                ruleTime.get(entry.getKey().ruleKey().toString()) + System.currentTimeMillis() - startTime);
+          for (Map.Entry<ActiveRule, C> entry : sensorThreadChecks.entrySet()) {
+            executeCheck(entry.getKey(), entry.getValue(), file, obj);
           }
-
-          xrefNum++;
-        } catch (SAXException | IOException caught) {
-          LOG.error("Unable to parse file " + xrefFile.getAbsolutePath(), caught);
         } catch (RuntimeException caught) {
-          LOG.error("Runtime exception was caught '{}' - Please report this issue : ", caught.getMessage());
-          for (StackTraceElement element : caught.getStackTrace()) {
-            LOG.error("  {}", element.toString());
-          }
+          logRuntimeException(caught);
         }
       }
+    };
+    if (Thread.currentThread() == sensorThread) {
+      task.run();
+    } else {
+      try {
+        sensorThreadTasks.put(task);
+      } catch (InterruptedException caught) {
+        Thread.currentThread().interrupt();
+      }
     }
+  }
+
+  private <T> void executeCheck(ActiveRule rule, OpenEdgeCheck<T> check, InputFile file, T obj) {
+    LOG.debug("ActiveRule - Internal key {} - Repository {} - Rule {}",
+        new Object[] {rule.internalKey(), rule.ruleKey().repository(), rule.ruleKey().rule()});
+    long startTime = System.currentTimeMillis();
+    check.execute(file, obj);
+    ruleTime.get(rule.ruleKey().toString()).addAndGet(System.currentTimeMillis() - startTime);
+  }
 
-    LOG.info("{} XREF files imported", xrefNum);
-    LOG.info("XREF DOM Parse | time={} ms", parseTime);
-    for (Entry<String, Long> entry : ruleTime.entrySet()) {
-      LOG.info("Rule {} | time={} ms", new Object[] {entry.getKey(), entry.getValue()});
+  private static void logRuntimeException(RuntimeException caught) {
+    LOG.error("Runtime exception was caught '{}' - Please report this issue : ", caught.getMessage());
+    for (StackTraceElement element : caught.getStackTrace()) {
+      LOG.error("  {}", element.toString());
     }
   }
 
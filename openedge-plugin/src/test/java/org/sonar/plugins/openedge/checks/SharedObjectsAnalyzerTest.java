@@ -0,0 +1,121 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (C) 2016 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.checks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.InputFile.Type;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.internal.google.common.io.Files;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.plugins.openedge.api.xref.XrefFile;
+import org.sonar.plugins.openedge.api.xref.XrefReader;
+import org.sonar.plugins.openedge.api.xref.XrefReference;
+import org.sonar.plugins.openedge.foundation.OpenEdge;
+import org.sonar.plugins.openedge.foundation.OpenEdgeMetrics;
+import org.sonar.plugins.openedge.foundation.OpenEdgeRulesDefinition;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.w3c.dom.Document;
+
+public class SharedObjectsAnalyzerTest {
+  private final File moduleBaseDir = new File("src/test/resources/project1");
+  private final static String FILE1 = "src/procedures/test1.p";
+  private final static String FILE1_KEY = "file1:src/procedures/test1.p";
+  private final static String XREF1 = "build/.pct/procedures/test1.p.xref";
+  private final static String[] METRICS = {
+      OpenEdgeMetrics.SHR_TT_KEY, OpenEdgeMetrics.SHR_DS_KEY, OpenEdgeMetrics.SHR_VAR_KEY,
+      OpenEdgeMetrics.SHR_BUFFER_KEY, OpenEdgeMetrics.SHR_FRAME_KEY};
+
+  @Test
+  public void testXrefFile() throws IOException {
+    SensorContextTester context = createContext();
+    InputFile file = context.fileSystem().inputFile(context.fileSystem().predicates().hasRelativePath(FILE1));
+    XrefFile xref = new XrefReader().read(new File(moduleBaseDir, XREF1));
+
+    createCheck(context).execute(file, xref);
+    Assert.assertEquals(context.measure(FILE1_KEY, OpenEdgeMetrics.SHR_VAR_KEY).value(), 1);
+    Assert.assertEquals(context.measure(FILE1_KEY, OpenEdgeMetrics.SHR_BUFFER_KEY).value(), 1);
+    Assert.assertEquals(context.measure(FILE1_KEY, OpenEdgeMetrics.SHR_FRAME_KEY).value(), 2);
+    Assert.assertEquals(context.measure(FILE1_KEY, OpenEdgeMetrics.SHR_TT_KEY).value(), 0);
+    Assert.assertEquals(context.measure(FILE1_KEY, OpenEdgeMetrics.SHR_DS_KEY).value(), 0);
+  }
+
+  @Test
+  public void testSameAsDom() throws Exception {
+    SensorContextTester context1 = createContext();
+    InputFile file1 = context1.fileSystem().inputFile(context1.fileSystem().predicates().hasRelativePath(FILE1));
+    XrefFile xref = new XrefReader().read(new File(moduleBaseDir, XREF1));
+    createCheck(context1).execute(file1, xref);
+
+    SensorContextTester context2 = createContext();
+    InputFile file2 = context2.fileSystem().inputFile(context2.fileSystem().predicates().hasRelativePath(FILE1));
+    Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new File(moduleBaseDir, XREF1));
+    createCheck(context2).execute(file2, doc);
+
+    for (String metric : METRICS) {
+      Assert.assertEquals(context2.measure(FILE1_KEY, metric).value(), context1.measure(FILE1_KEY, metric).value(),
+          metric);
+    }
+    Assert.assertEquals(context2.measure(FILE1_KEY, OpenEdgeMetrics.SHR_FRAME_KEY).value(), 2);
+  }
+
+  @Test
+  public void testAllCounters() throws IOException {
+    SensorContextTester context = createContext();
+    InputFile file = context.fileSystem().inputFile(context.fileSystem().predicates().hasRelativePath(FILE1));
+    // All counters are computed in the same pass, unknown and missing reference types are skipped
+    XrefFile xref = new XrefFile();
+    for (String type : new String[] {
+        "NEW-SHR-TEMPTABLE", "NEW-SHR-DATASET", "NEW-SHR-DATASET", "SHR-VARIABLE", "NEW-SHR-VARIABLE",
+        "NEW-SHR-BUFFER", "NEW-SHR-BUFFER", "NEW-SHR-BUFFER", "NEW-SHR-FRAME", "SEARCH", null}) {
+      xref.addReference(new XrefReference(type, "obj", FILE1));
+    }
+
+    createCheck(context).execute(file, xref);
+    Assert.assertEquals(context.measure(FILE1_KEY, OpenEdgeMetrics.SHR_TT_KEY).value(), 1);
+    Assert.assertEquals(context.measure(FILE1_KEY, OpenEdgeMetrics.SHR_DS_KEY).value(), 2);
+    Assert.assertEquals(context.measure(FILE1_KEY, OpenEdgeMetrics.SHR_VAR_KEY).value(), 1);
+    Assert.assertEquals(context.measure(FILE1_KEY, OpenEdgeMetrics.SHR_BUFFER_KEY).value(), 3);
+    Assert.assertEquals(context.measure(FILE1_KEY, OpenEdgeMetrics.SHR_FRAME_KEY).value(), 1);
+  }
+
+  private static SharedObjectsAnalyzer createCheck(SensorContextTester context) {
+    return new SharedObjectsAnalyzer(
+        RuleKey.of(OpenEdgeRulesDefinition.REPOSITORY_KEY, SharedObjectsAnalyzer.class.getCanonicalName()), context,
+        null, "");
+  }
+
+  private SensorContextTester createContext() throws IOException {
+    SensorContextTester context = SensorContextTester.create(moduleBaseDir);
+    context.fileSystem().add(
+        new DefaultInputFile("file1", FILE1).setLanguage(OpenEdge.KEY).setType(Type.MAIN).initMetadata(
+            Files.toString(new File(moduleBaseDir, FILE1), Charset.defaultCharset())));
+
+    return context;
+  }
+
+}
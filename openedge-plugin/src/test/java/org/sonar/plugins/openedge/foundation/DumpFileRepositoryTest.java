@@ -0,0 +1,143 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (C) 2016 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.foundation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.InputFile.Type;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.internal.google.common.io.Files;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.plugins.openedge.OpenEdgePlugin;
+import org.sonar.plugins.openedge.api.CheckRegistrar;
+import org.sonar.plugins.openedge.api.InputFileIndex;
+import org.sonar.plugins.openedge.api.LicenceRegistrar.Licence;
+import org.sonar.plugins.openedge.api.checks.OpenEdgeDumpFileCheck;
+import org.sonar.plugins.openedge.api.checks.OpenEdgeProparseCheck;
+import org.sonar.plugins.openedge.api.checks.OpenEdgeXrefCheck;
+import org.sonar.plugins.openedge.api.org.antlr.v4.runtime.tree.ParseTree;
+import org.sonar.plugins.openedge.sensor.OpenEdgeDBRulesSensor;
+import org.sonar.plugins.openedge.sensor.OpenEdgeDBSensor;
+import org.sonar.plugins.openedge.sensor.TestServer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class DumpFileRepositoryTest {
+  private final File moduleBaseDir = new File("src/test/resources/project1");
+  private final File cacheDir = new File("target/schema-cache-df");
+  private final static String FILE1 = "src/schema/sp2k.df";
+
+  @Test
+  public void testParsedOnceWithDFRules() throws IOException {
+    SensorContextTester context = createContext(true);
+    OpenEdgeComponents components = createComponents(context);
+    Assert.assertTrue(components.hasDumpFileChecks());
+    DumpFileRepository dumpFiles = new DumpFileRepository(components);
+
+    // Schema, metrics and DF rules share the same ParseTree
+    OpenEdgeSettings oeSettings = new OpenEdgeSettings(context.settings(), context.fileSystem(), dumpFiles);
+    new OpenEdgeDBSensor(context.fileSystem(), dumpFiles, oeSettings).execute(context);
+    new OpenEdgeDBRulesSensor(context.fileSystem(), components, dumpFiles, oeSettings).execute(context);
+    Assert.assertEquals(dumpFiles.getNumParses(), 1);
+    Assert.assertEquals(TestDFCheck.files, Collections.singleton(FILE1));
+
+    // ParseTree released by DF rules, description still available
+    Assert.assertEquals(dumpFiles.getDatabaseDescription(new File(moduleBaseDir, FILE1)).getTables().size(), 25);
+    Assert.assertEquals(dumpFiles.getNumParses(), 1);
+    dumpFiles.getParseTree(new File(moduleBaseDir, FILE1));
+    Assert.assertEquals(dumpFiles.getNumParses(), 2);
+  }
+
+  @Test
+  public void testNoDFRules() throws IOException {
+    SensorContextTester context = createContext(false);
+    OpenEdgeComponents components = createComponents(context);
+    Assert.assertFalse(components.hasDumpFileChecks());
+    DumpFileRepository dumpFiles = new DumpFileRepository(components);
+
+    OpenEdgeSettings oeSettings = new OpenEdgeSettings(context.settings(), context.fileSystem(), dumpFiles);
+    new OpenEdgeDBSensor(context.fileSystem(), dumpFiles, oeSettings).execute(context);
+    new OpenEdgeDBRulesSensor(context.fileSystem(), components, dumpFiles, oeSettings).execute(context);
+    Assert.assertEquals(dumpFiles.getNumParses(), 1);
+
+    // ParseTree not kept once description is built
+    dumpFiles.getParseTree(new File(moduleBaseDir, FILE1));
+    Assert.assertEquals(dumpFiles.getNumParses(), 2);
+  }
+
+  private OpenEdgeComponents createComponents(SensorContextTester context) {
+    return new OpenEdgeComponents(context.activeRules(), new TestServer(), new InputFileIndex(context.fileSystem()),
+        new CheckRegistrar[] {new TestRegistrar()}, null, null);
+  }
+
+  private SensorContextTester createContext(boolean dfRule) throws IOException {
+    if (cacheDir.exists()) {
+      for (File f : cacheDir.listFiles()) {
+        f.delete();
+      }
+    }
+    SensorContextTester context = SensorContextTester.create(moduleBaseDir);
+    context.settings().setProperty("sonar.sources", "src");
+    context.settings().setProperty("sonar.oe.binaries", "build");
+    context.settings().setProperty(OpenEdgePlugin.DATABASES, FILE1);
+    context.settings().setProperty(OpenEdgePlugin.SCHEMA_CACHE, cacheDir.getAbsolutePath());
+    context.fileSystem().add(
+        new DefaultInputFile("file1", FILE1).setLanguage(OpenEdgeDB.KEY).setType(Type.MAIN).initMetadata(
+            Files.toString(new File(moduleBaseDir, FILE1), Charset.defaultCharset())));
+    if (dfRule) {
+      context.setActiveRules(new ActiveRulesBuilder().create(RuleKey.of(OpenEdgeRulesDefinition.REPOSITORY_KEY,
+          TestDFCheck.class.getCanonicalName())).setLanguage(OpenEdge.KEY).activate().build());
+    }
+
+    return context;
+  }
+
+  private static class TestRegistrar implements CheckRegistrar {
+    @Override
+    public void register(RegistrarContext registrarContext) {
+      registrarContext.registerClassesForRepository(OpenEdgeRulesDefinition.REPOSITORY_KEY,
+          Collections.<Class<? extends OpenEdgeXrefCheck>> emptyList(),
+          Collections.<Class<? extends OpenEdgeProparseCheck>> emptyList(),
+          Collections.<Class<? extends OpenEdgeDumpFileCheck>> singletonList(TestDFCheck.class));
+    }
+  }
+
+  public static class TestDFCheck extends OpenEdgeDumpFileCheck {
+    private static final Set<String> files = new HashSet<>();
+
+    public TestDFCheck(RuleKey ruleKey, SensorContext context, Licence licence, String serverId) {
+      super(ruleKey, context, licence, serverId);
+    }
+
+    @Override
+    public void execute(InputFile file, ParseTree tree) {
+      files.add(file.relativePath());
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (C) 2016 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.foundation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.sonar.api.profiles.RulesProfile;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.RuleFinder;
+import org.sonar.api.rules.RuleQuery;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.server.rule.RulesDefinition;
+import org.sonar.api.utils.ValidationMessages;
+import org.sonar.check.Priority;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("deprecation")
+public class OpenEdgeRulesDefinitionTest {
+
+  @Test
+  public void testRepository() {
+    RulesDefinition.Repository repository = createRepository();
+    Assert.assertNotNull(repository);
+    Assert.assertNotNull(repository.rule(OpenEdgeRulesDefinition.LARGE_TRANSACTION_SCOPE));
+
+    RulesDefinition.Rule rule = repository.rule(OpenEdgeRulesDefinition.PERFORMANCE_REGRESSION_RULEKEY);
+    Assert.assertNotNull(rule);
+    Assert.assertEquals(rule.name(), "Performance regression");
+    Assert.assertEquals(rule.severity(), Priority.MAJOR.name());
+    Assert.assertEquals(rule.type(), RuleType.CODE_SMELL);
+    Assert.assertNotNull(rule.debtRemediationFunction());
+    Assert.assertTrue(rule.htmlDescription().contains("sonar.oe.profiler.regression.threshold"));
+  }
+
+  @Test
+  public void testProfile() {
+    final RulesDefinition.Repository repository = createRepository();
+    RuleFinder ruleFinder = new RuleFinder() {
+      @Override
+      public Rule findByKey(String repositoryKey, String key) {
+        RulesDefinition.Rule rule = repository.rule(key);
+        return rule == null ? null : Rule.create(repositoryKey, key, rule.name());
+      }
+
+      @Override
+      public Rule findByKey(RuleKey key) {
+        return findByKey(key.repository(), key.rule());
+      }
+
+      @Override
+      public Rule findById(int ruleId) {
+        return null;
+      }
+
+      @Override
+      public Rule find(RuleQuery query) {
+        return null;
+      }
+
+      @Override
+      public Collection<Rule> findAll(RuleQuery query) {
+        return new ArrayList<>();
+      }
+    };
+    RulesProfile profile = new OpenEdgeProfile(ruleFinder).createProfile(ValidationMessages.create());
+
+    Assert.assertNotNull(profile.getActiveRule(OpenEdgeRulesDefinition.REPOSITORY_KEY,
+        OpenEdgeRulesDefinition.PERFORMANCE_REGRESSION_RULEKEY));
+    Assert.assertNotNull(profile.getActiveRule(OpenEdgeRulesDefinition.REPOSITORY_KEY,
+        OpenEdgeRulesDefinition.LARGE_TRANSACTION_SCOPE));
+  }
+
+  private static RulesDefinition.Repository createRepository() {
+    RulesDefinition.Context context = new RulesDefinition.Context();
+    new OpenEdgeRulesDefinition().define(context);
+    return context.repository(OpenEdgeRulesDefinition.REPOSITORY_KEY);
+  }
+
+}
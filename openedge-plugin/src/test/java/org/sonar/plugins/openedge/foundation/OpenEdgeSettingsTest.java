@@ -0,0 +1,75 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (C) 2016 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.foundation;
+
+import java.io.File;
+
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.plugins.openedge.OpenEdgePlugin;
+import org.sonar.plugins.openedge.api.org.prorefactor.core.schema.Schema;
+import org.sonar.plugins.openedge.api.org.prorefactor.core.schema.Table;
+import org.sonar.plugins.openedge.api.org.prorefactor.treeparser.DataType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class OpenEdgeSettingsTest {
+  private final File moduleBaseDir = new File("src/test/resources/project1");
+  private final File cacheDir = new File("target/schema-cache");
+
+  @Test
+  public void testSchema() throws Exception {
+    if (cacheDir.exists()) {
+      for (File f : cacheDir.listFiles()) {
+        f.delete();
+      }
+    }
+    // First analysis builds schema from dump file, and writes snapshot
+    Schema schema1 = createSettings().getProparseSession().getSchema();
+    checkSchema(schema1);
+    Assert.assertEquals(cacheDir.listFiles().length, 1);
+
+    // Second analysis reads snapshot
+    Schema schema2 = createSettings().getProparseSession().getSchema();
+    checkSchema(schema2);
+  }
+
+  private OpenEdgeSettings createSettings() {
+    SensorContextTester context = SensorContextTester.create(moduleBaseDir);
+    context.settings().setProperty("sonar.sources", "src");
+    context.settings().setProperty("sonar.oe.binaries", "build");
+    context.settings().setProperty(OpenEdgePlugin.DATABASES, "src/schema/sp2k.df");
+    context.settings().setProperty(OpenEdgePlugin.SCHEMA_CACHE, cacheDir.getAbsolutePath());
+    return new OpenEdgeSettings(context.settings(), context.fileSystem(), new DumpFileRepository());
+  }
+
+  private static void checkSchema(Schema schema) {
+    Assert.assertNotNull(schema.lookupDatabase("sp2k"));
+    Assert.assertNotNull(schema.lookupDatabase("dictdb"));
+    Table customer = schema.lookupTable("sp2k", "customer");
+    Assert.assertNotNull(customer);
+    Assert.assertEquals(customer.getFieldPosOrder().size(), 18);
+    Assert.assertEquals(customer.getFieldPosOrder().get(0).getName(), "CustNum");
+    Assert.assertEquals(customer.lookupField("custnum").getDataType(), DataType.INTEGER);
+    Assert.assertEquals(customer.lookupField("custnum").getExtent(), 0);
+    Table salesrep = schema.lookupTable("sp2k", "salesrep");
+    Assert.assertNotNull(salesrep);
+    Assert.assertEquals(salesrep.lookupField("monthquota").getExtent(), 12);
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (C) 2016 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.foundation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class PLReaderTest {
+  private final File plFile = new File("target/test.pl");
+
+  @Test
+  public void testEntries() throws IOException {
+    writeLibrary(plFile);
+    try (PLReader reader = new PLReader(plFile)) {
+      List<FileEntry> entries = reader.getFileList();
+      Assert.assertEquals(entries.size(), 2);
+      Assert.assertEquals(entries.get(0).getFileName(), "a.r");
+      Assert.assertEquals(entries.get(1).getFileName(), "dir/b.r");
+      Assert.assertEquals(entries.get(1).getModDate(), 1500000000000L);
+      Assert.assertSame(reader.getEntry("dir/b.r"), entries.get(1));
+      Assert.assertNull(reader.getEntry("b.r"));
+
+      ByteBuffer content = reader.getContent(reader.getEntry("dir/b.r"));
+      Assert.assertTrue(content.isReadOnly());
+      Assert.assertEquals(content.remaining(), 6);
+      Assert.assertEquals(content.get(0), (byte) 'W');
+
+      try (InputStream input = reader.getInputStream(reader.getEntry("a.r"))) {
+        byte[] bytes = new byte[10];
+        Assert.assertEquals(input.read(bytes), 5);
+        Assert.assertEquals(new String(bytes, 0, 5, StandardCharsets.UTF_8), "Hello");
+        Assert.assertEquals(input.read(), -1);
+      }
+    }
+  }
+
+  @Test
+  public void testClose() throws IOException {
+    writeLibrary(plFile);
+    PLReader reader = new PLReader(plFile);
+    FileEntry entry = reader.getEntry("a.r");
+    reader.close();
+    // Entries list is still available, but not the content
+    Assert.assertEquals(reader.getFileList().size(), 2);
+    try {
+      reader.getContent(entry);
+      Assert.fail("Content shouldn't be available once closed");
+    } catch (IllegalStateException expected) {
+      // Nothing
+    }
+    // Mapping is released, file can be replaced and deleted
+    File copy = new File("target/test-copy.pl");
+    writeLibrary(copy);
+    Files.move(copy.toPath(), plFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    Assert.assertTrue(plFile.delete());
+  }
+
+  @Test(expectedExceptions = RuntimeException.class)
+  public void testInvalidFile() throws IOException {
+    File file = new File("target/invalid.pl");
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), "Not a procedure library".getBytes(StandardCharsets.UTF_8));
+    try (PLReader reader = new PLReader(file)) {
+      reader.getFileList();
+    }
+  }
+
+  /**
+   * Writes a v11 procedure library with two entries, separated by padding in the table of contents
+   */
+  private static void writeLibrary(File file) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(0x120);
+    buffer.putShort(0, (short) 0xd70b);
+    buffer.position(0x02);
+    buffer.put("UTF-8".getBytes(StandardCharsets.US_ASCII));
+    buffer.putInt(0x22, 0x40);
+    buffer.position(0x40);
+    putEntry(buffer, "a.r", 0x100, 5);
+    buffer.put(new byte[] {(byte) 0xFE, (byte) 0xFE, (byte) 0xFE});
+    putEntry(buffer, "dir/b.r", 0x110, 6);
+    buffer.position(0x100);
+    buffer.put("Hello".getBytes(StandardCharsets.UTF_8));
+    buffer.position(0x110);
+    buffer.put("World!".getBytes(StandardCharsets.UTF_8));
+
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), buffer.array());
+  }
+
+  private static void putEntry(ByteBuffer buffer, String name, int offset, int size) {
+    byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+    int base = buffer.position() + 2 + bytes.length;
+    buffer.put((byte) 0xFF);
+    buffer.put((byte) bytes.length);
+    buffer.put(bytes);
+    buffer.putInt(base + 6, offset);
+    buffer.putInt(base + 11, size);
+    buffer.putInt(base + 15, 1400000000);
+    buffer.putInt(base + 19, 1500000000);
+    buffer.position(base + 48);
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (C) 2016 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.sensor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.apache.commons.io.FileUtils;
+import org.sonar.api.batch.fs.InputFile.Type;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.sensor.coverage.CoverageType;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.internal.google.common.io.Files;
+import org.sonar.plugins.openedge.OpenEdgePlugin;
+import org.sonar.plugins.openedge.api.InputFileIndex;
+import org.sonar.plugins.openedge.foundation.DebugListingRepository;
+import org.sonar.plugins.openedge.foundation.DumpFileRepository;
+import org.sonar.plugins.openedge.foundation.OpenEdge;
+import org.sonar.plugins.openedge.foundation.OpenEdgeMetrics;
+import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
+import org.sonar.plugins.openedge.foundation.PctManifest;
+import org.sonar.plugins.openedge.foundation.ProfilerData;
+import org.sonar.plugins.openedge.foundation.ProfilerOutputs;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class OpenEdgeCoverageSensorTest {
+  private final File moduleBaseDir = new File("src/test/resources/project1");
+  private final static String FILE2 = "src/procedures/test2.p";
+  private final static String FILE2_KEY = "file2:src/procedures/test2.p";
+  private final static String FILE4 = "src/procedures/test4.p";
+  private final static String FILE4_KEY = "file4:src/procedures/test4.p";
+
+  @Test
+  public void testDirectory() throws IOException {
+    SensorContextTester context = createContext("build/profiler");
+    executeSensor(context);
+
+    Assert.assertEquals(context.lineHits(FILE2_KEY, CoverageType.UNIT, 3), Integer.valueOf(1));
+    Assert.assertEquals(context.lineHits(FILE2_KEY, CoverageType.UNIT, 38), Integer.valueOf(1));
+    Assert.assertEquals(context.lineHits(FILE2_KEY, CoverageType.UNIT, 5), Integer.valueOf(0));
+    Assert.assertEquals(context.lineHits(FILE2_KEY, CoverageType.UNIT, 40), Integer.valueOf(0));
+    Assert.assertNull(context.lineHits(FILE2_KEY, CoverageType.UNIT, 1));
+
+    Assert.assertEquals(context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_CALLS_KEY).value(), 4);
+    Assert.assertEquals((Double) context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_TIME_KEY).value(), 0.000145,
+        0.0000001);
+    Assert.assertEquals(context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_HOT_LINES_KEY).value(),
+        "3=0.000120;4=0.000015;38=0.000010");
+
+    Assert.assertEquals((Double) context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_LATENCY_P50_KEY).value(),
+        0.000004, 0.0000001);
+    Assert.assertEquals((Double) context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_LATENCY_P99_KEY).value(),
+        0.000120, 0.0000001);
+    Assert.assertEquals((Double) context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_LATENCY_MAX_KEY).value(),
+        0.000120, 0.0000001);
+    Assert.assertEquals(context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_SLOW_LINES_KEY).value(),
+        "3=0.000120;38=0.000004");
+  }
+
+  @Test
+  public void testGlob() throws IOException {
+    SensorContextTester context = createContext("build/**/*.prof");
+    executeSensor(context);
+
+    Assert.assertEquals(context.lineHits(FILE2_KEY, CoverageType.UNIT, 4), Integer.valueOf(1));
+    Assert.assertEquals(context.lineHits(FILE2_KEY, CoverageType.UNIT, 33), Integer.valueOf(0));
+
+    Assert.assertEquals(context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_CALLS_KEY).value(), 6);
+    Assert.assertEquals((Double) context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_TIME_KEY).value(), 0.000195,
+        0.0000001);
+    Assert.assertEquals(context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_HOT_LINES_KEY).value(),
+        "3=0.000120;5=0.000030;40=0.000020;4=0.000015;38=0.000010");
+
+    Assert.assertEquals((Double) context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_LATENCY_P50_KEY).value(),
+        0.000004, 0.0000001);
+    Assert.assertEquals((Double) context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_LATENCY_MAX_KEY).value(),
+        0.000120, 0.0000001);
+    Assert.assertEquals(context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_SLOW_LINES_KEY).value(),
+        "3=0.000120;5=0.000030;40=0.000020;38=0.000004");
+  }
+
+  @Test
+  public void testSameFileDifferentNames() throws IOException {
+    // test2.p is 'procedures/test2.p' in first output, and 'src/procedures/test2.p' in second one
+    SensorContextTester context = createContext("build/profiler,profiler/alias");
+    executeSensor(context);
+
+    Assert.assertEquals(context.lineHits(FILE2_KEY, CoverageType.UNIT, 3), Integer.valueOf(1));
+    Assert.assertEquals(context.lineHits(FILE2_KEY, CoverageType.UNIT, 5), Integer.valueOf(1));
+    Assert.assertEquals(context.lineHits(FILE2_KEY, CoverageType.UNIT, 40), Integer.valueOf(1));
+    Assert.assertEquals(context.lineHits(FILE2_KEY, CoverageType.UNIT, 33), Integer.valueOf(0));
+
+    Assert.assertEquals(context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_CALLS_KEY).value(), 6);
+    Assert.assertEquals((Double) context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_TIME_KEY).value(), 0.000195,
+        0.0000001);
+    Assert.assertEquals(context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_HOT_LINES_KEY).value(),
+        "3=0.000120;5=0.000030;40=0.000020;4=0.000015;38=0.000010");
+
+    Assert.assertEquals((Double) context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_LATENCY_P50_KEY).value(),
+        0.000004, 0.0000001);
+    Assert.assertEquals((Double) context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_LATENCY_MAX_KEY).value(),
+        0.000120, 0.0000001);
+    Assert.assertEquals(context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_SLOW_LINES_KEY).value(),
+        "3=0.000120;5=0.000030;40=0.000020;38=0.000004");
+  }
+
+  @Test
+  public void testIncludeFile() throws IOException {
+    // Include file of 3 lines referenced on line 3 of test4.p, profiler lines 4 to 6 are include file lines
+    SensorContextTester context = createContext("profiler/include");
+    context.fileSystem().add(
+        new DefaultInputFile("file4", FILE4).setLanguage(OpenEdge.KEY).setType(Type.MAIN).initMetadata(
+            Files.toString(new File(moduleBaseDir, FILE4), Charset.defaultCharset())));
+    executeSensor(context);
+
+    Assert.assertEquals(context.lineHits(FILE4_KEY, CoverageType.UNIT, 2), Integer.valueOf(1));
+    Assert.assertEquals(context.lineHits(FILE4_KEY, CoverageType.UNIT, 4), Integer.valueOf(0));
+    Assert.assertEquals(context.lineHits(FILE4_KEY, CoverageType.UNIT, 5), Integer.valueOf(1));
+    Assert.assertEquals(context.lineHits(FILE4_KEY, CoverageType.UNIT, 8), Integer.valueOf(0));
+    Assert.assertEquals(context.lineHits(FILE4_KEY, CoverageType.UNIT, 10), Integer.valueOf(1));
+    Assert.assertNull(context.lineHits(FILE4_KEY, CoverageType.UNIT, 3));
+    Assert.assertNull(context.lineHits(FILE4_KEY, CoverageType.UNIT, 7));
+
+    Assert.assertEquals(context.measure(FILE4_KEY, OpenEdgeMetrics.PROFILER_CALLS_KEY).value(), 1);
+    Assert.assertEquals((Double) context.measure(FILE4_KEY, OpenEdgeMetrics.PROFILER_TIME_KEY).value(), 0.000105,
+        0.0000001);
+    Assert.assertEquals(context.measure(FILE4_KEY, OpenEdgeMetrics.PROFILER_HOT_LINES_KEY).value(),
+        "5=0.000050;2=0.000010;10=0.000005");
+    Assert.assertEquals((Double) context.measure(FILE4_KEY, OpenEdgeMetrics.PROFILER_LATENCY_MAX_KEY).value(),
+        0.000040, 0.0000001);
+    Assert.assertEquals(context.measure(FILE4_KEY, OpenEdgeMetrics.PROFILER_SLOW_LINES_KEY).value(),
+        "2=0.000010;5=0.000005;10=0.000005");
+  }
+
+  @Test
+  public void testNoListing() throws IOException {
+    // Profiler lines can't be mapped to source lines
+    SensorContextTester context = createContext("build/profiler");
+    context.settings().setProperty("sonar.oe.binaries", "nobuild");
+    executeSensor(context);
+
+    Assert.assertNull(context.lineHits(FILE2_KEY, CoverageType.UNIT, 3));
+    Assert.assertNull(context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_HOT_LINES_KEY));
+    Assert.assertNull(context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_SLOW_LINES_KEY));
+  }
+
+  @Test
+  public void testCache() throws IOException {
+    File cacheDir = new File("target/profiler-cache");
+    FileUtils.deleteQuietly(cacheDir);
+    for (int zz = 0; zz < 2; zz++) {
+      SensorContextTester context = createContext("build/profiler");
+      context.settings().setProperty(OpenEdgePlugin.PROFILER_CACHE, cacheDir.getAbsolutePath());
+      executeSensor(context);
+
+      Assert.assertEquals(cacheDir.list().length, 1);
+      Assert.assertEquals(context.lineHits(FILE2_KEY, CoverageType.UNIT, 38), Integer.valueOf(1));
+      Assert.assertEquals(context.lineHits(FILE2_KEY, CoverageType.UNIT, 40), Integer.valueOf(0));
+      Assert.assertEquals(context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_CALLS_KEY).value(), 4);
+      Assert.assertEquals(context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_SLOW_LINES_KEY).value(),
+          "3=0.000120;38=0.000004");
+    }
+  }
+
+  @Test
+  public void testNoProfilerOutputs() throws IOException {
+    SensorContextTester context = createContext("");
+    executeSensor(context);
+
+    Assert.assertNull(context.lineHits(FILE2_KEY, CoverageType.UNIT, 3));
+  }
+
+  @Test
+  public void testSharedData() throws IOException {
+    SensorContextTester context = createContext("build/profiler,profiler/alias");
+    OpenEdgeSettings oeSettings = new OpenEdgeSettings(context.settings(), context.fileSystem(), new DumpFileRepository());
+    ProfilerOutputs outputs = new ProfilerOutputs(oeSettings, context.fileSystem(),
+        new InputFileIndex(context.fileSystem()));
+    ProfilerData data = outputs.getData();
+    Assert.assertEquals(data.getNumFiles(), 2);
+    Assert.assertSame(outputs.getData(), data);
+    // No baseline
+    Assert.assertNull(data.getDiff());
+
+    createSensor(context, oeSettings, outputs).execute(context);
+    Assert.assertEquals(context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_CALLS_KEY).value(), 6);
+    // Shared data is not modified when merged by source file
+    Assert.assertSame(outputs.getData(), data);
+    Assert.assertEquals(data.getTiming().getFile("procedures/test2.p").getNumCalls(), 4);
+    Assert.assertEquals(data.getTiming().getFile("src/procedures/test2.p").getNumCalls(), 2);
+  }
+
+  private void executeSensor(SensorContextTester context) {
+    OpenEdgeSettings oeSettings = new OpenEdgeSettings(context.settings(), context.fileSystem(), new DumpFileRepository());
+    ProfilerOutputs outputs = new ProfilerOutputs(oeSettings, context.fileSystem(),
+        new InputFileIndex(context.fileSystem()));
+    createSensor(context, oeSettings, outputs).execute(context);
+  }
+
+  private static OpenEdgeCoverageSensor createSensor(SensorContextTester context, OpenEdgeSettings oeSettings,
+      ProfilerOutputs outputs) {
+    return new OpenEdgeCoverageSensor(oeSettings, outputs,
+        new DebugListingRepository(context.fileSystem(), new PctManifest(oeSettings, context.fileSystem())));
+  }
+
+  private SensorContextTester createContext(String profilerOutputs) throws IOException {
+    SensorContextTester context = SensorContextTester.create(moduleBaseDir);
+    context.settings().setProperty("sonar.sources", "src");
+    context.settings().setProperty("sonar.oe.binaries", "build");
+    context.settings().setProperty(OpenEdgePlugin.PROPATH, "src");
+    context.settings().setProperty(OpenEdgePlugin.PROFILER_OUTPUTS, profilerOutputs);
+    context.fileSystem().add(
+        new DefaultInputFile("file2", FILE2).setLanguage(OpenEdge.KEY).setType(Type.MAIN).initMetadata(
+            Files.toString(new File(moduleBaseDir, FILE2), Charset.defaultCharset())));
+
+    return context;
+  }
+
+}
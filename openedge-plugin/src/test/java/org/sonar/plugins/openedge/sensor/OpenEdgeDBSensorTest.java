@@ -27,8 +27,10 @@ import org.sonar.api.batch.fs.InputFile.Type;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
 import org.sonar.api.internal.google.common.io.Files;
+import org.sonar.plugins.openedge.foundation.DumpFileRepository;
 import org.sonar.plugins.openedge.foundation.OpenEdgeDB;
 import org.sonar.plugins.openedge.foundation.OpenEdgeMetrics;
+import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -39,7 +41,9 @@ public class OpenEdgeDBSensorTest {
   @Test
   public void testSp2k() throws Exception {
     SensorContextTester context = createContext();
-    OpenEdgeDBSensor sensor = new OpenEdgeDBSensor(context.fileSystem());
+    DumpFileRepository dumpFiles = new DumpFileRepository();
+    OpenEdgeSettings oeSettings = new OpenEdgeSettings(context.settings(), context.fileSystem(), dumpFiles);
+    OpenEdgeDBSensor sensor = new OpenEdgeDBSensor(context.fileSystem(), dumpFiles, oeSettings);
     sensor.execute(context);
 
     Assert.assertEquals(context.measure("file1:src/schema/sp2k.df", OpenEdgeMetrics.NUM_TABLES_KEY).value(), 25,
@@ -0,0 +1,99 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (C) 2016 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.sensor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.InputFile.Type;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.internal.google.common.io.Files;
+import org.sonar.plugins.openedge.OpenEdgePlugin;
+import org.sonar.plugins.openedge.api.eu.rssw.listing.DebugListing;
+import org.sonar.plugins.openedge.api.eu.rssw.listing.SourceLineMapping;
+import org.sonar.plugins.openedge.foundation.DebugListingRepository;
+import org.sonar.plugins.openedge.foundation.DumpFileRepository;
+import org.sonar.plugins.openedge.foundation.OpenEdge;
+import org.sonar.plugins.openedge.foundation.OpenEdgeMetrics;
+import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
+import org.sonar.plugins.openedge.foundation.PctManifest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class OpenEdgeDebugListingSensorTest {
+  private final File moduleBaseDir = new File("src/test/resources/project1");
+  private final static String FILE1 = "src/procedures/test1.p";
+  private final static String FILE2 = "src/procedures/test2.p";
+  private final static String FILE2_KEY = "file2:src/procedures/test2.p";
+
+  @Test
+  public void testDebugListing() throws Exception {
+    SensorContextTester context = createContext();
+    OpenEdgeSettings oeSettings = new OpenEdgeSettings(context.settings(), context.fileSystem(),
+        new DumpFileRepository());
+    DebugListingRepository debugListings = new DebugListingRepository(context.fileSystem(),
+        new PctManifest(oeSettings, context.fileSystem()));
+    OpenEdgeDebugListingSensor sensor = new OpenEdgeDebugListingSensor(oeSettings, context.fileSystem(),
+        debugListings);
+    sensor.execute(context);
+
+    // Debug listing of test2.p only
+    Assert.assertNull(context.measure("file1:src/procedures/test1.p", OpenEdgeMetrics.DEBUG_LISTING_LOC_KEY));
+    Assert.assertEquals(context.measure(FILE2_KEY, OpenEdgeMetrics.DEBUG_LISTING_LOC_KEY).value(), 61);
+    Assert.assertEquals(context.measure(FILE2_KEY, OpenEdgeMetrics.DEBUG_LISTING_NCLOC_KEY).value(), 51);
+    Assert.assertEquals(context.measure(FILE2_KEY, OpenEdgeMetrics.DEBUG_LISTING_COMMENT_LINES_KEY).value(), 1);
+    Assert.assertEquals(
+        (Double) context.measure(FILE2_KEY, OpenEdgeMetrics.DEBUG_LISTING_COMMENT_LINES_PERCENTAGE_KEY).value(),
+        100.0 / 52, 0.0001);
+
+    // Line maps read by the sensor are kept for profiler data
+    InputFile file2 = context.fileSystem().inputFile(context.fileSystem().predicates().hasRelativePath(FILE2));
+    DebugListing listing = debugListings.getDebugListing(file2);
+    Assert.assertSame(debugListings.getDebugListing(file2), listing);
+    Assert.assertTrue(listing.isCode(38));
+    SourceLineMapping mapping = debugListings.getSourceLineMapping(file2);
+    Assert.assertEquals(mapping.getLines(), listing.getLines());
+    Assert.assertTrue(mapping.isMainFile(38));
+    Assert.assertEquals(mapping.getSourceLine(38), 38);
+
+    // Compile listing of test1.p is available, but can't be checked against debug listing
+    InputFile file1 = context.fileSystem().inputFile(context.fileSystem().predicates().hasRelativePath(FILE1));
+    Assert.assertNull(debugListings.getDebugListing(file1));
+    Assert.assertEquals(debugListings.getSourceLineMapping(file1).getIncludeFiles().size(), 1);
+  }
+
+  private SensorContextTester createContext() throws IOException {
+    SensorContextTester context = SensorContextTester.create(moduleBaseDir);
+    context.settings().setProperty("sonar.sources", "src");
+    context.settings().setProperty("sonar.oe.binaries", "build");
+    context.settings().setProperty(OpenEdgePlugin.THREADS, "2");
+    context.fileSystem().add(
+        new DefaultInputFile("file1", FILE1).setLanguage(OpenEdge.KEY).setType(Type.MAIN).initMetadata(
+            Files.toString(new File(moduleBaseDir, FILE1), Charset.defaultCharset())));
+    context.fileSystem().add(
+        new DefaultInputFile("file2", FILE2).setLanguage(OpenEdge.KEY).setType(Type.MAIN).initMetadata(
+            Files.toString(new File(moduleBaseDir, FILE2), Charset.defaultCharset())));
+
+    return context;
+  }
+}
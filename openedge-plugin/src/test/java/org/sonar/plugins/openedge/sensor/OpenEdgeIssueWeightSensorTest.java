@@ -0,0 +1,155 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (C) 2013-2016 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.sensor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.sonar.api.batch.DependedUpon;
+import org.sonar.api.batch.DependsUpon;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.InputFile.Type;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.internal.google.common.io.Files;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.plugins.openedge.OpenEdgePlugin;
+import org.sonar.plugins.openedge.api.ExecutionProfile.LineWeight;
+import org.sonar.plugins.openedge.api.InputFileIndex;
+import org.sonar.plugins.openedge.api.checks.OpenEdgeCheck;
+import org.sonar.plugins.openedge.foundation.DebugListingRepository;
+import org.sonar.plugins.openedge.foundation.DumpFileRepository;
+import org.sonar.plugins.openedge.foundation.OpenEdge;
+import org.sonar.plugins.openedge.foundation.OpenEdgeMetrics;
+import org.sonar.plugins.openedge.foundation.OpenEdgeRulesDefinition;
+import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
+import org.sonar.plugins.openedge.foundation.PctManifest;
+import org.sonar.plugins.openedge.foundation.ProfilerIssueWeights;
+import org.sonar.plugins.openedge.foundation.ProfilerOutputs;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class OpenEdgeIssueWeightSensorTest {
+  private final File moduleBaseDir = new File("src/test/resources/project1");
+  private final static String FILE2 = "src/procedures/test2.p";
+  private final static String FILE2_KEY = "file2:src/procedures/test2.p";
+
+  @Test
+  public void testIssueWeights() throws IOException {
+    SensorContextTester context = createContext(true);
+    ProfilerIssueWeights weights = createWeights(context);
+    InputFile file = context.fileSystem().inputFile(context.fileSystem().predicates().hasRelativePath(FILE2));
+
+    LineWeight weight = weights.addIssue(file, file, 38);
+    Assert.assertNotNull(weight);
+    Assert.assertEquals(weight.getExecCount(), 3);
+    Assert.assertEquals(weight.getActualTime(), 0.000010, 0.0000001);
+    // Never executed
+    Assert.assertNull(weights.addIssue(file, file, 5));
+
+    // Issue reported by a check, and second issue on the same line
+    TestCheck check = new TestCheck(context);
+    check.setExecutionProfile(weights);
+    check.reportIssue(file, 3, "Full table scan");
+    check.reportIssue(file, 38, "Another issue");
+    // Message is not changed
+    Assert.assertEquals(context.allIssues().iterator().next().primaryLocation().message(), "Full table scan");
+
+    new OpenEdgeIssueWeightSensor(weights).execute(context);
+    Assert.assertEquals((Double) context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_ISSUES_TIME_KEY).value(),
+        0.000130, 0.0000001);
+    Assert.assertEquals(context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_ISSUE_LINES_KEY).value(),
+        "3=1:0.000120;38=3:0.000010");
+  }
+
+  @Test
+  public void testDisabled() throws IOException {
+    SensorContextTester context = createContext(false);
+    ProfilerIssueWeights weights = createWeights(context);
+    InputFile file = context.fileSystem().inputFile(context.fileSystem().predicates().hasRelativePath(FILE2));
+
+    TestCheck check = new TestCheck(context);
+    check.setExecutionProfile(weights);
+    check.reportIssue(file, 3, "Full table scan");
+    Assert.assertEquals(context.allIssues().iterator().next().primaryLocation().message(), "Full table scan");
+
+    new OpenEdgeIssueWeightSensor(weights).execute(context);
+    Assert.assertNull(context.measure(FILE2_KEY, OpenEdgeMetrics.PROFILER_ISSUES_TIME_KEY));
+  }
+
+  @Test
+  public void testSensorOrder() {
+    String[] dependencies = OpenEdgeIssueWeightSensor.class.getAnnotation(DependsUpon.class).value();
+    for (Class<?> clz : new Class<?>[] {OpenEdgeProparseSensor.class, OpenEdgePctSensor.class,
+        OpenEdgeXREFSensor.class}) {
+      Assert.assertEquals(clz.getAnnotation(DependedUpon.class).value(), dependencies, clz.getSimpleName());
+    }
+  }
+
+  private ProfilerIssueWeights createWeights(SensorContextTester context) {
+    OpenEdgeSettings oeSettings = new OpenEdgeSettings(context.settings(), context.fileSystem(), new DumpFileRepository());
+    ProfilerOutputs outputs = new ProfilerOutputs(oeSettings, context.fileSystem(),
+        new InputFileIndex(context.fileSystem()));
+    return new ProfilerIssueWeights(oeSettings, outputs,
+        new DebugListingRepository(context.fileSystem(), new PctManifest(oeSettings, context.fileSystem())));
+  }
+
+  private SensorContextTester createContext(boolean weightIssues) throws IOException {
+    SensorContextTester context = SensorContextTester.create(moduleBaseDir);
+    context.settings().setProperty("sonar.sources", "src");
+    context.settings().setProperty("sonar.oe.binaries", "build");
+    context.settings().setProperty(OpenEdgePlugin.PROPATH, "src");
+    context.settings().setProperty(OpenEdgePlugin.PROFILER_OUTPUTS, "build/profiler");
+    context.settings().setProperty(OpenEdgePlugin.PROFILER_WEIGHT_ISSUES, weightIssues);
+    context.fileSystem().add(
+        new DefaultInputFile("file2", FILE2).setLanguage(OpenEdge.KEY).setType(Type.MAIN).initMetadata(
+            Files.toString(new File(moduleBaseDir, FILE2), Charset.defaultCharset())));
+
+    return context;
+  }
+
+  private static class TestCheck extends OpenEdgeCheck<Object> {
+    TestCheck(SensorContextTester context) {
+      super(RuleKey.of(OpenEdgeRulesDefinition.REPOSITORY_KEY, "test"), context, null, "");
+    }
+
+    @Override
+    public void initialize() {
+      // Nothing
+    }
+
+    @Override
+    public void execute(InputFile file, Object o) {
+      // Nothing
+    }
+
+    @Override
+    public void postJob() {
+      // Nothing
+    }
+
+    @Override
+    public CheckType getCheckType() {
+      return CheckType.PROPARSE;
+    }
+  }
+
+}
@@ -27,10 +27,13 @@ import org.sonar.api.batch.fs.InputFile.Type;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
 import org.sonar.api.internal.google.common.io.Files;
+import org.sonar.plugins.openedge.OpenEdgePlugin;
+import org.sonar.plugins.openedge.foundation.DumpFileRepository;
 import org.sonar.plugins.openedge.foundation.OpenEdge;
 import org.sonar.plugins.openedge.foundation.OpenEdgeMetrics;
 import org.sonar.plugins.openedge.foundation.OpenEdgeRulesDefinition;
 import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
+import org.sonar.plugins.openedge.foundation.PctManifest;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -43,8 +46,9 @@ public class OpenEdgeListingSensorTest {
   public void testListing() throws Exception {
     SensorContextTester context = createContext();
 
-    OpenEdgeSettings oeSettings = new OpenEdgeSettings(context.settings(), context.fileSystem());
-    OpenEdgeListingSensor sensor = new OpenEdgeListingSensor(oeSettings, context.fileSystem());
+    OpenEdgeSettings oeSettings = new OpenEdgeSettings(context.settings(), context.fileSystem(), new DumpFileRepository());
+    OpenEdgeListingSensor sensor = new OpenEdgeListingSensor(oeSettings, context.fileSystem(),
+        new PctManifest(oeSettings, context.fileSystem()));
     sensor.execute(context);
 
     Assert.assertEquals(context.measure("file1:src/procedures/test1.p", OpenEdgeMetrics.NUM_TRANSACTIONS_KEY).value(),
@@ -60,6 +64,7 @@ public class OpenEdgeListingSensorTest {
     SensorContextTester context = SensorContextTester.create(moduleBaseDir);
     context.settings().setProperty("sonar.sources", "src");
     context.settings().setProperty("sonar.oe.binaries", "build");
+    context.settings().setProperty(OpenEdgePlugin.PCT_SEPARATE_SENSORS, true);
     context.fileSystem().add(
         new DefaultInputFile("file1", FILE1).setLanguage(OpenEdge.KEY).setType(Type.MAIN).initMetadata(
             Files.toString(new File(moduleBaseDir, FILE1), Charset.defaultCharset())));
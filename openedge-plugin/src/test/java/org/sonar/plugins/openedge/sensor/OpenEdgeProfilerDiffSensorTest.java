@@ -0,0 +1,107 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (C) 2016 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.sensor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sonar.api.batch.fs.InputFile.Type;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.batch.sensor.issue.Issue;
+import org.sonar.api.internal.google.common.io.Files;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.plugins.openedge.OpenEdgePlugin;
+import org.sonar.plugins.openedge.api.InputFileIndex;
+import org.sonar.plugins.openedge.foundation.DumpFileRepository;
+import org.sonar.plugins.openedge.foundation.OpenEdge;
+import org.sonar.plugins.openedge.foundation.OpenEdgeRulesDefinition;
+import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
+import org.sonar.plugins.openedge.foundation.ProfilerOutputs;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class OpenEdgeProfilerDiffSensorTest {
+  private final File moduleBaseDir = new File("src/test/resources/project1");
+  private final static String FILE2 = "src/procedures/test2.p";
+
+  @Test
+  public void testRegression() throws IOException {
+    SensorContextTester context = createContext("profiler/baseline", true);
+    executeSensor(context);
+
+    List<Issue> issues = new ArrayList<>(context.allIssues());
+    Assert.assertEquals(issues.size(), 2);
+    List<Integer> lines = new ArrayList<>();
+    for (Issue issue : issues) {
+      Assert.assertEquals(issue.ruleKey().rule(), OpenEdgeRulesDefinition.PERFORMANCE_REGRESSION_RULEKEY);
+      lines.add(issue.primaryLocation().textRange() == null ? 0 : issue.primaryLocation().textRange().start().line());
+    }
+    Assert.assertTrue(lines.contains(0));
+    Assert.assertTrue(lines.contains(3));
+  }
+
+  @Test
+  public void testSameSessions() throws IOException {
+    SensorContextTester context = createContext("profiler/candidate", true);
+    executeSensor(context);
+
+    Assert.assertTrue(context.allIssues().isEmpty());
+  }
+
+  @Test
+  public void testRuleNotActive() throws IOException {
+    SensorContextTester context = createContext("profiler/baseline", false);
+    executeSensor(context);
+
+    Assert.assertTrue(context.allIssues().isEmpty());
+  }
+
+  private void executeSensor(SensorContextTester context) {
+    OpenEdgeSettings oeSettings = new OpenEdgeSettings(context.settings(), context.fileSystem(), new DumpFileRepository());
+    ProfilerOutputs outputs = new ProfilerOutputs(oeSettings, context.fileSystem(),
+        new InputFileIndex(context.fileSystem()));
+    OpenEdgeProfilerDiffSensor sensor = new OpenEdgeProfilerDiffSensor(oeSettings, outputs);
+    sensor.execute(context);
+  }
+
+  private SensorContextTester createContext(String baseline, boolean activateRule) throws IOException {
+    SensorContextTester context = SensorContextTester.create(moduleBaseDir);
+    context.settings().setProperty("sonar.sources", "src");
+    context.settings().setProperty("sonar.oe.binaries", "build");
+    context.settings().setProperty(OpenEdgePlugin.PROPATH, "src");
+    context.settings().setProperty(OpenEdgePlugin.PROFILER_OUTPUTS, "profiler/candidate");
+    context.settings().setProperty(OpenEdgePlugin.PROFILER_BASELINE, baseline);
+    context.fileSystem().add(
+        new DefaultInputFile("file2", FILE2).setLanguage(OpenEdge.KEY).setType(Type.MAIN).initMetadata(
+            Files.toString(new File(moduleBaseDir, FILE2), Charset.defaultCharset())));
+    if (activateRule) {
+      context.setActiveRules(new ActiveRulesBuilder().create(RuleKey.of(OpenEdgeRulesDefinition.REPOSITORY_KEY,
+          OpenEdgeRulesDefinition.PERFORMANCE_REGRESSION_RULEKEY)).activate().build());
+    }
+
+    return context;
+  }
+
+}
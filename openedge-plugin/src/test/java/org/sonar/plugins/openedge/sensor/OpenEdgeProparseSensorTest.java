@@ -28,6 +28,8 @@ import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
 import org.sonar.api.internal.google.common.io.Files;
 import org.sonar.plugins.openedge.OpenEdgePlugin;
+import org.sonar.plugins.openedge.api.InputFileIndex;
+import org.sonar.plugins.openedge.foundation.DumpFileRepository;
 import org.sonar.plugins.openedge.foundation.OpenEdge;
 import org.sonar.plugins.openedge.foundation.OpenEdgeComponents;
 import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
@@ -44,8 +46,9 @@ public class OpenEdgeProparseSensorTest {
     SensorContextTester context = createContext();
     TestServer server =new TestServer();
     context.settings().setProperty(OpenEdgePlugin.CPD_ANNOTATIONS, "Generated,rssw.lang.Generated");
-    OpenEdgeSettings oeSettings = new OpenEdgeSettings(context.settings(), context.fileSystem());
-    OpenEdgeComponents components = new OpenEdgeComponents(context.activeRules(), server, null, null);
+    OpenEdgeSettings oeSettings = new OpenEdgeSettings(context.settings(), context.fileSystem(), new DumpFileRepository());
+    OpenEdgeComponents components = new OpenEdgeComponents(context.activeRules(), server,
+        new InputFileIndex(context.fileSystem()), null, null, null);
     OpenEdgeProparseSensor sensor = new OpenEdgeProparseSensor(context.fileSystem(), oeSettings, components);
     sensor.execute(context);
     Assert.assertNotNull(context.cpdTokens("file3:src/procedures/test3.p"));
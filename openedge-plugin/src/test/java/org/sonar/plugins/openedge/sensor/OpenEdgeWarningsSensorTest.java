@@ -28,11 +28,16 @@ import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.rule.ActiveRules;
 import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.batch.sensor.issue.Issue;
 import org.sonar.api.internal.google.common.io.Files;
 import org.sonar.api.rule.RuleKey;
+import org.sonar.plugins.openedge.OpenEdgePlugin;
+import org.sonar.plugins.openedge.api.InputFileIndex;
+import org.sonar.plugins.openedge.foundation.DumpFileRepository;
 import org.sonar.plugins.openedge.foundation.OpenEdge;
 import org.sonar.plugins.openedge.foundation.OpenEdgeRulesDefinition;
 import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
+import org.sonar.plugins.openedge.foundation.PctManifest;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -40,21 +45,63 @@ public class OpenEdgeWarningsSensorTest {
   private final File moduleBaseDir = new File("src/test/resources/project1");
   private final static String FILE1 = "src/procedures/test1.p";
   private final static String FILE2 = "src/procedures/test2.p";
+  private final static String FILE3 = "src/procedures/test3.p";
+  private final static RuleKey WARNING_RULEKEY = RuleKey.of(OpenEdgeRulesDefinition.REPOSITORY_KEY,
+      OpenEdgeRulesDefinition.COMPILER_WARNING_RULEKEY);
+  private final static RuleKey WARNING_214_RULEKEY = RuleKey.of(OpenEdgeRulesDefinition.REPOSITORY_KEY,
+      OpenEdgeRulesDefinition.COMPILER_WARNING_RULEKEY + ".214");
 
   @Test
   public void testWarnings() throws IOException {
     SensorContextTester context = createContext();
-    OpenEdgeSettings oeSettings = new OpenEdgeSettings(context.settings(), context.fileSystem());
-    OpenEdgeWarningsSensor sensor = new OpenEdgeWarningsSensor(oeSettings, context.fileSystem());
+    OpenEdgeSettings oeSettings = new OpenEdgeSettings(context.settings(), context.fileSystem(), new DumpFileRepository());
+    OpenEdgeWarningsSensor sensor = new OpenEdgeWarningsSensor(oeSettings, context.fileSystem(),
+        new PctManifest(oeSettings, context.fileSystem()), new InputFileIndex(context.fileSystem()));
     sensor.execute(context);
 
     Assert.assertEquals(1, context.allIssues().size());
   }
 
+  @Test
+  public void testIncludeWarnings() throws IOException {
+    SensorContextTester context = createContext();
+    context.fileSystem().add(
+        new DefaultInputFile("file3", FILE3).setLanguage(OpenEdge.KEY).setType(Type.MAIN).initMetadata(
+            Files.toString(new File(moduleBaseDir, FILE3), Charset.defaultCharset())));
+    context.setActiveRules(new ActiveRulesBuilder().create(WARNING_RULEKEY).activate().create(
+        WARNING_214_RULEKEY).activate().build());
+    OpenEdgeSettings oeSettings = new OpenEdgeSettings(context.settings(), context.fileSystem(), new DumpFileRepository());
+    OpenEdgeWarningsSensor sensor = new OpenEdgeWarningsSensor(oeSettings, context.fileSystem(),
+        new PctManifest(oeSettings, context.fileSystem()), new InputFileIndex(context.fileSystem()));
+    Assert.assertTrue(sensor.initialize(context));
+    // Same warning in test3.p from both units, test2.p is imported first
+    Assert.assertTrue(sensor.importWarnings(context, context.fileSystem().inputFile(
+        context.fileSystem().predicates().hasRelativePath(FILE2))));
+    Assert.assertTrue(sensor.importWarnings(context, context.fileSystem().inputFile(
+        context.fileSystem().predicates().hasRelativePath(FILE1))));
+    // Only warning from test1.p is reported at this stage
+    Assert.assertEquals(context.allIssues().size(), 1);
+    sensor.reportIncludeWarnings(context);
+    Assert.assertEquals(context.allIssues().size(), 2);
+
+    for (Issue issue : context.allIssues()) {
+      if (issue.primaryLocation().inputComponent().key().equals("file3:" + FILE3)) {
+        Assert.assertEquals(issue.primaryLocation().message(),
+            "From " + FILE1 + " - WARNING: TRANSACTION keyword given within actual transaction level. (214)");
+        // Specific rule for message 214 is active
+        Assert.assertEquals(issue.ruleKey(), WARNING_214_RULEKEY);
+      } else {
+        Assert.assertEquals(issue.primaryLocation().inputComponent().key(), "file1:" + FILE1);
+        Assert.assertEquals(issue.ruleKey(), WARNING_RULEKEY);
+      }
+    }
+  }
+
   private SensorContextTester createContext() throws IOException {
     SensorContextTester context = SensorContextTester.create(moduleBaseDir);
     context.settings().setProperty("sonar.sources", "src");
     context.settings().setProperty("sonar.oe.binaries", "build");
+    context.settings().setProperty(OpenEdgePlugin.PCT_SEPARATE_SENSORS, true);
     context.fileSystem().add(
         new DefaultInputFile("file1", FILE1).setLanguage(OpenEdge.KEY).setType(Type.MAIN).initMetadata(
             Files.toString(new File(moduleBaseDir, FILE1), Charset.defaultCharset())));
@@ -67,8 +114,7 @@ public class OpenEdgeWarningsSensorTest {
   }
 
   private ActiveRules createRules() {
-    return new ActiveRulesBuilder().create(RuleKey.of(OpenEdgeRulesDefinition.REPOSITORY_KEY,
-        OpenEdgeRulesDefinition.COMPILER_WARNING_RULEKEY)).activate().build();
+    return new ActiveRulesBuilder().create(WARNING_RULEKEY).activate().build();
   }
 
 }
@@ -0,0 +1,155 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (C) 2016 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.sensor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.InputFile.Type;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.batch.sensor.issue.NewIssue;
+import org.sonar.api.internal.google.common.io.Files;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.plugins.openedge.OpenEdgePlugin;
+import org.sonar.plugins.openedge.api.CheckRegistrar;
+import org.sonar.plugins.openedge.api.InputFileIndex;
+import org.sonar.plugins.openedge.api.LicenceRegistrar.Licence;
+import org.sonar.plugins.openedge.api.checks.OpenEdgeDumpFileCheck;
+import org.sonar.plugins.openedge.api.checks.OpenEdgeProparseCheck;
+import org.sonar.plugins.openedge.api.checks.OpenEdgeXrefCheck;
+import org.sonar.plugins.openedge.checks.SharedObjectsAnalyzer;
+import org.sonar.plugins.openedge.foundation.DumpFileRepository;
+import org.sonar.plugins.openedge.foundation.OpenEdge;
+import org.sonar.plugins.openedge.foundation.OpenEdgeComponents;
+import org.sonar.plugins.openedge.foundation.OpenEdgeMetrics;
+import org.sonar.plugins.openedge.foundation.OpenEdgeRulesDefinition;
+import org.sonar.plugins.openedge.foundation.OpenEdgeRulesRegistrar;
+import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
+import org.sonar.plugins.openedge.foundation.PctManifest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+public class OpenEdgeXREFSensorTest {
+  private final File moduleBaseDir = new File("src/test/resources/project1");
+  private final static String FILE1 = "src/procedures/test1.p";
+  private final static String FILE2 = "src/procedures/test2.p";
+
+  @Test
+  public void testParallelAnalysis() throws IOException {
+    SensorContextTester context = createContext();
+    OpenEdgeSettings oeSettings = new OpenEdgeSettings(context.settings(), context.fileSystem(), new DumpFileRepository());
+    InputFileIndex index = new InputFileIndex(context.fileSystem());
+    OpenEdgeComponents components = new OpenEdgeComponents(context.activeRules(), new TestServer(), index,
+        new CheckRegistrar[] {new OpenEdgeRulesRegistrar(), new TestRegistrar()}, null, null);
+    OpenEdgeXREFSensor sensor = new OpenEdgeXREFSensor(oeSettings, context.fileSystem(), components,
+        new PctManifest(oeSettings, context.fileSystem()));
+    sensor.execute(context);
+
+    // Thread-safe check executed on the thread pool
+    Assert.assertEquals(context.measure("file1:src/procedures/test1.p", OpenEdgeMetrics.SHR_VAR_KEY).value(), 1);
+    Assert.assertEquals(context.measure("file1:src/procedures/test1.p", OpenEdgeMetrics.SHR_BUFFER_KEY).value(),
+        1);
+    Assert.assertEquals(context.measure("file1:src/procedures/test1.p", OpenEdgeMetrics.SHR_FRAME_KEY).value(), 2);
+    Assert.assertEquals(context.measure("file1:src/procedures/test1.p", OpenEdgeMetrics.SHR_TT_KEY).value(), 0);
+    Assert.assertEquals(context.measure("file2:src/procedures/test2.p", OpenEdgeMetrics.SHR_TT_KEY).value(), 1);
+    Assert.assertEquals(context.measure("file2:src/procedures/test2.p", OpenEdgeMetrics.SHR_FRAME_KEY).value(), 0);
+
+    // Check which doesn't opt in is only executed on the sensor thread
+    WholeIndexCheck check = (WholeIndexCheck) components.getXrefChecks().iterator().next();
+    Assert.assertEquals(check.files.size(), 2);
+    Assert.assertEquals(check.threads, Collections.singleton(Thread.currentThread()));
+    Assert.assertEquals(context.allIssues().size(), 2, "Wrong total number of issues");
+  }
+
+  private SensorContextTester createContext() throws IOException {
+    SensorContextTester context = SensorContextTester.create(moduleBaseDir);
+    context.settings().setProperty("sonar.sources", "src");
+    context.settings().setProperty("sonar.oe.binaries", "build");
+    context.settings().setProperty(OpenEdgePlugin.THREADS, "2");
+    context.settings().setProperty(OpenEdgePlugin.PCT_SEPARATE_SENSORS, true);
+    context.fileSystem().add(
+        new DefaultInputFile("file1", FILE1).setLanguage(OpenEdge.KEY).setType(Type.MAIN).initMetadata(
+            Files.toString(new File(moduleBaseDir, FILE1), Charset.defaultCharset())));
+    context.fileSystem().add(
+        new DefaultInputFile("file2", FILE2).setLanguage(OpenEdge.KEY).setType(Type.MAIN).initMetadata(
+            Files.toString(new File(moduleBaseDir, FILE2), Charset.defaultCharset())));
+    ActiveRulesBuilder rules = new ActiveRulesBuilder();
+    rules.create(RuleKey.of(OpenEdgeRulesDefinition.REPOSITORY_KEY,
+        SharedObjectsAnalyzer.class.getCanonicalName())).setLanguage(OpenEdge.KEY).activate();
+    rules.create(RuleKey.of(OpenEdgeRulesDefinition.REPOSITORY_KEY,
+        WholeIndexCheck.class.getCanonicalName())).setLanguage(OpenEdge.KEY).activate();
+    context.setActiveRules(rules.build());
+
+    return context;
+  }
+
+  private static class TestRegistrar implements CheckRegistrar {
+    @Override
+    public void register(RegistrarContext registrarContext) {
+      registrarContext.registerClassesForRepository(OpenEdgeRulesDefinition.REPOSITORY_KEY,
+          Collections.<Class<? extends OpenEdgeXrefCheck>> singletonList(WholeIndexCheck.class),
+          Collections.<Class<? extends OpenEdgeProparseCheck>> emptyList(),
+          Collections.<Class<? extends OpenEdgeDumpFileCheck>> emptyList());
+    }
+  }
+
+  /**
+   * Accesses file system and sensor context directly, as some third-party checks do
+   */
+  public static class WholeIndexCheck extends OpenEdgeXrefCheck {
+    private final Set<Thread> threads = new HashSet<>();
+    private final Set<String> files = new HashSet<>();
+
+    public WholeIndexCheck(RuleKey ruleKey, SensorContext context, Licence licence, String serverId) {
+      super(ruleKey, context, licence, serverId);
+    }
+
+    @Override
+    public void execute(InputFile file, Document doc) {
+      threads.add(Thread.currentThread());
+      InputFile file2 = getContext().fileSystem().inputFile(
+          getContext().fileSystem().predicates().hasRelativePath(file.relativePath()));
+      files.add(file2.relativePath());
+      NodeList nodes = doc.getElementsByTagName("Reference");
+      for (int zz = 0; zz < nodes.getLength(); zz++) {
+        Element elem = (Element) nodes.item(zz);
+        if ("SEARCH".equals(elem.getAttribute("Reference-type"))
+            && "WHOLE-INDEX".equals(getChildNodeValue(elem, "Detail"))) {
+          NewIssue issue = getContext().newIssue().forRule(getRuleKey());
+          issue.at(issue.newLocation().on(file2).at(
+              file2.selectLine(Integer.parseInt(getChildNodeValue(elem, "Line-num")))).message("Whole index"));
+          issue.save();
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,26 @@
+...es\sample\test4.p                  07/21/2016 09:00:00   PROGRESS(R) Page 1   
+
+{} Line Blk
+-- ---- ---
+      1     /* Include file in the middle of the procedure */
+      2     define variable i as integer no-undo.
+      3     {inc/test4.i}
+ 1    1     define variable j as integer no-undo.
+ 1    2     j = 1.
+ 1    3     message j.
+      4     do i = 1 to 10:
+      5   1   message i.
+      6     end.
+      7     
+      8     run proc1.
+      9     
+     10     message "done".
+...es\sample\test4.p                  07/21/2016 09:00:00   PROGRESS(R) Page 2   
+
+     File Name       Line Blk. Type   Tran            Blk. Label            
+-------------------- ---- ----------- ---- --------------------------------
+...es\sample\test4.p    0 Procedure   No                                    
+
+...es\sample\test4.p    4 Do          No                                    
+
+
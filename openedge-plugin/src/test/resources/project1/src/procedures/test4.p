@@ -0,0 +1,10 @@
+/* Include file in the middle of the procedure */
+define variable i as integer no-undo.
+{inc/test4.i}
+do i = 1 to 10:
+  message i.
+end.
+
+run proc1.
+
+message "done".
@@ -0,0 +1,269 @@
+package eu.rssw.antlr.profiler;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Sparse call graph between modules. One edge is kept for each call site (caller module, line number in caller, callee
+ * module), with its number of calls. Edges are stored in primitive arrays, and chained per caller and per callee, so
+ * memory usage is proportional to the number of call sites, and not to the square of the number of modules.
+ */
+public class CallGraph {
+  private static final int NONE = -1;
+
+  // Edges
+  private int numEdges = 0;
+  private int[] edgeCaller = new int[64];
+  private int[] edgeLine = new int[64];
+  private int[] edgeCallee = new int[64];
+  private int[] edgeCount = new int[64];
+  private int[] nextOut = new int[64];
+  private int[] nextIn = new int[64];
+
+  // Nodes, indexed by module ID
+  private int[] headOut = new int[0];
+  private int[] headIn = new int[0];
+
+  // Open addressing hash table of edge indexes, in order to merge calls from the same call site
+  private int[] table = new int[128];
+
+  public CallGraph() {
+    Arrays.fill(table, NONE);
+  }
+
+  /**
+   * Add calls from caller to callee. Count is added to previous value if this call site is already known.
+   */
+  public void addCall(int callerId, int callerLine, int calleeId, int count) {
+    if ((callerId < 0) || (calleeId < 0))
+      throw new IllegalArgumentException("Invalid module ID " + Math.min(callerId, calleeId));
+    int slot = slot(callerId, callerLine, calleeId);
+    while (table[slot] != NONE) {
+      int edge = table[slot];
+      if ((edgeCaller[edge] == callerId) && (edgeLine[edge] == callerLine) && (edgeCallee[edge] == calleeId)) {
+        edgeCount[edge] += count;
+        return;
+      }
+      slot = (slot + 1) & (table.length - 1);
+    }
+
+    int edge = numEdges++;
+    if (edge == edgeCaller.length)
+      growEdges();
+    ensureNode(Math.max(callerId, calleeId));
+    edgeCaller[edge] = callerId;
+    edgeLine[edge] = callerLine;
+    edgeCallee[edge] = calleeId;
+    edgeCount[edge] = count;
+    nextOut[edge] = headOut[callerId];
+    headOut[callerId] = edge;
+    nextIn[edge] = headIn[calleeId];
+    headIn[calleeId] = edge;
+    table[slot] = edge;
+    if (numEdges * 2 > table.length)
+      rehash();
+  }
+
+  /**
+   * Returns number of call sites
+   */
+  public int getNumberOfCalls() {
+    return numEdges;
+  }
+
+  /**
+   * Returns total number of calls from caller to callee, from all call sites
+   */
+  public int getCallCount(int callerId, int calleeId) {
+    int rslt = 0;
+    for (int edge = firstOut(callerId); edge != NONE; edge = nextOut[edge]) {
+      if (edgeCallee[edge] == calleeId)
+        rslt += edgeCount[edge];
+    }
+    return rslt;
+  }
+
+  /**
+   * Returns distinct IDs of modules called by this module, in ascending order
+   */
+  public int[] getCallees(int callerId) {
+    int[] rslt = new int[8];
+    int size = 0;
+    for (int edge = firstOut(callerId); edge != NONE; edge = nextOut[edge]) {
+      if (size == rslt.length)
+        rslt = Arrays.copyOf(rslt, size * 2);
+      rslt[size++] = edgeCallee[edge];
+    }
+    return distinct(rslt, size);
+  }
+
+  /**
+   * Returns distinct IDs of modules calling this module, in ascending order
+   */
+  public int[] getCallers(int calleeId) {
+    int[] rslt = new int[8];
+    int size = 0;
+    for (int edge = firstIn(calleeId); edge != NONE; edge = nextIn[edge]) {
+      if (size == rslt.length)
+        rslt = Arrays.copyOf(rslt, size * 2);
+      rslt[size++] = edgeCaller[edge];
+    }
+    return distinct(rslt, size);
+  }
+
+  /**
+   * Send every call site of this caller to visitor
+   */
+  public void forEachCallee(int callerId, CallVisitor visitor) {
+    for (int edge = firstOut(callerId); edge != NONE; edge = nextOut[edge]) {
+      visitor.call(callerId, edgeLine[edge], edgeCallee[edge], edgeCount[edge]);
+    }
+  }
+
+  /**
+   * Send every call site of this callee to visitor
+   */
+  public void forEachCaller(int calleeId, CallVisitor visitor) {
+    for (int edge = firstIn(calleeId); edge != NONE; edge = nextIn[edge]) {
+      visitor.call(edgeCaller[edge], edgeLine[edge], calleeId, edgeCount[edge]);
+    }
+  }
+
+  /**
+   * Send every call site of the graph to visitor, in insertion order
+   */
+  public void forEachCall(CallVisitor visitor) {
+    for (int edge = 0; edge < numEdges; edge++) {
+      visitor.call(edgeCaller[edge], edgeLine[edge], edgeCallee[edge], edgeCount[edge]);
+    }
+  }
+
+  /**
+   * Depth-first walk of the call tree starting from root module. Callees are visited in ascending ID order. A module
+   * reached a second time (through recursion or from another caller) is reported with <code>expanded</code> set to
+   * false, and its callees are not visited again, so that walk always terminates and visits each module once.
+   */
+  public void walk(int rootId, TreeVisitor visitor) {
+    BitSet visited = new BitSet();
+    visited.set(rootId);
+    visitor.visit(rootId, 0, 0, true);
+
+    // Explicit stack of (module, position in callees array) to avoid stack overflow on deep call trees
+    int[][] callees = new int[16][];
+    int[] positions = new int[16];
+    int[] nodes = new int[16];
+    int depth = 0;
+    nodes[0] = rootId;
+    callees[0] = getCallees(rootId);
+    positions[0] = 0;
+    while (depth >= 0) {
+      if (positions[depth] == callees[depth].length) {
+        callees[depth] = null;
+        depth--;
+        continue;
+      }
+      int caller = nodes[depth];
+      int callee = callees[depth][positions[depth]++];
+      boolean expand = !visited.get(callee);
+      visitor.visit(callee, depth + 1, getCallCount(caller, callee), expand);
+      if (expand) {
+        visited.set(callee);
+        depth++;
+        if (depth == nodes.length) {
+          nodes = Arrays.copyOf(nodes, depth * 2);
+          positions = Arrays.copyOf(positions, depth * 2);
+          callees = Arrays.copyOf(callees, depth * 2);
+        }
+        nodes[depth] = callee;
+        callees[depth] = getCallees(callee);
+        positions[depth] = 0;
+      }
+    }
+  }
+
+  /**
+   * Returns highest module ID used in the graph, or -1 if graph is empty
+   */
+  public int getHighestModuleId() {
+    for (int zz = headOut.length - 1; zz >= 0; zz--) {
+      if ((headOut[zz] != NONE) || (headIn[zz] != NONE))
+        return zz;
+    }
+    return -1;
+  }
+
+  private int firstOut(int callerId) {
+    return (callerId >= 0) && (callerId < headOut.length) ? headOut[callerId] : NONE;
+  }
+
+  private int firstIn(int calleeId) {
+    return (calleeId >= 0) && (calleeId < headIn.length) ? headIn[calleeId] : NONE;
+  }
+
+  private int slot(int callerId, int callerLine, int calleeId) {
+    int hash = callerId;
+    hash = 31 * hash + callerLine;
+    hash = 31 * hash + calleeId;
+    hash ^= hash >>> 16;
+    return (hash * 0x9E3779B9) >>> 1 & (table.length - 1);
+  }
+
+  private void ensureNode(int moduleId) {
+    if (moduleId < headOut.length)
+      return;
+    int oldSize = headOut.length;
+    int newSize = Math.max(moduleId + 1, oldSize * 2);
+    headOut = Arrays.copyOf(headOut, newSize);
+    headIn = Arrays.copyOf(headIn, newSize);
+    Arrays.fill(headOut, oldSize, newSize, NONE);
+    Arrays.fill(headIn, oldSize, newSize, NONE);
+  }
+
+  private void growEdges() {
+    int newSize = edgeCaller.length * 2;
+    edgeCaller = Arrays.copyOf(edgeCaller, newSize);
+    edgeLine = Arrays.copyOf(edgeLine, newSize);
+    edgeCallee = Arrays.copyOf(edgeCallee, newSize);
+    edgeCount = Arrays.copyOf(edgeCount, newSize);
+    nextOut = Arrays.copyOf(nextOut, newSize);
+    nextIn = Arrays.copyOf(nextIn, newSize);
+  }
+
+  private void rehash() {
+    table = new int[table.length * 2];
+    Arrays.fill(table, NONE);
+    for (int edge = 0; edge < numEdges; edge++) {
+      int slot = slot(edgeCaller[edge], edgeLine[edge], edgeCallee[edge]);
+      while (table[slot] != NONE) {
+        slot = (slot + 1) & (table.length - 1);
+      }
+      table[slot] = edge;
+    }
+  }
+
+  private static int[] distinct(int[] array, int size) {
+    if (size == 0)
+      return new int[0];
+    Arrays.sort(array, 0, size);
+    int len = 1;
+    for (int zz = 1; zz < size; zz++) {
+      if (array[zz] != array[len - 1])
+        array[len++] = array[zz];
+    }
+    return Arrays.copyOf(array, len);
+  }
+
+  public interface CallVisitor {
+    void call(int callerId, int callerLine, int calleeId, int count);
+  }
+
+  public interface TreeVisitor {
+    /**
+     * @param moduleId Module being visited
+     * @param depth 0 for root module
+     * @param callCount Number of calls from parent module, 0 for root module
+     * @param expanded False if module was already visited, in which case its callees won't be visited
+     */
+    void visit(int moduleId, int depth, int callCount, boolean expanded);
+  }
+}
@@ -0,0 +1,401 @@
+package eu.rssw.antlr.profiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import eu.rssw.antlr.profiler.ProfilerReader.Section;
+
+/**
+ * Exclusive and inclusive time of each module (main block of a procedure or class, or internal procedure, function or
+ * method). Only module, call tree and line summary records are kept, so that this object can be fed directly by
+ * {@link ProfilerReader} whatever the size of the profiler output.
+ * <ul>
+ * <li>Exclusive time is the sum of actual time of all lines of a module</li>
+ * <li>Inclusive time is the cumulative time of line 0 (i.e. entry point of the module), as reported by the profiler.
+ * When not available, it is computed from inclusive time of callees, shared among callers in proportion to number of
+ * calls.</li>
+ * </ul>
+ * Module 0 is the profiler session itself.
+ */
+public class CallTreeTiming implements ProfilerCallback {
+  // Stacks below 1 microsecond are not written in flame graphs
+  private static final double MIN_STACK_TIME = 0.000001;
+
+  private final CallGraph callGraph;
+  private Module[] modules = new Module[64];
+  private double[] exclusiveTime = new double[64];
+  private double[] entryTime = new double[64];
+  private boolean[] hasEntry = new boolean[64];
+  private long[] numCalls = new long[64];
+  private int highestModuleId = 0;
+
+  // Computed on demand, reset when new records are added
+  private double[] inclusiveTime = null;
+
+  public CallTreeTiming() {
+    this(new CallGraph());
+  }
+
+  /**
+   * Timing on top of an existing call graph, so that edges are stored only once when a {@link ProfilerSession} and its
+   * timing are built together. Calls have to be added with {@link #callTree(int, int, int, int)}, so that number of
+   * calls per module is kept in sync.
+   */
+  CallTreeTiming(CallGraph callGraph) {
+    this.callGraph = callGraph;
+  }
+
+  @Override
+  public boolean accept(Section section) {
+    return (section == Section.MODULES) || (section == Section.CALL_TREE) || (section == Section.LINE_SUMMARY);
+  }
+
+  @Override
+  public void module(int id, String name, String debugListingFile, int crc) {
+    addModule(new Module(id, name, debugListingFile, crc));
+  }
+
+  /**
+   * Reference module object instead of creating a new one, so that it's shared with {@link ProfilerSession}
+   */
+  void addModule(Module module) {
+    ensureModule(module.getId());
+    modules[module.getId()] = module;
+  }
+
+  @Override
+  public void callTree(int callerId, int callerLineNum, int calleeId, int callCount) {
+    ensureModule(Math.max(callerId, calleeId));
+    callGraph.addCall(callerId, callerLineNum, calleeId, callCount);
+    numCalls[calleeId] += callCount;
+    inclusiveTime = null;
+  }
+
+  @Override
+  public void lineSummary(int moduleId, int lineNumber, int execCount, float actualTime, float cumulativeTime) {
+    if (moduleId < 0)
+      return;
+    ensureModule(moduleId);
+    exclusiveTime[moduleId] += actualTime;
+    if (lineNumber == 0) {
+      entryTime[moduleId] += cumulativeTime;
+      hasEntry[moduleId] = true;
+    }
+    inclusiveTime = null;
+  }
+
+  public CallGraph getCallGraph() {
+    return callGraph;
+  }
+
+  /**
+   * Returns IDs of all known modules, session (ID 0) excluded
+   */
+  public int[] getModuleIds() {
+    int[] rslt = new int[highestModuleId + 1];
+    int size = 0;
+    for (int zz = 1; zz <= highestModuleId; zz++) {
+      if ((modules[zz] != null) || (exclusiveTime[zz] > 0) || (numCalls[zz] > 0))
+        rslt[size++] = zz;
+    }
+    return Arrays.copyOf(rslt, size);
+  }
+
+  /**
+   * Returns module object, or null if module wasn't declared in profiler output
+   */
+  public Module getModule(int moduleId) {
+    return (moduleId >= 0) && (moduleId <= highestModuleId) ? modules[moduleId] : null;
+  }
+
+  public long getNumCalls(int moduleId) {
+    return (moduleId >= 0) && (moduleId <= highestModuleId) ? numCalls[moduleId] : 0;
+  }
+
+  public double getExclusiveTime(int moduleId) {
+    return (moduleId >= 0) && (moduleId <= highestModuleId) ? exclusiveTime[moduleId] : 0;
+  }
+
+  public double getInclusiveTime(int moduleId) {
+    return (moduleId >= 0) && (moduleId <= highestModuleId) ? getInclusiveTimes()[moduleId] : 0;
+  }
+
+  /**
+   * Returns sum of exclusive time of all modules of this file (main block and internal procedures, functions or
+   * methods)
+   *
+   * @param fileName As returned by {@link Module#getModuleObject()}
+   */
+  public double getFileExclusiveTime(String fileName) {
+    double rslt = 0;
+    for (int zz = 1; zz <= highestModuleId; zz++) {
+      if ((modules[zz] != null) && modules[zz].getModuleObject().equals(fileName))
+        rslt += exclusiveTime[zz];
+    }
+    return rslt;
+  }
+
+  /**
+   * Total session time
+   */
+  public double getTotalTime() {
+    return getInclusiveTime(0);
+  }
+
+  int getHighestModuleId() {
+    return highestModuleId;
+  }
+
+  /**
+   * Cumulative time of line 0 of this module, only meaningful if {@link #hasEntryTime(int)} is true
+   */
+  double getEntryTime(int moduleId) {
+    return (moduleId >= 0) && (moduleId <= highestModuleId) ? entryTime[moduleId] : 0;
+  }
+
+  boolean hasEntryTime(int moduleId) {
+    return (moduleId >= 0) && (moduleId <= highestModuleId) && hasEntry[moduleId];
+  }
+
+  /**
+   * Restore time of a module, as an alternative to line summary records
+   */
+  void setTime(int moduleId, double exclusive, double entry, boolean withEntry) {
+    ensureModule(moduleId);
+    exclusiveTime[moduleId] = exclusive;
+    entryTime[moduleId] = entry;
+    hasEntry[moduleId] = withEntry;
+    inclusiveTime = null;
+  }
+
+  /**
+   * Write stacks in collapsed format (one line per stack, frames separated by semicolons, followed by self time in
+   * microseconds), as expected by flame graph tools. Time of a module is shared among its callers in proportion to
+   * number of calls. Recursive calls are not followed, and stacks below one microsecond are discarded.
+   */
+  public void writeCollapsedStacks(Writer writer) throws IOException {
+    double[] inclusive = getInclusiveTimes();
+    double[] weights = new double[16];
+    int[] nodes = new int[16];
+    int[][] callees = new int[16][];
+    int[] positions = new int[16];
+    int[] pathLength = new int[16];
+    boolean[] onPath = new boolean[highestModuleId + 1];
+    StringBuilder path = new StringBuilder();
+
+    int depth = 0;
+    nodes[0] = 0;
+    weights[0] = 1;
+    callees[0] = callGraph.getCallees(0);
+    positions[0] = 0;
+    pathLength[0] = 0;
+    onPath[0] = true;
+    while (depth >= 0) {
+      if (positions[depth] == callees[depth].length) {
+        onPath[nodes[depth]] = false;
+        callees[depth] = null;
+        depth--;
+        continue;
+      }
+      int caller = nodes[depth];
+      int callee = callees[depth][positions[depth]++];
+      if (onPath[callee] || (numCalls[callee] == 0))
+        continue;
+      double weight = weights[depth] * callGraph.getCallCount(caller, callee) / numCalls[callee];
+      if (inclusive[callee] * weight < MIN_STACK_TIME)
+        continue;
+
+      path.setLength(pathLength[depth]);
+      if (path.length() > 0)
+        path.append(';');
+      path.append(getLabel(callee));
+      long self = Math.round(exclusiveTime[callee] * weight * 1000000);
+      if (self > 0) {
+        writer.write(path.toString());
+        writer.write(' ');
+        writer.write(Long.toString(self));
+        writer.write('\n');
+      }
+
+      depth++;
+      if (depth == nodes.length) {
+        nodes = Arrays.copyOf(nodes, depth * 2);
+        weights = Arrays.copyOf(weights, depth * 2);
+        callees = Arrays.copyOf(callees, depth * 2);
+        positions = Arrays.copyOf(positions, depth * 2);
+        pathLength = Arrays.copyOf(pathLength, depth * 2);
+      }
+      nodes[depth] = callee;
+      weights[depth] = weight;
+      callees[depth] = callGraph.getCallees(callee);
+      positions[depth] = 0;
+      pathLength[depth] = path.length();
+      onPath[callee] = true;
+    }
+    writer.flush();
+  }
+
+  /**
+   * Write JSON summary of all modules, sorted by descending inclusive time. Times are in seconds.
+   */
+  public void writeJsonSummary(Writer writer) throws IOException {
+    final double[] inclusive = getInclusiveTimes();
+    List<Integer> ids = new ArrayList<>();
+    for (int id : getModuleIds()) {
+      ids.add(id);
+    }
+    Collections.sort(ids, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        return Double.compare(inclusive[o2], inclusive[o1]);
+      }
+    });
+
+    writer.write("{\n  \"totalTime\": " + formatTime(getTotalTime()) + ",\n  \"modules\": [");
+    boolean first = true;
+    for (int id : ids) {
+      Module module = modules[id];
+      writer.write(first ? "\n" : ",\n");
+      first = false;
+      writer.write("    {\"id\": " + id);
+      writer.write(", \"file\": " + jsonString(module == null ? "" : module.getModuleObject()));
+      writer.write(", \"procedure\": " + jsonString(module == null ? "" : module.getProcName()));
+      writer.write(", \"calls\": " + numCalls[id]);
+      writer.write(", \"exclusiveTime\": " + formatTime(exclusiveTime[id]));
+      writer.write(", \"inclusiveTime\": " + formatTime(inclusive[id]) + "}");
+    }
+    writer.write("\n  ]\n}\n");
+    writer.flush();
+  }
+
+  /**
+   * Inclusive time of each module, computed once in a single depth-first pass over the call graph
+   */
+  private double[] getInclusiveTimes() {
+    if (inclusiveTime != null)
+      return inclusiveTime;
+
+    double[] rslt = new double[highestModuleId + 1];
+    // 0: not visited, 1: being visited, 2: done
+    byte[] state = new byte[highestModuleId + 1];
+    int[] nodes = new int[16];
+    int[][] callees = new int[16][];
+    int[] positions = new int[16];
+    for (int root = 0; root <= highestModuleId; root++) {
+      if (state[root] != 0)
+        continue;
+      int depth = 0;
+      nodes[0] = root;
+      callees[0] = hasEntry[root] ? new int[0] : callGraph.getCallees(root);
+      positions[0] = 0;
+      state[root] = 1;
+      while (depth >= 0) {
+        int node = nodes[depth];
+        if (positions[depth] < callees[depth].length) {
+          int callee = callees[depth][positions[depth]++];
+          if (state[callee] == 0) {
+            state[callee] = 1;
+            depth++;
+            if (depth == nodes.length) {
+              nodes = Arrays.copyOf(nodes, depth * 2);
+              callees = Arrays.copyOf(callees, depth * 2);
+              positions = Arrays.copyOf(positions, depth * 2);
+            }
+            nodes[depth] = callee;
+            callees[depth] = hasEntry[callee] ? new int[0] : callGraph.getCallees(callee);
+            positions[depth] = 0;
+          }
+          continue;
+        }
+
+        // All callees visited
+        if (hasEntry[node]) {
+          rslt[node] = entryTime[node];
+        } else {
+          final double[] time = {exclusiveTime[node]};
+          final double[] inclusive = rslt;
+          final byte[] visited = state;
+          callGraph.forEachCallee(node, new CallGraph.CallVisitor() {
+            @Override
+            public void call(int callerId, int callerLine, int calleeId, int count) {
+              // Callees still being visited are recursive calls, their time is already counted
+              if ((calleeId != callerId) && (visited[calleeId] == 2) && (numCalls[calleeId] > 0))
+                time[0] += inclusive[calleeId] * count / numCalls[calleeId];
+            }
+          });
+          rslt[node] = time[0];
+        }
+        state[node] = 2;
+        callees[depth] = null;
+        depth--;
+      }
+    }
+    inclusiveTime = rslt;
+
+    return rslt;
+  }
+
+  private String getLabel(int moduleId) {
+    Module module = modules[moduleId];
+    if (module == null)
+      return "#" + moduleId;
+    String label = module.getProcName().isEmpty() ? module.getModuleObject()
+        : module.getModuleObject() + ":" + module.getProcName();
+    return label.replace(';', '_').replace('\n', ' ').replace('\r', ' ');
+  }
+
+  private void ensureModule(int moduleId) {
+    if (moduleId > highestModuleId)
+      highestModuleId = moduleId;
+    if (moduleId < modules.length)
+      return;
+    int newSize = Math.max(moduleId + 1, modules.length * 2);
+    modules = Arrays.copyOf(modules, newSize);
+    exclusiveTime = Arrays.copyOf(exclusiveTime, newSize);
+    entryTime = Arrays.copyOf(entryTime, newSize);
+    hasEntry = Arrays.copyOf(hasEntry, newSize);
+    numCalls = Arrays.copyOf(numCalls, newSize);
+  }
+
+  private static String formatTime(double time) {
+    return String.format(Locale.US, "%.6f", time);
+  }
+
+  static String jsonString(String str) {
+    StringBuilder sb = new StringBuilder(str.length() + 2);
+    sb.append('"');
+    for (int zz = 0; zz < str.length(); zz++) {
+      char ch = str.charAt(zz);
+      switch (ch) {
+        case '"':
+          sb.append("\\\"");
+          break;
+        case '\\':
+          sb.append("\\\\");
+          break;
+        case '\n':
+          sb.append("\\n");
+          break;
+        case '\r':
+          sb.append("\\r");
+          break;
+        case '\t':
+          sb.append("\\t");
+          break;
+        default:
+          if (ch < 0x20)
+            sb.append(String.format("\\u%04x", (int) ch));
+          else
+            sb.append(ch);
+      }
+    }
+    sb.append('"');
+    return sb.toString();
+  }
+}
@@ -2,44 +2,93 @@ package eu.rssw.antlr.profiler;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class CoverageSession {
-  // Collection of files being covered
-  private final Collection<FileCoverage> files = new ArrayList<>();
-  
+  // Files being covered, indexed by file name
+  private final Map<String, FileCoverage> files = new LinkedHashMap<>();
+
   public void addCoverage(Module module) {
-    FileCoverage file = getFile(module.getModuleObject());
-    if (file == null) {
-      file = new FileCoverage(module.getModuleObject());
-      files.add(file);
-    }
+    FileCoverage file = getOrCreateFile(module.getModuleObject());
     file.addLinesToCover(module.getLinesToCover());
     file.addCoveredLines(module.getCoveredLines());
   }
 
   public Collection<FileCoverage> getFiles() {
-    return files;
+    return files.values();
+  }
+
+  /**
+   * Returns coverage of this file, or null if not found
+   */
+  public FileCoverage getFile(String name) {
+    return files.get(name);
   }
 
   public void mergeWith(CoverageSession session) {
     for (FileCoverage f : session.getFiles()) {
-      FileCoverage file = getFile(f.getFileName()); 
-      if (file == null) {
-        file = new FileCoverage(f.getFileName());
-        files.add(file);
+      getOrCreateFile(f.getFileName()).mergeWith(f);
+    }
+  }
+
+  /**
+   * Merge all sessions into a new one. Sessions are split in as many chunks as available processors, each chunk being
+   * folded in its own thread.
+   */
+  public static CoverageSession merge(Collection<CoverageSession> sessions) throws InterruptedException {
+    final List<CoverageSession> list = new ArrayList<>(sessions);
+    int numThreads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), list.size() / 16));
+    if (numThreads == 1)
+      return fold(list);
+
+    ExecutorService service = Executors.newFixedThreadPool(numThreads);
+    try {
+      List<Future<CoverageSession>> futures = new ArrayList<>();
+      int chunkSize = (list.size() + numThreads - 1) / numThreads;
+      for (int zz = 0; zz < list.size(); zz += chunkSize) {
+        final List<CoverageSession> chunk = list.subList(zz, Math.min(list.size(), zz + chunkSize));
+        futures.add(service.submit(new Callable<CoverageSession>() {
+          @Override
+          public CoverageSession call() {
+            return fold(chunk);
+          }
+        }));
       }
-      file.addLinesToCover(f.getLinesToCover());
-      file.addCoveredLines(f.getCoveredLines());
+      CoverageSession rslt = new CoverageSession();
+      for (Future<CoverageSession> future : futures) {
+        rslt.mergeWith(future.get());
+      }
+      return rslt;
+    } catch (ExecutionException caught) {
+      throw new IllegalStateException(caught.getCause());
+    } finally {
+      service.shutdownNow();
     }
   }
 
-  private FileCoverage getFile(String name) {
-    for (FileCoverage file : files) {
-      if (file.getFileName().equals(name))
-        return file;
+  private static CoverageSession fold(List<CoverageSession> sessions) {
+    CoverageSession rslt = new CoverageSession();
+    for (CoverageSession session : sessions) {
+      rslt.mergeWith(session);
+    }
+    return rslt;
+  }
+
+  private FileCoverage getOrCreateFile(String name) {
+    FileCoverage file = files.get(name);
+    if (file == null) {
+      file = new FileCoverage(name);
+      files.put(name, file);
     }
 
-    return null;
+    return file;
   }
 
 }
@@ -1,36 +1,111 @@
 package eu.rssw.antlr.profiler;
 
+import java.util.AbstractSet;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
+/**
+ * Lines to cover and covered lines of one file, stored as bitmaps indexed by line number
+ */
 public class FileCoverage {
-  private String fileName;
-  private SortedSet<Integer> linesToCover = new TreeSet<>();
-  private SortedSet<Integer> coveredLines = new TreeSet<>();
+  private final String fileName;
+  private final BitSet linesToCover = new BitSet();
+  private final BitSet coveredLines = new BitSet();
 
   public FileCoverage(String fileName) {
     this.fileName = fileName;
   }
 
   public void addLinesToCover(Collection<Integer> linesToCover) {
-    this.linesToCover.addAll(linesToCover);
+    for (Integer line : linesToCover) {
+      this.linesToCover.set(line);
+    }
   }
 
   public void addCoveredLines(Collection<Integer> coveredLines) {
-    this.coveredLines.addAll(coveredLines);
+    for (Integer line : coveredLines) {
+      this.coveredLines.set(line);
+    }
+  }
+
+  /**
+   * Add lines to cover and covered lines of another file
+   */
+  public void mergeWith(FileCoverage file) {
+    linesToCover.or(file.linesToCover);
+    coveredLines.or(file.coveredLines);
   }
 
   public String getFileName() {
     return fileName;
   }
 
+  /**
+   * Returns read-only view of lines to cover, in ascending order
+   */
   public Set<Integer> getLinesToCover() {
-    return linesToCover;
+    return new BitSetView(linesToCover);
   }
 
+  /**
+   * Returns read-only view of covered lines, in ascending order
+   */
   public Set<Integer> getCoveredLines() {
-    return coveredLines;
+    return new BitSetView(coveredLines);
+  }
+
+  public boolean isLineToCover(int lineNumber) {
+    return (lineNumber >= 0) && linesToCover.get(lineNumber);
+  }
+
+  public boolean isCovered(int lineNumber) {
+    return (lineNumber >= 0) && coveredLines.get(lineNumber);
+  }
+
+  private static class BitSetView extends AbstractSet<Integer> {
+    private final BitSet bitSet;
+
+    BitSetView(BitSet bitSet) {
+      this.bitSet = bitSet;
+    }
+
+    @Override
+    public int size() {
+      return bitSet.cardinality();
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return bitSet.isEmpty();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return (o instanceof Integer) && ((Integer) o >= 0) && bitSet.get((Integer) o);
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+      return new Iterator<Integer>() {
+        private int next = bitSet.nextSetBit(0);
+
+        @Override
+        public boolean hasNext() {
+          return next >= 0;
+        }
+
+        @Override
+        public Integer next() {
+          if (next < 0)
+            throw new NoSuchElementException();
+          int rslt = next;
+          next = bitSet.nextSetBit(next + 1);
+          return rslt;
+        }
+      };
+    }
   }
 }
@@ -0,0 +1,99 @@
+package eu.rssw.antlr.profiler;
+
+import java.util.Arrays;
+
+/**
+ * Distribution of execution time of each traced line of one file, and of the whole file, merged over all profiler
+ * sessions. Line histograms are stored in an array indexed by line number.
+ */
+public class FileLatency {
+  private final String fileName;
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private LatencyHistogram[] lines = new LatencyHistogram[0];
+  private int maxLine = 0;
+
+  public FileLatency(String fileName) {
+    this.fileName = fileName;
+  }
+
+  public String getFileName() {
+    return fileName;
+  }
+
+  /**
+   * Add tracing data of a module (main block, or internal procedure, function or method) of this file
+   */
+  public void addModule(Module module) {
+    if (module.getLatency() == null)
+      return;
+    latency.mergeWith(module.getLatency());
+    for (int line : module.getTracedLines()) {
+      addLine(line, module.getLineLatency(line));
+    }
+  }
+
+  public void addLine(int lineNumber, LatencyHistogram histogram) {
+    if (lineNumber <= 0)
+      return;
+    if (lineNumber >= lines.length)
+      lines = Arrays.copyOf(lines, Math.max(lineNumber + 1, lines.length + (lines.length >> 1)));
+    maxLine = Math.max(maxLine, lineNumber);
+    if (lines[lineNumber] == null)
+      lines[lineNumber] = new LatencyHistogram();
+    lines[lineNumber].mergeWith(histogram);
+  }
+
+  public void mergeWith(FileLatency file) {
+    latency.mergeWith(file.latency);
+    for (int zz = 1; zz <= file.maxLine; zz++) {
+      if (file.lines[zz] != null)
+        addLine(zz, file.lines[zz]);
+    }
+  }
+
+  /**
+   * Distribution of execution time of all traced lines of this file
+   */
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  /**
+   * Returns null if line wasn't traced
+   */
+  public LatencyHistogram getLineLatency(int lineNumber) {
+    return (lineNumber > 0) && (lineNumber < lines.length) ? lines[lineNumber] : null;
+  }
+
+  /**
+   * Returns highest traced line number, or 0
+   */
+  public int getMaxLine() {
+    return maxLine;
+  }
+
+  /**
+   * Returns line numbers with the highest value at this percentile, in descending order
+   */
+  public int[] getSlowestLines(int max, double percentile) {
+    double[] values = new double[maxLine + 1];
+    for (int zz = 1; zz <= maxLine; zz++) {
+      values[zz] = lines[zz] == null ? -1 : lines[zz].getPercentile(percentile);
+    }
+    // Partial selection sort, as max is expected to be small
+    int[] rslt = new int[Math.max(0, max)];
+    int size = 0;
+    while (size < rslt.length) {
+      int best = -1;
+      for (int zz = 1; zz <= maxLine; zz++) {
+        if ((values[zz] >= 0) && ((best == -1) || (values[zz] > values[best])))
+          best = zz;
+      }
+      if (best == -1)
+        break;
+      values[best] = -1;
+      rslt[size++] = best;
+    }
+    return Arrays.copyOf(rslt, size);
+  }
+}
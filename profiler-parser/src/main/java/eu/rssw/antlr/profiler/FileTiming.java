@@ -0,0 +1,131 @@
+package eu.rssw.antlr.profiler;
+
+import java.util.Arrays;
+
+/**
+ * Execution count and time of each line of one file, summed over all profiler sessions. Values are stored in primitive
+ * arrays indexed by line number.
+ */
+public class FileTiming {
+  private final String fileName;
+  private long[] execCount = new long[0];
+  private double[] actualTime = new double[0];
+  private double[] cumulativeTime = new double[0];
+  private int maxLine = 0;
+  private long numCalls;
+
+  public FileTiming(String fileName) {
+    this.fileName = fileName;
+  }
+
+  public String getFileName() {
+    return fileName;
+  }
+
+  public void addLine(int lineNumber, long execCount, double actualTime, double cumulativeTime) {
+    if (lineNumber <= 0)
+      return;
+    ensureCapacity(lineNumber + 1);
+    maxLine = Math.max(maxLine, lineNumber);
+    this.execCount[lineNumber] += execCount;
+    this.actualTime[lineNumber] += actualTime;
+    this.cumulativeTime[lineNumber] += cumulativeTime;
+  }
+
+  public void addCalls(long numCalls) {
+    this.numCalls += numCalls;
+  }
+
+  public void mergeWith(FileTiming timing) {
+    ensureCapacity(timing.maxLine + 1);
+    maxLine = Math.max(maxLine, timing.maxLine);
+    for (int zz = 1; zz <= timing.maxLine; zz++) {
+      execCount[zz] += timing.execCount[zz];
+      actualTime[zz] += timing.actualTime[zz];
+      cumulativeTime[zz] += timing.cumulativeTime[zz];
+    }
+    numCalls += timing.numCalls;
+  }
+
+  /**
+   * Returns highest line number with timing data, or 0
+   */
+  public int getMaxLine() {
+    return maxLine;
+  }
+
+  public long getExecCount(int lineNumber) {
+    return (lineNumber > 0) && (lineNumber < execCount.length) ? execCount[lineNumber] : 0;
+  }
+
+  /**
+   * Time spent on this line, in seconds
+   */
+  public double getActualTime(int lineNumber) {
+    return (lineNumber > 0) && (lineNumber < actualTime.length) ? actualTime[lineNumber] : 0;
+  }
+
+  /**
+   * Time spent on this line and in called modules, in seconds
+   */
+  public double getCumulativeTime(int lineNumber) {
+    return (lineNumber > 0) && (lineNumber < cumulativeTime.length) ? cumulativeTime[lineNumber] : 0;
+  }
+
+  /**
+   * Sum of time spent on each line, in seconds
+   */
+  public double getTotalTime() {
+    double rslt = 0;
+    for (double time : actualTime) {
+      rslt += time;
+    }
+    return rslt;
+  }
+
+  public long getTotalExecCount() {
+    long rslt = 0;
+    for (long count : execCount) {
+      rslt += count;
+    }
+    return rslt;
+  }
+
+  /**
+   * Number of calls to this file, or to its internal procedures, functions and methods
+   */
+  public long getNumCalls() {
+    return numCalls;
+  }
+
+  /**
+   * Returns line numbers with the highest actual time, in descending order of time. Lines never executed are skipped.
+   */
+  public int[] getHottestLines(int max) {
+    // Partial selection sort, as max is expected to be small
+    int[] rslt = new int[Math.max(0, max)];
+    int size = 0;
+    boolean[] selected = new boolean[maxLine + 1];
+    while (size < rslt.length) {
+      int best = -1;
+      for (int zz = 1; zz <= maxLine; zz++) {
+        if (!selected[zz] && (execCount[zz] > 0) && ((best == -1) || (actualTime[zz] > actualTime[best])))
+          best = zz;
+      }
+      if (best == -1)
+        break;
+      selected[best] = true;
+      rslt[size++] = best;
+    }
+    return Arrays.copyOf(rslt, size);
+  }
+
+  private void ensureCapacity(int size) {
+    if (size <= execCount.length)
+      return;
+    int newSize = Math.max(size, execCount.length + (execCount.length >> 1));
+    execCount = Arrays.copyOf(execCount, newSize);
+    actualTime = Arrays.copyOf(actualTime, newSize);
+    cumulativeTime = Arrays.copyOf(cumulativeTime, newSize);
+  }
+}
@@ -0,0 +1,143 @@
+package eu.rssw.antlr.profiler;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Distribution of execution times, with a bounded relative error. Values are counted in microseconds, in buckets of
+ * exponentially growing width: values below 32µs have their own bucket, and each power of two above is split in 16
+ * buckets, so that percentiles are at most 6.25% above the actual value. Bucket layout doesn't depend on recorded
+ * values, so histograms can be merged by adding counts, and memory usage is bounded whatever the number of values.
+ */
+public class LatencyHistogram {
+  private static final int SUB_BITS = 4;
+  private static final int SUB_COUNT = 1 << SUB_BITS;
+  private static final int NUM_BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+  // Only allocated up to the highest bucket used
+  private long[] counts = new long[0];
+  private long count;
+  private long max;
+  private double total;
+
+  /**
+   * @param time Execution time in seconds
+   */
+  public void add(double time) {
+    long micros = Math.max(0, Math.round(time * 1000000));
+    int bucket = bucket(micros);
+    if (bucket >= counts.length)
+      counts = Arrays.copyOf(counts, Math.min(NUM_BUCKETS, Math.max(bucket + 1, counts.length * 2)));
+    counts[bucket]++;
+    count++;
+    max = Math.max(max, micros);
+    total += time;
+  }
+
+  public void mergeWith(LatencyHistogram histogram) {
+    if (histogram.counts.length > counts.length)
+      counts = Arrays.copyOf(counts, histogram.counts.length);
+    for (int zz = 0; zz < histogram.counts.length; zz++) {
+      counts[zz] += histogram.counts[zz];
+    }
+    count += histogram.count;
+    max = Math.max(max, histogram.max);
+    total += histogram.total;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public boolean isEmpty() {
+    return count == 0;
+  }
+
+  /**
+   * Sum of all values, in seconds
+   */
+  public double getTotal() {
+    return total;
+  }
+
+  /**
+   * Highest value, in seconds
+   */
+  public double getMax() {
+    return max / 1000000d;
+  }
+
+  /**
+   * Returns smallest value such that at least <code>percentile</code>% of values are below or equal, in seconds. Result
+   * is rounded up to the upper bound of its bucket, and never above {@link #getMax()}.
+   *
+   * @param percentile Between 0 and 100
+   */
+  public double getPercentile(double percentile) {
+    if (count == 0)
+      return 0;
+    long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) * count / 100));
+    long cumulative = 0;
+    for (int zz = 0; zz < counts.length; zz++) {
+      cumulative += counts[zz];
+      if (cumulative >= rank)
+        return Math.min(max, upperBound(zz)) / 1000000d;
+    }
+    return getMax();
+  }
+
+  /**
+   * Write histogram in binary format, trailing empty buckets excluded
+   */
+  void writeTo(DataOutput out) throws IOException {
+    int numBuckets = counts.length;
+    while ((numBuckets > 0) && (counts[numBuckets - 1] == 0)) {
+      numBuckets--;
+    }
+    out.writeLong(count);
+    out.writeLong(max);
+    out.writeDouble(total);
+    out.writeShort(numBuckets);
+    for (int zz = 0; zz < numBuckets; zz++) {
+      out.writeLong(counts[zz]);
+    }
+  }
+
+  /**
+   * Read histogram written by {@link #writeTo(DataOutput)}
+   */
+  static LatencyHistogram readFrom(ByteBuffer buffer) throws IOException {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.count = buffer.getLong();
+    histogram.max = buffer.getLong();
+    histogram.total = buffer.getDouble();
+    int numBuckets = buffer.getShort() & 0xFFFF;
+    if (numBuckets > NUM_BUCKETS)
+      throw new IOException("Invalid number of buckets " + numBuckets);
+    histogram.counts = new long[numBuckets];
+    for (int zz = 0; zz < numBuckets; zz++) {
+      histogram.counts[zz] = buffer.getLong();
+    }
+    return histogram;
+  }
+
+  static int bucket(long value) {
+    if (value < 2 * SUB_COUNT)
+      return (int) value;
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    return ((exponent - SUB_BITS + 1) << SUB_BITS) + (int) ((value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1));
+  }
+
+  static long lowerBound(int bucket) {
+    if (bucket < 2 * SUB_COUNT)
+      return bucket;
+    int exponent = (bucket >> SUB_BITS) + SUB_BITS - 1;
+    return (long) (SUB_COUNT + (bucket & (SUB_COUNT - 1))) << (exponent - SUB_BITS);
+  }
+
+  static long upperBound(int bucket) {
+    return bucket == NUM_BUCKETS - 1 ? Long.MAX_VALUE : lowerBound(bucket + 1) - 1;
+  }
+}
@@ -0,0 +1,44 @@
+package eu.rssw.antlr.profiler;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class LatencySession {
+  // Files being profiled, indexed by file name
+  private final Map<String, FileLatency> files = new LinkedHashMap<>();
+
+  public void addLatency(Module module) {
+    if (module.getLatency() == null)
+      return;
+    getOrCreateFile(module.getModuleObject()).addModule(module);
+  }
+
+  public Collection<FileLatency> getFiles() {
+    return files.values();
+  }
+
+  /**
+   * Returns latency of this file, or null if not found
+   */
+  public FileLatency getFile(String name) {
+    return files.get(name);
+  }
+
+  public void mergeWith(LatencySession session) {
+    for (FileLatency f : session.getFiles()) {
+      getOrCreateFile(f.getFileName()).mergeWith(f);
+    }
+  }
+
+  private FileLatency getOrCreateFile(String name) {
+    FileLatency file = files.get(name);
+    if (file == null) {
+      file = new FileLatency(name);
+      files.put(name, file);
+    }
+
+    return file;
+  }
+
+}
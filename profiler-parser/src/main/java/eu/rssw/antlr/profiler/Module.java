@@ -2,8 +2,10 @@ package eu.rssw.antlr.profiler;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class Module implements Comparable<Module> {
@@ -12,6 +14,9 @@ public class Module implements Comparable<Module> {
   private final String name;
   private final String debugListingFile;
   private final Set<LineData> lineData = new HashSet<>();
+  // Lazily initialized, only when profiler output has tracing data
+  private LatencyHistogram latency = null;
+  private Map<Integer, LatencyHistogram> lineLatency = null;
 
   public Module(int id, String name, String file, int crc) {
     this.id = id;
@@ -88,6 +93,68 @@ public class Module implements Comparable<Module> {
     lineData.add(data);
   }
 
+  /**
+   * Add one line execution from tracing data
+   *
+   * @param execTime In seconds
+   */
+  public void addTracing(int lineNumber, float execTime) {
+    if (latency == null) {
+      latency = new LatencyHistogram();
+      lineLatency = new HashMap<>();
+    }
+    latency.add(execTime);
+    LatencyHistogram line = lineLatency.get(lineNumber);
+    if (line == null) {
+      line = new LatencyHistogram();
+      lineLatency.put(lineNumber, line);
+    }
+    line.add(execTime);
+  }
+
+  /**
+   * Add distribution of execution time of one line, as previously returned by {@link #getLineLatency(int)}
+   */
+  void addLatency(int lineNumber, LatencyHistogram histogram) {
+    if (latency == null) {
+      latency = new LatencyHistogram();
+      lineLatency = new HashMap<>();
+    }
+    latency.mergeWith(histogram);
+    LatencyHistogram line = lineLatency.get(lineNumber);
+    if (line == null) {
+      line = new LatencyHistogram();
+      lineLatency.put(lineNumber, line);
+    }
+    line.mergeWith(histogram);
+  }
+
+  /**
+   * Returns distribution of execution time of all traced lines of this module, or null if no tracing data
+   */
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  /**
+   * Returns distribution of execution time of one line, or null if this line wasn't traced
+   */
+  public LatencyHistogram getLineLatency(int lineNumber) {
+    return lineLatency == null ? null : lineLatency.get(lineNumber);
+  }
+
+  /**
+   * Returns traced line numbers, in ascending order
+   */
+  public List<Integer> getTracedLines() {
+    List<Integer> rslt = new ArrayList<>();
+    if (lineLatency != null)
+      rslt.addAll(lineLatency.keySet());
+    Collections.sort(rslt);
+
+    return rslt;
+  }
+
   public void addLineToCover(int lineNumber) {
     if (lineNumber == 0)
       return;
@@ -0,0 +1,63 @@
+package eu.rssw.antlr.profiler;
+
+import eu.rssw.antlr.profiler.ProfilerReader.Section;
+
+/**
+ * Receives records from {@link ProfilerReader}, in the order they appear in the profiler output. All methods do nothing
+ * by default, so that implementations only have to override what they need.
+ */
+public interface ProfilerCallback {
+
+  /**
+   * Called before reading each section. Sections which are not accepted are skipped line by line without being parsed,
+   * and none of their records are sent to this callback.
+   */
+  default boolean accept(Section section) {
+    return true;
+  }
+
+  /**
+   * Called once all records of an accepted section have been sent
+   */
+  default void endSection(Section section) {
+    // No-op
+  }
+
+  /**
+   * First line of profiler output. Date is in MM/dd/yyyy format, time in HH:mm:ss format.
+   */
+  default void description(int version, String date, String description, String time, String author) {
+    // No-op
+  }
+
+  default void module(int id, String name, String debugListingFile, int crc) {
+    // No-op
+  }
+
+  default void callTree(int callerId, int callerLineNum, int calleeId, int callCount) {
+    // No-op
+  }
+
+  default void lineSummary(int moduleId, int lineNumber, int execCount, float actualTime, float cumulativeTime) {
+    // No-op
+  }
+
+  default void tracing(int moduleId, int lineNumber, float execTime, float timestamp) {
+    // No-op
+  }
+
+  /**
+   * Start of executable lines list of a module (or of an internal procedure / method)
+   */
+  default void coverageSection(int moduleId, String name, int lineCount) {
+    // No-op
+  }
+
+  default void coverageLine(int moduleId, int lineNumber) {
+    // No-op
+  }
+
+  default void userData(String time, String data) {
+    // No-op
+  }
+}
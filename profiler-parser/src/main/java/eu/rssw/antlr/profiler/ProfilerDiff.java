@@ -0,0 +1,291 @@
+package eu.rssw.antlr.profiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares two sets of profiler sessions (baseline and candidate), and reports modules and lines whose execution time
+ * grew. Each session is one sample: time per call for modules, time per execution for lines. Only mean and variance
+ * are kept for each module and line, so any number of sessions can be added.
+ * <ul>
+ * <li>Modules are aligned by name (internal procedure and file name)</li>
+ * <li>Lines are aligned by file name and line number, and only compared when the CRC of the file is the same in all
+ * sessions, as line numbers are meaningless once code has changed</li>
+ * </ul>
+ * When both sides have at least two samples, a regression also has to pass Welch's t-test at 95%.
+ */
+public class ProfilerDiff {
+  private static final int BASELINE = 0;
+  private static final int CANDIDATE = 1;
+  // Two-sided 95% critical values of Student's t-distribution, for 1 to 30 degrees of freedom
+  private static final double[] T_CRITICAL = {12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+      2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086, 2.080, 2.074, 2.069, 2.064, 2.060, 2.056,
+      2.052, 2.048, 2.045, 2.042};
+  private static final double Z_CRITICAL = 1.960;
+  // No CRC, or different CRCs across sessions
+  private static final long NO_CRC = Long.MIN_VALUE;
+
+  private final int[] numSessions = new int[2];
+  private final Map<String, Stats[]> modules = new HashMap<>();
+  private final Map<String, FileStats> files = new HashMap<>();
+
+  public synchronized void addBaseline(ProfilerSession session) {
+    add(session, BASELINE);
+  }
+
+  public synchronized void addCandidate(ProfilerSession session) {
+    add(session, CANDIDATE);
+  }
+
+  /**
+   * @param threshold Minimal relative increase of time per call or per execution (0.2 means 20% slower)
+   * @param minTime Minimal increase of time per session in seconds, in order to skip lines which are slower but
+   *          negligible
+   * @return Modules and lines slower in candidate sessions, by descending time increase
+   */
+  public synchronized List<Regression> getRegressions(double threshold, double minTime) {
+    List<Regression> list = new ArrayList<>();
+    if ((numSessions[BASELINE] == 0) || (numSessions[CANDIDATE] == 0))
+      return list;
+
+    for (Map.Entry<String, Stats[]> entry : modules.entrySet()) {
+      Module module = new Module(0, entry.getKey(), "", 0);
+      addRegression(list, module.getModuleObject(), module.getProcName(), 0, entry.getValue(), threshold, minTime);
+    }
+    for (Map.Entry<String, FileStats> entry : files.entrySet()) {
+      FileStats file = entry.getValue();
+      if ((file.crc[BASELINE] == NO_CRC) || (file.crc[BASELINE] != file.crc[CANDIDATE]))
+        continue;
+      for (int zz = 1; zz < file.lines.length; zz++) {
+        if (file.lines[zz] != null)
+          addRegression(list, entry.getKey(), "", zz, file.lines[zz], threshold, minTime);
+      }
+    }
+    Collections.sort(list, new Comparator<Regression>() {
+      @Override
+      public int compare(Regression o1, Regression o2) {
+        return Double.compare(o2.getExtraTime(), o1.getExtraTime());
+      }
+    });
+
+    return list;
+  }
+
+  private void addRegression(List<Regression> list, String fileName, String procName, int lineNumber, Stats[] stats,
+      double threshold, double minTime) {
+    Stats baseline = stats[BASELINE];
+    Stats candidate = stats[CANDIDATE];
+    if ((baseline == null) || (candidate == null) || (baseline.mean <= 0))
+      return;
+    if (candidate.mean < baseline.mean * (1 + threshold))
+      return;
+    double extraTime = (candidate.mean - baseline.mean) * candidate.executions / numSessions[CANDIDATE];
+    if (extraTime < minTime)
+      return;
+
+    Regression regression = new Regression(fileName, procName, lineNumber, baseline, candidate, extraTime);
+    if (!regression.hasEnoughSamples() || regression.isSignificant())
+      list.add(regression);
+  }
+
+  private void add(ProfilerSession session, int side) {
+    numSessions[side]++;
+
+    CallTreeTiming timing = session.getCallTreeTiming();
+    if (timing != null) {
+      for (int id : timing.getModuleIds()) {
+        Module module = timing.getModule(id);
+        long numCalls = timing.getNumCalls(id);
+        if ((module == null) || (numCalls == 0))
+          continue;
+        Stats[] stats = modules.get(module.getName());
+        if (stats == null) {
+          stats = new Stats[2];
+          modules.put(module.getName(), stats);
+        }
+        if (stats[side] == null)
+          stats[side] = new Stats();
+        stats[side].add(timing.getInclusiveTime(id) / numCalls, numCalls);
+      }
+    }
+
+    for (Module module : session.getModules()) {
+      FileStats file = files.get(module.getModuleObject());
+      if (file == null) {
+        file = new FileStats();
+        files.put(module.getModuleObject(), file);
+      }
+      file.addCrc(side, module.getCrc());
+      for (LineData line : module.getLineData()) {
+        if (line.getExecCount() > 0)
+          file.getLine(line.getLineNumber(), side).add((double) line.getActualTime() / line.getExecCount(),
+              line.getExecCount());
+      }
+    }
+  }
+
+  private static double tCritical(double degreesOfFreedom) {
+    int df = (int) Math.floor(degreesOfFreedom);
+    if (df < 1)
+      return T_CRITICAL[0];
+    return df <= T_CRITICAL.length ? T_CRITICAL[df - 1] : Z_CRITICAL;
+  }
+
+  /**
+   * Running mean and variance (Welford's algorithm)
+   */
+  private static class Stats {
+    private int count;
+    private double mean;
+    private double m2;
+    private long executions;
+
+    void add(double value, long numExecutions) {
+      count++;
+      double delta = value - mean;
+      mean += delta / count;
+      m2 += delta * (value - mean);
+      executions += numExecutions;
+    }
+
+    double variance() {
+      return count > 1 ? m2 / (count - 1) : 0;
+    }
+  }
+
+  private static class FileStats {
+    private final long[] crc = {NO_CRC, NO_CRC};
+    private final boolean[] hasCrc = new boolean[2];
+    private Stats[][] lines = new Stats[0][];
+
+    void addCrc(int side, int value) {
+      if (!hasCrc[side]) {
+        hasCrc[side] = true;
+        crc[side] = value;
+      } else if (crc[side] != value) {
+        crc[side] = NO_CRC;
+      }
+    }
+
+    Stats getLine(int lineNumber, int side) {
+      if (lineNumber >= lines.length)
+        lines = Arrays.copyOf(lines, Math.max(lineNumber + 1, lines.length * 2));
+      if (lines[lineNumber] == null)
+        lines[lineNumber] = new Stats[2];
+      if (lines[lineNumber][side] == null)
+        lines[lineNumber][side] = new Stats();
+      return lines[lineNumber][side];
+    }
+  }
+
+  public static class Regression {
+    private final String fileName;
+    private final String procName;
+    private final int lineNumber;
+    private final double baselineTime;
+    private final double candidateTime;
+    private final double extraTime;
+    private final boolean enoughSamples;
+    private final double tValue;
+    private final double degreesOfFreedom;
+
+    private Regression(String fileName, String procName, int lineNumber, Stats baseline, Stats candidate,
+        double extraTime) {
+      this.fileName = fileName;
+      this.procName = procName;
+      this.lineNumber = lineNumber;
+      this.baselineTime = baseline.mean;
+      this.candidateTime = candidate.mean;
+      this.extraTime = extraTime;
+      this.enoughSamples = (baseline.count > 1) && (candidate.count > 1);
+
+      double vb = baseline.variance() / baseline.count;
+      double vc = candidate.variance() / candidate.count;
+      if (vb + vc > 0) {
+        tValue = (candidate.mean - baseline.mean) / Math.sqrt(vb + vc);
+        double denominator = (enoughSamples ? vb * vb / (baseline.count - 1) + vc * vc / (candidate.count - 1) : 0);
+        degreesOfFreedom = denominator > 0 ? (vb + vc) * (vb + vc) / denominator : 1;
+      } else {
+        tValue = candidate.mean > baseline.mean ? Double.POSITIVE_INFINITY : 0;
+        degreesOfFreedom = Double.POSITIVE_INFINITY;
+      }
+    }
+
+    /**
+     * As returned by {@link Module#getModuleObject()}
+     */
+    public String getFileName() {
+      return fileName;
+    }
+
+    /**
+     * Internal procedure, function or method name, or empty string for main block or line regressions
+     */
+    public String getProcName() {
+      return procName;
+    }
+
+    /**
+     * Line number, or 0 for module regressions
+     */
+    public int getLineNumber() {
+      return lineNumber;
+    }
+
+    /**
+     * Mean time per call (for modules) or per execution (for lines) in baseline sessions, in seconds
+     */
+    public double getBaselineTime() {
+      return baselineTime;
+    }
+
+    /**
+     * Mean time per call (for modules) or per execution (for lines) in candidate sessions, in seconds
+     */
+    public double getCandidateTime() {
+      return candidateTime;
+    }
+
+    /**
+     * Candidate time divided by baseline time
+     */
+    public double getRatio() {
+      return candidateTime / baselineTime;
+    }
+
+    /**
+     * Additional time per candidate session, in seconds
+     */
+    public double getExtraTime() {
+      return extraTime;
+    }
+
+    public double getTValue() {
+      return tValue;
+    }
+
+    /**
+     * True if both sides have at least two samples, so that statistical significance can be evaluated
+     */
+    public boolean hasEnoughSamples() {
+      return enoughSamples;
+    }
+
+    public boolean isSignificant() {
+      return enoughSamples && (tValue > tCritical(degreesOfFreedom));
+    }
+
+    @Override
+    public String toString() {
+      return fileName + (procName.isEmpty() ? "" : ":" + procName) + (lineNumber > 0 ? " line " + lineNumber : "")
+          + String.format(Locale.US, " %.6fs -> %.6fs (x%.2f, +%.6fs per session)", baselineTime, candidateTime, getRatio(),
+              extraTime);
+    }
+  }
+}
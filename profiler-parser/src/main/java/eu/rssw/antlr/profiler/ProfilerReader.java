@@ -0,0 +1,333 @@
+package eu.rssw.antlr.profiler;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Streaming reader of profiler output. Records are sent to a {@link ProfilerCallback} as soon as they are read, so
+ * memory usage doesn't depend on file size. Input is tokenized at the byte level, only quoted strings are decoded.
+ * Unknown trailing fields on a line are ignored, as well as anything after the user data section.
+ */
+public class ProfilerReader implements Closeable {
+  private static final int BUFFER_SIZE = 65536;
+  private static final double[] POW10 = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13,
+      1e14, 1e15, 1e16, 1e17, 1e18};
+
+  public enum Section {
+    MODULES,
+    CALL_TREE,
+    LINE_SUMMARY,
+    TRACING,
+    COVERAGE,
+    USER_DATA;
+  }
+
+  private final InputStream input;
+  private final Charset charset;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int pos = 0;
+  private int limit = 0;
+  private int lineNumber = 1;
+  private byte[] strBuffer = new byte[256];
+
+  public ProfilerReader(File file) throws IOException {
+    this(new FileInputStream(file), Charset.defaultCharset());
+  }
+
+  /**
+   * @param input Stream is closed by {@link #close()}
+   * @param charset Used to decode module names and user data
+   */
+  public ProfilerReader(InputStream input, Charset charset) {
+    this.input = input;
+    this.charset = charset;
+  }
+
+  /**
+   * Read whole input, and send records to callback
+   *
+   * @throws IOException If input can't be read, or is not a profiler output
+   */
+  public void read(ProfilerCallback callback) throws IOException {
+    readDescription(callback);
+
+    readSection(Section.MODULES, callback);
+    readSection(Section.CALL_TREE, callback);
+    readSection(Section.LINE_SUMMARY, callback);
+    readSection(Section.TRACING, callback);
+    readCoverage(callback);
+    readSection(Section.USER_DATA, callback);
+  }
+
+  @Override
+  public void close() throws IOException {
+    input.close();
+  }
+
+  private void readDescription(ProfilerCallback callback) throws IOException {
+    skipSpaces();
+    if (!isDigit(peek()))
+      throw new IOException("Not a profiler output");
+    int version = readInt();
+    String date = readWord();
+    String description = readString();
+    String time = readWord();
+    String author = readString();
+    callback.description(version, date, description, time, author);
+    endLine();
+    while (!endOfSection()) {
+      endLine();
+    }
+  }
+
+  private void readSection(Section section, ProfilerCallback callback) throws IOException {
+    boolean accepted = callback.accept(section);
+    while (!endOfSection()) {
+      if (accepted)
+        readRecord(section, callback);
+      endLine();
+    }
+    if (accepted)
+      callback.endSection(section);
+  }
+
+  private void readRecord(Section section, ProfilerCallback callback) throws IOException {
+    switch (section) {
+      case MODULES:
+        callback.module(readInt(), readString(), readString(), readInt());
+        break;
+      case CALL_TREE:
+        callback.callTree(readInt(), readInt(), readInt(), readInt());
+        break;
+      case LINE_SUMMARY:
+        callback.lineSummary(readInt(), readInt(), readInt(), readFloat(), readFloat());
+        break;
+      case TRACING:
+        callback.tracing(readInt(), readInt(), readFloat(), readFloat());
+        break;
+      case USER_DATA:
+        callback.userData(readWord(), readString());
+        break;
+      default:
+        throw new IllegalArgumentException("Unexpected section " + section);
+    }
+  }
+
+  /**
+   * Coverage data is a list of sub-sections, each one being a header line followed by line numbers
+   */
+  private void readCoverage(ProfilerCallback callback) throws IOException {
+    boolean accepted = callback.accept(Section.COVERAGE);
+    while (!endOfSection()) {
+      if (accepted) {
+        int moduleId = readInt();
+        callback.coverageSection(moduleId, readString(), readInt());
+        endLine();
+        while (!endOfSection()) {
+          callback.coverageLine(moduleId, readInt());
+          endLine();
+        }
+      } else {
+        endLine();
+        while (!endOfSection()) {
+          endLine();
+        }
+      }
+    }
+    if (accepted)
+      callback.endSection(Section.COVERAGE);
+  }
+
+  /**
+   * Returns true and consumes line if next line is a section terminator, or if end of input is reached. Blank lines are
+   * skipped.
+   */
+  private boolean endOfSection() throws IOException {
+    while (true) {
+      skipSpaces();
+      int ch = peek();
+      if ((ch == -1) || (ch == '.')) {
+        endLine();
+        return true;
+      } else if ((ch == '\r') || (ch == '\n')) {
+        endLine();
+      } else {
+        return false;
+      }
+    }
+  }
+
+  private int peek() throws IOException {
+    if (pos == limit) {
+      limit = input.read(buffer, 0, BUFFER_SIZE);
+      pos = 0;
+      if (limit <= 0) {
+        limit = 0;
+        return -1;
+      }
+    }
+    return buffer[pos] & 0xFF;
+  }
+
+  private int next() throws IOException {
+    int ch = peek();
+    if (ch != -1)
+      pos++;
+    return ch;
+  }
+
+  private void skipSpaces() throws IOException {
+    int ch = peek();
+    while ((ch == ' ') || (ch == '\t')) {
+      pos++;
+      ch = peek();
+    }
+  }
+
+  /**
+   * Skip everything up to and including next line feed
+   */
+  private void endLine() throws IOException {
+    while (true) {
+      if ((pos == limit) && (peek() == -1))
+        return;
+      for (int zz = pos; zz < limit; zz++) {
+        if (buffer[zz] == '\n') {
+          pos = zz + 1;
+          lineNumber++;
+          return;
+        }
+      }
+      pos = limit;
+    }
+  }
+
+  private int readInt() throws IOException {
+    skipSpaces();
+    boolean negative = false;
+    if (peek() == '-') {
+      negative = true;
+      pos++;
+    }
+    if (!isDigit(peek()))
+      throw unexpectedToken("integer");
+    long val = 0;
+    while (isDigit(peek())) {
+      val = val * 10 + (next() - '0');
+      if (val > Integer.MAX_VALUE + 1L)
+        throw unexpectedToken("integer");
+    }
+
+    return (int) (negative ? -val : val);
+  }
+
+  private float readFloat() throws IOException {
+    skipSpaces();
+    boolean negative = false;
+    if (peek() == '-') {
+      negative = true;
+      pos++;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int scale = 0;
+    boolean fraction = false;
+    boolean empty = true;
+    while (true) {
+      int ch = peek();
+      if (isDigit(ch)) {
+        empty = false;
+        // Extra digits can't change a float value, they are just dropped
+        if (digits < 18) {
+          mantissa = mantissa * 10 + (ch - '0');
+          if (fraction)
+            scale++;
+          if (mantissa > 0)
+            digits++;
+        } else if (!fraction) {
+          scale--;
+        }
+      } else if ((ch == '.') && !fraction) {
+        fraction = true;
+      } else {
+        break;
+      }
+      pos++;
+    }
+    if (!empty && ((peek() == 'e') || (peek() == 'E'))) {
+      pos++;
+      if (peek() == '+')
+        pos++;
+      scale -= readInt();
+    }
+    if (empty)
+      throw unexpectedToken("decimal");
+
+    double val = mantissa;
+    if ((scale > 0) && (scale < POW10.length))
+      val = val / POW10[scale];
+    else if ((scale < 0) && (-scale < POW10.length))
+      val = val * POW10[-scale];
+    else if (scale != 0)
+      val = val * Math.pow(10, -scale);
+
+    return (float) (negative ? -val : val);
+  }
+
+  /**
+   * Read double-quoted string. No escape character, and string can span multiple lines
+   */
+  private String readString() throws IOException {
+    skipSpaces();
+    if (next() != '"')
+      throw unexpectedToken("string");
+    int len = 0;
+    while (true) {
+      int ch = next();
+      if (ch == -1)
+        throw unexpectedToken("end of string");
+      if (ch == '"')
+        break;
+      if (ch == '\n')
+        lineNumber++;
+      if (len == strBuffer.length)
+        strBuffer = Arrays.copyOf(strBuffer, len * 2);
+      strBuffer[len++] = (byte) ch;
+    }
+
+    return new String(strBuffer, 0, len, charset);
+  }
+
+  /**
+   * Read sequence of non-blank characters
+   */
+  private String readWord() throws IOException {
+    skipSpaces();
+    StringBuilder sb = new StringBuilder(10);
+    int ch = peek();
+    while ((ch != -1) && (ch != ' ') && (ch != '\t') && (ch != '\r') && (ch != '\n')) {
+      sb.append((char) ch);
+      pos++;
+      ch = peek();
+    }
+    if (sb.length() == 0)
+      throw unexpectedToken("word");
+
+    return sb.toString();
+  }
+
+  private IOException unexpectedToken(String expected) throws IOException {
+    int ch = peek();
+    return new IOException("Expecting " + expected + " at line " + lineNumber + ", found "
+        + (ch == -1 ? "end of file" : "'" + (char) ch + "'"));
+  }
+
+  private static boolean isDigit(int ch) {
+    return (ch >= '0') && (ch <= '9');
+  }
+}
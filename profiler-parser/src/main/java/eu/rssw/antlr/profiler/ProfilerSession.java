@@ -6,13 +6,21 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 public class ProfilerSession {
-  private static final DateFormat DATE_FORMATTER = new SimpleDateFormat("MM/dd/yyyy HH:mm:ss");
+  // SimpleDateFormat is not thread-safe, and profiler outputs are parsed from many threads
+  private static final ThreadLocal<DateFormat> DATE_FORMATTER = new ThreadLocal<DateFormat>() {
+    @Override
+    protected DateFormat initialValue() {
+      return new SimpleDateFormat("MM/dd/yyyy HH:mm:ss");
+    }
+  };
 
   // Description
   private final String description;
@@ -24,7 +32,8 @@ public class ProfilerSession {
   private Map<Integer, Module> allModules = new HashMap<>();
   private Map<Integer, Module> modules = new HashMap<>();
   private Map<String, Module> modulesLookup = new HashMap<>();
-  private int[][] adjMatrix = null;
+  private CallGraph callGraph = null;
+  private CallTreeTiming callTreeTiming = null;
 
   // Internal use
   private int highestModuleId = -1;
@@ -33,7 +42,7 @@ public class ProfilerSession {
     this.description = description;
     this.user = user;
     try {
-      this.timestamp = DATE_FORMATTER.parse(timestamp);
+      this.timestamp = DATE_FORMATTER.get().parse(timestamp);
     } catch (ParseException caught) {
       this.timestamp = new Date(System.currentTimeMillis());
     }
@@ -62,21 +71,64 @@ public class ProfilerSession {
   }
 
   public void addCall(int callerId, int calleeId, int count) {
-    adjMatrix[callerId][calleeId] += count;
+    addCall(callerId, 0, calleeId, count);
+  }
+
+  public void addCall(int callerId, int callerLine, int calleeId, int count) {
+    callGraph.addCall(callerId, callerLine, calleeId, count);
   }
 
   public void initializeCallTreeMatrix() {
-    if (adjMatrix != null)
-      throw new RuntimeException("Matrix already initialized");
-    adjMatrix = new int[modules.keySet().size() + 1][modules.keySet().size() + 1];
+    initializeCallTreeMatrix(new CallGraph());
+  }
+
+  /**
+   * Use existing call graph, i.e. the one of {@link CallTreeTiming}, so that edges are not stored twice
+   */
+  void initializeCallTreeMatrix(CallGraph graph) {
+    if (callGraph != null)
+      throw new RuntimeException("Call tree already initialized");
+    callGraph = graph;
   }
 
   public boolean isCallTreeInitialized() {
-    return adjMatrix != null;
+    return callGraph != null;
+  }
+
+  public CallGraph getCallGraph() {
+    return callGraph;
+  }
+
+  /**
+   * Returns exclusive and inclusive time per module, or null if session wasn't read from a profiler output
+   */
+  public CallTreeTiming getCallTreeTiming() {
+    return callTreeTiming;
+  }
+
+  void setCallTreeTiming(CallTreeTiming callTreeTiming) {
+    this.callTreeTiming = callTreeTiming;
   }
 
+  /**
+   * Returns call tree as an adjacency matrix indexed by module ID, with number of calls from caller to callee
+   * 
+   * @deprecated Matrix is built on each call, and its size is the square of the number of modules. Use
+   *             {@link #getCallGraph()}
+   */
+  @Deprecated
   public int[][] getCallTreeData() {
-    return adjMatrix;
+    if (callGraph == null)
+      return null;
+    final int size = Math.max(highestModuleId, callGraph.getHighestModuleId()) + 1;
+    final int[][] matrix = new int[size][size];
+    callGraph.forEachCall(new CallGraph.CallVisitor() {
+      @Override
+      public void call(int callerId, int callerLine, int calleeId, int count) {
+        matrix[callerId][calleeId] += count;
+      }
+    });
+    return matrix;
   }
 
   /**
@@ -93,6 +145,44 @@ public class ProfilerSession {
     return session;
   }
 
+  /**
+   * Returns an object with execution count and time per line, and number of calls per file
+   * 
+   * @return TimingSession object
+   */
+  public TimingSession getTiming() {
+    final TimingSession session = new TimingSession();
+    for (Module module : moduleList) {
+      session.addTiming(module);
+    }
+    if (callGraph != null) {
+      callGraph.forEachCall(new CallGraph.CallVisitor() {
+        @Override
+        public void call(int callerId, int callerLine, int calleeId, int count) {
+          Module callee = modules.get(calleeId);
+          if (callee != null)
+            session.addCalls(callee, count);
+        }
+      });
+    }
+
+    return session;
+  }
+
+  /**
+   * Returns an object with distribution of line execution time per file, from tracing data
+   * 
+   * @return LatencySession object, empty if profiler output has no tracing data
+   */
+  public LatencySession getLatency() {
+    LatencySession session = new LatencySession();
+    for (Module module : allModules.values()) {
+      session.addLatency(module);
+    }
+
+    return session;
+  }
+
   public void addModule(Module module) {
     allModules.put(module.getId(), module);
     Module m1 = modulesLookup.get(module.getModuleObject());
@@ -111,6 +201,15 @@ public class ProfilerSession {
     return moduleList;
   }
 
+  /**
+   * Returns all modules, including internal procedures, functions and methods, in ascending ID order
+   */
+  Collection<Module> getAllModules() {
+    List<Module> list = new ArrayList<>(allModules.values());
+    Collections.sort(list);
+    return list;
+  }
+
   public Module getModuleById(int id) {
     return modules.get(id);
   }
@@ -134,27 +233,25 @@ public class ProfilerSession {
     return map;
   }
   
-  public void printCallTree(PrintStream out) {
-    for (int zz = 0; zz < adjMatrix.length; zz ++) {
-      for (int yy = 0; yy < adjMatrix.length; yy++) {
-        out.print(adjMatrix[zz][yy] + " ");
+  public void printCallTree(final PrintStream out) {
+    callGraph.forEachCall(new CallGraph.CallVisitor() {
+      @Override
+      public void call(int callerId, int callerLine, int calleeId, int count) {
+        out.println(callerId + ":" + callerLine + " -> " + calleeId + " : " + count);
       }
-      out.println();
-    }
-    
+    });
+
     out.println("SESSION : ");
-    printCallTreeLine(out, 0, 2);
-  }
-  
-  private void printCallTreeLine(PrintStream out, int moduleId, int tabs) {
-    for (int zz = 0; zz < moduleList.size(); zz++) {
-      int calleeId = adjMatrix[moduleId][zz];
-      if (calleeId != 0) {
-        for (int kk = 0 ; kk < tabs; kk++)
+    callGraph.walk(0, new CallGraph.TreeVisitor() {
+      @Override
+      public void visit(int moduleId, int depth, int callCount, boolean expanded) {
+        if (depth == 0)
+          return;
+        for (int kk = 0; kk < depth + 1; kk++)
           out.print(" ");
-        out.println(moduleId + " -- " + modules.get(zz).toString());
-        printCallTreeLine(out, zz, tabs + 1);
+        Module module = allModules.get(moduleId);
+        out.println(callCount + " -- " + (module == null ? moduleId : module.toString()) + (expanded ? "" : " ..."));
       }
-    }
+    });
   }
 }
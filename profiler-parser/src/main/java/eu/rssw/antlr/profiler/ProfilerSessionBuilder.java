@@ -0,0 +1,88 @@
+package eu.rssw.antlr.profiler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import eu.rssw.antlr.profiler.ProfilerReader.Section;
+
+/**
+ * Builds a {@link ProfilerSession} from {@link ProfilerReader} records. Tracing data is only kept as fixed-size
+ * histograms in each module, and user data is skipped.
+ */
+public class ProfilerSessionBuilder implements ProfilerCallback {
+  private ProfilerSession session = null;
+  private List<Module> modules = new ArrayList<>();
+  private Module lastModule = null;
+  private final CallTreeTiming timing = new CallTreeTiming();
+
+  public ProfilerSession getSession() {
+    return session;
+  }
+
+  @Override
+  public boolean accept(Section section) {
+    return section != Section.USER_DATA;
+  }
+
+  @Override
+  public void description(int version, String date, String description, String time, String author) {
+    if (session != null)
+      throw new IllegalStateException("Session already created");
+    session = new ProfilerSession(description, author, date + " " + time);
+    session.setCallTreeTiming(timing);
+  }
+
+  @Override
+  public void module(int id, String name, String debugListingFile, int crc) {
+    Module module = new Module(id, name, debugListingFile, crc);
+    modules.add(module);
+    timing.addModule(module);
+  }
+
+  @Override
+  public void endSection(Section section) {
+    if (section == Section.MODULES) {
+      // Modules are parsed, adding them to ProfilerSession
+      Collections.sort(modules);
+      for (Module m : modules) {
+        session.addModule(m);
+      }
+      // Call graph and modules are shared with CallTreeTiming
+      session.initializeCallTreeMatrix(timing.getCallGraph());
+    }
+  }
+
+  @Override
+  public void callTree(int callerId, int callerLineNum, int calleeId, int callCount) {
+    // Edge is added to the call graph of the session
+    timing.callTree(callerId, callerLineNum, calleeId, callCount);
+  }
+
+  @Override
+  public void lineSummary(int moduleId, int lineNumber, int execCount, float actualTime, float cumulativeTime) {
+    timing.lineSummary(moduleId, lineNumber, execCount, actualTime, cumulativeTime);
+    Module module = session.getModuleById(moduleId);
+    if (module == null)
+      return;
+    module.addLineSummary(new LineData(lineNumber, execCount, actualTime, cumulativeTime));
+  }
+
+  @Override
+  public void tracing(int moduleId, int lineNumber, float execTime, float timestamp) {
+    Module module = session.getFromAllModulesById(moduleId);
+    if (module != null)
+      module.addTracing(lineNumber, execTime);
+  }
+
+  @Override
+  public void coverageSection(int moduleId, String name, int lineCount) {
+    lastModule = session.getModuleById(moduleId);
+  }
+
+  @Override
+  public void coverageLine(int moduleId, int lineNumber) {
+    if (lastModule != null)
+      lastModule.addLineToCover(lineNumber);
+  }
+}
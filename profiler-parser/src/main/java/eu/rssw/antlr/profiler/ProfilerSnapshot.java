@@ -0,0 +1,190 @@
+package eu.rssw.antlr.profiler;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Binary snapshot of a {@link ProfilerSession}, so that a profiler output doesn't have to be parsed again on each
+ * analysis. File layout is: magic number, format version, session description, user and timestamp, then modules (with
+ * line summaries, lines to cover and tracing histograms), call graph edges, and time of each module. Strings are
+ * stored as length-prefixed UTF-8. User data is not stored, as it's not kept in the session.
+ */
+public final class ProfilerSnapshot {
+  private static final int MAGIC = 0x4F455046;
+  /** Has to be incremented on every change in the file layout */
+  public static final int VERSION = 1;
+  private static final String DATE_FORMAT = "MM/dd/yyyy HH:mm:ss";
+
+  private ProfilerSnapshot() {
+    // No constructor
+  }
+
+  /**
+   * Write session to a snapshot file. Content is first written to a temporary file, and then moved to the target
+   * file, so that a concurrent reader never sees a partial snapshot.
+   */
+  public static void write(ProfilerSession session, File file) throws IOException {
+    // Unique temporary file, as the same profiler output can be cached by multiple threads
+    File tmpFile = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+      writeSession(out, session);
+    } catch (IOException caught) {
+      Files.deleteIfExists(tmpFile.toPath());
+      throw caught;
+    }
+    Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private static void writeSession(DataOutputStream out, ProfilerSession session) throws IOException {
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    writeString(out, session.getDescription());
+    writeString(out, session.getUser());
+    writeString(out, new SimpleDateFormat(DATE_FORMAT).format(session.getTimestamp()));
+
+    Collection<Module> modules = session.getAllModules();
+    out.writeInt(modules.size());
+    for (Module module : modules) {
+      writeModule(out, module);
+    }
+
+    final List<int[]> calls = new ArrayList<>();
+    if (session.getCallGraph() != null) {
+      session.getCallGraph().forEachCall(new CallGraph.CallVisitor() {
+        @Override
+        public void call(int callerId, int callerLine, int calleeId, int count) {
+          calls.add(new int[] {callerId, callerLine, calleeId, count});
+        }
+      });
+    }
+    out.writeInt(calls.size());
+    for (int[] call : calls) {
+      for (int val : call) {
+        out.writeInt(val);
+      }
+    }
+
+    CallTreeTiming timing = session.getCallTreeTiming();
+    int numTimings = timing == null ? 0 : timing.getHighestModuleId() + 1;
+    out.writeInt(numTimings);
+    for (int zz = 0; zz < numTimings; zz++) {
+      out.writeDouble(timing.getExclusiveTime(zz));
+      out.writeDouble(timing.getEntryTime(zz));
+      out.writeBoolean(timing.hasEntryTime(zz));
+    }
+  }
+
+  /**
+   * Read snapshot file in one read. File is not memory-mapped, as a mapping can't be released on demand, and the
+   * snapshot may be rewritten afterwards.
+   *
+   * @throws IOException If file is not a snapshot file, or if snapshot version is not supported
+   */
+  public static ProfilerSession read(File file) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+    try {
+      if (buffer.getInt() != MAGIC)
+        throw new IOException("Not a profiler snapshot: " + file.getAbsolutePath());
+      int version = buffer.getInt();
+      if (version != VERSION)
+        throw new IOException("Unsupported profiler snapshot version " + version + ": " + file.getAbsolutePath());
+
+      ProfilerSession session = new ProfilerSession(readString(buffer), readString(buffer), readString(buffer));
+      CallTreeTiming timing = new CallTreeTiming();
+      session.setCallTreeTiming(timing);
+
+      int numModules = buffer.getInt();
+      for (int zz = 0; zz < numModules; zz++) {
+        Module module = readModule(buffer);
+        timing.addModule(module);
+        session.addModule(module);
+      }
+      session.initializeCallTreeMatrix(timing.getCallGraph());
+
+      int numCalls = buffer.getInt();
+      for (int zz = 0; zz < numCalls; zz++) {
+        int callerId = buffer.getInt();
+        int callerLine = buffer.getInt();
+        int calleeId = buffer.getInt();
+        int count = buffer.getInt();
+        // Shared call graph, edge is also visible from session
+        timing.callTree(callerId, callerLine, calleeId, count);
+      }
+
+      int numTimings = buffer.getInt();
+      for (int zz = 0; zz < numTimings; zz++) {
+        double exclusive = buffer.getDouble();
+        double entry = buffer.getDouble();
+        boolean hasEntry = buffer.get() != 0;
+        if ((exclusive != 0) || hasEntry)
+          timing.setTime(zz, exclusive, entry, hasEntry);
+      }
+
+      return session;
+    } catch (BufferUnderflowException caught) {
+      throw new IOException("Truncated profiler snapshot: " + file.getAbsolutePath(), caught);
+    } catch (IllegalArgumentException caught) {
+      throw new IOException("Invalid profiler snapshot: " + file.getAbsolutePath(), caught);
+    }
+  }
+
+  private static void writeModule(DataOutputStream out, Module module) throws IOException {
+    out.writeInt(module.getId());
+    writeString(out, module.getName());
+    writeString(out, module.getFile());
+    out.writeInt(module.getCrc());
+    out.writeInt(module.getLineData().size());
+    for (LineData line : module.getLineData()) {
+      out.writeInt(line.getLineNumber());
+      out.writeInt(line.getExecCount());
+      out.writeFloat(line.getActualTime());
+      out.writeFloat(line.getCumulativeTime());
+    }
+    List<Integer> tracedLines = module.getTracedLines();
+    out.writeInt(tracedLines.size());
+    for (int line : tracedLines) {
+      out.writeInt(line);
+      module.getLineLatency(line).writeTo(out);
+    }
+  }
+
+  private static Module readModule(ByteBuffer buffer) throws IOException {
+    Module module = new Module(buffer.getInt(), readString(buffer), readString(buffer), buffer.getInt());
+    int numLines = buffer.getInt();
+    for (int zz = 0; zz < numLines; zz++) {
+      module.addLineSummary(new LineData(buffer.getInt(), buffer.getInt(), buffer.getFloat(), buffer.getFloat()));
+    }
+    int numTracedLines = buffer.getInt();
+    for (int zz = 0; zz < numTracedLines; zz++) {
+      int line = buffer.getInt();
+      module.addLatency(line, LatencyHistogram.readFrom(buffer));
+    }
+    return module;
+  }
+
+  private static void writeString(DataOutputStream out, String str) throws IOException {
+    byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > 0xFFFF)
+      throw new IOException("String too long: " + str.substring(0, 32) + "...");
+    out.writeShort(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
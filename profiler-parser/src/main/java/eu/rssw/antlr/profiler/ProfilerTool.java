@@ -0,0 +1,115 @@
+package eu.rssw.antlr.profiler;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line entry point for offline analysis of profiler outputs
+ */
+public final class ProfilerTool {
+
+  private ProfilerTool() {
+    // No-op
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 3) {
+      usage();
+      return;
+    }
+    switch (args[0]) {
+      case "flamegraph":
+        try (Writer writer = newWriter(new File(args[2]))) {
+          ProfilerUtils.getCallTreeTiming(new File(args[1])).writeCollapsedStacks(writer);
+        }
+        break;
+      case "summary":
+        try (Writer writer = newWriter(new File(args[2]))) {
+          ProfilerUtils.getCallTreeTiming(new File(args[1])).writeJsonSummary(writer);
+        }
+        break;
+      case "diff":
+        diff(args);
+        break;
+      case "cache":
+        cache(args);
+        break;
+      default:
+        usage();
+    }
+  }
+
+  private static void diff(String[] args) throws IOException {
+    double threshold = args.length > 3 ? Double.parseDouble(args[3]) / 100 : 0.2;
+    ProfilerDiff diff = new ProfilerDiff();
+    for (File file : listFiles(new File(args[1]))) {
+      diff.addBaseline(ProfilerUtils.getProfilerSession(file));
+    }
+    for (File file : listFiles(new File(args[2]))) {
+      diff.addCandidate(ProfilerUtils.getProfilerSession(file));
+    }
+    for (ProfilerDiff.Regression regression : diff.getRegressions(threshold, 0.001)) {
+      System.out.println(regression.toString());
+    }
+  }
+
+  /**
+   * Create missing snapshots of profiler outputs in cache directory
+   */
+  private static void cache(String[] args) throws IOException {
+    File cacheDir = new File(args[1]);
+    int numCreated = 0;
+    int numFiles = 0;
+    for (int zz = 2; zz < args.length; zz++) {
+      for (File file : listFiles(new File(args[zz]))) {
+        numFiles++;
+        if (!ProfilerUtils.getSnapshotFile(file, cacheDir).isFile()) {
+          ProfilerUtils.getProfilerSession(file, cacheDir);
+          numCreated++;
+        }
+      }
+    }
+    System.out.println(numCreated + " snapshots created for " + numFiles + " profiler outputs");
+  }
+
+  /**
+   * Returns file itself, or all files of this directory
+   */
+  private static List<File> listFiles(File file) {
+    List<File> list = new ArrayList<>();
+    if (file.isDirectory()) {
+      File[] files = file.listFiles();
+      if (files != null) {
+        for (File f : files) {
+          if (f.isFile())
+            list.add(f);
+        }
+      }
+    } else {
+      list.add(file);
+    }
+    return list;
+  }
+
+  private static Writer newWriter(File file) throws IOException {
+    return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+  }
+
+  private static void usage() {
+    System.err.println("Usage: ProfilerTool <command> <arguments>");
+    System.err.println("  flamegraph <profilerOutput> <outputFile>  Write stacks in collapsed format");
+    System.err.println("  summary <profilerOutput> <outputFile>     Write JSON summary of time per module");
+    System.err.println("  diff <baseline> <candidate> [threshold]   List modules and lines slower in candidate");
+    System.err.println("                                            profiler outputs (files or directories), by more");
+    System.err.println("                                            than threshold percent (default 20)");
+    System.err.println("  cache <cacheDir> <profilerOutput>...      Create binary snapshots of profiler outputs (files");
+    System.err.println("                                            or directories) in cache directory");
+  }
+}
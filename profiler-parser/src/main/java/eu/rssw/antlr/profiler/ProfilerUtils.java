@@ -1,26 +1,28 @@
 package eu.rssw.antlr.profiler;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-
-import org.antlr.v4.runtime.ANTLRInputStream;
-import org.antlr.v4.runtime.CommonTokenStream;
-import org.antlr.v4.runtime.tree.ParseTree;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 public final class ProfilerUtils {
 
@@ -29,51 +31,158 @@ public final class ProfilerUtils {
   }
 
   public static final ProfilerSession getProfilerSession(File file) throws IOException {
-    return getProfilerSession(new FileInputStream(file));
+    try (ProfilerReader reader = new ProfilerReader(file)) {
+      return getProfilerSession(reader);
+    }
+  }
+
+  /**
+   * Returns session from snapshot in cache directory if this profiler output was already parsed, otherwise parse
+   * profiler output and create snapshot. Snapshots are keyed by SHA-1 of the profiler output, so a file which is
+   * modified or moved is never read from an outdated snapshot. Invalid or outdated snapshots are silently replaced.
+   *
+   * @param cacheDir Created if it doesn't exist. If null, no cache is used.
+   */
+  public static final ProfilerSession getProfilerSession(File file, File cacheDir) throws IOException {
+    if (cacheDir == null)
+      return getProfilerSession(file);
+    File snapshot = getSnapshotFile(file, cacheDir);
+    if (snapshot.isFile()) {
+      try {
+        return ProfilerSnapshot.read(snapshot);
+      } catch (IOException caught) {
+        // Snapshot is discarded and created again
+      }
+    }
+
+    ProfilerSession session = getProfilerSession(file);
+    try {
+      if (cacheDir.isDirectory() || cacheDir.mkdirs())
+        ProfilerSnapshot.write(session, snapshot);
+    } catch (IOException caught) {
+      // Cache is only an optimization, session is still valid
+    }
+    return session;
+  }
+
+  /**
+   * Returns snapshot file of this profiler output in cache directory. Snapshot file may not exist.
+   */
+  public static final File getSnapshotFile(File file, File cacheDir) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException caught) {
+      throw new IOException(caught);
+    }
+    byte[] buffer = new byte[65536];
+    try (InputStream input = new FileInputStream(file)) {
+      int len;
+      while ((len = input.read(buffer)) != -1) {
+        digest.update(buffer, 0, len);
+      }
+    }
+    StringBuilder sb = new StringBuilder(48);
+    for (byte b : digest.digest()) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return new File(cacheDir, sb.append(".session").toString());
   }
 
+  /**
+   * Stream is not closed by this method
+   */
   public static final ProfilerSession getProfilerSession(InputStream input) throws IOException {
-    ProfilerGrammarLexer lexer = new ProfilerGrammarLexer(new ANTLRInputStream(input));
-    CommonTokenStream tokens = new CommonTokenStream(lexer);
-    ProfilerGrammarParser parser = new ProfilerGrammarParser(tokens);
-    ParseTree tree = parser.profiler();
+    return getProfilerSession(new ProfilerReader(input, Charset.defaultCharset()));
+  }
+
+  /**
+   * Read only modules, call tree and line summary of a profiler output. Memory usage doesn't depend on the number of
+   * lines of tracing data.
+   */
+  public static final CallTreeTiming getCallTreeTiming(File file) throws IOException {
+    try (ProfilerReader reader = new ProfilerReader(file)) {
+      CallTreeTiming timing = new CallTreeTiming();
+      reader.read(timing);
+      return timing;
+    }
+  }
 
-    ProfilerSessionVisitor visitor = new ProfilerSessionVisitor();
-    visitor.visit(tree);
+  private static ProfilerSession getProfilerSession(ProfilerReader reader) throws IOException {
+    ProfilerSessionBuilder builder = new ProfilerSessionBuilder();
+    reader.read(builder);
 
-    return visitor.getSession();
+    return builder.getSession();
   }
 
-  public static final void dumpCoverageAsXml(CoverageSession session, Collection<File> propath, File xmlFile) throws IOException {
+  /**
+   * Parse profiler outputs and merge their coverage data. Files are split in as many chunks as available processors,
+   * each chunk being parsed and merged in its own thread.
+   */
+  public static final CoverageSession getCoverage(Collection<File> files) throws IOException {
+    final List<File> list = new ArrayList<>(files);
+    int numThreads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), list.size()));
+    ExecutorService service = Executors.newFixedThreadPool(numThreads);
     try {
-      Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+      List<Future<CoverageSession>> futures = new ArrayList<>();
+      int chunkSize = (list.size() + numThreads - 1) / numThreads;
+      for (int zz = 0; zz < list.size(); zz += chunkSize) {
+        final List<File> chunk = list.subList(zz, Math.min(list.size(), zz + chunkSize));
+        futures.add(service.submit(new Callable<CoverageSession>() {
+          @Override
+          public CoverageSession call() throws IOException {
+            CoverageSession rslt = new CoverageSession();
+            for (File file : chunk) {
+              rslt.mergeWith(getProfilerSession(file).getCoverage());
+            }
+            return rslt;
+          }
+        }));
+      }
+      CoverageSession rslt = new CoverageSession();
+      for (Future<CoverageSession> future : futures) {
+        rslt.mergeWith(future.get());
+      }
+      return rslt;
+    } catch (InterruptedException caught) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while reading profiler outputs");
+    } catch (ExecutionException caught) {
+      if (caught.getCause() instanceof IOException)
+        throw (IOException) caught.getCause();
+      throw new IOException(caught.getCause());
+    } finally {
+      service.shutdownNow();
+    }
+  }
 
-      // Root element
-      Element root = document.createElement("coverage");
-      root.setAttribute("version", "1");
-      document.appendChild(root);
+  public static final void dumpCoverageAsXml(CoverageSession session, Collection<File> propath, File xmlFile) throws IOException {
+    try (OutputStream output = new BufferedOutputStream(new FileOutputStream(xmlFile))) {
+      XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(output, "UTF-8");
+      writer.writeStartDocument("UTF-8", "1.0");
+      writer.writeCharacters("\n");
+      writer.writeStartElement("coverage");
+      writer.writeAttribute("version", "1");
 
       for (FileCoverage profiledFile : session.getFiles()) {
-        Element fileElement = document.createElement("file");
-        fileElement.setAttribute("path", getFilePath(propath, profiledFile.getFileName()));
-        root.appendChild(fileElement);
+        writer.writeCharacters("\n    ");
+        writer.writeStartElement("file");
+        writer.writeAttribute("path", getFilePath(propath, profiledFile.getFileName()));
 
         for (Integer lineNumber : profiledFile.getLinesToCover()) {
-          Element lineElement = document.createElement("lineToCover");
-          lineElement.setAttribute("lineNumber", lineNumber.toString());
-          lineElement.setAttribute("covered", Boolean.toString(profiledFile.getCoveredLines().contains(lineNumber)));
-
-          fileElement.appendChild(lineElement);
+          writer.writeCharacters("\n        ");
+          writer.writeEmptyElement("lineToCover");
+          writer.writeAttribute("lineNumber", lineNumber.toString());
+          writer.writeAttribute("covered", Boolean.toString(profiledFile.isCovered(lineNumber)));
         }
+        writer.writeCharacters("\n    ");
+        writer.writeEndElement();
       }
-
-      Transformer tr = TransformerFactory.newInstance().newTransformer();
-      tr.setOutputProperty(OutputKeys.INDENT, "yes");
-      tr.setOutputProperty(OutputKeys.METHOD, "xml");
-      tr.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-      tr.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
-      tr.transform(new DOMSource(document), new StreamResult(new FileOutputStream(xmlFile)));
-    } catch (ParserConfigurationException | TransformerException caught) {
+      writer.writeCharacters("\n");
+      writer.writeEndElement();
+      writer.writeEndDocument();
+      writer.close();
+    } catch (XMLStreamException caught) {
       throw new IOException(caught);
     }
   }
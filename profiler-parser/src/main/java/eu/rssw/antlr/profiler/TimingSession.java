@@ -0,0 +1,49 @@
+package eu.rssw.antlr.profiler;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class TimingSession {
+  // Files being profiled, indexed by file name
+  private final Map<String, FileTiming> files = new LinkedHashMap<>();
+
+  public void addTiming(Module module) {
+    FileTiming file = getOrCreateFile(module.getModuleObject());
+    for (LineData line : module.getLineData()) {
+      file.addLine(line.getLineNumber(), line.getExecCount(), line.getActualTime(), line.getCumulativeTime());
+    }
+  }
+
+  public void addCalls(Module module, long numCalls) {
+    getOrCreateFile(module.getModuleObject()).addCalls(numCalls);
+  }
+
+  public Collection<FileTiming> getFiles() {
+    return files.values();
+  }
+
+  /**
+   * Returns timing of this file, or null if not found
+   */
+  public FileTiming getFile(String name) {
+    return files.get(name);
+  }
+
+  public void mergeWith(TimingSession session) {
+    for (FileTiming f : session.getFiles()) {
+      getOrCreateFile(f.getFileName()).mergeWith(f);
+    }
+  }
+
+  private FileTiming getOrCreateFile(String name) {
+    FileTiming file = files.get(name);
+    if (file == null) {
+      file = new FileTiming(name);
+      files.put(name, file);
+    }
+
+    return file;
+  }
+
+}
@@ -1,15 +1,29 @@
 package eu.rssw.antlr.profiler;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import eu.rssw.antlr.profiler.ProfilerReader.Section;
+
 public class TestProfiler {
 
   @Test
@@ -67,4 +81,287 @@ public class TestProfiler {
     ProfilerUtils.dumpCoverageAsXml(session, new ArrayList<File>(), new File("target/foo.xml"));
   }
 
+  @Test
+  public void testReaderSkipSections() throws IOException {
+    final int[] counts = new int[4];
+    try (ProfilerReader reader = new ProfilerReader(new File("src/test/resources/profiler1.out"))) {
+      reader.read(new ProfilerCallback() {
+        @Override
+        public boolean accept(Section section) {
+          return (section == Section.MODULES) || (section == Section.COVERAGE);
+        }
+
+        @Override
+        public void module(int id, String name, String debugListingFile, int crc) {
+          counts[0]++;
+        }
+
+        @Override
+        public void callTree(int callerId, int callerLineNum, int calleeId, int callCount) {
+          counts[1]++;
+        }
+
+        @Override
+        public void coverageSection(int moduleId, String name, int lineCount) {
+          counts[2]++;
+        }
+
+        @Override
+        public void coverageLine(int moduleId, int lineNumber) {
+          counts[3]++;
+        }
+      });
+    }
+    Assert.assertEquals(counts[0], 64);
+    Assert.assertEquals(counts[1], 0);
+    Assert.assertEquals(counts[2], 61);
+    Assert.assertEquals(counts[3], 523);
+  }
+
+  @Test
+  public void testCallGraph() throws IOException {
+    ProfilerSession session = ProfilerUtils.getProfilerSession(new File("src/test/resources/profiler1.out"));
+    CallGraph graph = session.getCallGraph();
+    Assert.assertEquals(graph.getNumberOfCalls(), 88);
+    Assert.assertEquals(graph.getCallCount(6, 9), 2);
+    Assert.assertEquals(graph.getCallers(9), new int[] {6});
+    Assert.assertEquals(graph.getCallees(6).length, 19);
+    Assert.assertEquals(graph.getCallees(9).length, 0);
+  }
+
+  @Test
+  public void testCallGraphCycles() {
+    CallGraph graph = new CallGraph();
+    graph.addCall(0, 10, 1, 1);
+    graph.addCall(1, 20, 2, 3);
+    graph.addCall(1, 21, 2, 4);
+    graph.addCall(2, 30, 1, 5);
+    graph.addCall(2, 31, 2, 6);
+    Assert.assertEquals(graph.getCallCount(1, 2), 7);
+    Assert.assertEquals(graph.getCallees(2), new int[] {1, 2});
+
+    final StringBuilder sb = new StringBuilder();
+    graph.walk(0, new CallGraph.TreeVisitor() {
+      @Override
+      public void visit(int moduleId, int depth, int callCount, boolean expanded) {
+        sb.append(moduleId).append(expanded ? '+' : '-');
+      }
+    });
+    Assert.assertEquals(sb.toString(), "0+1+2+1-2-");
+  }
+
+  @Test
+  public void testCoverageMerge() throws IOException, InterruptedException {
+    List<File> files = new ArrayList<>();
+    List<CoverageSession> sessions = new ArrayList<>();
+    CoverageSession session = new CoverageSession();
+    for (int zz = 1; zz <= 5; zz++) {
+      File file = new File("src/test/resources/profiler" + zz + ".out");
+      files.add(file);
+      sessions.add(ProfilerUtils.getProfilerSession(file).getCoverage());
+      session.mergeWith(ProfilerUtils.getProfilerSession(file).getCoverage());
+    }
+    CoverageSession session2 = ProfilerUtils.getCoverage(files);
+    CoverageSession session3 = CoverageSession.merge(sessions);
+
+    Assert.assertEquals(session2.getFiles().size(), session.getFiles().size());
+    Assert.assertEquals(session3.getFiles().size(), session.getFiles().size());
+    for (FileCoverage file : session.getFiles()) {
+      Assert.assertEquals(session2.getFile(file.getFileName()).getLinesToCover(), file.getLinesToCover());
+      Assert.assertEquals(session2.getFile(file.getFileName()).getCoveredLines(), file.getCoveredLines());
+      Assert.assertEquals(session3.getFile(file.getFileName()).getCoveredLines(), file.getCoveredLines());
+    }
+
+    FileCoverage file = session.getFile("Consultingwerk.Studio.ClassDocumentation.DocumentationWriter");
+    Assert.assertNotNull(file);
+    Assert.assertTrue(file.getLinesToCover().containsAll(file.getCoveredLines()));
+  }
+
+  @Test
+  public void testConcurrentTimestamps() throws Exception {
+    ExecutorService service = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Boolean>> futures = new ArrayList<>();
+      for (int zz = 0; zz < 400; zz++) {
+        final String timestamp = String.format("%02d/%02d/20%02d %02d:%02d:%02d", (zz % 12) + 1, (zz % 28) + 1,
+            zz % 100, zz % 24, zz % 60, (zz * 7) % 60);
+        futures.add(service.submit(new Callable<Boolean>() {
+          @Override
+          public Boolean call() throws Exception {
+            ProfilerSession session = new ProfilerSession("", "", timestamp);
+            return session.getTimestamp().equals(new SimpleDateFormat("MM/dd/yyyy HH:mm:ss").parse(timestamp));
+          }
+        }));
+      }
+      for (Future<Boolean> future : futures) {
+        Assert.assertTrue(future.get(), "Wrong timestamp");
+      }
+    } catch (ExecutionException caught) {
+      Assert.fail("Unable to parse timestamp", caught.getCause());
+    } finally {
+      service.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testTiming() throws IOException {
+    ProfilerSession session = ProfilerUtils.getProfilerSession(new File("src/test/resources/profiler1.out"));
+    FileTiming file = session.getTiming().getFile("Consultingwerk.Studio.ClassDocumentation.DocumentationWriter");
+    Assert.assertNotNull(file);
+    Assert.assertEquals(file.getNumCalls(), 118);
+    Assert.assertEquals(file.getTotalExecCount(), 1112);
+    Assert.assertEquals(file.getMaxLine(), 1285);
+    Assert.assertEquals(file.getHottestLines(3), new int[] {598, 1173, 1169});
+    Assert.assertEquals(file.getExecCount(598), 5);
+    Assert.assertEquals(file.getActualTime(598), 0.045358, 0.000001);
+
+    TimingSession merged = session.getTiming();
+    merged.mergeWith(session.getTiming());
+    Assert.assertEquals(merged.getFile(file.getFileName()).getExecCount(598), 10);
+    Assert.assertEquals(merged.getFile(file.getFileName()).getNumCalls(), 236);
+  }
+
+  @Test
+  public void testCallTreeTiming() throws IOException {
+    CallTreeTiming timing = ProfilerUtils.getCallTreeTiming(new File("src/test/resources/profiler1.out"));
+    Assert.assertEquals(timing.getTotalTime(), 0.380305, 0.000001);
+    Assert.assertEquals(timing.getExclusiveTime(9), 0.148781, 0.000001);
+    Assert.assertEquals(timing.getInclusiveTime(9), 0.148781, 0.000001);
+    Assert.assertEquals(timing.getInclusiveTime(6), 0.369072, 0.000001);
+    Assert.assertEquals(timing.getNumCalls(35), 38);
+    Assert.assertEquals(timing.getModule(6).getProcName(), "GenerateDocumentation");
+    Assert.assertEquals(timing.getModuleIds().length, 64);
+
+    ProfilerSession session = ProfilerUtils.getProfilerSession(new File("src/test/resources/profiler1.out"));
+    Assert.assertEquals(session.getCallTreeTiming().getInclusiveTime(6), timing.getInclusiveTime(6));
+    // Call graph and modules are not duplicated
+    Assert.assertSame(session.getCallTreeTiming().getCallGraph(), session.getCallGraph());
+    Assert.assertSame(session.getCallTreeTiming().getModule(6), session.getFromAllModulesById(6));
+
+    // Self time of all stacks is total session time
+    StringWriter writer = new StringWriter();
+    timing.writeCollapsedStacks(writer);
+    long total = 0;
+    for (String line : writer.toString().split("\n")) {
+      total += Long.parseLong(line.substring(line.lastIndexOf(' ') + 1));
+    }
+    Assert.assertEquals(total, 380305, 100);
+
+    writer = new StringWriter();
+    timing.writeJsonSummary(writer);
+    Assert.assertTrue(writer.toString().startsWith("{\n  \"totalTime\": 0.380305,"));
+  }
+
+  @Test
+  public void testDiff() throws IOException {
+    ProfilerSession session = ProfilerUtils.getProfilerSession(new File("src/test/resources/profiler1.out"));
+    ProfilerDiff diff = new ProfilerDiff();
+    diff.addBaseline(session);
+    diff.addCandidate(session);
+    Assert.assertTrue(diff.getRegressions(0.2, 0.001).isEmpty());
+
+    diff = new ProfilerDiff();
+    diff.addBaseline(getSession("0.010000"));
+    diff.addBaseline(getSession("0.011000"));
+    diff.addCandidate(getSession("0.050000"));
+    diff.addCandidate(getSession("0.051000"));
+    List<ProfilerDiff.Regression> list = diff.getRegressions(0.2, 0.001);
+    Assert.assertEquals(list.size(), 2);
+    Assert.assertEquals(list.get(0).getFileName(), "test.p");
+    Assert.assertEquals(list.get(0).getExtraTime(), 0.04, 0.000001);
+    Assert.assertTrue(list.get(0).isSignificant());
+    Assert.assertEquals(list.get(0).getLineNumber() + list.get(1).getLineNumber(), 10);
+
+    // Same mean increase, but variance is too high
+    diff = new ProfilerDiff();
+    diff.addBaseline(getSession("0.010000"));
+    diff.addBaseline(getSession("0.050000"));
+    diff.addCandidate(getSession("0.010000"));
+    diff.addCandidate(getSession("0.052000"));
+    Assert.assertTrue(diff.getRegressions(0.01, 0.001).isEmpty());
+  }
+
+  @Test
+  public void testLatency() throws IOException {
+    ProfilerSession session = ProfilerUtils.getProfilerSession(new File("src/test/resources/profiler1.out"));
+    Assert.assertTrue(session.getLatency().getFiles().isEmpty());
+
+    StringBuilder sb = new StringBuilder("1 01/01/2017 \"\" 10:00:00 \"user\"\n.\n1 \"test.p\" \"\" 1234\n"
+        + "2 \"proc1 test.p\" \"\" 1234\n.\n0 0 1 1\n1 10 2 100\n.\n1 10 1 0.001000 0.001000\n.\n");
+    for (int zz = 1; zz <= 100; zz++) {
+      sb.append("2 20 ").append(String.format(Locale.US, "%.6f", zz / 1000d)).append(" 1.0\n");
+    }
+    sb.append("1 10 0.500000 2.0\n.\n.\n.\n");
+    session = ProfilerUtils.getProfilerSession(new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)));
+    Assert.assertEquals(session.getFromAllModulesById(2).getLatency().getCount(), 100);
+
+    FileLatency file = session.getLatency().getFile("test.p");
+    Assert.assertEquals(file.getLatency().getCount(), 101);
+    Assert.assertEquals(file.getLatency().getMax(), 0.5, 0.000001);
+    LatencyHistogram line = file.getLineLatency(20);
+    // At most 6.25% above actual value
+    Assert.assertEquals(line.getPercentile(50), 0.05, 0.05 * 0.0625);
+    Assert.assertEquals(line.getPercentile(95), 0.095, 0.095 * 0.0625);
+    Assert.assertEquals(line.getPercentile(99), 0.099, 0.099 * 0.0625);
+    Assert.assertEquals(line.getMax(), 0.1, 0.000001);
+    Assert.assertEquals(file.getSlowestLines(5, 99), new int[] {10, 20});
+
+    LatencySession merged = session.getLatency();
+    merged.mergeWith(session.getLatency());
+    Assert.assertEquals(merged.getFile("test.p").getLineLatency(20).getCount(), 200);
+    Assert.assertEquals(merged.getFile("test.p").getLineLatency(20).getPercentile(99), line.getPercentile(99));
+  }
+
+  @Test
+  public void testSnapshot() throws IOException {
+    File file = new File("src/test/resources/profiler1.out");
+    File cacheDir = new File("target/profiler-cache");
+    File snapshot = ProfilerUtils.getSnapshotFile(file, cacheDir);
+    snapshot.delete();
+
+    ProfilerSession session = ProfilerUtils.getProfilerSession(file);
+    ProfilerSession cached = ProfilerUtils.getProfilerSession(file, cacheDir);
+    Assert.assertTrue(snapshot.isFile());
+    cached = ProfilerUtils.getProfilerSession(file, cacheDir);
+    Assert.assertEquals(cached.getDescription(), session.getDescription());
+    Assert.assertEquals(cached.getTimestamp(), session.getTimestamp());
+    Assert.assertEquals(cached.getModules().size(), session.getModules().size());
+    Assert.assertEquals(cached.getCallGraph().getNumberOfCalls(), 88);
+    Assert.assertSame(cached.getCallTreeTiming().getCallGraph(), cached.getCallGraph());
+    Assert.assertSame(cached.getCallTreeTiming().getModule(6), cached.getFromAllModulesById(6));
+    Assert.assertEquals(cached.getCallTreeTiming().getNumCalls(35), 38);
+    Assert.assertEquals(cached.getCallTreeTiming().getInclusiveTime(6), session.getCallTreeTiming().getInclusiveTime(6));
+    Assert.assertEquals(cached.getCallTreeTiming().getTotalTime(), 0.380305, 0.000001);
+    FileTiming timing = cached.getTiming().getFile("Consultingwerk.Studio.ClassDocumentation.DocumentationWriter");
+    Assert.assertEquals(timing.getNumCalls(), 118);
+    Assert.assertEquals(timing.getExecCount(598), 5);
+    FileCoverage coverage = cached.getCoverage().getFile("Consultingwerk.Studio.ClassDocumentation.DocumentationWriter");
+    Assert.assertEquals(coverage.getCoveredLines(),
+        session.getCoverage().getFile(coverage.getFileName()).getCoveredLines());
+
+    // Truncated snapshot is replaced
+    Files.write(snapshot.toPath(), new byte[] {0x4F, 0x45, 0x50, 0x46, 0, 0, 0, 1, 0});
+    try {
+      ProfilerSnapshot.read(snapshot);
+      Assert.fail("Truncated snapshot should be rejected");
+    } catch (IOException caught) {
+      // Expected
+    }
+    Assert.assertEquals(ProfilerUtils.getProfilerSession(file, cacheDir).getModules().size(), session.getModules().size());
+    Assert.assertEquals(ProfilerSnapshot.read(snapshot).getModules().size(), session.getModules().size());
+
+    // Snapshot file is not held after read, it can be replaced and deleted
+    ProfilerSession snapshotSession = ProfilerSnapshot.read(snapshot);
+    ProfilerSnapshot.write(snapshotSession, snapshot);
+    Assert.assertEquals(ProfilerSnapshot.read(snapshot).getCallGraph().getNumberOfCalls(), 88);
+    Assert.assertTrue(snapshot.delete());
+  }
+
+  private static ProfilerSession getSession(String lineTime) throws IOException {
+    String str = "1 01/01/2017 \"\" 10:00:00 \"user\"\n.\n1 \"test.p\" \"\" 1234\n2 \"proc1 test.p\" \"\" 1234\n.\n"
+        + "0 0 1 1\n1 10 2 5\n.\n1 0 1 0.000010 " + lineTime + "\n1 10 1 " + lineTime + " " + lineTime
+        + "\n2 0 5 0.000010 0.000010\n.\n.\n.\n.\n";
+    return ProfilerUtils.getProfilerSession(new ByteArrayInputStream(str.getBytes(StandardCharsets.UTF_8)));
+  }
+
 }
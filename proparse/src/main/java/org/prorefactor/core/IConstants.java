@@ -146,6 +146,11 @@ public class IConstants {
    * Program_root node to a copy of the array of filenames.
    */
   public static final int FILE_NAME_ARRAY = -220;
+  /**
+   * A value for setLink() and getLink(). A link from a statement head to the set of rule keys listed in the
+   * prolint-nowarn directives just before this statement.
+   */
+  public static final int SUPPRESSED_WARNINGS = -221;
 
   private IConstants() {
     // Shouldn't be instantiated
@@ -11,9 +11,11 @@
 package org.prorefactor.core;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.LinkedList;
 
 import org.prorefactor.proparse.IntegerIndex;
@@ -525,6 +527,18 @@ public class JPNode extends BaseAST {
     return n;
   }
 
+  /**
+   * Rule keys listed in the prolint-nowarn directives just before this statement. Only set on statement heads, when
+   * the tree is built by {@link org.prorefactor.treeparser.ParseUnit#parse()}.
+   * 
+   * @return Never null
+   */
+  @SuppressWarnings("unchecked")
+  public Set<String> getSuppressedWarnings() {
+    Set<String> rules = (Set<String>) getLink(IConstants.SUPPRESSED_WARNINGS);
+    return rules == null ? Collections.<String> emptySet() : rules;
+  }
+
   /** Every JPNode subtype has its own index. Used for persistent storage. */
   public int getSubtypeIndex() {
     return 1;
@@ -749,6 +763,11 @@ public class JPNode extends BaseAST {
     token.setFilenameList(filenameList);
   }
 
+  /** @see #getSuppressedWarnings() */
+  public void setSuppressedWarnings(Set<String> rules) {
+    setLink(IConstants.SUPPRESSED_WARNINGS, rules);
+  }
+
   /** Used when re-loading serialized nodes. */
   public void setLine(int line) {
     token.setLine(line);
@@ -11,6 +11,8 @@
 
 package org.prorefactor.core.schema;
 
+import java.util.List;
+
 /**
  * Represents the list of all available db, aliases and tables in an OpenEdge session
  */
@@ -68,4 +70,13 @@ public interface ISchema {
    * @return Null if nothing found
    */
   Field lookupUnqualifiedField(String name);
+
+  /**
+   * Returns all schema tables defining a field with this exact name (no abbreviation). Served from an index built
+   * when schema is loaded.
+   * 
+   * @param fieldName Unqualified schema field name
+   * @return List of tables, sorted by table name and database name. Empty list if nothing found
+   */
+  List<Table> lookupTablesByField(String fieldName);
 }
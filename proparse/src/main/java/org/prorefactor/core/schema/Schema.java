@@ -15,12 +15,16 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 import org.prorefactor.treeparser.DataType;
@@ -48,12 +52,37 @@ public class Schema implements ISchema {
     }
   };
 
+  // Fields ordered by table (same order as allTables), then by name
+  private static final Comparator<Field> FIELDS_ORDER = new Comparator<Field>() {
+    @Override
+    public int compare(Field f1, Field f2) {
+      int ret = ALLTABLES_ORDER.compare(f1.getTable(), f2.getTable());
+      if (ret != 0)
+        return ret;
+      return Field.NAME_ORDER.compare(f1, f2);
+    }
+  };
+
   public static final Database nullDatabase = new Database("");
   public static final Table nullTable = new Table("");
 
+  // Meta-schema tables, read only once from /meta.txt and then copied in every database
+  private static Database metaSchema;
+
   private final Map<String, String> aliases = new HashMap<>();
   private final SortedSet<Database> dbSet = new TreeSet<>(Database.NAME_ORDER);
   private final SortedSet<Table> allTables = new TreeSet<>(ALLTABLES_ORDER);
+  // Inverted index on field names (lowercase). Exact names are resolved through the hash map, abbreviations through
+  // the navigable map. Both maps share the same sets of fields, sorted in allTables order.
+  private final Map<String, SortedSet<Field>> fieldIndex = new HashMap<>();
+  private final NavigableMap<String, SortedSet<Field>> fieldPrefixIndex = new TreeMap<>();
+
+  /**
+   * Empty schema, databases have to be added with {@link #addDatabase(Database)}
+   */
+  public Schema() {
+    // Nothing
+  }
 
   public Schema(String file) throws IOException {
     this(file, false);
@@ -102,16 +131,59 @@ public class Schema implements ISchema {
     return allTables.iterator();
   }
 
+  /**
+   * Add a database to this schema. Database object has to be fully populated (tables and fields), as tables and fields
+   * are indexed at this stage.
+   * 
+   * @param db Database object, usually built from a dump file or a schema snapshot
+   */
+  public void addDatabase(Database db) {
+    dbSet.add(db);
+    for (Table table : db.getTableSet()) {
+      allTables.add(table);
+      for (Field field : table.getFieldPosOrder()) {
+        indexField(field);
+      }
+    }
+  }
+
   public final void injectMetaSchema() throws IOException {
+    Database meta = getMetaSchema();
     for (Database db : dbSet) {
-      SchemaLineProcessor lineProcessor = new SchemaLineProcessor(db);
+      for (Table metaTable : meta.getTableSet()) {
+        Table table = new Table(metaTable.getName(), db);
+        allTables.add(table);
+        for (Field field : metaTable.getFieldPosOrder()) {
+          indexField(field.copyBare(table));
+        }
+      }
+    }
+  }
+
+  private static synchronized Database getMetaSchema() throws IOException {
+    if (metaSchema == null) {
+      Database db = new Database("");
+      Table table = null;
       try (BufferedReader reader = new BufferedReader(
-          new InputStreamReader(this.getClass().getResourceAsStream("/meta.txt")))) {
+          new InputStreamReader(Schema.class.getResourceAsStream("/meta.txt")))) {
         String line;
-        while (((line = reader.readLine()) != null) && lineProcessor.processLine(line)) {
+        while ((line = reader.readLine()) != null) {
+          List<String> list = Splitter.on(' ').omitEmptyStrings().trimResults().splitToList(line);
+          if (list.size() < 2) {
+            break;
+          }
+          if (":".equals(list.get(0))) {
+            table = new Table(list.get(1), db);
+          } else {
+            Field field = new Field(list.get(0), table);
+            field.setDataType(DataType.getDataType(list.get(1)));
+            field.setExtent(Integer.parseInt(list.get(2)));
+          }
         }
       }
+      metaSchema = db;
     }
+    return metaSchema;
   }
 
   private final void loadSchema(File file) throws IOException {
@@ -168,14 +240,41 @@ public class Schema implements ISchema {
 
   @Override
   public Field lookupUnqualifiedField(String name) {
-    Field field;
-    for (Object allTable : allTables) {
-      Table table = (Table) allTable;
-      field = table.lookupField(name);
-      if (field != null)
-        return field;
+    String lname = name.toLowerCase();
+    SortedSet<Field> exact = fieldIndex.get(lname);
+    Field field = (exact == null ? null : exact.first());
+    // Abbreviations: same result as a lookupField() on each table, i.e. first table in allTables order, then first
+    // matching field in this table
+    for (SortedSet<Field> set : fieldPrefixIndex.subMap(lname, false, lname + Character.MAX_VALUE, false).values()) {
+      Field candidate = set.first();
+      if ((field == null) || (FIELDS_ORDER.compare(candidate, field) < 0)) {
+        field = candidate;
+      }
+    }
+    return field;
+  }
+
+  @Override
+  public List<Table> lookupTablesByField(String fieldName) {
+    SortedSet<Field> set = fieldIndex.get(fieldName.toLowerCase());
+    if (set == null)
+      return Collections.emptyList();
+    List<Table> list = new ArrayList<>(set.size());
+    for (Field field : set) {
+      list.add(field.getTable());
+    }
+    return list;
+  }
+
+  private void indexField(Field field) {
+    String lname = field.getName().toLowerCase();
+    SortedSet<Field> set = fieldIndex.get(lname);
+    if (set == null) {
+      set = new TreeSet<>(FIELDS_ORDER);
+      fieldIndex.put(lname, set);
+      fieldPrefixIndex.put(lname, set);
     }
-    return null;
+    set.add(field);
   }
 
   /**
@@ -238,14 +337,6 @@ public class Schema implements ISchema {
     private Database currDatabase;
     private Table currTable;
 
-    public SchemaLineProcessor() {
-      this(null);
-    }
-
-    public SchemaLineProcessor(Database currDatabase) {
-      this.currDatabase = currDatabase;
-    }
-
     @Override
     public boolean processLine(String line) throws IOException {
       List<String> list = Splitter.on(' ').omitEmptyStrings().trimResults().splitToList(line);
@@ -268,6 +359,7 @@ public class Schema implements ISchema {
           if (field.getDataType() == null)
             throw new IOException("Unknown datatype: " + list.get(1));
           field.setExtent(Integer.parseInt(list.get(2)));
+          indexField(field);
       }
       return true;
     }
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Riverside Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Gilles Querret - initial API and implementation and/or initial documentation
+ *******************************************************************************/
+
+package org.prorefactor.core.schema;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.prorefactor.treeparser.DataType;
+
+/**
+ * Binary snapshot of a database schema (tables and fields), so that a schema doesn't have to be rebuilt from the dump
+ * file on each analysis. File layout is: magic number, format version, number of tables, then for each table its name,
+ * number of fields and for each field its name, data type and extent. Strings are stored as length-prefixed UTF-8.
+ * Database name is not stored, as the same dump file can be used under different logical names.
+ */
+public final class SchemaSnapshot {
+  private static final int MAGIC = 0x4F455343;
+  /** Has to be incremented on every change in the file layout */
+  public static final int VERSION = 1;
+
+  private SchemaSnapshot() {
+    // No constructor
+  }
+
+  /**
+   * Write tables and fields of this database to a snapshot file. Content is first written to a temporary file, and
+   * then moved to the target file, so that a concurrent reader never sees a partial snapshot.
+   */
+  public static void write(Database db, File file) throws IOException {
+    File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(db.getTableSet().size());
+      for (Table table : db.getTableSet()) {
+        writeString(out, table.getName());
+        out.writeInt(table.getFieldPosOrder().size());
+        for (Field field : table.getFieldPosOrder()) {
+          writeString(out, field.getName());
+          writeString(out, field.getDataType().getProgressName());
+          out.writeInt(field.getExtent());
+        }
+      }
+    }
+    Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Read snapshot file in one memory-mapped read.
+   *
+   * @param file Snapshot file
+   * @param dbName Logical database name of returned object
+   * @throws IOException If file is not a snapshot file, or if snapshot version is not supported
+   */
+  public static Database read(File file, String dbName) throws IOException {
+    MappedByteBuffer buffer;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    try {
+      if (buffer.getInt() != MAGIC)
+        throw new IOException("Not a schema snapshot: " + file.getAbsolutePath());
+      int version = buffer.getInt();
+      if (version != VERSION)
+        throw new IOException("Unsupported schema snapshot version " + version + ": " + file.getAbsolutePath());
+      Database db = new Database(dbName);
+      int numTables = buffer.getInt();
+      for (int zz = 0; zz < numTables; zz++) {
+        Table table = new Table(readString(buffer), db);
+        int numFields = buffer.getInt();
+        for (int yy = 0; yy < numFields; yy++) {
+          Field field = new Field(readString(buffer), table);
+          String dataType = readString(buffer);
+          field.setDataType(DataType.getDataType(dataType));
+          if (field.getDataType() == null)
+            throw new IOException("Unknown datatype: " + dataType);
+          field.setExtent(buffer.getInt());
+        }
+      }
+      return db;
+    } catch (BufferUnderflowException caught) {
+      throw new IOException("Truncated schema snapshot: " + file.getAbsolutePath(), caught);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String str) throws IOException {
+    byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+    out.writeShort(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(MappedByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -12,13 +12,17 @@ package org.prorefactor.treeparser;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import org.prorefactor.core.JPNode;
 import org.prorefactor.core.JPNodeMetrics;
+import org.prorefactor.core.NodeTypes;
 import org.prorefactor.core.nodetypes.ProgramRootNode;
+import org.prorefactor.core.nodetypes.ProparseDirectiveNode;
 import org.prorefactor.macrolevel.IncludeRef;
 import org.prorefactor.macrolevel.MacroLevel;
 import org.prorefactor.macrolevel.MacroRef;
@@ -30,6 +34,8 @@ import org.prorefactor.treeparser01.TreeParser01;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Splitter;
+
 import antlr.ANTLRException;
 import antlr.RecognitionException;
 import antlr.TokenStream;
@@ -42,6 +48,7 @@ import antlr.TokenStream;
  */
 public class ParseUnit {
   private static final Logger LOGGER = LoggerFactory.getLogger(ParseUnit.class);
+  private static final String PROLINT_NOWARN = "prolint-nowarn(";
 
   private final RefactorSession session;
   private File file;
@@ -148,10 +155,39 @@ public class ParseUnit {
       throw new RefactorException(caught);
     }
     setTopNode(doParse.getTopNode());
+    indexSuppressedWarnings();
     this.metrics = doParse.getMetrics();
     LOGGER.trace("Exiting ParseUnit#parse()");
   }
 
+  /**
+   * Parse prolint-nowarn directives only once, and attach the list of rules to the following statement. See
+   * {@link JPNode#getSuppressedWarnings()}
+   */
+  private void indexSuppressedWarnings() {
+    for (JPNode node : topNode.query(NodeTypes.PROPARSEDIRECTIVE)) {
+      String str = ((ProparseDirectiveNode) node).getDirectiveText().trim();
+      if (!str.startsWith(PROLINT_NOWARN) || (str.charAt(str.length() - 1) != ')'))
+        continue;
+      // Directives are attached to the next statement, possibly after other directives
+      JPNode statement = node.nextSibling();
+      while (statement instanceof ProparseDirectiveNode) {
+        statement = statement.nextSibling();
+      }
+      if (statement == null)
+        continue;
+      Set<String> rules = statement.getSuppressedWarnings();
+      if (rules.isEmpty()) {
+        rules = new HashSet<>();
+        statement.setSuppressedWarnings(rules);
+      }
+      for (String rule : Splitter.on(',').omitEmptyStrings().trimResults().split(
+          str.substring(PROLINT_NOWARN.length(), str.length() - 1))) {
+        rules.add(rule);
+      }
+    }
+  }
+
   /**
    * Run any IJPTreeParser against the AST. This will call parse() if the JPNode AST has not already been built.
    */
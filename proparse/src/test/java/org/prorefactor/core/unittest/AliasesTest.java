@@ -10,6 +10,7 @@
  *******************************************************************************/ 
 package org.prorefactor.core.unittest;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 
@@ -87,4 +88,14 @@ public class AliasesTest {
     assertNotNull(schema.lookupTable("foo._file"), "Table foo._file exists");
     assertNotNull(schema.lookupTable("sports2000._file"), "Table sports2000._file exists");
   }
+
+  @Test
+  public void test06() {
+    assertEquals(schema.lookupTablesByField("custnum").size(), 6);
+    assertEquals(schema.lookupTablesByField("CustNum").get(0).getName(), "BillTo");
+    assertEquals(schema.lookupTablesByField("custnu").size(), 0, "No abbreviation");
+    assertEquals(schema.lookupUnqualifiedField("custnu").getTable().getName(), "BillTo");
+    assertEquals(schema.lookupUnqualifiedField("pension4").getName(), "Pension401K");
+    assertNull(schema.lookupUnqualifiedField("xyzzy"));
+  }
 }
@@ -107,6 +107,12 @@ public class ApiTest {
     assertNotNull(left);
     assertTrue(left instanceof ProparseDirectiveNode);
     assertEquals("prolint-nowarn(something)", ((ProparseDirectiveNode) left).getDirectiveText());
+
+    // Both directives are indexed on the statement
+    assertEquals(2, node1.getSuppressedWarnings().size());
+    assertTrue(node1.getSuppressedWarnings().contains("shared"));
+    assertTrue(node1.getSuppressedWarnings().contains("something"));
+    assertTrue(node2.getSuppressedWarnings().isEmpty());
   }
 
   @Test
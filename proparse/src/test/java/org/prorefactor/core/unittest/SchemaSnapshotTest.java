@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2003-2015 John Green
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    John Green - initial API and implementation and/or initial documentation
+ *******************************************************************************/
+package org.prorefactor.core.unittest;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.prorefactor.core.schema.Database;
+import org.prorefactor.core.schema.Field;
+import org.prorefactor.core.schema.SchemaSnapshot;
+import org.prorefactor.core.schema.Table;
+import org.prorefactor.core.unittest.util.UnitTestSports2000Schema;
+import org.testng.annotations.Test;
+
+import com.google.common.io.Files;
+
+public class SchemaSnapshotTest {
+  private final static String SNAPSHOT_DIR = "target/snapshots";
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    Database db = new UnitTestSports2000Schema().lookupDatabase("sports2000");
+    assertNotNull(db);
+    File snapshot = new File(SNAPSHOT_DIR, "sports2000.schema");
+    snapshot.getParentFile().mkdirs();
+    SchemaSnapshot.write(db, snapshot);
+    assertTrue(snapshot.exists());
+
+    Database db2 = SchemaSnapshot.read(snapshot, "sp2k");
+    assertEquals(db2.getName(), "sp2k");
+    assertEquals(db2.getTableSet().size(), db.getTableSet().size());
+    Iterator<Table> iter = db2.getTableSet().iterator();
+    for (Table table : db.getTableSet()) {
+      Table table2 = iter.next();
+      assertEquals(table2.getName(), table.getName());
+      assertEquals(table2.getFieldPosOrder().size(), table.getFieldPosOrder().size());
+      // Field order is kept, as well as datatype and extent
+      for (int zz = 0; zz < table.getFieldPosOrder().size(); zz++) {
+        Field fld = table.getFieldPosOrder().get(zz);
+        Field fld2 = table2.getFieldPosOrder().get(zz);
+        assertEquals(fld2.getName(), fld.getName());
+        assertEquals(fld2.getDataType(), fld.getDataType());
+        assertEquals(fld2.getExtent(), fld.getExtent());
+      }
+    }
+  }
+
+  @Test
+  public void testInvalidSnapshot() throws IOException {
+    File snapshot = new File(SNAPSHOT_DIR, "invalid.schema");
+    snapshot.getParentFile().mkdirs();
+    Files.write(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}, snapshot);
+    try {
+      SchemaSnapshot.read(snapshot, "sp2k");
+    } catch (IOException caught) {
+      return;
+    }
+    fail("No IOException caught");
+  }
+}